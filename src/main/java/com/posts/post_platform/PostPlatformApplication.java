@@ -2,8 +2,10 @@ package com.posts.post_platform;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PostPlatformApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(PostPlatformApplication.class, args);
@@ -56,6 +56,7 @@ public class SecurityConfig implements SecurityFilterChain {
                         .requestMatchers("/community/get_all_community_members/**").permitAll()
                         .requestMatchers("/community/find_members_count/**").permitAll()
                         .requestMatchers("/community/get_all_communities").permitAll()
+                        .requestMatchers("/community/get_all_communities/stream").permitAll()
                         .anyRequest().authenticated()
                 );
         http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
@@ -1,22 +1,30 @@
 package com.posts.post_platform.controller;
 
-import com.posts.post_platform.dto.UserDto;
+import com.posts.post_platform.exceptions.PasswordHashingRejectedException;
 import com.posts.post_platform.mapper.UserMapper;
 import com.posts.post_platform.model.User;
 import com.posts.post_platform.requests.RegisterRequest;
 import com.posts.post_platform.requests.UserRequest;
+import com.posts.post_platform.security.CustomAuthenticationManager;
 import com.posts.post_platform.security.JwtTokenProvider;
+import com.posts.post_platform.security.TokenVersionService;
+import com.posts.post_platform.service.PasswordHashingService;
 import com.posts.post_platform.service.user.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @CrossOrigin("*")
 @RestController
@@ -24,7 +32,10 @@ import java.util.Optional;
 public class AuthController {
 
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private CustomAuthenticationManager authenticationManager;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
@@ -32,6 +43,16 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    /**
+     * Runs the work that follows the hashing, which reads Redis or writes MySQL, so the hashing pool only hashes.
+     */
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor applicationTaskExecutor;
+
     private final UserMapper userMapper;
 
     @Autowired
@@ -42,34 +63,69 @@ public class AuthController {
     /**
      * This method handles the login functionality. It accepts the username and password,
      * authenticates the user, and generates a JWT token if the authentication is successful.
+     * The password is checked on the password hashing pool, if that pool is saturated the request is rejected right away
+     * with SERVICE UNAVAILABLE. The token, which reads the token version from Redis, is then generated on the application
+     * task executor, so the hashing pool only hashes.
      *
      * @param loginRequest The login request containing the username and password.
      * @return A ResponseEntity with the generated JWT token if authentication is successful.
      */
     @PostMapping(path = "/login")
-    public ResponseEntity<String> login(@RequestBody UserRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<String>> login(@RequestBody UserRequest loginRequest) {
         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword());
-        Authentication auth = authenticationManager.authenticate(authenticationToken);
-        SecurityContextHolder.getContext().setAuthentication(auth);
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jwtTokenProvider.generateJwtToken(auth));
+        try {
+            return authenticationManager.authenticateAsync(authenticationToken)
+                    .thenApplyAsync(auth -> ResponseEntity.status(HttpStatus.ACCEPTED).body(jwtTokenProvider.generateJwtToken(auth)), applicationTaskExecutor)
+                    .exceptionally(ex -> {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        if (cause instanceof AuthenticationException) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(cause.getMessage());
+                    });
+        } catch (PasswordHashingRejectedException e) {
+            return CompletableFuture.completedFuture(serviceUnavailable(e));
+        }
     }
 
     /**
      * This method handles user registration. It first checks if the email provided is already registered.
      * If the email is already registered, it returns a BAD REQUEST response.
-     * Otherwise, it converts the registration request into a UserDto and returns it.
+     * Otherwise, the password is hashed on the password hashing pool, then the registration request is converted into a UserDto
+     * and the user is saved on the application task executor, so slow database writes never occupy the hashing pool.
      *
      * @param registerRequest The registration request containing user details.
      * @return A ResponseEntity with the UserDto if registration is successful, or an error message if the user is already registered.
      */
     @PostMapping(path = "/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest registerRequest) {
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody RegisterRequest registerRequest) {
         Optional<User> user = userService.getUserByEmail(registerRequest.getEmail());
         if(user.isPresent()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("User has already been registered");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("User has already been registered"));
         }
-        UserDto userDto = userMapper.convertRegisterRequestToUserDto(registerRequest);
-        return ResponseEntity.status(HttpStatus.CREATED).body(userDto);
+        try {
+            return passwordHashingService.encode(registerRequest.getPassword())
+                    .thenApplyAsync(encodedPassword -> ResponseEntity.status(HttpStatus.CREATED).body(userMapper.convertRegisterRequestToUserDto(registerRequest, encodedPassword)), applicationTaskExecutor);
+        } catch (PasswordHashingRejectedException e) {
+            return CompletableFuture.completedFuture(serviceUnavailable(e));
+        }
+    }
+
+    /**
+     * This method logs the user out of every device. All tokens issued to the user so far are revoked
+     * by increasing the user's token version, which is propagated to every node through Redis.
+     *
+     * @param userDetails The authenticated user's details.
+     * @return A ResponseEntity confirming the logout, or UNAUTHORIZED if the request is not authenticated.
+     */
+    @PostMapping(path = "/logout")
+    public ResponseEntity<String> logout(@AuthenticationPrincipal UserDetails userDetails) {
+        String username = userService.getUsernameFromAuthentication(userDetails);
+        if (username == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User is not authenticated");
+        tokenVersionService.revokeTokens(username);
+        return ResponseEntity.status(HttpStatus.OK).body("All tokens of the user have been revoked");
+    }
+
+    private ResponseEntity<String> serviceUnavailable(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
     }
 
 }
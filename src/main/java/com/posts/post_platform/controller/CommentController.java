@@ -1,14 +1,19 @@
 package com.posts.post_platform.controller;
 
 import com.posts.post_platform.exceptions.*;
+import com.posts.post_platform.model.Vote;
 import com.posts.post_platform.requests.CommentRequest;
 import com.posts.post_platform.response.CommentResponse;
+import com.posts.post_platform.response.CommentVoteResponse;
+import com.posts.post_platform.security.JwtUserDetails;
+import com.posts.post_platform.service.comment.CommentIngestionQueue;
 import com.posts.post_platform.service.comment.CommentService;
 import com.posts.post_platform.service.user.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,10 +24,12 @@ public class CommentController {
 
     private final CommentService commentService;
     private final UserService userService;
+    private final CommentIngestionQueue commentIngestionQueue;
 
-    public CommentController(CommentService commentService, UserService userService) {
+    public CommentController(CommentService commentService, UserService userService, CommentIngestionQueue commentIngestionQueue) {
         this.commentService = commentService;
         this.userService = userService;
+        this.commentIngestionQueue = commentIngestionQueue;
     }
 
     /**
@@ -37,10 +44,10 @@ public class CommentController {
     @GetMapping("/community/{communityName}/post/{postId}/get_all_comments")
     public ResponseEntity<?> getAllCommentsFromPost(@PathVariable(name = "postId") Long postId,
                                                     @PathVariable(name = "communityName") String communityName,
-                                                    @AuthenticationPrincipal UserDetails userDetails) throws Exception{
+                                                    @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
-            List<CommentResponse> responseList = commentService.getAllCommentsFromPost(postId, communityName, username);
+            List<CommentResponse> responseList = commentService.getAllCommentsFromPost(postId, communityName, username == null ? null : userDetails);
             return ResponseEntity.status(HttpStatus.OK).body(responseList);
         }  catch (UnauthorizedActionException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
@@ -51,13 +58,50 @@ public class CommentController {
         }
     }
 
+    /**
+     * This method retrieves one page of the comment thread of a specific post in a specific community.
+     * Each listed comment comes with its first replies, limited in depth and breadth, so the response size is bounded.
+     * The next page is requested with the cursor of the page, the remaining replies of a comment with its replies cursor.
+     * The page is served as cached JSON until the thread changes.
+     *
+     * @param postId The ID of the post.
+     * @param communityName The name of the community.
+     * @param sort The order of the comments, "new" (default) for the newest comments first, "old" for the oldest comments first
+     * or "top" for the best rated comments first. The sorted full comment lists keep their own meaning of "old".
+     * @param cursor The cursor of the next page or of the replies of a comment, missing for the first page.
+     * @param size The maximum number of comments listed in the page.
+     * @param userDetails The authenticated user's details.
+     * @return A page of comments or an error message.
+     */
+    @GetMapping("/community/{communityName}/post/{postId}/thread")
+    public ResponseEntity<?> getCommentThread(@PathVariable(name = "postId") Long postId,
+                                              @PathVariable(name = "communityName") String communityName,
+                                              @RequestParam(defaultValue = "new") String sort,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "20") int size,
+                                              @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
+        try {
+            String username = userService.getUsernameFromAuthentication(userDetails);
+            String commentPage = commentService.getRenderedCommentThread(postId, communityName, username == null ? null : userDetails, sort, cursor, size);
+            return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(commentPage);
+        } catch (UnauthorizedActionException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        } catch (PostNotFoundException | UserNotFoundException | CommunityNotFoundException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
     /**
      * This method retrieves all comments for a specific post in a specific community, sorted by old.
      * It takes a sorting parameter and returns the comments in the specified order.
+     * The sort options are not the ones of the paged thread: "old" lists the newest comments first, as this endpoint always
+     * did, which the paged thread calls "new"; the oldest comments first are returned for any other option but "top".
      *
      * @param postId The ID of the post.
      * @param communityName The name of the community.
-     * @param sort The sorting criteria (e.g., ascending or descending).
+     * @param sort The order of the comments, "old" for the newest comments first or "top" for the best rated comments first.
      * @param userDetails The authenticated user's details.
      * @return A sorted list of all comments or an error message.
      */
@@ -65,10 +109,10 @@ public class CommentController {
     public ResponseEntity<?> getAllCommentsFromPostSortedByOld(@PathVariable(name = "postId") Long postId,
                                                                @PathVariable(name = "communityName") String communityName,
                                                                @RequestParam(name = "sort") String sort,
-                                                               @AuthenticationPrincipal UserDetails userDetails) throws Exception{
+                                                               @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
        try {
            String username = userService.getUsernameFromAuthentication(userDetails);
-           List<CommentResponse> responseList = commentService.getAllCommentsBySorted(postId, communityName, username, sort);
+           List<CommentResponse> responseList = commentService.getAllCommentsBySorted(postId, communityName, username == null ? null : userDetails, sort);
            return ResponseEntity.status(HttpStatus.OK).body(responseList);
        } catch (UnauthorizedActionException e) {
            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
@@ -93,10 +137,10 @@ public class CommentController {
     public ResponseEntity<?> getAllCommentsBySortedTop(@RequestParam("communityName") String communityName,
                                                        @RequestParam("postId") Long postId,
                                                        @RequestParam("sort") String sort,
-                                                       @AuthenticationPrincipal UserDetails userDetails) throws Exception{
+                                                       @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
-            List<CommentResponse> responseList = commentService.getAllCommentsBySorted(postId, communityName, username, sort);
+            List<CommentResponse> responseList = commentService.getAllCommentsBySorted(postId, communityName, username == null ? null : userDetails, sort);
             return ResponseEntity.status(HttpStatus.OK).body(responseList);
         } catch (UnauthorizedActionException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
@@ -121,11 +165,11 @@ public class CommentController {
     public ResponseEntity<?> getCommentFromPost(@PathVariable(name = "postId") Long postId,
                                                 @PathVariable(name = "communityName") String communityName,
                                                 @RequestParam Long commentId,
-                                                @AuthenticationPrincipal UserDetails userDetails) throws Exception{
+                                                @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
             if (username == null) throw new UnauthorizedActionException("User is not authenticated");
-            CommentResponse response = commentService.getComment(postId, communityName, commentId, username);
+            CommentResponse response = commentService.getComment(postId, communityName, commentId, userDetails);
             return ResponseEntity.status(HttpStatus.OK).body(response);
         } catch (UnauthorizedActionException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
@@ -139,6 +183,8 @@ public class CommentController {
     /**
      * This method allows a user to add a comment to a specific post in a specific community.
      * The user must be authenticated to add a comment.
+     * When the comment ingestion is enabled, the comment is queued and acknowledged with its ID and an ACCEPTED status,
+     * and a full queue is answered with SERVICE UNAVAILABLE.
      *
      * @param postId The ID of the post.
      * @param communityName The name of the community.
@@ -150,14 +196,16 @@ public class CommentController {
     public ResponseEntity<?> addCommentToPost(@PathVariable(name = "postId") Long postId,
                                               @PathVariable(name = "communityName") String communityName,
                                               @RequestBody CommentRequest commentRequest,
-                                              @AuthenticationPrincipal UserDetails userDetails) throws Exception {
+                                              @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception {
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
             if (username == null) throw new UnauthorizedActionException("User is not authenticated");
-            CommentResponse response = commentService.addCommentToPost(communityName, postId, commentRequest, username);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            CommentResponse response = commentService.addCommentToPost(communityName, postId, commentRequest, userDetails);
+            return ResponseEntity.status(createdStatus()).body(response);
         } catch (UnauthorizedActionException e) {
           return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        } catch (CommentIngestionRejectedException e) {
+            return serviceUnavailable(e);
         } catch (PostNotFoundException | UserNotFoundException | CommunityNotFoundException | IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
@@ -168,6 +216,7 @@ public class CommentController {
     /**
      * This method allows a user to reply to an existing comment on a specific post in a specific community.
      * The user must be authenticated to reply.
+     * When the comment ingestion is enabled, the reply is queued and acknowledged like a new comment.
      *
      * @param communityName The name of the community.
      * @param postId The ID of the post.
@@ -181,14 +230,16 @@ public class CommentController {
                                             @PathVariable(name = "postId") Long postId,
                                             @RequestParam Long commentId,
                                             @RequestBody CommentRequest commentRequest,
-                                            @AuthenticationPrincipal UserDetails userDetails) throws Exception{
+                                            @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
             if (username == null) throw new UnauthorizedActionException("User is not authenticated");
-            CommentResponse commentResponse = commentService.replyToComment(communityName, postId, commentId, username, commentRequest);
-            return ResponseEntity.status(HttpStatus.CREATED).body(commentResponse);
+            CommentResponse commentResponse = commentService.replyToComment(communityName, postId, commentId, userDetails, commentRequest);
+            return ResponseEntity.status(createdStatus()).body(commentResponse);
         } catch (UnauthorizedActionException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        } catch (CommentIngestionRejectedException e) {
+            return serviceUnavailable(e);
         } catch (PostNotFoundException | UserNotFoundException | CommunityNotFoundException | CommentNotFoundException | IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
@@ -206,11 +257,11 @@ public class CommentController {
      * @return The updated like count or an error message.
      */
     @PostMapping("like_comment")
-    public ResponseEntity<?> likeComment(@RequestParam("postId") Long postId, @RequestParam("commentId") Long commentId, @AuthenticationPrincipal UserDetails userDetails) throws Exception{
+    public ResponseEntity<?> likeComment(@RequestParam("postId") Long postId, @RequestParam("commentId") Long commentId, @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
             if (username == null) throw new UnauthorizedActionException("User is not authenticated");
-            String likeCount = commentService.likeComment(postId, commentId, username);
+            String likeCount = commentService.likeComment(postId, commentId, userDetails);
             return ResponseEntity.status(HttpStatus.OK).body(likeCount);
         } catch (UnauthorizedActionException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
@@ -231,11 +282,11 @@ public class CommentController {
      * @return The updated like count or an error message.
      */
     @PostMapping("unlike_comment")
-    public ResponseEntity<?> unlikeComment(@RequestParam("postId") Long postId, @RequestParam("commentId") Long commentId, @AuthenticationPrincipal UserDetails userDetails) throws Exception{
+    public ResponseEntity<?> unlikeComment(@RequestParam("postId") Long postId, @RequestParam("commentId") Long commentId, @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
             if (username == null) throw new UnauthorizedActionException("User is not authenticated");
-            String unlikeCount = commentService.unlikeComment(postId, commentId, username);
+            String unlikeCount = commentService.unlikeComment(postId, commentId, userDetails);
             return ResponseEntity.status(HttpStatus.OK).body(unlikeCount);
         } catch (UnauthorizedActionException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
@@ -246,5 +297,37 @@ public class CommentController {
         }
     }
 
+    /**
+     * This method sets the vote of the authenticated user on a comment to up, down or none.
+     * Each user has at most one vote per comment, changing it only moves the counts by the difference.
+     *
+     * @param postId The ID of the post.
+     * @param commentId The ID of the comment.
+     * @param vote The new vote, "up", "down" or "none".
+     * @param userDetails The authenticated user's details.
+     * @return The vote of the user with the like and unlike counts of the comment or an error message.
+     */
+    @PutMapping("vote_comment")
+    public ResponseEntity<?> voteComment(@RequestParam("postId") Long postId, @RequestParam("commentId") Long commentId, @RequestParam("vote") String vote, @AuthenticationPrincipal JwtUserDetails userDetails) throws Exception{
+        try {
+            String username = userService.getUsernameFromAuthentication(userDetails);
+            if (username == null) throw new UnauthorizedActionException("User is not authenticated");
+            CommentVoteResponse commentVoteResponse = commentService.voteComment(postId, commentId, Vote.fromRequest(vote), userDetails);
+            return ResponseEntity.status(HttpStatus.OK).body(commentVoteResponse);
+        } catch (UnauthorizedActionException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        } catch (PostNotFoundException | UserNotFoundException | CommentNotFoundException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    private HttpStatus createdStatus() {
+        return commentIngestionQueue.isEnabled() ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+    }
 
+    private ResponseEntity<String> serviceUnavailable(CommentIngestionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+    }
 }
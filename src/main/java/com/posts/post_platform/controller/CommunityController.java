@@ -1,15 +1,18 @@
 package com.posts.post_platform.controller;
 
-import com.posts.post_platform.dto.UserDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.posts.post_platform.dto.CommunitySummary;
 import com.posts.post_platform.exceptions.CommunityAlreadyExistsException;
 import com.posts.post_platform.exceptions.CommunityNotFoundException;
 import com.posts.post_platform.exceptions.UnauthorizedActionException;
 import com.posts.post_platform.exceptions.UserNotFoundException;
-import com.posts.post_platform.model.Community;
 import com.posts.post_platform.requests.CommunityRequest;
 import com.posts.post_platform.requests.UpdateCommunityRequest;
+import com.posts.post_platform.response.CommunityPageResponse;
 import com.posts.post_platform.response.CommunityResponse;
 import com.posts.post_platform.response.CommunityResponseWithApprovedUsers;
+import com.posts.post_platform.response.MemberPageResponse;
 import com.posts.post_platform.service.RedisService;
 import com.posts.post_platform.service.community.CommunityService;
 import com.posts.post_platform.service.user.UserService;
@@ -17,12 +20,15 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @RestController
 @RequestMapping(path = "/community")
@@ -30,12 +36,14 @@ public class CommunityController {
     private final CommunityService communityService;
     private final RedisService redisService;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public CommunityController(CommunityService communityService, RedisService redisService, UserService userService) {
+    public CommunityController(CommunityService communityService, RedisService redisService, UserService userService, ObjectMapper objectMapper) {
         this.communityService = communityService;
         this.redisService = redisService;
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -69,16 +77,22 @@ public class CommunityController {
     }
 
     /**
-     * Get all members of a specific community.
+     * Get one page of the members of a specific community.
      * @param community_id The ID of the community.
-     * @return A list of users in the community.
+     * @param cursor The cursor returned with the previous page, omitted for the first page.
+     * @param size The maximum number of members in the page.
+     * @param username The prefix the usernames of the members must start with, omitted for all members.
+     * @return The members of the page and the cursor of the next page.
      */
     @GetMapping("/get_all_community_members/{community_id}")
-    public ResponseEntity<?> getAllMembers(@PathVariable Long community_id) throws Exception{
+    public ResponseEntity<?> getAllMembers(@PathVariable Long community_id,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "50") int size,
+                                           @RequestParam(required = false) String username) throws Exception{
         try {
-            List<UserDto> userList = communityService.getAllMembers(community_id);
-            if (userList.isEmpty()) return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Members not found");
-            return ResponseEntity.status(HttpStatus.OK).body(userList);
+            MemberPageResponse memberPage = communityService.getMembers(community_id, cursor, size, username);
+            if (memberPage.getMembers().isEmpty() && cursor == null) return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Members not found");
+            return ResponseEntity.status(HttpStatus.OK).body(memberPage);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
@@ -92,7 +106,7 @@ public class CommunityController {
     @GetMapping("/find_members_count/{community_id}")
     public ResponseEntity<?> getMembersCount(@PathVariable Long community_id) throws Exception{
         try {
-            int membersCount = communityService.getMembersCount(community_id);
+            long membersCount = communityService.getMembersCount(community_id);
             if(membersCount == 0) return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Members count is : " + membersCount);
             return ResponseEntity.status(HttpStatus.OK).body("Members count is : " + membersCount);
         } catch (Exception ex) {
@@ -101,19 +115,47 @@ public class CommunityController {
     }
 
     /**
-     * Get all communities.
-     * @return A list of all communities.
+     * Get one page of the community directory.
+     * @param cursor The cursor returned with the previous page, omitted for the first page.
+     * @param size The maximum number of communities in the page.
+     * @param sort "id" for id order or "new" for the newest communities first.
+     * @return The communities of the page and the cursor of the next page.
      */
     @GetMapping("/get_all_communities")
-    public ResponseEntity<?> getAllCommunities() throws Exception{
+    public ResponseEntity<?> getAllCommunities(@RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "50") int size,
+                                               @RequestParam(defaultValue = "id") String sort) throws Exception{
         try {
-            List<CommunityResponse> communityResponseList = communityService.getAllCommunities();
-            return ResponseEntity.status(HttpStatus.OK).body(communityResponseList);
+            CommunityPageResponse communityPageResponse = communityService.getCommunityDirectory(cursor, size, sort);
+            return ResponseEntity.status(HttpStatus.OK).body(communityPageResponse);
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         }
     }
 
+    /**
+     * Stream the whole community directory as one JSON array.
+     * The communities are written as they are read from the database, so the response is never held in memory.
+     * @return The JSON array of all communities in id order.
+     */
+    @GetMapping(value = "/get_all_communities/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllCommunities() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                communityService.streamAllCommunities(communityResponse -> {
+                    try {
+                        generator.writeObject(communityResponse);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.status(HttpStatus.OK).body(body);
+    }
+
     /**
      * Request to join a community.
      * @param community_id The ID of the community.
@@ -122,7 +164,7 @@ public class CommunityController {
      */
     @PostMapping("/request_to_join_community/community_id/{community_id}")
     public ResponseEntity<?> requestToJoinCommunity(@PathVariable(name = "community_id") Long community_id, @AuthenticationPrincipal UserDetails userDetails) {
-        Community community = communityService.findCommunityById(community_id).orElseThrow(() -> new CommunityNotFoundException("Community not found with id : " + community_id));
+        CommunitySummary community = communityService.findCommunitySummaryById(community_id).orElseThrow(() -> new CommunityNotFoundException("Community not found with id : " + community_id));
         try {
             String username = userService.getUsernameFromAuthentication(userDetails);
             if (username == null) throw new UnauthorizedActionException("User is not authenticated");
@@ -130,7 +172,7 @@ public class CommunityController {
                 CommunityResponseWithApprovedUsers response = communityService.addUserToCommunity(community, username);
                 return ResponseEntity.status(HttpStatus.OK).body(response);
             } else {
-                Long userId = userService.getUserId(username);
+                Long userId = userService.getUserId(userDetails);
                 boolean added = redisService.saveJoinRequest(community_id, userId, username);
                 if (!added) {
                     return ResponseEntity.status(HttpStatus.CONFLICT).body("Join request already exists!");
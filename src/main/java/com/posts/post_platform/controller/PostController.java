@@ -1,17 +1,25 @@
 package com.posts.post_platform.controller;
 
+import com.posts.post_platform.dto.CommunitySummary;
 import com.posts.post_platform.dto.PostDto;
 import com.posts.post_platform.exceptions.CommunityNotFoundException;
 import com.posts.post_platform.exceptions.UnauthorizedActionException;
 import com.posts.post_platform.exceptions.UserNotFoundException;
 import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommunityRole;
+import com.posts.post_platform.model.PostFeedSort;
 import com.posts.post_platform.model.User;
+import com.posts.post_platform.model.Vote;
 import com.posts.post_platform.requests.UpdatePostRequest;
 import com.posts.post_platform.response.PendingPost;
+import com.posts.post_platform.response.PostPageResponse;
 import com.posts.post_platform.response.PostResponse;
+import com.posts.post_platform.security.JwtUserDetails;
+import com.posts.post_platform.service.community.CommunityRoleResolver;
 import com.posts.post_platform.service.community.CommunityService;
 import com.posts.post_platform.service.moderation.ModerationService;
 import com.posts.post_platform.service.post.PostService;
+import com.posts.post_platform.service.timeline.HomeTimelineService;
 import com.posts.post_platform.service.user.UserService;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
@@ -25,7 +33,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/posts")
@@ -43,9 +50,15 @@ public class PostController {
     @Autowired
     private ModerationService moderationService;
 
+    @Autowired
+    private CommunityRoleResolver communityRoleResolver;
+
     @Autowired
     private EntityManager entityManager;
 
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+
     /**
      * This method retrieves a specific post by its ID.
      * The post ID is passed as a path variable in the URL.
@@ -64,52 +77,86 @@ public class PostController {
     }
 
     /**
-     * This method retrieves all posts associated with a specific community, identified by the community name.
+     * This method retrieves one page of the posts of a specific community, identified by the community name.
      * It also takes the authenticated user's details to fetch posts visible to them in that community.
-     * If successful, it returns a list of posts in the response with HTTP status 200 (OK).
+     * The posts are sorted by "new" (default), "active", "hot" or "top", the top ranking covers the time window "day" (default), "week" or "all".
+     * The next page is requested with the cursor returned with the previous page.
+     * If successful, it returns the page of posts in the response with HTTP status 200 (OK).
      * If any exception occurs, it returns a bad request status (400) with the exception message.
      */
     @GetMapping("get_posts/community_name/{community_name}")
-    public ResponseEntity<?> getPostsByCommunity(@PathVariable String community_name, @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> getPostsByCommunity(@PathVariable String community_name,
+                                                 @RequestParam(defaultValue = "new") String sort,
+                                                 @RequestParam(defaultValue = "day") String t,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "25") int size,
+                                                 @AuthenticationPrincipal JwtUserDetails userDetails) {
         try {
-            String username = userDetails.getUsername();
-            List<PostResponse> postResponseList = postService.getPostsByCommunity(community_name, username);
-            return ResponseEntity.status(HttpStatus.OK).body(postResponseList);
+            PostPageResponse postPageResponse = postService.getPostsByCommunity(community_name, userDetails, PostFeedSort.fromRequest(sort, t), cursor, size);
+            return ResponseEntity.status(HttpStatus.OK).body(postPageResponse);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
     /**
-     * This method retrieves all posts written by a specific user, identified by their username.
-     * The service layer fetches the posts based on the username, and the current authenticated user's username.
-     * If successful, it returns a list of posts written by the user in the response with HTTP status 200 (OK).
+     * This method retrieves one page of the posts written by a specific user, identified by their username, newest first.
+     * Only the posts visible to the current authenticated user are returned, anonymous viewers only see posts of public communities.
+     * The next page is requested with the cursor returned with the previous page.
+     * If successful, it returns the page of posts written by the user in the response with HTTP status 200 (OK).
      * If any exception occurs, it returns a bad request status (400) with the exception message.
      */
     @GetMapping("get_posts/user/{username}")
-    public ResponseEntity<?> getPostsByUsername(@PathVariable String username, @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> getPostsByUsername(@PathVariable String username,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "25") int size,
+                                                @AuthenticationPrincipal JwtUserDetails userDetails) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String u_name = (authentication != null && authentication.isAuthenticated()) ? userDetails.getUsername() : null;
-            List<PostResponse> postResponseList = postService.getPostsByUsername(username, u_name);
-            return ResponseEntity.status(HttpStatus.OK).body(postResponseList);
+            JwtUserDetails viewer = (authentication != null && authentication.isAuthenticated()) ? userDetails : null;
+            PostPageResponse postPageResponse = postService.getPostsByUsername(username, viewer, cursor, size);
+            return ResponseEntity.status(HttpStatus.OK).body(postPageResponse);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
 
     /**
-     * This method retrieves posts from a specific community, identified by its community ID.
+     * This method retrieves one page of the posts of a specific community, identified by its community ID.
      * The authenticated user's username is passed to ensure proper access control.
-     * If successful, it returns a list of posts from the specified community with HTTP status 200 (OK).
+     * The posts are sorted by "new" (default), "active", "hot" or "top", the top ranking covers the time window "day" (default), "week" or "all".
+     * The next page is requested with the cursor returned with the previous page.
+     * If successful, it returns the page of posts from the specified community with HTTP status 200 (OK).
      * If any exception occurs, it returns a bad request status (400) with the exception message.
      */
     @GetMapping("get_posts/community_id/{community_id}")
-    public ResponseEntity<?> getPostsByCommunityId(@PathVariable Long community_id, @AuthenticationPrincipal UserDetails userDetails){
+    public ResponseEntity<?> getPostsByCommunityId(@PathVariable Long community_id,
+                                                   @RequestParam(defaultValue = "new") String sort,
+                                                   @RequestParam(defaultValue = "day") String t,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "25") int size,
+                                                   @AuthenticationPrincipal JwtUserDetails userDetails){
+        try {
+            PostPageResponse postPageResponse = postService.getPostsByCommunityId(community_id, userDetails, PostFeedSort.fromRequest(sort, t), cursor, size);
+            return ResponseEntity.status(HttpStatus.OK).body(postPageResponse);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * This method retrieves one page of the home timeline of the authenticated user, the newest posts of all communities the user joined.
+     * The next page is requested with the cursor returned with the previous page.
+     * If successful, it returns the page of posts with HTTP status 200 (OK).
+     * If any exception occurs, it returns a bad request status (400) with the exception message.
+     */
+    @GetMapping("home")
+    public ResponseEntity<?> getHomeTimeline(@RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "25") int size,
+                                             @AuthenticationPrincipal JwtUserDetails userDetails) {
         try {
-            String username = userDetails.getUsername();
-            List<PostResponse> postResponseList = postService.getPostsByCommunityId(community_id, username);
-            return ResponseEntity.status(HttpStatus.OK).body(postResponseList);
+            PostPageResponse postPageResponse = homeTimelineService.getHomeTimeline(userService.getUserId(userDetails), cursor, size);
+            return ResponseEntity.status(HttpStatus.OK).body(postPageResponse);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
@@ -127,23 +174,22 @@ public class PostController {
     @Transactional
     public ResponseEntity<?> createPost(@PathVariable(name = "communityId") Long communityId, @Valid @RequestBody PostDto postDto, @AuthenticationPrincipal UserDetails userDetails) {
         try {
-            Community community = communityService.findCommunityById(communityId).orElseThrow(() -> new CommunityNotFoundException("Community not found with id : " + communityId));
+            CommunitySummary community = communityService.findCommunitySummaryById(communityId).orElseThrow(() -> new CommunityNotFoundException("Community not found with id : " + communityId));
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String username = (authentication != null && authentication.isAuthenticated()) ? userDetails.getUsername() : null;
             if (username == null) throw new UnauthorizedActionException("User is not authenticated");
             User user = userService.getUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-            Community managedCommunity = entityManager.merge(community);
+            Community managedCommunity = entityManager.getReference(Community.class, community.getId());
             User managedUser = entityManager.merge(user);
             if (!community.isPrivate()) {
                 PostResponse postResponse = postService.createPost(managedCommunity, postDto, managedUser);
                 return ResponseEntity.status(HttpStatus.CREATED).body(postResponse);
             } else {
-                boolean isModerator = managedCommunity.getModerators().stream().anyMatch(mod -> mod.equals(managedUser));
-                boolean isMember = managedCommunity.getApprovedUsers().stream().anyMatch(member -> member.equals(managedUser));
-                if (managedCommunity.getCreator().equals(managedUser) || isModerator) {
+                int roles = communityRoleResolver.resolve(managedCommunity.getId(), managedUser.getId());
+                if (CommunityRole.CREATOR.isIn(roles) || CommunityRole.MODERATOR.isIn(roles)) {
                     PostResponse postResponse = postService.createPost(managedCommunity, postDto, managedUser);
                     return ResponseEntity.status(HttpStatus.CREATED).body(postResponse);
-                } else if (isMember) {
+                } else if (CommunityRole.MEMBER.isIn(roles)) {
                     PendingPost pendingPostResponse = moderationService.createPendingPost(managedCommunity, postDto, managedUser);
                     return ResponseEntity.status(HttpStatus.CREATED).body(pendingPostResponse);
                 } else {
@@ -178,6 +224,53 @@ public class PostController {
         }
     }
 
+    /**
+     * This method likes a post for the authenticated user.
+     * The like is recorded once per user, liking the same post again leaves the like count unchanged.
+     * If successful, it returns the post with its like count with HTTP status 200 (OK).
+     * If any exception occurs, it returns a bad request status (400) with the exception message.
+     */
+    @PostMapping("like_post/post/{post_id}")
+    public ResponseEntity<?> likePost(@PathVariable Long post_id, @AuthenticationPrincipal JwtUserDetails userDetails) {
+        try {
+            PostResponse postResponse = postService.likePost(post_id, userDetails);
+            return ResponseEntity.status(HttpStatus.OK).body(postResponse);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * This method removes the vote of the authenticated user from a post.
+     * If successful, it returns the post with its like count with HTTP status 200 (OK).
+     * If any exception occurs, it returns a bad request status (400) with the exception message.
+     */
+    @DeleteMapping("like_post/post/{post_id}")
+    public ResponseEntity<?> unlikePost(@PathVariable Long post_id, @AuthenticationPrincipal JwtUserDetails userDetails) {
+        try {
+            PostResponse postResponse = postService.unlikePost(post_id, userDetails);
+            return ResponseEntity.status(HttpStatus.OK).body(postResponse);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    /**
+     * This method sets the vote of the authenticated user on a post to up, down or none.
+     * Each user has at most one vote per post, changing it only moves the counts by the difference.
+     * If successful, it returns the post with its like and dislike counts with HTTP status 200 (OK).
+     * If any exception occurs, it returns a bad request status (400) with the exception message.
+     */
+    @PutMapping("vote_post/post/{post_id}")
+    public ResponseEntity<?> votePost(@PathVariable Long post_id, @RequestParam String vote, @AuthenticationPrincipal JwtUserDetails userDetails) {
+        try {
+            PostResponse postResponse = postService.votePost(post_id, Vote.fromRequest(vote), userDetails);
+            return ResponseEntity.status(HttpStatus.OK).body(postResponse);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
     /**
      * This method deletes a post based on its post ID.
      * The service layer is called to handle the deletion, and the authenticated user's username is used for authorization.
@@ -0,0 +1,36 @@
+package com.posts.post_platform.dto;
+
+import com.posts.post_platform.model.CommentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One comment of a thread, selected directly by the repository together with the username of its author and the id
+ * of its parent, so a whole thread is read with one query and linked into a tree in memory without loading entities.
+ * The like and unlike counts are missing when the entry only describes the comment itself, the stored ranking score
+ * is only selected by the queries of thread pages.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentTreeEntry {
+    private Long id;
+    private Long parentId;
+    private String content;
+    private CommentStatus commentStatus;
+    private String authorUsername;
+    private Integer like;
+    private Integer unlike;
+    private Double score;
+
+    public CommentTreeEntry(Long id, Long parentId, String content, CommentStatus commentStatus, String authorUsername) {
+        this(id, parentId, content, commentStatus, authorUsername, null, null);
+    }
+
+    public CommentTreeEntry(Long id, Long parentId, String content, CommentStatus commentStatus, String authorUsername, Integer like, Integer unlike) {
+        this(id, parentId, content, commentStatus, authorUsername, like, unlike, null);
+    }
+}
@@ -0,0 +1,19 @@
+package com.posts.post_platform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The like and unlike counts of a comment as stored in MySQL, without the changes that are not flushed yet.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentVoteCounts {
+    private Long id;
+    private Integer like;
+    private Integer unlike;
+}
@@ -0,0 +1,28 @@
+package com.posts.post_platform.dto;
+
+import com.posts.post_platform.model.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One row of the community directory, selected directly by the repository without loading community entities.
+ * The id and creation time are kept for the directory cursor.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommunityDirectoryEntry {
+    private Long id;
+    private Long creatorId;
+    private String communityName;
+    private String description;
+    private LocalDateTime createdAt;
+    private List<String> topics;
+    private AccessLevel accessLevel;
+}
@@ -0,0 +1,29 @@
+package com.posts.post_platform.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.posts.post_platform.model.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read model of a community for lookups that only need to know which community it is and who may access it.
+ * It is selected directly by the repository, so neither the members nor the moderators of the community are loaded.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommunitySummary {
+    private Long id;
+    private String communityName;
+    private AccessLevel accessLevel;
+    private Long creatorId;
+    private Long memberCount;
+
+    @JsonIgnore
+    public boolean isPrivate() {
+        return accessLevel == AccessLevel.PRIVATE;
+    }
+}
@@ -0,0 +1,23 @@
+package com.posts.post_platform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a post that queued comments are checked against and counted on, read without loading the post,
+ * its creator or its community.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostCommentTarget {
+    private Long id;
+    private String title;
+    private Long communityId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,39 @@
+package com.posts.post_platform.dto;
+
+import com.posts.post_platform.model.Status;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One post of a feed, selected directly by the repository together with the username of its creator,
+ * so neither post, user nor community entities are loaded. The id and creation time are kept for the feed cursor.
+ * The community name is only selected by queries that span communities, a community feed takes it from the community.
+ * The comment count and last activity time are the ones kept on the post, the last activity time is also the cursor of the "active" feed.
+ * The like and dislike counts are the stored ones, the votes that are not flushed yet are added when the entry is returned.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostFeedEntry {
+    private Long id;
+    private String title;
+    private String content;
+    private LocalDateTime createdAt;
+    private Status status;
+    private String creatorUsername;
+    private String communityName;
+    private Long commentCount;
+    private LocalDateTime lastActivityAt;
+    private Integer likeCount;
+    private Integer dislikeCount;
+
+    public PostFeedEntry(Long id, String title, String content, LocalDateTime createdAt, Status status, String creatorUsername,
+                         Long commentCount, LocalDateTime lastActivityAt, Integer likeCount, Integer dislikeCount) {
+        this(id, title, content, createdAt, status, creatorUsername, null, commentCount, lastActivityAt, likeCount, dislikeCount);
+    }
+}
@@ -0,0 +1,22 @@
+package com.posts.post_platform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The creation time and points of a post as stored in MySQL, used to reseed the post rankings of a community.
+ * The points of a post are its likes minus its dislikes plus its active comments.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostRankingSeed {
+    private Long id;
+    private LocalDateTime createdAt;
+    private Long points;
+}
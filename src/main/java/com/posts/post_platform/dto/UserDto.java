@@ -1,5 +1,6 @@
 package com.posts.post_platform.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.posts.post_platform.model.Role;
 import lombok.*;
 
@@ -13,8 +14,17 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserDto {
+    /**
+     * Only used as the position of member list cursors, it is not part of the response.
+     */
+    @JsonIgnore
+    private Long id;
     private String username;
     private String email;
     private LocalDateTime createdAt;
     private List<Role> role;
+
+    public UserDto(String username, String email, LocalDateTime createdAt, List<Role> role) {
+        this(null, username, email, createdAt, role);
+    }
 }
@@ -0,0 +1,7 @@
+package com.posts.post_platform.exceptions;
+
+public class CommentIngestionRejectedException extends RuntimeException {
+    public CommentIngestionRejectedException(String message) {
+        super(message);
+    }
+}
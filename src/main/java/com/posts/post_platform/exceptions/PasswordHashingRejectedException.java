@@ -0,0 +1,7 @@
+package com.posts.post_platform.exceptions;
+
+public class PasswordHashingRejectedException extends RuntimeException {
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
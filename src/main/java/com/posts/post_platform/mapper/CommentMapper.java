@@ -1,5 +1,6 @@
 package com.posts.post_platform.mapper;
 
+import com.posts.post_platform.dto.CommentTreeEntry;
 import com.posts.post_platform.model.Comment;
 import com.posts.post_platform.model.CommentStatus;
 import com.posts.post_platform.model.Post;
@@ -11,7 +12,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class CommentMapper {
@@ -19,9 +24,11 @@ public class CommentMapper {
     private CommentRepository commentRepository;
 
     public Comment addCommentToPost(CommentRequest commentRequest, Post post, User user) {
+        LocalDateTime now = LocalDateTime.now();
         return Comment.builder()
                 .commentStatus(CommentStatus.ACTIVE)
-                .createdAt(LocalDateTime.now())
+                .createdAt(now)
+                .updatedAt(now)
                 .content(commentRequest.getContent())
                 .post(post)
                 .commentAuthor(user)
@@ -30,6 +37,10 @@ public class CommentMapper {
     }
 
     public CommentResponse convertCommentToResponse(Comment comment) {
+        return convertCommentToResponse(comment, comment.getCommentAuthor().getUsername());
+    }
+
+    public CommentResponse convertCommentToResponse(Comment comment, String commentAuthorName) {
         Long parentCommentId = comment.getParentComment() != null ? comment.getParentComment().getId() : null;
         return CommentResponse.builder()
                 .commentStatus(comment.getCommentStatus().name())
@@ -37,40 +48,74 @@ public class CommentMapper {
                 .content(comment.getContent())
                 .postId(comment.getPost().getId())
                 .postName(comment.getPost().getTitle())
-                .commentAuthorName(comment.getCommentAuthor().getUsername())
+                .commentAuthorName(commentAuthorName)
                 .parentCommentId(parentCommentId)
                 .childComments(null)
                 .build();
     }
 
-    public CommentResponse convertCommentToResponseWithChildComments(Comment comment) {
-        Long parentCommentId = comment.getParentComment() != null ? comment.getParentComment().getId() : null;
-        List<CommentResponse> childComments = (comment.getChildComments() != null && !comment.getChildComments().isEmpty()) ?
-                comment.getChildComments().stream().map(this::convertCommentToResponseWithChildComments).toList() : null;
+    public CommentResponse convertTreeEntryToResponse(CommentTreeEntry entry, Long postId, String postName) {
         return CommentResponse.builder()
-                .commentStatus(comment.getCommentStatus().name())
-                .commentId(comment.getId())
-                .content(comment.getContent())
-                .postId(comment.getPost().getId())
-                .postName(comment.getPost().getTitle())
-                .commentAuthorName(comment.getCommentAuthor().getUsername())
-                .parentCommentId(parentCommentId)
-                .childComments(childComments)
+                .commentStatus(entry.getCommentStatus().name())
+                .commentId(entry.getId())
+                .content(entry.getContent())
+                .postId(postId)
+                .postName(postName)
+                .commentAuthorName(entry.getAuthorUsername())
+                .parentCommentId(entry.getParentId())
+                .likeCount(entry.getLike() == null ? null : entry.getLike().longValue())
+                .unlikeCount(entry.getUnlike() == null ? null : entry.getUnlike().longValue())
+                .childComments(null)
                 .build();
     }
 
-    public List<CommentResponse> convertAllCommentsToResponse(List<Comment> comments) {
-        return comments.stream().map(this::convertCommentToResponseWithChildComments).toList();
+    /**
+     * Links the comments of a thread into trees in O(n), the entries may come in any order.
+     * Siblings keep the order of the entries, comments without replies have no child list.
+     * @return The top level comments with their replies.
+     */
+    public List<CommentResponse> convertCommentTreeToResponse(List<CommentTreeEntry> entries, Long postId, String postName) {
+        List<CommentResponse> roots = new ArrayList<>();
+        linkCommentTree(entries, postId, postName, roots);
+        return roots;
+    }
+
+    /**
+     * Links the comments of a thread like {@link #convertCommentTreeToResponse(List, Long, String)} and returns one of them.
+     * @return The comment with its replies, empty if the comment is not part of the thread.
+     */
+    public Optional<CommentResponse> convertCommentSubtreeToResponse(List<CommentTreeEntry> entries, Long postId, String postName, Long commentId) {
+        return Optional.ofNullable(linkCommentTree(entries, postId, postName, new ArrayList<>()).get(commentId));
+    }
+
+    private Map<Long, CommentResponse> linkCommentTree(List<CommentTreeEntry> entries, Long postId, String postName, List<CommentResponse> roots) {
+        Map<Long, CommentResponse> responses = new HashMap<>(entries.size() * 2);
+        for (CommentTreeEntry entry : entries) {
+            responses.put(entry.getId(), convertTreeEntryToResponse(entry, postId, postName));
+        }
+        for (CommentTreeEntry entry : entries) {
+            CommentResponse response = responses.get(entry.getId());
+            CommentResponse parent = entry.getParentId() != null ? responses.get(entry.getParentId()) : null;
+            if (parent == null) {
+                roots.add(response);
+            } else {
+                if (parent.getChildComments() == null) parent.setChildComments(new ArrayList<>());
+                parent.getChildComments().add(response);
+            }
+        }
+        return responses;
     }
 
     public Comment replyToComment(CommentRequest commentRequest, Post post, User user, Comment parentComment) {
+        LocalDateTime now = LocalDateTime.now();
         return Comment.builder()
                 .commentStatus(CommentStatus.ACTIVE)
                 .content(commentRequest.getContent())
                 .post(post)
                 .commentAuthor(user)
                 .parentComment(parentComment)
-                .createdAt(LocalDateTime.now())
+                .createdAt(now)
+                .updatedAt(now)
                 .childComments(null)
                 .build();
     }
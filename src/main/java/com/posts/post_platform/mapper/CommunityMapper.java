@@ -1,5 +1,6 @@
 package com.posts.post_platform.mapper;
 
+import com.posts.post_platform.dto.CommunityDirectoryEntry;
 import com.posts.post_platform.dto.UserDto;
 import com.posts.post_platform.model.AccessLevel;
 import com.posts.post_platform.model.Community;
@@ -11,6 +12,7 @@ import com.posts.post_platform.response.CommunityWithAdditionalDataResponse;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -26,6 +28,17 @@ public class CommunityMapper {
                 .build();
     }
 
+    public CommunityResponse convertDirectoryEntryToResponse(CommunityDirectoryEntry entry) {
+        return CommunityResponse.builder()
+                .community_name(entry.getCommunityName())
+                .creatorId(entry.getCreatorId())
+                .description(entry.getDescription())
+                .createdAt(entry.getCreatedAt())
+                .topics(entry.getTopics())
+                .access_level(entry.getAccessLevel().name())
+                .build();
+    }
+
     public Community convertCommunityRequestToModel(CommunityRequest communityRequest, User user) {
         return Community.builder()
                 .creator(user)
@@ -46,14 +59,22 @@ public class CommunityMapper {
                 .createdAt(community.getCreatedAt())
                 .topics(community.getTopics())
                 .access_level(community.getAccess_level().name())
-                .approvedUsers(community.getApprovedUsers())
-                .moderators(community.getModerators())
+                .approvedUsers(new ArrayList<>(community.getApprovedUsers()))
+                .moderators(new ArrayList<>(community.getModerators()))
                 .posts(community.getPosts())
                 .build();
     }
 
     public CommunityResponseWithApprovedUsers convertCommunityToResponseWithApprovedUsers(Community community) {
-        List<UserDto> userDtoList = community.getApprovedUsers().stream().map(user -> UserDto.builder().email(user.getEmail()).username(user.getUsername()).createdAt(user.getCreatedAt()).role(user.getRole()).build()).toList();
+        List<UserDto> userDtoList = community.getApprovedUsers().stream().map(this::convertUserToUserDto).toList();
+        return convertCommunityToResponseWithApprovedUsers(community, userDtoList);
+    }
+
+    public CommunityResponseWithApprovedUsers convertCommunityToResponseWithNewMember(Community community, User newMember) {
+        return convertCommunityToResponseWithApprovedUsers(community, List.of(convertUserToUserDto(newMember)));
+    }
+
+    private CommunityResponseWithApprovedUsers convertCommunityToResponseWithApprovedUsers(Community community, List<UserDto> userDtoList) {
         return CommunityResponseWithApprovedUsers.builder()
                 .community_name(community.getCommunityName())
                 .creatorId(community.getCreator().getId())
@@ -64,4 +85,8 @@ public class CommunityMapper {
                 .approvedUsers(userDtoList)
                 .build();
     }
+
+    private UserDto convertUserToUserDto(User user) {
+        return UserDto.builder().email(user.getEmail()).username(user.getUsername()).createdAt(user.getCreatedAt()).role(user.getRole()).build();
+    }
 }
@@ -1,6 +1,7 @@
 package com.posts.post_platform.mapper;
 
 import com.posts.post_platform.dto.PostDto;
+import com.posts.post_platform.dto.PostFeedEntry;
 import com.posts.post_platform.model.Community;
 import com.posts.post_platform.model.Post;
 import com.posts.post_platform.model.Status;
@@ -17,27 +18,35 @@ import java.util.Map;
 public class PostMapper {
 
     public Post convertPostDtoToPostModel(PostDto postDto, String status, User creator, Community community) {
+        LocalDateTime now = LocalDateTime.now();
         return Post.builder()
                 .content(postDto.getContent())
                 .title(postDto.getTitle())
                 .status(Status.fromString(status))
                 .creator(creator)
                 .community(community)
-                .createdAt(LocalDateTime.now())
+                .createdAt(now)
                 .likeCount(0)
+                .dislikeCount(0)
+                .commentCount(0L)
+                .lastActivityAt(now)
                 .comments(new ArrayList<>())
                 .build();
     }
 
     public Post createPostModel(Map<String, Object> post, User user, Community community) {
+        LocalDateTime requestedAt = LocalDateTime.parse((String) post.get("requested_at"));
         return Post.builder()
                 .content(post.get("content").toString())
                 .title(post.get("title").toString())
                 .status(Status.ACTIVE)
                 .creator(user)
                 .community(community)
-                .createdAt(LocalDateTime.parse((String) post.get("requested_at")))
+                .createdAt(requestedAt)
                 .likeCount(0)
+                .dislikeCount(0)
+                .commentCount(0L)
+                .lastActivityAt(requestedAt)
                 .comments(new ArrayList<>())
                 .build();
     }
@@ -52,6 +61,31 @@ public class PostMapper {
                 .createdAt(post.getCreatedAt())
                 .creatorUsername(post.getCreator().getUsername())
                 .status(post.getStatus().name().charAt(0) + post.getStatus().name().substring(1).toLowerCase())
+                .likeCount(post.getLikeCount() == null ? 0L : post.getLikeCount().longValue())
+                .dislikeCount(post.getDislikeCount() == null ? 0L : post.getDislikeCount().longValue())
+                .commentCount(post.getCommentCount() == null ? 0L : post.getCommentCount())
+                .lastActivityAt(post.getLastActivityAt())
+                .build();
+    }
+
+    public PostResponse convertFeedEntryToPostResponse(PostFeedEntry entry) {
+        return convertFeedEntryToPostResponse(entry, entry.getCommunityName());
+    }
+
+    public PostResponse convertFeedEntryToPostResponse(PostFeedEntry entry, String communityName) {
+        return PostResponse
+                .builder()
+                .post_id(entry.getId())
+                .communityName(communityName)
+                .title(entry.getTitle())
+                .content(entry.getContent())
+                .createdAt(entry.getCreatedAt())
+                .creatorUsername(entry.getCreatorUsername())
+                .status(entry.getStatus().name().charAt(0) + entry.getStatus().name().substring(1).toLowerCase())
+                .likeCount(entry.getLikeCount() == null ? 0L : entry.getLikeCount().longValue())
+                .dislikeCount(entry.getDislikeCount() == null ? 0L : entry.getDislikeCount().longValue())
+                .commentCount(entry.getCommentCount())
+                .lastActivityAt(entry.getLastActivityAt())
                 .build();
     }
 
@@ -78,6 +112,9 @@ public class PostMapper {
                 .createdAt(post.getCreatedAt())
                 .updatedAt(LocalDateTime.now())
                 .likeCount(post.getLikeCount())
+                .dislikeCount(post.getDislikeCount())
+                .commentCount(post.getCommentCount())
+                .lastActivityAt(post.getLastActivityAt())
                 .status(Status.PENDING)
                 .build();
     }
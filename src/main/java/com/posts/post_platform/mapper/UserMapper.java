@@ -6,7 +6,6 @@ import com.posts.post_platform.model.User;
 import com.posts.post_platform.repository.UserRepositories;
 import com.posts.post_platform.requests.RegisterRequest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -18,13 +17,10 @@ public class UserMapper {
     @Autowired
     private UserRepositories userRepositories;
 
-    @Autowired
-    private PasswordEncoder passwordEncoder;
-
-    public UserDto convertRegisterRequestToUserDto(RegisterRequest registerRequest) {
+    public UserDto convertRegisterRequestToUserDto(RegisterRequest registerRequest, String encodedPassword) {
         User user = new User();
         user.setUsername(registerRequest.getUsername());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        user.setPassword(encodedPassword);
         user.setEmail(registerRequest.getEmail());
         user.setCreatedAt(LocalDateTime.now());
         List<Role> roleList = new ArrayList<>();
@@ -9,7 +9,7 @@ import java.util.List;
 @Data
 @Builder
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = @Index(name = "idx_comments_post_parent_score", columnList = "post_id, parent_id, score"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,6 +30,12 @@ public class Comment {
     @Column(name = "unlike")
     private Integer unlike = 0;
 
+    /**
+     * The ranking score for the "top" sort, recomputed from the counts whenever they are flushed.
+     */
+    @Column(name = "score", nullable = false, columnDefinition = "double not null default 0")
+    private double score;
+
     @ManyToOne(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinColumn(name = "post_id", referencedColumnName = "id")
     private Post post;
@@ -45,7 +51,7 @@ public class Comment {
     @JoinColumn(name = "parent_id", referencedColumnName = "id")
     private Comment parentComment;
 
-    @OneToMany(mappedBy = "parentComment", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "parentComment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Comment> childComments;
 
 }
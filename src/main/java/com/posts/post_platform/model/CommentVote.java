@@ -0,0 +1,47 @@
+package com.posts.post_platform.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * A row of the vote ledger of comments, there is at most one vote per user and comment and no row for no vote.
+ * The rows are written with native statements that check the previous vote, the entity only defines the table.
+ */
+@Data
+@Entity
+@Table(name = "comment_votes")
+@IdClass(CommentVote.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentVote {
+    @Id
+    @Column(name = "comment_id")
+    private Long commentId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private int vote;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "comment_id", referencedColumnName = "id", insertable = false, updatable = false)
+    private Comment comment;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", referencedColumnName = "id", insertable = false, updatable = false)
+    private User user;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long commentId;
+        private Long userId;
+    }
+}
@@ -12,7 +12,7 @@ import java.util.List;
 @Data
 @Builder
 @Entity
-@Table(name = "communities")
+@Table(name = "communities", indexes = @Index(name = "idx_communities_created_at_id", columnList = "created_at, id"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Community {
@@ -32,21 +32,23 @@ public class Community {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
-    @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
-    @JoinTable(name = "community_users", joinColumns = @JoinColumn(name = "community_id"), inverseJoinColumns = @JoinColumn(name = "user_id"))
+    @Builder.Default
+    @Column(name = "member_count", nullable = false, columnDefinition = "bigint not null default 0")
+    private long memberCount = 0;
+
+    @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @JoinTable(name = "community_users", joinColumns = @JoinColumn(name = "community_id"), inverseJoinColumns = @JoinColumn(name = "user_id"),
+            uniqueConstraints = @UniqueConstraint(columnNames = {"community_id", "user_id"}))
     private List<User> approvedUsers;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
-    @JoinTable(name = "community_moderators", joinColumns = @JoinColumn(name = "community_id"), inverseJoinColumns = @JoinColumn(name = "user_id"))
+    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @JoinTable(name = "community_moderators", joinColumns = @JoinColumn(name = "community_id"), inverseJoinColumns = @JoinColumn(name = "user_id"),
+            uniqueConstraints = @UniqueConstraint(columnNames = {"community_id", "user_id"}))
     private List<User> moderators;
 
     @OneToMany(mappedBy = "community")
     private List<Post> posts;
 
-    public boolean isAccess(String username) {
-        return this.getApprovedUsers().stream().anyMatch(user -> user.getUsername().equals(username));
-    }
-
     public boolean isPrivate() {
         return this.getAccess_level().name().equalsIgnoreCase("private");
     }
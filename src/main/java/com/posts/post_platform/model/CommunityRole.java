@@ -0,0 +1,29 @@
+package com.posts.post_platform.model;
+
+public enum CommunityRole {
+    CREATOR(1),
+    MODERATOR(2),
+    MEMBER(4);
+
+    private final int bit;
+
+    CommunityRole(int bit) {
+        this.bit = bit;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public boolean isIn(int roles) {
+        return (roles & bit) != 0;
+    }
+
+    public static int mask(CommunityRole... communityRoles) {
+        int mask = 0;
+        for (CommunityRole communityRole : communityRoles) {
+            mask |= communityRole.bit;
+        }
+        return mask;
+    }
+}
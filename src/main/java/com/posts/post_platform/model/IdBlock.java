@@ -0,0 +1,24 @@
+package com.posts.post_platform.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The next free id of a table whose ids are handed out in blocks before its rows are inserted, one row per table.
+ * The rows are written with native statements that reserve a whole block at once, the entity only defines the table.
+ */
+@Data
+@Entity
+@Table(name = "id_blocks")
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdBlock {
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "next_id", nullable = false)
+    private long nextId;
+}
@@ -8,7 +8,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_community_status_created_at", columnList = "community_id, status, created_at"),
+        @Index(name = "idx_posts_user_created_at", columnList = "user_id, created_at"),
+        @Index(name = "idx_posts_community_status_last_activity_at", columnList = "community_id, status, last_activity_at")
+})
 @Data
 @Builder
 @Getter
@@ -31,6 +35,20 @@ public class Post {
     @Column(name = "like_count")
     private Integer likeCount;
 
+    @Column(name = "dislike_count")
+    private Integer dislikeCount;
+
+    /**
+     * The number of comments of the post and the time of its newest comment, or its creation time while it has none.
+     * Both are changed by {@link com.posts.post_platform.repository.PostRepository#addComments} in the transaction
+     * that inserts the comment, so feeds show them without reading the comments table.
+     */
+    @Column(name = "comment_count", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long commentCount;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+
     private Status status;
 
     @OneToOne
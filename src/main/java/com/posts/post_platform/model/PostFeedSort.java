@@ -0,0 +1,41 @@
+package com.posts.post_platform.model;
+
+public enum PostFeedSort {
+    NEW(null),
+    ACTIVE(null),
+    HOT("hot"),
+    TOP_DAY("top:day"),
+    TOP_WEEK("top:week"),
+    TOP_ALL("top:all");
+
+    private final String rankingKey;
+
+    PostFeedSort(String rankingKey) {
+        this.rankingKey = rankingKey;
+    }
+
+    /**
+     * The suffix of the Redis sorted set that holds the ranking, null for the newest first and most recently commented
+     * feeds that are read from MySQL.
+     */
+    public String getRankingKey() {
+        return rankingKey;
+    }
+
+    public boolean isRanked() {
+        return rankingKey != null;
+    }
+
+    public static PostFeedSort fromRequest(String sort, String window) {
+        if (sort == null || sort.equalsIgnoreCase("new")) return NEW;
+        if (sort.equalsIgnoreCase("active")) return ACTIVE;
+        if (sort.equalsIgnoreCase("hot")) return HOT;
+        if (sort.equalsIgnoreCase("top")) {
+            if (window == null || window.equalsIgnoreCase("day")) return TOP_DAY;
+            if (window.equalsIgnoreCase("week")) return TOP_WEEK;
+            if (window.equalsIgnoreCase("all")) return TOP_ALL;
+            throw new IllegalArgumentException("Invalid time window : " + window);
+        }
+        throw new IllegalArgumentException("Invalid sort option : " + sort);
+    }
+}
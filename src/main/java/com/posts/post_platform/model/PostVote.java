@@ -0,0 +1,47 @@
+package com.posts.post_platform.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * A row of the vote ledger of posts, there is at most one vote per user and post and no row for no vote.
+ * The rows are written with native statements that check the previous vote, the entity only defines the table.
+ */
+@Data
+@Entity
+@Table(name = "post_votes")
+@IdClass(PostVote.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostVote {
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private int vote;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id", referencedColumnName = "id", insertable = false, updatable = false)
+    private Post post;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", referencedColumnName = "id", insertable = false, updatable = false)
+    private User user;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long postId;
+        private Long userId;
+    }
+}
@@ -0,0 +1,44 @@
+package com.posts.post_platform.model;
+
+public enum Vote {
+    DOWN(-1),
+    NONE(0),
+    UP(1);
+
+    private final int value;
+
+    Vote(int value) {
+        this.value = value;
+    }
+
+    /**
+     * The value stored in the vote ledger and added to the score of the post or comment.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    public int ups() {
+        return this == UP ? 1 : 0;
+    }
+
+    public int downs() {
+        return this == DOWN ? 1 : 0;
+    }
+
+    public static Vote of(int value) {
+        for (Vote vote : values()) {
+            if (vote.value == value) return vote;
+        }
+        throw new IllegalArgumentException("Invalid vote value : " + value);
+    }
+
+    public static Vote fromRequest(String vote) {
+        if (vote != null) {
+            for (Vote candidate : values()) {
+                if (candidate.name().equalsIgnoreCase(vote)) return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Invalid vote : " + vote);
+    }
+}
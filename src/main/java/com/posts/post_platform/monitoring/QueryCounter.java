@@ -0,0 +1,44 @@
+package com.posts.post_platform.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a count is running.
+ * It is registered as the Hibernate statement inspector and is used by the QueryCountFilter
+ * to measure how many queries a request needs.
+ */
+public class QueryCounter implements StatementInspector {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) count[0]++;
+        return sql;
+    }
+
+    /**
+     * Starts counting the statements of the current thread from zero.
+     */
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * @return The number of statements counted so far on the current thread, 0 if no count is running.
+     */
+    public static int current() {
+        int[] count = COUNT.get();
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Stops counting on the current thread.
+     * @return The number of statements counted since start.
+     */
+    public static int stop() {
+        int count = current();
+        COUNT.remove();
+        return count;
+    }
+}
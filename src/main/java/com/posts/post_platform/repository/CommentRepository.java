@@ -1,26 +1,22 @@
 package com.posts.post_platform.repository;
 
+import com.posts.post_platform.dto.CommentTreeEntry;
+import com.posts.post_platform.dto.CommentVoteCounts;
 import com.posts.post_platform.model.Comment;
-import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    @Query(value = "select * from comments cu where cu.id In (Select co.id " +
-            "from posts p " +
-            "join comments co on co.post_id = p.id " +
-            "join communities c on c.id = p.community_id " +
-            "where p.id = :postId and c.community_name = :communityName and co.parent_id IS NULL)", nativeQuery = true)
-    List<Comment> getAllParentCommentsFromPost(@Param("communityName") String communityName, @Param("postId") Long postId);
-
-
     @Query(value = "select * from comments cu where cu.id In (Select cu.id as comment_id " +
             "from posts p " +
             "join comments co on co.post_id = p.id " +
@@ -28,19 +24,144 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
             "where p.id = :postId and c.community_name = :communityName and co.parent_id = :parentId)", nativeQuery = true)
     List<Comment> getAllChildCommentsFromParentId(@Param("parentId") Long parentId, @Param("communityName") String communityName, @Param("postId") Long postId);
 
-    @Query(value = "select * from post_database.comments " +
-            "where post_id = :postId and parent_id IS NULL " +
-            "order by created_at desc ", nativeQuery = true)
-    List<Comment> getAllParentCommentsFromPostSortedByOld(@Param("postId") Long postId);
+    String COMMENT_TREE = "SELECT new com.posts.post_platform.dto.CommentTreeEntry(c.id, c.parentComment.id, c.content, c.commentStatus, u.username, COALESCE(c.like, 0), COALESCE(c.unlike, 0)) " +
+            "FROM Comment c JOIN c.commentAuthor u WHERE c.post.id = :postId ";
+
+    /**
+     * Every comment of a post with the id of its parent, the username of its author and its stored counts,
+     * read with one query whatever the size or depth of the thread.
+     */
+    @Query(COMMENT_TREE + "ORDER BY c.id")
+    List<CommentTreeEntry> findCommentTree(@Param("postId") Long postId);
+
+    String THREAD_PAGE = "SELECT new com.posts.post_platform.dto.CommentTreeEntry(c.id, c.parentComment.id, c.content, c.commentStatus, u.username, COALESCE(c.like, 0), COALESCE(c.unlike, 0), c.score) " +
+            "FROM Comment c JOIN c.commentAuthor u WHERE c.post.id = :postId ";
+
+    /**
+     * One page of the top level comments of a post with keyset pagination, each page continues after the last comment
+     * of the previous one. Ids grow with the creation time, so the newest comments are the ones with the highest ids.
+     * The "top" pages follow the stored ranking score, they are range scans of idx_comments_post_parent_score.
+     */
+    @Query(THREAD_PAGE + "AND c.parentComment IS NULL AND c.id < :id ORDER BY c.id DESC")
+    List<CommentTreeEntry> findTopLevelCommentsNewestFirst(@Param("postId") Long postId, @Param("id") Long id, Limit limit);
+
+    @Query(THREAD_PAGE + "AND c.parentComment IS NULL AND c.id > :id ORDER BY c.id")
+    List<CommentTreeEntry> findTopLevelCommentsOldestFirst(@Param("postId") Long postId, @Param("id") Long id, Limit limit);
+
+    @Query(THREAD_PAGE + "AND c.parentComment IS NULL AND (c.score < :score OR (c.score = :score AND c.id < :id)) " +
+            "ORDER BY c.score DESC, c.id DESC")
+    List<CommentTreeEntry> findTopLevelCommentsByTop(@Param("postId") Long postId, @Param("score") double score, @Param("id") Long id, Limit limit);
+
+    /**
+     * One page of the direct replies to a comment, in the same orders as the top level comments.
+     */
+    @Query(THREAD_PAGE + "AND c.parentComment.id = :parentId AND c.id < :id ORDER BY c.id DESC")
+    List<CommentTreeEntry> findRepliesNewestFirst(@Param("postId") Long postId, @Param("parentId") Long parentId, @Param("id") Long id, Limit limit);
+
+    @Query(THREAD_PAGE + "AND c.parentComment.id = :parentId AND c.id > :id ORDER BY c.id")
+    List<CommentTreeEntry> findRepliesOldestFirst(@Param("postId") Long postId, @Param("parentId") Long parentId, @Param("id") Long id, Limit limit);
+
+    @Query(THREAD_PAGE + "AND c.parentComment.id = :parentId AND (c.score < :score OR (c.score = :score AND c.id < :id)) " +
+            "ORDER BY c.score DESC, c.id DESC")
+    List<CommentTreeEntry> findRepliesByTop(@Param("postId") Long postId, @Param("parentId") Long parentId, @Param("score") double score, @Param("id") Long id, Limit limit);
+
+    /**
+     * The first replies to each of the given comments, at most {@code breadth} per comment, in the order of the sort
+     * option "new", "old" or "top". One query reads one level of a thread however many comments the level has, the
+     * replies of each comment are read by a lateral subquery that stops after {@code breadth} replies, so a comment
+     * with many replies is not read in full.
+     * @return The id, parent id, content, status, author username, like count, unlike count and score of each reply, grouped by parent.
+     */
+    default List<Object[]> findFirstReplies(Collection<Long> parentIds, String sort, int breadth) {
+        return switch (sort) {
+            case "new" -> findFirstRepliesNewestFirst(parentIds, breadth);
+            case "old" -> findFirstRepliesOldestFirst(parentIds, breadth);
+            default -> findFirstRepliesByTop(parentIds, breadth);
+        };
+    }
+
+    String FIRST_REPLIES = "SELECT r.id, r.parent_id, r.content, r.comment_status, r.username, r.like_count, r.unlike_count, r.score " +
+            "FROM comments p, LATERAL (SELECT c.id, c.parent_id, c.content, c.comment_status, u.username, " +
+            "COALESCE(c.`like`, 0) AS like_count, COALESCE(c.unlike, 0) AS unlike_count, c.score " +
+            "FROM comments c JOIN users u ON u.id = c.user_id WHERE c.post_id = p.post_id AND c.parent_id = p.id ";
+
+    @Query(value = FIRST_REPLIES + "ORDER BY c.id DESC LIMIT :breadth) r WHERE p.id IN (:parentIds) " +
+            "ORDER BY r.parent_id, r.id DESC", nativeQuery = true)
+    List<Object[]> findFirstRepliesNewestFirst(@Param("parentIds") Collection<Long> parentIds, @Param("breadth") int breadth);
+
+    @Query(value = FIRST_REPLIES + "ORDER BY c.id LIMIT :breadth) r WHERE p.id IN (:parentIds) " +
+            "ORDER BY r.parent_id, r.id", nativeQuery = true)
+    List<Object[]> findFirstRepliesOldestFirst(@Param("parentIds") Collection<Long> parentIds, @Param("breadth") int breadth);
+
+    @Query(value = FIRST_REPLIES + "ORDER BY c.score DESC, c.id DESC LIMIT :breadth) r WHERE p.id IN (:parentIds) " +
+            "ORDER BY r.parent_id, r.score DESC, r.id DESC", nativeQuery = true)
+    List<Object[]> findFirstRepliesByTop(@Param("parentIds") Collection<Long> parentIds, @Param("breadth") int breadth);
+
+    @Query("SELECT new com.posts.post_platform.dto.CommentVoteCounts(c.id, c.like, c.unlike) FROM Comment c " +
+            "WHERE c.id = :commentId AND c.post.id = :postId")
+    Optional<CommentVoteCounts> findVoteCounts(@Param("commentId") Long commentId, @Param("postId") Long postId);
+
+    @Query("SELECT COUNT(c) > 0 FROM Comment c WHERE c.id = :commentId AND c.post.id = :postId")
+    boolean existsInPost(@Param("commentId") Long commentId, @Param("postId") Long postId);
+
+    /**
+     * The comment_votes rows are the ledger of who voted on a comment, the changes of the ledger are conditional on
+     * the previous vote of the user, so a vote only locks the row of the voter.
+     */
+    @Query(value = "SELECT user_id, vote FROM comment_votes WHERE comment_id = :commentId", nativeQuery = true)
+    List<Object[]> findVotes(@Param("commentId") Long commentId);
+
+    @Query(value = "SELECT vote FROM comment_votes WHERE comment_id = :commentId AND user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<Integer> findVoteForUpdate(@Param("commentId") Long commentId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO comment_votes (comment_id, user_id, vote) VALUES (:commentId, :userId, :vote)", nativeQuery = true)
+    int insertVote(@Param("commentId") Long commentId, @Param("userId") Long userId, @Param("vote") int vote);
+
+    @Modifying
+    @Query(value = "UPDATE comment_votes SET vote = :vote WHERE comment_id = :commentId AND user_id = :userId AND vote = :expected", nativeQuery = true)
+    int updateVote(@Param("commentId") Long commentId, @Param("userId") Long userId, @Param("expected") int expected, @Param("vote") int vote);
+
+    @Modifying
+    @Query(value = "DELETE FROM comment_votes WHERE comment_id = :commentId AND user_id = :userId AND vote = :expected", nativeQuery = true)
+    int deleteVote(@Param("commentId") Long commentId, @Param("userId") Long userId, @Param("expected") int expected);
+
+    /**
+     * The lower bound of the Wilson score interval of the share of likes at 95% confidence, the same formula as
+     * {@link com.posts.post_platform.service.comment.CommentScore#wilson(long, long)} multiplied out by the vote count.
+     */
+    String WILSON_SCORE = "CASE WHEN COALESCE(`like`, 0) + COALESCE(unlike, 0) <= 0 THEN 0 ELSE " +
+            "(COALESCE(`like`, 0) + 1.9208 - 1.96 * SQRT(COALESCE(`like`, 0) * COALESCE(unlike, 0) / (COALESCE(`like`, 0) + COALESCE(unlike, 0)) + 0.9604)) " +
+            "/ (COALESCE(`like`, 0) + COALESCE(unlike, 0) + 3.8416) END";
+
+    /**
+     * The like and unlike counts are only changed by these statements when the buffered counters are flushed,
+     * so a vote never takes the lock of the comment row. MySQL assigns the columns from left to right, the score
+     * is recomputed from the counts this statement just changed.
+     */
+    @Modifying
+    @Query(value = "UPDATE comments SET `like` = COALESCE(`like`, 0) + :delta, score = " + WILSON_SCORE + " WHERE id IN (:commentIds)", nativeQuery = true)
+    int addLikeCounts(@Param("delta") long delta, @Param("commentIds") Collection<Long> commentIds);
+
+    @Modifying
+    @Query(value = "UPDATE comments SET unlike = COALESCE(unlike, 0) + :delta, score = " + WILSON_SCORE + " WHERE id IN (:commentIds)", nativeQuery = true)
+    int addUnlikeCounts(@Param("delta") long delta, @Param("commentIds") Collection<Long> commentIds);
+
+    /**
+     * Scores the liked comments of an id range whose score was never computed, the comments liked before the score
+     * column existed. Comments with unlikes only score 0 anyway.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE comments SET score = " + WILSON_SCORE + " WHERE id > :afterId AND id <= :lastId AND score = 0 " +
+            "AND COALESCE(`like`, 0) > 0", nativeQuery = true)
+    int scoreUnscoredComments(@Param("afterId") Long afterId, @Param("lastId") Long lastId);
 
-    @Query(value = "select * from post_database.comments c " +
-            "where c.post_id = :postId and c.parent_id IS NULL " +
-            "order by c.like desc", nativeQuery = true)
-    List<Comment> getAllParentCommentsFromPostSortedByTop(@Param("postId") Long postId);
+    @Query(value = "SELECT MIN(id) FROM comments WHERE score = 0 AND COALESCE(`like`, 0) > 0", nativeQuery = true)
+    Optional<Long> findFirstUnscoredId();
 
-    @Query("select c from Comment c where c.id = :commentId and c.post.id = :postId")
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    Optional<Comment> findCommentByIdWithLock(@Param("commentId") Long commentId, @Param("postId") Long postId);
+    @Query("SELECT MAX(c.id) FROM Comment c")
+    Optional<Long> findMaxId();
 
 
 }
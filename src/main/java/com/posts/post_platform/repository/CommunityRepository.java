@@ -1,44 +1,129 @@
 package com.posts.post_platform.repository;
 
+import com.posts.post_platform.dto.CommunityDirectoryEntry;
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.dto.UserDto;
 import com.posts.post_platform.model.Community;
-import com.posts.post_platform.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CommunityRepository extends JpaRepository<Community, Long> {
     Optional<Community> findByCommunityName(String communityName);
 
-    @Query("SELECT COUNT(u) FROM Community c JOIN c.approvedUsers u WHERE c.id = :communityId")
-    int countApprovedUsersByCommunityId(@Param("communityId") Long communityId);
+    @Query("SELECT new com.posts.post_platform.dto.CommunitySummary(c.id, c.communityName, c.access_level, c.creator.id, c.memberCount) " +
+            "FROM Community c WHERE c.id = :communityId")
+    Optional<CommunitySummary> findSummaryById(@Param("communityId") Long communityId);
 
-    @Query("SELECT c.approvedUsers FROM Community c WHERE c.id = :communityId")
-    List<User> getAllMembersByUsingCommunityId(@Param("communityId") Long communityId);
+    @Query("SELECT new com.posts.post_platform.dto.CommunitySummary(c.id, c.communityName, c.access_level, c.creator.id, c.memberCount) " +
+            "FROM Community c WHERE c.communityName = :communityName")
+    Optional<CommunitySummary> findSummaryByCommunityName(@Param("communityName") String communityName);
 
-    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN TRUE ELSE FALSE END FROM Community c JOIN c.moderators u WHERE c.id = :communityId AND u.username = :username ")
-    boolean isUserModerator(@Param("communityId") Long communityId, @Param("username") String username);
+    /**
+     * Pages of the community directory are read with keyset pagination, each page continues after the last row
+     * of the previous one through the (id) or (created_at, id) index, so deep pages cost the same as the first one.
+     */
+    @Query("SELECT new com.posts.post_platform.dto.CommunityDirectoryEntry(c.id, c.creator.id, c.communityName, c.description, c.createdAt, c.topics, c.access_level) " +
+            "FROM Community c WHERE c.id > :afterId ORDER BY c.id")
+    List<CommunityDirectoryEntry> findDirectoryPageById(@Param("afterId") Long afterId, Limit limit);
 
-    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN TRUE ELSE FALSE END FROM Community c JOIN c.creator u WHERE c.id =:communityId AND u.username = :username")
-    boolean isUserCreator(@Param("communityId") Long communityId, @Param("username") String username);
+    @Query("SELECT new com.posts.post_platform.dto.CommunityDirectoryEntry(c.id, c.creator.id, c.communityName, c.description, c.createdAt, c.topics, c.access_level) " +
+            "FROM Community c ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommunityDirectoryEntry> findNewestDirectoryPage(Limit limit);
 
-    @Query(value = "SELECT CASE WHEN COUNT(*) > 0 THEN TRUE ELSE FALSE END " +
-            "FROM community_users cu " +
-            "JOIN communities c ON cu.community_id = c.id " +
-            "JOIN users u ON cu.user_id = u.id " +
-            "WHERE c.community_name = :communityName AND u.id = :userId", nativeQuery = true)
-    Long isUserMember(@Param("communityName") String communityName, @Param("userId") Long userId);
+    @Query("SELECT new com.posts.post_platform.dto.CommunityDirectoryEntry(c.id, c.creator.id, c.communityName, c.description, c.createdAt, c.topics, c.access_level) " +
+            "FROM Community c WHERE c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id) ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommunityDirectoryEntry> findNewestDirectoryPageBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
 
-    @Query(value = "SELECT COUNT(*) FROM community_users WHERE community_id = :communityId AND user_id = :userId", nativeQuery = true)
-    int countUserInCommunity(@Param("communityId") Long communityId, @Param("userId") Long userId);
+    /**
+     * Streams the whole directory in id order. The MySQL driver only streams rows instead of buffering the
+     * whole result when the fetch size is Integer.MIN_VALUE, the stream must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT new com.posts.post_platform.dto.CommunityDirectoryEntry(c.id, c.creator.id, c.communityName, c.description, c.createdAt, c.topics, c.access_level) " +
+            "FROM Community c ORDER BY c.id")
+    Stream<CommunityDirectoryEntry> streamDirectory();
 
-    @Query(value = "select case when COUNT(*) > 0 THEN TRUE ELSE FALSE END " +
-            "from communities c " +
-            "where c.access_level = '1' and c.community_name = :communityName ", nativeQuery = true)
-    Long isCommunityPrivate(@Param("communityName") String communityName);
+    @Query("SELECT c.id FROM Community c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
 
+    @Query("SELECT c.memberCount FROM Community c WHERE c.id = :communityId")
+    Optional<Long> findMemberCountById(@Param("communityId") Long communityId);
+
+    /**
+     * Changes the maintained member count of the community, it is called in the transaction that changes the membership.
+     */
+    @Modifying
+    @Query(value = "UPDATE communities SET member_count = member_count + :delta WHERE id = :communityId", nativeQuery = true)
+    int adjustMemberCount(@Param("communityId") Long communityId, @Param("delta") long delta);
+
+    /**
+     * Returns (id, stored member count, actual member count) rows of the communities following the given id,
+     * used to find counters that drifted from the community_users rows.
+     */
+    @Query(value = "SELECT c.id, c.member_count, (SELECT COUNT(*) FROM community_users cu WHERE cu.community_id = c.id) " +
+            "FROM communities c WHERE c.id > :afterId ORDER BY c.id LIMIT :batchSize", nativeQuery = true)
+    List<Object[]> findMemberCountsAfter(@Param("afterId") Long afterId, @Param("batchSize") int batchSize);
+
+    @Modifying
+    @Query(value = "UPDATE communities SET member_count = (SELECT COUNT(*) FROM community_users cu WHERE cu.community_id = :communityId) " +
+            "WHERE id = :communityId", nativeQuery = true)
+    int recountMembers(@Param("communityId") Long communityId);
+
+    /**
+     * Returns the next page of members of the community in user id order, projected straight into UserDto.
+     * The username pattern is optional, it is a username prefix with its LIKE wildcards escaped by '!', followed by '%'.
+     */
+    @Query("SELECT new com.posts.post_platform.dto.UserDto(u.id, u.username, u.email, u.createdAt, u.role) " +
+            "FROM Community c JOIN c.approvedUsers u " +
+            "WHERE c.id = :communityId AND u.id > :afterId AND (:usernamePattern IS NULL OR u.username LIKE :usernamePattern ESCAPE '!') " +
+            "ORDER BY u.id")
+    List<UserDto> findMemberPage(@Param("communityId") Long communityId,
+                                 @Param("afterId") Long afterId,
+                                 @Param("usernamePattern") String usernamePattern,
+                                 Limit limit);
+
+    /**
+     * Member IDs are read in pages of increasing ID, used to fan new posts out to the timelines of the members.
+     */
+    @Query("SELECT u.id FROM Community c JOIN c.approvedUsers u WHERE c.id = :communityId AND u.id > :afterId ORDER BY u.id")
+    List<Long> findMemberIdsAfter(@Param("communityId") Long communityId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.posts.post_platform.dto.CommunitySummary(c.id, c.communityName, c.access_level, c.creator.id, c.memberCount) " +
+            "FROM Community c JOIN c.approvedUsers u WHERE u.id = :userId")
+    List<CommunitySummary> findJoinedCommunitySummaries(@Param("userId") Long userId);
+
+    /**
+     * Returns one (user id, role bit) row for the creator, every moderator and every member of the community,
+     * the role bits are the ones of CommunityRole.
+     */
+    @Query(value = "SELECT c.creator_id, 1 FROM communities c WHERE c.id = :communityId " +
+            "UNION ALL SELECT cm.user_id, 2 FROM community_moderators cm WHERE cm.community_id = :communityId " +
+            "UNION ALL SELECT cu.user_id, 4 FROM community_users cu WHERE cu.community_id = :communityId", nativeQuery = true)
+    List<Object[]> findCommunityRoles(@Param("communityId") Long communityId);
+
+    /**
+     * Membership is written one join row at a time, so the member and moderator lists are never loaded or rewritten.
+     * The inserts are idempotent thanks to the unique (community_id, user_id) constraints of the join tables,
+     * each method returns the number of inserted rows, 0 if the user already had the role.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO community_users (community_id, user_id) VALUES (:communityId, :userId)", nativeQuery = true)
+    int insertMember(@Param("communityId") Long communityId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO community_moderators (community_id, user_id) VALUES (:communityId, :userId)", nativeQuery = true)
+    int insertModerator(@Param("communityId") Long communityId, @Param("userId") Long userId);
 }
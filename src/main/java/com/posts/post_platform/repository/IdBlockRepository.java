@@ -0,0 +1,42 @@
+package com.posts.post_platform.repository;
+
+import com.posts.post_platform.model.IdBlock;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdBlockRepository extends JpaRepository<IdBlock, String> {
+    String COMMENTS = "comments";
+
+    /**
+     * Reserves the next block of comment ids in its own transaction, so the row of the block is only locked for the
+     * reservation. It is called ahead of time by the scheduler, never by a request. The block never starts below the highest stored comment id, so it does not overlap comments that
+     * were inserted with generated ids.
+     * @return The first id after the reserved block, the block holds the ids from this value minus the size.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    default long reserveCommentIds(int size) {
+        insertIfMissing(COMMENTS);
+        advanceCommentIds(size);
+        return findLastInsertId();
+    }
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO id_blocks (name, next_id) VALUES (:name, 1)", nativeQuery = true)
+    int insertIfMissing(@Param("name") String name);
+
+    /**
+     * LAST_INSERT_ID(expr) keeps the new next id on the connection, it is read back by {@link #findLastInsertId()}.
+     */
+    @Modifying
+    @Query(value = "UPDATE id_blocks SET next_id = LAST_INSERT_ID(GREATEST(next_id, (SELECT COALESCE(MAX(c.id), 0) + 1 FROM comments c)) + :size) " +
+            "WHERE name = '" + COMMENTS + "'", nativeQuery = true)
+    int advanceCommentIds(@Param("size") int size);
+
+    @Query(value = "SELECT LAST_INSERT_ID()", nativeQuery = true)
+    Long findLastInsertId();
+}
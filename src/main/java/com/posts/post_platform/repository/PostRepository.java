@@ -1,20 +1,179 @@
 package com.posts.post_platform.repository;
 
+import com.posts.post_platform.dto.PostCommentTarget;
+import com.posts.post_platform.dto.PostFeedEntry;
+import com.posts.post_platform.dto.PostRankingSeed;
 import com.posts.post_platform.model.Post;
+import com.posts.post_platform.model.Status;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
+    String VISIBLE_TO_VIEWER = "(c.access_level = com.posts.post_platform.model.AccessLevel.PUBLIC " +
+            "OR (p.status = com.posts.post_platform.model.Status.ACTIVE AND :viewerId IS NOT NULL " +
+            "AND EXISTS (SELECT 1 FROM Community m JOIN m.approvedUsers member WHERE m.id = c.id AND member.id = :viewerId))) ";
+    String RANKING_POINTS = "(COALESCE(p.likeCount, 0) - COALESCE(p.dislikeCount, 0) + COALESCE(p.commentCount, 0))";
 
-    @Query(value = "select * from post_database.posts p " +
-            "where p.community_id = :community_id", nativeQuery = true)
-    List<Post> findAllPostsByCommunityId(@Param("community_id") Long community_id);
+    /**
+     * Pages of a community feed are read newest first with keyset pagination on (created_at, id) through the
+     * (community_id, status, created_at) index, each page continues after the last post of the previous one.
+     */
+    @Query("SELECT new com.posts.post_platform.dto.PostFeedEntry(p.id, p.title, p.content, p.createdAt, p.status, u.username, p.commentCount, p.lastActivityAt, p.likeCount, p.dislikeCount) " +
+            "FROM Post p JOIN p.creator u WHERE p.community.id = :communityId AND p.status IN :statuses " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostFeedEntry> findCommunityFeed(@Param("communityId") Long communityId,
+                                          @Param("statuses") Collection<Status> statuses,
+                                          Limit limit);
+
+    @Query("SELECT new com.posts.post_platform.dto.PostFeedEntry(p.id, p.title, p.content, p.createdAt, p.status, u.username, p.commentCount, p.lastActivityAt, p.likeCount, p.dislikeCount) " +
+            "FROM Post p JOIN p.creator u WHERE p.community.id = :communityId AND p.status IN :statuses " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostFeedEntry> findCommunityFeedBefore(@Param("communityId") Long communityId,
+                                                @Param("statuses") Collection<Status> statuses,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Limit limit);
+
+    /**
+     * Pages of the "active" community feed, the posts with the newest comments first, with keyset pagination on
+     * (last_activity_at, id) through the (community_id, status, last_activity_at) index.
+     */
+    @Query("SELECT new com.posts.post_platform.dto.PostFeedEntry(p.id, p.title, p.content, p.createdAt, p.status, u.username, p.commentCount, p.lastActivityAt, p.likeCount, p.dislikeCount) " +
+            "FROM Post p JOIN p.creator u WHERE p.community.id = :communityId AND p.status IN :statuses " +
+            "ORDER BY p.lastActivityAt DESC, p.id DESC")
+    List<PostFeedEntry> findCommunityFeedByActivity(@Param("communityId") Long communityId,
+                                                    @Param("statuses") Collection<Status> statuses,
+                                                    Limit limit);
+
+    @Query("SELECT new com.posts.post_platform.dto.PostFeedEntry(p.id, p.title, p.content, p.createdAt, p.status, u.username, p.commentCount, p.lastActivityAt, p.likeCount, p.dislikeCount) " +
+            "FROM Post p JOIN p.creator u WHERE p.community.id = :communityId AND p.status IN :statuses " +
+            "AND (p.lastActivityAt < :lastActivityAt OR (p.lastActivityAt = :lastActivityAt AND p.id < :id)) " +
+            "ORDER BY p.lastActivityAt DESC, p.id DESC")
+    List<PostFeedEntry> findCommunityFeedByActivityBefore(@Param("communityId") Long communityId,
+                                                          @Param("statuses") Collection<Status> statuses,
+                                                          @Param("lastActivityAt") LocalDateTime lastActivityAt,
+                                                          @Param("id") Long id,
+                                                          Limit limit);
+
+    /**
+     * Pages of the posts written by a user, newest first, as far as the viewer may see them.
+     * Posts of public communities are always visible, active posts of private communities only when the viewer
+     * is a member of the community, a null viewer only sees public communities. The predicate is evaluated by the
+     * database, so only the rows of the page are returned and no community or member is loaded.
+     */
+    @Query("SELECT new com.posts.post_platform.dto.PostFeedEntry(p.id, p.title, p.content, p.createdAt, p.status, u.username, c.communityName, p.commentCount, p.lastActivityAt, p.likeCount, p.dislikeCount) " +
+            "FROM Post p JOIN p.creator u JOIN p.community c WHERE u.id = :userId AND " + VISIBLE_TO_VIEWER +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostFeedEntry> findUserPosts(@Param("userId") Long userId, @Param("viewerId") Long viewerId, Limit limit);
+
+    @Query("SELECT new com.posts.post_platform.dto.PostFeedEntry(p.id, p.title, p.content, p.createdAt, p.status, u.username, c.communityName, p.commentCount, p.lastActivityAt, p.likeCount, p.dislikeCount) " +
+            "FROM Post p JOIN p.creator u JOIN p.community c WHERE u.id = :userId AND " + VISIBLE_TO_VIEWER +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostFeedEntry> findUserPostsBefore(@Param("userId") Long userId,
+                                            @Param("viewerId") Long viewerId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Limit limit);
+
+    /**
+     * Hydrates the posts of a ranking or timeline page in one query, the caller restores the order of the page.
+     */
+    @Query("SELECT new com.posts.post_platform.dto.PostFeedEntry(p.id, p.title, p.content, p.createdAt, p.status, u.username, c.communityName, p.commentCount, p.lastActivityAt, p.likeCount, p.dislikeCount) " +
+            "FROM Post p JOIN p.creator u JOIN p.community c WHERE p.id IN :ids AND p.status IN :statuses")
+    List<PostFeedEntry> findFeedEntriesByIds(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<Status> statuses);
+
+    @Query("SELECT new com.posts.post_platform.dto.PostRankingSeed(p.id, p.createdAt, " + RANKING_POINTS + ") " +
+            "FROM Post p WHERE p.community.id = :communityId AND p.status IN :statuses ORDER BY " + RANKING_POINTS + " DESC, p.id DESC")
+    List<PostRankingSeed> findTopRankingSeeds(@Param("communityId") Long communityId,
+                                              @Param("statuses") Collection<Status> statuses,
+                                              Limit limit);
+
+    @Query("SELECT new com.posts.post_platform.dto.PostRankingSeed(p.id, p.createdAt, " + RANKING_POINTS + ") " +
+            "FROM Post p WHERE p.community.id = :communityId AND p.status IN :statuses AND p.createdAt > :since " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostRankingSeed> findRankingSeedsCreatedSince(@Param("communityId") Long communityId,
+                                                       @Param("statuses") Collection<Status> statuses,
+                                                       @Param("since") LocalDateTime since,
+                                                       Limit limit);
+
+    /**
+     * The post_votes rows are the ledger of who voted on a post, the changes of the ledger are conditional on the
+     * previous vote of the user so a stale cached vote never writes a wrong delta. like_count and dislike_count are
+     * only changed by {@link #addLikeCounts(long, Collection)} and {@link #addDislikeCounts(long, Collection)} when
+     * the buffered counters are flushed.
+     */
+    @Query(value = "SELECT user_id, vote FROM post_votes WHERE post_id = :postId", nativeQuery = true)
+    List<Object[]> findVotes(@Param("postId") Long postId);
+
+    @Query(value = "SELECT vote FROM post_votes WHERE post_id = :postId AND user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<Integer> findVoteForUpdate(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO post_votes (post_id, user_id, vote) VALUES (:postId, :userId, :vote)", nativeQuery = true)
+    int insertVote(@Param("postId") Long postId, @Param("userId") Long userId, @Param("vote") int vote);
+
+    @Modifying
+    @Query(value = "UPDATE post_votes SET vote = :vote WHERE post_id = :postId AND user_id = :userId AND vote = :expected", nativeQuery = true)
+    int updateVote(@Param("postId") Long postId, @Param("userId") Long userId, @Param("expected") int expected, @Param("vote") int vote);
+
+    @Modifying
+    @Query(value = "DELETE FROM post_votes WHERE post_id = :postId AND user_id = :userId AND vote = :expected", nativeQuery = true)
+    int deleteVote(@Param("postId") Long postId, @Param("userId") Long userId, @Param("expected") int expected);
+
+    @Modifying
+    @Query(value = "UPDATE posts SET like_count = COALESCE(like_count, 0) + :delta WHERE id IN (:postIds)", nativeQuery = true)
+    int addLikeCounts(@Param("delta") long delta, @Param("postIds") Collection<Long> postIds);
+
+    @Modifying
+    @Query(value = "UPDATE posts SET dislike_count = COALESCE(dislike_count, 0) + :delta WHERE id IN (:postIds)", nativeQuery = true)
+    int addDislikeCounts(@Param("delta") long delta, @Param("postIds") Collection<Long> postIds);
+
+    /**
+     * Counts new comments of the post and moves its last activity time to the newest of them, it is called in the
+     * transaction that inserts the comments. The increment is done by the database, so concurrent comments on the same
+     * post are all counted.
+     * The last activity time of a post that was created before it was kept on posts stays null, it marks the post for
+     * {@link #backfillActivity}, which recounts the comments of the post including these.
+     */
+    @Modifying
+    @Query(value = "UPDATE posts SET comment_count = COALESCE(comment_count, 0) + :count, " +
+            "last_activity_at = CASE WHEN last_activity_at IS NULL THEN NULL ELSE GREATEST(last_activity_at, :commentedAt) END " +
+            "WHERE id = :postId", nativeQuery = true)
+    int addComments(@Param("postId") Long postId, @Param("count") long count, @Param("commentedAt") LocalDateTime commentedAt);
+
+    @Query("SELECT new com.posts.post_platform.dto.PostCommentTarget(p.id, p.title, p.community.id, p.createdAt) FROM Post p WHERE p.id = :postId")
+    Optional<PostCommentTarget> findCommentTarget(@Param("postId") Long postId);
+
+    /**
+     * Counts the active comments and finds the newest comment of the posts of an id range that were created before
+     * the comment count and last activity time were kept on posts. A null last activity time marks these posts, only
+     * this statement sets it on them.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE posts p SET p.comment_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id AND c.comment_status = 'ACTIVE'), " +
+            "p.last_activity_at = COALESCE((SELECT MAX(c.created_at) FROM comments c WHERE c.post_id = p.id AND c.created_at > p.created_at), p.created_at) " +
+            "WHERE p.id > :afterId AND p.id <= :lastId AND p.last_activity_at IS NULL", nativeQuery = true)
+    int backfillActivity(@Param("afterId") Long afterId, @Param("lastId") Long lastId);
+
+    @Query("SELECT MIN(p.id) FROM Post p WHERE p.lastActivityAt IS NULL")
+    Optional<Long> findFirstIdWithoutActivity();
+
+    @Query("SELECT MAX(p.id) FROM Post p")
+    Optional<Long> findMaxId();
 
     @Query("SELECT p FROM Post p WHERE p.id =: post_id AND p.creator.id =: creator_id")
     Optional<Post> findPostByIdAndCreatorId(@Param("post_id") Long post_id, @Param("creator_id") Long creator_id);
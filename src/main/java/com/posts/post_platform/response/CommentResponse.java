@@ -18,5 +18,8 @@ public class CommentResponse {
     private String postName;
     private String commentAuthorName;
     private Long parentCommentId;
+    private Long likeCount;
+    private Long unlikeCount;
     private List<CommentResponse> childComments;
+    private String moreRepliesCursor;
 }
@@ -0,0 +1,16 @@
+package com.posts.post_platform.response;
+
+import lombok.*;
+
+@Data
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentVoteResponse {
+    private Long commentId;
+    private String vote;
+    private Long likeCount;
+    private Long unlikeCount;
+}
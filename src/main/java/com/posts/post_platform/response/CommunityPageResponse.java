@@ -0,0 +1,16 @@
+package com.posts.post_platform.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommunityPageResponse {
+    private List<CommunityResponse> communities;
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package com.posts.post_platform.response;
+
+import com.posts.post_platform.dto.UserDto;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberPageResponse {
+    private List<UserDto> members;
+    private String nextCursor;
+}
@@ -0,0 +1,16 @@
+package com.posts.post_platform.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostPageResponse {
+    private List<PostResponse> posts;
+    private String nextCursor;
+}
@@ -19,4 +19,8 @@ public class PostResponse {
     private String status;
     private String creatorUsername;
     private String communityName;
+    private Long likeCount;
+    private Long dislikeCount;
+    private Long commentCount;
+    private LocalDateTime lastActivityAt;
 }
@@ -2,18 +2,18 @@ package com.posts.post_platform.security;
 
 import com.posts.post_platform.model.User;
 import com.posts.post_platform.repository.UserRepositories;
+import com.posts.post_platform.service.PasswordHashingService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class CustomAuthenticationManager implements AuthenticationManager {
@@ -21,10 +21,11 @@ public class CustomAuthenticationManager implements AuthenticationManager {
     @Autowired
     private UserRepositories userRepositories;
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     /**
      * This method is responsible for authenticating the user during login.
@@ -39,7 +40,7 @@ public class CustomAuthenticationManager implements AuthenticationManager {
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
         Optional<User> optionalUser = userRepositories.findUserByUsername(authentication.getName());
         if (optionalUser.isPresent()) {
-            if (passwordEncoder().matches(authentication.getCredentials().toString(), optionalUser.get().getPassword())) {
+            if (passwordEncoder.matches(authentication.getCredentials().toString(), optionalUser.get().getPassword())) {
                 JwtUserDetails userDetails = JwtUserDetails.create(optionalUser.get());
                 return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
             } else {
@@ -48,4 +49,25 @@ public class CustomAuthenticationManager implements AuthenticationManager {
         }
         throw new BadCredentialsException("Wrong username");
     }
+
+    /**
+     * Authenticates the user like {@link #authenticate(Authentication)}, but the password check runs on the
+     * password hashing pool so the calling request thread is not blocked by BCrypt.
+     *
+     * @param authentication The authentication request containing the username and password.
+     * @return A future completed with the authenticated user, or completed exceptionally with a
+     * BadCredentialsException if the credentials are wrong.
+     * @throws com.posts.post_platform.exceptions.PasswordHashingRejectedException If the hashing pool is saturated.
+     */
+    public CompletableFuture<Authentication> authenticateAsync(Authentication authentication) {
+        Optional<User> optionalUser = userRepositories.findUserByUsername(authentication.getName());
+        if (optionalUser.isEmpty()) return CompletableFuture.failedFuture(new BadCredentialsException("Wrong username"));
+        User user = optionalUser.get();
+        return passwordHashingService.matches(authentication.getCredentials().toString(), user.getPassword())
+                .thenApply(matches -> {
+                    if (!matches) throw new BadCredentialsException("Wrong Password");
+                    JwtUserDetails userDetails = JwtUserDetails.create(user);
+                    return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                });
+    }
 }
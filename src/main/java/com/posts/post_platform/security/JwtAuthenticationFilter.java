@@ -6,9 +6,11 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -23,10 +25,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Value("${postapp.app.stateless_auth:false}")
+    private boolean statelessAuth;
+
     /**
      * This method is part of the filter that processes the HTTP request to check for a JWT token.
      * If the token is valid, it extracts the username, loads user details, and sets the authentication
      * context for the request.
+     * In stateless mode the user details are built from the token claims and the database is not queried.
      *
      * @param request The HTTP request to be processed.
      * @param response The HTTP response.
@@ -38,9 +44,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwtToken = extractJwtFromRequest(request);
-            if(StringUtils.hasText(jwtToken) && jwtTokenProvider.validateToken(jwtToken)) {
-                String username = jwtTokenProvider.getUsernameFromToken(jwtToken);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if(StringUtils.hasText(jwtToken)) {
+                UserDetails userDetails = statelessAuth ? jwtTokenProvider.getUserDetailsFromToken(jwtToken) : loadUserDetails(jwtToken);
                 if(userDetails != null) {
                     UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -53,6 +58,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Checks the token without the database and then loads the user once, the loaded user
+     * also proves that the user still exists.
+     */
+    private UserDetails loadUserDetails(String jwtToken) {
+        JwtUserDetails tokenDetails = jwtTokenProvider.getUserDetailsFromToken(jwtToken);
+        if(tokenDetails == null) return null;
+        try {
+            return userDetailsService.loadUserByUsername(tokenDetails.getUsername());
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
     private String extractJwtFromRequest(HttpServletRequest request) {
         String bearer = request.getHeader("Authorization");
         if(StringUtils.hasText(bearer) && bearer.startsWith("Bearer "))
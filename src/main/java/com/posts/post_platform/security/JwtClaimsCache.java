@@ -0,0 +1,123 @@
+package com.posts.post_platform.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps the claims of already verified JWT tokens so that the HS512 signature of a token
+ * is checked once per node instead of on every call that needs a claim.
+ * Entries are keyed by a SHA-256 digest of the token, the cache is bounded in size (least recently used
+ * entries are dropped first) and an entry is never returned once its token has expired.
+ */
+@Component
+public class JwtClaimsCache {
+    private final int maxEntries;
+    private final Map<String, CachedClaims> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public JwtClaimsCache(@Value("${postapp.app.claims_cache_size:10000}") int maxEntries, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("jwt.claims.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("jwt.claims.cache.requests", "result", "miss");
+        this.evictions = meterRegistry.counter("jwt.claims.cache.evictions");
+        meterRegistry.gauge("jwt.claims.cache.size", this, JwtClaimsCache::size);
+    }
+
+    /**
+     * Returns the verified claims of the token. On a miss the parser is invoked, which verifies the
+     * signature and throws if the token is invalid; only successfully parsed, unexpired tokens are cached.
+     * Two threads missing on the same token at the same time may both parse it, which is harmless.
+     *
+     * @param token The JWT token.
+     * @param parser The function that verifies and parses the token.
+     * @return The claims of the token.
+     */
+    public Claims getOrParse(String token, Function<String, Claims> parser) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CachedClaims cached = entries.get(key);
+            if (cached != null) {
+                if (cached.expiresAt() > now) {
+                    hits.increment();
+                    return cached.claims();
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        Claims claims = parser.apply(token);
+        Date expiration = claims.getExpiration();
+        if (expiration != null && expiration.getTime() > now) {
+            synchronized (entries) {
+                if (entries.size() >= maxEntries) evict(now);
+                entries.put(key, new CachedClaims(claims, expiration.getTime()));
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Drops the cached claims of a token, e.g. when the token must not be trusted anymore.
+     * @param token The JWT token.
+     */
+    public void invalidate(String token) {
+        synchronized (entries) {
+            if (entries.remove(digest(token)) != null) evictions.increment();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes expired entries first; if the cache is still full the least recently used entry is removed.
+     * Must be called while holding the lock on entries.
+     */
+    private void evict(long now) {
+        Iterator<CachedClaims> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt() <= now) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+        iterator = entries.values().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record CachedClaims(Claims claims, long expiresAt) {
+    }
+}
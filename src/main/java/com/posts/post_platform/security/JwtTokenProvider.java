@@ -17,6 +17,12 @@ public class JwtTokenProvider {
     @Autowired
     private UserRepositories userRepositories;
 
+    @Autowired
+    private JwtClaimsCache claimsCache;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
     @Value("${postapp.app.app_secret}")
     private String APP_SECRET;
 
@@ -35,7 +41,9 @@ public class JwtTokenProvider {
         String authorities = grantedAuthorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.joining("&"));
         return Jwts.builder()
                 .setSubject(userDetails.getUsername())
+                .claim("uid", userDetails.getId())
                 .claim("authorities", authorities)
+                .claim("ver", tokenVersionService.getCurrentVersion(userDetails.getUsername()))
                 .setIssuedAt(new Date())
                 .setExpiration(expireDate)
                 .signWith(SignatureAlgorithm.HS512, APP_SECRET)
@@ -44,10 +52,15 @@ public class JwtTokenProvider {
 
     /**
      * Extracts the claims (payload) from the JWT token.
+     * The signature is verified only the first time a token is seen, afterwards the claims come from the cache.
      * @param token The JWT token.
      * @return The claims parsed from the token.
      */
     public Claims getClaims(String token) {
+        return claimsCache.getOrParse(token, this::parseClaims);
+    }
+
+    private Claims parseClaims(String token) {
         return Jwts.parser()
                 .setSigningKey(APP_SECRET)
                 .parseClaimsJws(token)
@@ -69,8 +82,30 @@ public class JwtTokenProvider {
      * @return An array of authorities extracted from the token.
      */
     public String[] getAuthoritiesFromToken(String token) {
-        Claims claims = getClaims(token);
-        return claims.get("authorities", String.class).split("&");
+        return getAuthorities(getClaims(token));
+    }
+
+    private String[] getAuthorities(Claims claims) {
+        String authorities = claims.get("authorities", String.class);
+        return authorities == null || authorities.isEmpty() ? new String[0] : authorities.split("&");
+    }
+
+    /**
+     * Builds the user details straight from a signed token, without touching the database.
+     * The subject and the authorities claim are trusted because the signature has been verified;
+     * revoked tokens are recognized through the token version of the user.
+     * @param token The JWT token.
+     * @return The user details of the token, or null if the token is invalid, expired or revoked.
+     */
+    public JwtUserDetails getUserDetailsFromToken(String token) {
+        try {
+            Claims claims = getClaims(token);
+            if (isTokenExpired(claims) || isTokenRevoked(claims)) return null;
+            Number userId = claims.get("uid", Number.class);
+            return JwtUserDetails.create(userId == null ? null : userId.longValue(), claims.getSubject(), getAuthorities(claims));
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
     }
 
     /**
@@ -80,9 +115,10 @@ public class JwtTokenProvider {
      */
     public boolean validateToken(String token) {
         try {
-            String username = getUsernameFromToken(token);
-            if(userRepositories.findUserByUsername(username).isEmpty()) return false;
-            return !isTokenExpired(token);
+            Claims claims = getClaims(token);
+            if(isTokenRevoked(claims)) return false;
+            if(userRepositories.findUserByUsername(claims.getSubject()).isEmpty()) return false;
+            return !isTokenExpired(claims);
         } catch (SignatureException | MalformedJwtException | UnsupportedJwtException | IllegalArgumentException ex) {
             return false;
         }
@@ -90,11 +126,22 @@ public class JwtTokenProvider {
 
     /**
      * Checks if the JWT token has expired by comparing the expiration date with the current date.
-     * @param token The JWT token.
+     * @param claims The claims of the JWT token.
      * @return True if the token is expired, otherwise false.
      */
-    private boolean isTokenExpired(String token) {
-        Date date = getClaims(token).getExpiration();
+    private boolean isTokenExpired(Claims claims) {
+        Date date = claims.getExpiration();
         return date.before(new Date());
     }
+
+    /**
+     * Checks if the JWT token was issued before the last revocation of its user's tokens.
+     * Tokens issued before token versions existed have no version and count as version 0.
+     * @param claims The claims of the JWT token.
+     * @return True if the token is revoked, otherwise false.
+     */
+    private boolean isTokenRevoked(Claims claims) {
+        Number version = claims.get("ver", Number.class);
+        return tokenVersionService.isRevoked(claims.getSubject(), version == null ? 0 : version.longValue());
+    }
 }
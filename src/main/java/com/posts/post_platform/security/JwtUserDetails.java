@@ -16,11 +16,13 @@ import java.util.List;
 @Setter
 public class JwtUserDetails implements UserDetails {
 
+    private Long id;
     private String username;
     private String password;
     private Collection<? extends GrantedAuthority> authorities;
 
-    private JwtUserDetails(String username, String password, Collection<? extends GrantedAuthority> authorities) {
+    private JwtUserDetails(Long id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
         this.username = username;
         this.password = password;
         this.authorities = authorities;
@@ -31,7 +33,20 @@ public class JwtUserDetails implements UserDetails {
         for(Role role: user.getRole()) {
             authorityList.add(new SimpleGrantedAuthority(role.name()));
         }
-        return new JwtUserDetails(user.getUsername(), user.getPassword(), authorityList);
+        return new JwtUserDetails(user.getId(), user.getUsername(), user.getPassword(), authorityList);
+    }
+
+    /**
+     * Creates the principal of a request from the claims of a verified token.
+     * The id may be null for tokens issued before the user id was put into the token,
+     * it is then resolved once per request by the UserService.
+     */
+    public static JwtUserDetails create(Long id, String username, String[] authorities) {
+        List<GrantedAuthority> authorityList = new ArrayList<>();
+        for(String authority: authorities) {
+            authorityList.add(new SimpleGrantedAuthority(authority));
+        }
+        return new JwtUserDetails(id, username, null, authorityList);
     }
 
     @Override
@@ -0,0 +1,139 @@
+package com.posts.post_platform.security;
+
+import com.posts.post_platform.service.RedisChannelListener;
+import com.posts.post_platform.service.RedisMessageBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the per-user token versions used to revoke JWT tokens without a database lookup.
+ * Every token carries the version of its user at the time it was issued; revoking a user's tokens
+ * increments that version, so every token with a lower version is rejected.
+ * Only users that have revoked their tokens at least once are stored, in a Redis hash that is the source of truth.
+ * Every node keeps the versions of recently seen users in a bounded memory cache (least recently used entries are
+ * dropped first), kept up to date through the Redis message bus. A user that is not cached is read from the hash, and
+ * the cache is emptied whenever the bus resubscribes, because revocations published meanwhile were missed.
+ * When the hash can not be read, tokens are rejected and no token is issued.
+ */
+@Service
+public class TokenVersionService implements RedisChannelListener {
+    private static final Logger log = LoggerFactory.getLogger(TokenVersionService.class);
+    static final String TOKEN_VERSIONS_KEY = "token_versions";
+    static final String TOKEN_VERSIONS_CHANNEL = "token_versions";
+
+    private final JedisPooled jedis;
+    private final RedisMessageBus messageBus;
+    private final int maxEntries;
+    private final Map<String, Long> versions = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+
+    public TokenVersionService(JedisPooled jedis, RedisMessageBus messageBus,
+                               @Value("${postapp.app.token_versions_cache_size:100000}") int maxEntries) {
+        this.jedis = jedis;
+        this.messageBus = messageBus;
+        this.maxEntries = Math.max(maxEntries, 1);
+        messageBus.subscribe(TOKEN_VERSIONS_CHANNEL, this);
+    }
+
+    /**
+     * Returns the current token version of the user, tokens issued now carry this version.
+     * The version is always read from Redis, so a new token is never stamped with a stale version.
+     * @param username The username of the user.
+     * @return The current token version, 0 if the user never revoked their tokens.
+     * @throws redis.clients.jedis.exceptions.JedisException If Redis can not be read.
+     */
+    public long getCurrentVersion(String username) {
+        long generation = generation();
+        long version = read(username);
+        remember(username, version, generation);
+        return version;
+    }
+
+    /**
+     * Checks whether a token with the given version has been revoked.
+     * @param username The username in the token.
+     * @param tokenVersion The version in the token.
+     * @return True if the token was issued before the user's last revocation, or if the version of a user that is not
+     * cached can not be read from Redis.
+     */
+    public boolean isRevoked(String username, long tokenVersion) {
+        Long version;
+        long generation;
+        synchronized (versions) {
+            version = versions.get(username);
+            generation = this.generation;
+        }
+        if (version == null) {
+            try {
+                version = read(username);
+            } catch (Exception e) {
+                log.warn("Token version of {} could not be read from Redis, rejecting the token: {}", username, e.getMessage());
+                return true;
+            }
+            remember(username, version, generation);
+        }
+        return tokenVersion < version;
+    }
+
+    /**
+     * Revokes all tokens issued to the user so far and notifies the other nodes.
+     * @param username The username of the user.
+     * @return The new token version of the user.
+     */
+    public long revokeTokens(String username) {
+        long version = jedis.hincrBy(TOKEN_VERSIONS_KEY, username, 1);
+        remember(username, version, generation());
+        messageBus.publish(TOKEN_VERSIONS_CHANNEL, version + ":" + username);
+        return version;
+    }
+
+    @Override
+    public void onMessage(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0) return;
+        long version = Long.parseLong(message.substring(0, separator));
+        remember(message.substring(separator + 1), version, generation());
+    }
+
+    /**
+     * Forgets every cached version, which covers revocations published while this node was not subscribed.
+     * Versions read before the resubscription are not cached afterwards.
+     */
+    @Override
+    public void onSubscribed() {
+        synchronized (versions) {
+            versions.clear();
+            generation++;
+        }
+    }
+
+    private long read(String username) {
+        String version = jedis.hget(TOKEN_VERSIONS_KEY, username);
+        return version == null ? 0 : Long.parseLong(version);
+    }
+
+    private long generation() {
+        synchronized (versions) {
+            return generation;
+        }
+    }
+
+    private void remember(String username, long version, long generation) {
+        synchronized (versions) {
+            if (generation != this.generation) return;
+            versions.merge(username, version, Math::max);
+            Iterator<String> iterator = versions.keySet().iterator();
+            while (versions.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.posts.post_platform.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.Optional;
+
+/**
+ * Fills a column of the rows that were created before the column was kept, once the application is ready.
+ * The walk starts at the first row that still needs it and goes on in id ranges up to the current max id, each range
+ * is filled in its own short transaction. Filled rows are no longer found as the first row, so after the first run
+ * a boot only looks the first row up and walks nothing.
+ */
+public abstract class IdRangeBackfillJob {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final String rows;
+    private final int batchSize;
+
+    /**
+     * @param rows The name of the rows in the log, e.g. "posts".
+     * @param batchSize The number of ids in a range.
+     */
+    protected IdRangeBackfillJob(String rows, int batchSize) {
+        this.rows = rows;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            Optional<Long> firstId = findFirstUnfilledId();
+            if (firstId.isEmpty()) return;
+            long maxId = findMaxId().orElse(0L);
+            int filled = 0;
+            for (long afterId = firstId.get() - 1; afterId < maxId; afterId += batchSize) {
+                filled += fill(afterId, Math.min(afterId + batchSize, maxId));
+            }
+            if (filled > 0) log.info("Backfill filled {} {}", filled, rows);
+        } catch (Exception e) {
+            log.warn("Backfill of {} stopped: {}", rows, e.getMessage());
+        }
+    }
+
+    /**
+     * @return The lowest id of the rows that still need to be filled, empty when all are filled.
+     */
+    protected abstract Optional<Long> findFirstUnfilledId();
+
+    protected abstract Optional<Long> findMaxId();
+
+    /**
+     * Fills the rows with ids in (afterId, lastId] in one transaction.
+     * @return The number of filled rows.
+     */
+    protected abstract int fill(long afterId, long lastId);
+}
@@ -0,0 +1,102 @@
+package com.posts.post_platform.service;
+
+import com.posts.post_platform.exceptions.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the CPU-bound BCrypt work of login and registration on a dedicated, bounded worker pool,
+ * so that a burst of logins can not take every request thread away from the rest of the API.
+ * When all workers are busy and the queue is full, new work is rejected immediately with a
+ * {@link PasswordHashingRejectedException} instead of waiting.
+ * The pool is instrumented under the "password.hashing" metric names.
+ */
+@Service
+public class PasswordHashingService {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashingTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${postapp.password_hashing.pool_size:0}") int poolSize,
+                                  @Value("${postapp.password_hashing.queue_capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.hashingTimer = meterRegistry.timer("password.hashing.duration");
+        this.rejectedCounter = meterRegistry.counter("password.hashing.rejected");
+        new ExecutorServiceMetrics(executor, "password.hashing", List.of()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Hashes the raw password on the hashing pool.
+     * @param rawPassword The password to hash.
+     * @return A future completed with the encoded password.
+     * @throws PasswordHashingRejectedException If the pool is saturated.
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks the raw password against the encoded one on the hashing pool.
+     * @param rawPassword The password given by the user.
+     * @param encodedPassword The stored password hash.
+     * @return A future completed with true if the passwords match.
+     * @throws PasswordHashingRejectedException If the pool is saturated.
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @return The number of hashing tasks waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashingTimer.record(task), executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("Too many login or registration requests, please try again later");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.posts.post_platform.service;
+
+/**
+ * Receives the messages published on a Redis channel through the {@link RedisMessageBus}.
+ */
+public interface RedisChannelListener {
+    void onMessage(String message);
+
+    /**
+     * Called every time the bus (re)subscribes to the channel. Messages published while the
+     * subscription was down are lost, so listeners that keep state should resynchronize here.
+     */
+    default void onSubscribed() {
+    }
+}
@@ -0,0 +1,99 @@
+package com.posts.post_platform.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes messages to Redis channels and dispatches the messages of subscribed channels to local listeners.
+ * It is used to keep in-memory state (token versions, caches) consistent across application nodes.
+ * Listeners have to be registered before the application is ready, the subscription is opened once
+ * on a dedicated daemon thread and reopened automatically if the connection drops.
+ */
+@Service
+public class RedisMessageBus {
+    private static final Logger log = LoggerFactory.getLogger(RedisMessageBus.class);
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final JedisPooled jedis;
+    private final Map<String, List<RedisChannelListener>> listeners = new ConcurrentHashMap<>();
+    private volatile JedisPubSub pubSub;
+    private volatile boolean running;
+
+    public RedisMessageBus(JedisPooled jedis) {
+        this.jedis = jedis;
+    }
+
+    public void subscribe(String channel, RedisChannelListener listener) {
+        listeners.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void publish(String channel, String message) {
+        jedis.publish(channel, message);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (running || listeners.isEmpty()) return;
+        running = true;
+        Thread thread = new Thread(this::listen, "redis-message-bus");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        JedisPubSub current = pubSub;
+        if (current != null && current.isSubscribed()) current.unsubscribe();
+    }
+
+    private void listen() {
+        String[] channels = listeners.keySet().toArray(new String[0]);
+        while (running) {
+            try {
+                pubSub = new JedisPubSub() {
+                    @Override
+                    public void onMessage(String channel, String message) {
+                        dispatch(channel, message);
+                    }
+
+                    @Override
+                    public void onSubscribe(String channel, int subscribedChannels) {
+                        listeners.getOrDefault(channel, List.of()).forEach(RedisChannelListener::onSubscribed);
+                    }
+                };
+                jedis.subscribe(pubSub, channels);
+            } catch (Exception e) {
+                if (!running) return;
+                log.warn("Redis subscription lost, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String channel, String message) {
+        for (RedisChannelListener listener : listeners.getOrDefault(channel, List.of())) {
+            try {
+                listener.onMessage(message);
+            } catch (Exception e) {
+                log.warn("Listener of channel {} failed on message {}", channel, message, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.posts.post_platform.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers changes of counters in memory until they are written in a batch, without locking on the hot path.
+ * Every key has a striped {@link LongAdder}, changes of one key on different threads increment different cells.
+ * The adders belong to a generation, {@link #drain()} swaps in a new generation and waits until no writer is still
+ * adding to the old one, so no change is lost or drained twice.
+ * @param <K> The type of the key of a counter.
+ */
+public class StripedDeltaBuffer<K> {
+    private volatile Generation<K> current = new Generation<>();
+
+    /**
+     * Adds a change to the counter of the key.
+     */
+    public void add(K key, long delta) {
+        while (true) {
+            Generation<K> generation = current;
+            generation.writers.increment();
+            try {
+                // a writer that still sees the drained generation after announcing itself retries on the new one
+                if (generation == current) {
+                    generation.deltas.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+                    return;
+                }
+            } finally {
+                generation.writers.decrement();
+            }
+        }
+    }
+
+    /**
+     * Returns the change of the counter of the key since the last drain.
+     * Changes that were drained but not written yet are not included.
+     */
+    public long getPendingDelta(K key) {
+        LongAdder adder = current.deltas.get(key);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Takes all buffered changes, the changes added from now on are buffered for the next drain.
+     * @return The change of every counter that changed.
+     */
+    public synchronized Map<K, Long> drain() {
+        Generation<K> drained = current;
+        current = new Generation<>();
+        while (drained.writers.sum() != 0) {
+            Thread.onSpinWait();
+        }
+        Map<K, Long> deltas = new HashMap<>();
+        drained.deltas.forEach((key, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) deltas.put(key, delta);
+        });
+        return deltas;
+    }
+
+    /**
+     * Groups drained changes by their value, so keys with the same change can share one UPDATE statement.
+     */
+    public static <K> Map<Long, List<K>> groupByDelta(Map<K, Long> deltas) {
+        Map<Long, List<K>> keysByDelta = new HashMap<>();
+        deltas.forEach((key, delta) -> keysByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(key));
+        return keysByDelta;
+    }
+
+    private static final class Generation<K> {
+        private final Map<K, LongAdder> deltas = new ConcurrentHashMap<>();
+        private final LongAdder writers = new LongAdder();
+    }
+}
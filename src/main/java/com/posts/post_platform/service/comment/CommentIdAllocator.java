@@ -0,0 +1,91 @@
+package com.posts.post_platform.service.comment;
+
+import com.posts.post_platform.exceptions.CommentIngestionRejectedException;
+import com.posts.post_platform.repository.IdBlockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Hands out the ids of queued comments before they are inserted, from blocks reserved in the id_blocks table, so a
+ * comment can be acknowledged with its id right away and inserted with an explicit id in a batch.
+ * Comment ids stand for the creation order in the "new" and "old" sorts, so a block is only used for a short time and
+ * kept small, the ids of comments queued on different nodes are out of order by at most that time.
+ * The blocks are reserved ahead of time by {@link #refill()} on the scheduler, a request only takes the next spare
+ * block and never waits for the database. When no spare block is left, new comments are rejected with a
+ * {@link CommentIngestionRejectedException} until the next refill.
+ * A node that inserts comments with generated ids while others hand out blocks can take ids of unused blocks, so the
+ * ingestion is switched on for all nodes at once.
+ */
+@Service
+public class CommentIdAllocator {
+    private final IdBlockRepository idBlockRepository;
+    private final boolean enabled;
+    private final int blockSize;
+    private final long blockMaxAgeMillis;
+    private final int spareBlocks;
+    private final Deque<Block> spares = new ArrayDeque<>();
+    private long nextId;
+    private long blockEnd;
+    private long blockReservedAt;
+
+    public CommentIdAllocator(IdBlockRepository idBlockRepository,
+                              @Value("${postapp.comments.ingestion.enabled:false}") boolean enabled,
+                              @Value("${postapp.comments.ingestion.id_block_size:500}") int blockSize,
+                              @Value("${postapp.comments.ingestion.id_block_max_age_ms:1000}") long blockMaxAgeMillis,
+                              @Value("${postapp.comments.ingestion.id_block_spares:2}") int spareBlocks) {
+        this.idBlockRepository = idBlockRepository;
+        this.enabled = enabled;
+        this.blockSize = Math.max(blockSize, 1);
+        this.blockMaxAgeMillis = blockMaxAgeMillis;
+        this.spareBlocks = Math.max(spareBlocks, 1);
+    }
+
+    /**
+     * @return The next unused comment id, the next spare block is taken when the current one is used up or too old.
+     * @throws CommentIngestionRejectedException If no spare block is reserved.
+     */
+    public synchronized long next() {
+        long now = System.currentTimeMillis();
+        if (nextId >= blockEnd || now - blockReservedAt > blockMaxAgeMillis) {
+            Block block = spares.pollFirst();
+            while (block != null && now - block.reservedAt() > blockMaxAgeMillis) {
+                block = spares.pollFirst();
+            }
+            if (block == null) throw new CommentIngestionRejectedException("Too many comments, please try again later");
+            nextId = block.start();
+            blockEnd = block.end();
+            blockReservedAt = block.reservedAt();
+        }
+        return nextId++;
+    }
+
+    /**
+     * Drops the spare blocks that are half way to their max age and reserves new ones until the configured number of
+     * spare blocks is reserved. The blocks are reserved outside the lock of {@link #next()}, so requests keep taking
+     * ids meanwhile.
+     */
+    @Scheduled(fixedDelayString = "${postapp.comments.ingestion.id_block_refill_interval_ms:100}")
+    public void refill() {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        int missing;
+        synchronized (this) {
+            spares.removeIf(block -> now - block.reservedAt() > blockMaxAgeMillis / 2);
+            missing = spareBlocks - spares.size();
+        }
+        for (int i = 0; i < missing; i++) {
+            long reservedAt = System.currentTimeMillis();
+            long end = idBlockRepository.reserveCommentIds(blockSize);
+            synchronized (this) {
+                spares.addLast(new Block(end - blockSize, end, reservedAt));
+            }
+        }
+    }
+
+    private record Block(long start, long end, long reservedAt) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.posts.post_platform.service.comment;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically writes the comments queued in the {@link CommentIngestionQueue} to MySQL in batches.
+ * A run writes at most the comments that were queued when it started, so a burst does not hold the scheduler.
+ * A batch that fails is written again with the next run, a batch that violates a constraint, for example because its
+ * post was deleted meanwhile, is written comment by comment and the comments that still fail are dropped.
+ * The last flush runs when the application shuts down, comments still queued at a hard kill are lost.
+ */
+@Component
+public class CommentIngestionFlushJob {
+    private static final Logger log = LoggerFactory.getLogger(CommentIngestionFlushJob.class);
+
+    private final CommentIngestionQueue commentIngestionQueue;
+    private final int batchSize;
+    private List<CommentIngestionQueue.QueuedComment> retry = List.of();
+
+    public CommentIngestionFlushJob(CommentIngestionQueue commentIngestionQueue,
+                                    @Value("${postapp.comments.ingestion.batch_size:500}") int batchSize) {
+        this.commentIngestionQueue = commentIngestionQueue;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${postapp.comments.ingestion.flush_interval_ms:100}")
+    public synchronized void flush() {
+        int remaining = retry.size() + commentIngestionQueue.size();
+        while (remaining > 0) {
+            List<CommentIngestionQueue.QueuedComment> batch = retry.isEmpty() ? commentIngestionQueue.drain(batchSize) : retry;
+            if (batch.isEmpty()) return;
+            retry = List.of();
+            if (!write(batch)) return;
+            remaining -= batch.size();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        int lost = retry.size() + commentIngestionQueue.size();
+        if (lost > 0) log.warn("{} queued comments could not be written before the shutdown", lost);
+    }
+
+    private boolean write(List<CommentIngestionQueue.QueuedComment> batch) {
+        try {
+            commentIngestionQueue.write(batch);
+            commentIngestionQueue.release(batch);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Batch of {} queued comments was rejected, writing them one by one: {}", batch.size(), e.getMessage());
+            return writeOneByOne(batch);
+        } catch (Exception e) {
+            log.warn("Batch of {} queued comments could not be written, retrying with the next flush: {}", batch.size(), e.getMessage());
+            retry = batch;
+            return false;
+        }
+    }
+
+    private boolean writeOneByOne(List<CommentIngestionQueue.QueuedComment> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            CommentIngestionQueue.QueuedComment comment = batch.get(i);
+            try {
+                commentIngestionQueue.write(List.of(comment));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Queued comment {} of post {} was dropped: {}", comment.id(), comment.postId(), e.getMessage());
+            } catch (Exception e) {
+                log.warn("Queued comments could not be written, retrying with the next flush: {}", e.getMessage());
+                commentIngestionQueue.release(batch.subList(0, i));
+                retry = List.copyOf(batch.subList(i, batch.size()));
+                return false;
+            }
+        }
+        commentIngestionQueue.release(batch);
+        return true;
+    }
+}
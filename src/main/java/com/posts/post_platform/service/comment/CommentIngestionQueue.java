@@ -0,0 +1,183 @@
+package com.posts.post_platform.service.comment;
+
+import com.posts.post_platform.dto.CommentTreeEntry;
+import com.posts.post_platform.dto.PostCommentTarget;
+import com.posts.post_platform.exceptions.CommentIngestionRejectedException;
+import com.posts.post_platform.model.CommentStatus;
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.service.post.PostRankingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Queues checked comments and replies in a bounded queue when the ingestion is enabled, they are written behind the
+ * requests in batches by {@link CommentIngestionFlushJob}. A queued comment already has its id from the
+ * {@link CommentIdAllocator}, so the request is acknowledged with it right away and the rows are inserted with explicit
+ * ids as JDBC batches, which the driver sends as multi-row INSERTs. The counts of the posts and their rankings are
+ * changed once per post and batch.
+ * When the queue is full, new comments are rejected immediately with a {@link CommentIngestionRejectedException}
+ * instead of waiting. Queued comments are not visible to thread reads until they are written, replies to them are
+ * accepted meanwhile. The queue is instrumented under the "comments.ingestion" metric names.
+ */
+@Service
+public class CommentIngestionQueue {
+    private static final String INSERT_SQL = "INSERT INTO comments (id, content, created_at, updated_at, comment_status, post_id, user_id, parent_id, `like`, unlike, score) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 0)";
+
+    private final boolean enabled;
+    private final BlockingQueue<QueuedComment> queue;
+    private final Map<Long, Long> queuedPostIds = new ConcurrentHashMap<>();
+    private final CommentIdAllocator commentIdAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final PostRepository postRepository;
+    private final PostRankingService postRankingService;
+    private final CommentThreadCache commentThreadCache;
+    private final Counter rejectedCounter;
+
+    public CommentIngestionQueue(CommentIdAllocator commentIdAllocator,
+                                 JdbcTemplate jdbcTemplate,
+                                 PostRepository postRepository,
+                                 PostRankingService postRankingService,
+                                 CommentThreadCache commentThreadCache,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${postapp.comments.ingestion.enabled:false}") boolean enabled,
+                                 @Value("${postapp.comments.ingestion.queue_capacity:10000}") int queueCapacity) {
+        this.commentIdAllocator = commentIdAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.postRepository = postRepository;
+        this.postRankingService = postRankingService;
+        this.commentThreadCache = commentThreadCache;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        this.rejectedCounter = meterRegistry.counter("comments.ingestion.rejected");
+        meterRegistry.gaugeCollectionSize("comments.ingestion.queued", Tags.empty(), queue);
+    }
+
+    /**
+     * @return True if new comments and replies are queued instead of inserted by the request.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Assigns the next comment id to a checked comment and queues it.
+     * @param post The post of the comment.
+     * @param parentId The ID of the replied comment, or null for a top level comment.
+     * @param userId The ID of the author.
+     * @param username The username of the author.
+     * @param content The content of the comment.
+     * @return The queued comment with its id.
+     * @throws CommentIngestionRejectedException If the queue is full or no comment id is reserved.
+     */
+    public QueuedComment submit(PostCommentTarget post, Long parentId, Long userId, String username, String content) {
+        long id;
+        try {
+            id = commentIdAllocator.next();
+        } catch (CommentIngestionRejectedException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
+        QueuedComment comment = new QueuedComment(id, post.getId(), post.getCommunityId(), post.getCreatedAt(),
+                parentId, userId, username, content, LocalDateTime.now());
+        // the comment is only found by replies once it is queued, so a reply is never queued before its parent
+        synchronized (queue) {
+            if (!queue.offer(comment)) {
+                rejectedCounter.increment();
+                throw new CommentIngestionRejectedException("Too many comments, please try again later");
+            }
+            queuedPostIds.put(comment.id(), comment.postId());
+        }
+        return comment;
+    }
+
+    /**
+     * @return True if the comment is queued for the post and not written yet.
+     */
+    public boolean isQueued(Long commentId, Long postId) {
+        return postId.equals(queuedPostIds.get(commentId));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Takes up to the given number of queued comments in the order they were queued.
+     */
+    public List<QueuedComment> drain(int max) {
+        List<QueuedComment> batch = new ArrayList<>(Math.min(max, queue.size()));
+        synchronized (queue) {
+            queue.drainTo(batch, max);
+        }
+        return batch;
+    }
+
+    /**
+     * Inserts a batch of drained comments and counts them on their posts in one transaction. The rankings and the
+     * cached threads are updated once the transaction commits.
+     */
+    @Transactional
+    public void write(List<QueuedComment> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, comment) -> {
+            statement.setLong(1, comment.id());
+            statement.setString(2, comment.content());
+            statement.setTimestamp(3, Timestamp.valueOf(comment.createdAt()));
+            statement.setTimestamp(4, Timestamp.valueOf(comment.createdAt()));
+            statement.setString(5, CommentStatus.ACTIVE.name());
+            statement.setLong(6, comment.postId());
+            statement.setLong(7, comment.userId());
+            if (comment.parentId() == null) {
+                statement.setNull(8, Types.BIGINT);
+            } else {
+                statement.setLong(8, comment.parentId());
+            }
+        });
+        Map<Long, List<QueuedComment>> byPost = new LinkedHashMap<>();
+        for (QueuedComment comment : batch) {
+            byPost.computeIfAbsent(comment.postId(), id -> new ArrayList<>()).add(comment);
+        }
+        for (List<QueuedComment> comments : byPost.values()) {
+            QueuedComment first = comments.get(0);
+            LocalDateTime newest = comments.stream().map(QueuedComment::createdAt).max(LocalDateTime::compareTo).orElseThrow();
+            postRepository.addComments(first.postId(), comments.size(), newest);
+            postRankingService.onPostCommented(first.communityId(), first.postId(), first.postCreatedAt(), comments.size());
+            for (QueuedComment comment : comments) {
+                commentThreadCache.onCommentAdded(comment.postId(), comment.toTreeEntry());
+            }
+        }
+    }
+
+    /**
+     * Forgets written or dropped comments, replies to them are checked against MySQL from now on.
+     */
+    public void release(Collection<QueuedComment> comments) {
+        for (QueuedComment comment : comments) {
+            queuedPostIds.remove(comment.id());
+        }
+    }
+
+    public record QueuedComment(Long id, Long postId, Long communityId, LocalDateTime postCreatedAt, Long parentId,
+                                Long userId, String username, String content, LocalDateTime createdAt) {
+        public CommentTreeEntry toTreeEntry() {
+            return new CommentTreeEntry(id, parentId, content, CommentStatus.ACTIVE, username, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.posts.post_platform.service.comment;
+
+/**
+ * The ranking score of a comment for the "top" sort, the lower bound of the Wilson score interval of the share of
+ * likes among its likes and unlikes at 95% confidence. A comment with few votes ranks below one with the same share
+ * of likes and many votes, and unlikes lower the score instead of being ignored.
+ * The score column of comments is computed by {@link com.posts.post_platform.repository.CommentRepository#WILSON_SCORE}
+ * with the same formula, this one ranks the comments of cached threads whose counts changed since the last flush.
+ */
+public final class CommentScore {
+    private static final double Z = 1.96;
+
+    private CommentScore() {
+    }
+
+    public static double wilson(long likes, long unlikes) {
+        long votes = likes + unlikes;
+        if (votes <= 0) return 0;
+        double z2 = Z * Z;
+        return (likes + z2 / 2 - Z * Math.sqrt((double) likes * unlikes / votes + z2 / 4)) / (votes + z2);
+    }
+}
@@ -0,0 +1,38 @@
+package com.posts.post_platform.service.comment;
+
+import com.posts.post_platform.repository.CommentRepository;
+import com.posts.post_platform.service.IdRangeBackfillJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Computes the ranking score of the comments that were liked before the score column existed. A liked comment always
+ * has a score above 0, so a score of 0 on a liked comment marks it.
+ */
+@Component
+public class CommentScoreBackfillJob extends IdRangeBackfillJob {
+    private final CommentRepository commentRepository;
+
+    public CommentScoreBackfillJob(CommentRepository commentRepository,
+                                   @Value("${postapp.comments.score_backfill_batch_size:1000}") int batchSize) {
+        super("comments", batchSize);
+        this.commentRepository = commentRepository;
+    }
+
+    @Override
+    protected Optional<Long> findFirstUnfilledId() {
+        return commentRepository.findFirstUnscoredId();
+    }
+
+    @Override
+    protected Optional<Long> findMaxId() {
+        return commentRepository.findMaxId();
+    }
+
+    @Override
+    protected int fill(long afterId, long lastId) {
+        return commentRepository.scoreUnscoredComments(afterId, lastId);
+    }
+}
@@ -1,22 +1,32 @@
 package com.posts.post_platform.service.comment;
 
+import com.posts.post_platform.model.Vote;
 import com.posts.post_platform.requests.CommentRequest;
+import com.posts.post_platform.response.CommentPageResponse;
 import com.posts.post_platform.response.CommentResponse;
+import com.posts.post_platform.response.CommentVoteResponse;
+import com.posts.post_platform.security.JwtUserDetails;
 
 import java.util.List;
 
 public interface CommentService {
-    CommentResponse addCommentToPost(String communityName, Long postId, CommentRequest commentRequest, String username);
+    CommentResponse addCommentToPost(String communityName, Long postId, CommentRequest commentRequest, JwtUserDetails principal);
 
-    CommentResponse replyToComment(String communityName, Long postId, Long commentId, String username, CommentRequest commentRequest);
+    CommentResponse replyToComment(String communityName, Long postId, Long commentId, JwtUserDetails principal, CommentRequest commentRequest);
 
-    CommentResponse getComment(Long postId, String communityName, Long commentId, String username);
+    CommentResponse getComment(Long postId, String communityName, Long commentId, JwtUserDetails principal);
 
-    List<CommentResponse> getAllCommentsFromPost(Long postId, String communityName, String username);
+    List<CommentResponse> getAllCommentsFromPost(Long postId, String communityName, JwtUserDetails principal);
 
-    List<CommentResponse> getAllCommentsBySorted(Long postId, String communityName, String username, String sort);
+    List<CommentResponse> getAllCommentsBySorted(Long postId, String communityName, JwtUserDetails principal, String sort);
 
-    String likeComment(Long postId, Long commentId, String username);
+    CommentPageResponse getCommentThread(Long postId, String communityName, JwtUserDetails principal, String sort, String cursor, int size);
 
-    String unlikeComment(Long postId, Long commentId, String username);
+    String getRenderedCommentThread(Long postId, String communityName, JwtUserDetails principal, String sort, String cursor, int size);
+
+    String likeComment(Long postId, Long commentId, JwtUserDetails principal);
+
+    String unlikeComment(Long postId, Long commentId, JwtUserDetails principal);
+
+    CommentVoteResponse voteComment(Long postId, Long commentId, Vote vote, JwtUserDetails principal);
 }
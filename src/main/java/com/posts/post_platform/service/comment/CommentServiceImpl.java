@@ -1,23 +1,45 @@
 package com.posts.post_platform.service.comment;
 
+import com.posts.post_platform.dto.CommentTreeEntry;
+import com.posts.post_platform.dto.CommentVoteCounts;
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.dto.PostCommentTarget;
 import com.posts.post_platform.exceptions.*;
 import com.posts.post_platform.mapper.CommentMapper;
 import com.posts.post_platform.model.Comment;
-import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommentStatus;
+import com.posts.post_platform.model.CommunityRole;
 import com.posts.post_platform.model.Post;
-import com.posts.post_platform.model.User;
+import com.posts.post_platform.model.Vote;
 import com.posts.post_platform.repository.CommentRepository;
-import com.posts.post_platform.repository.CommunityRepository;
 import com.posts.post_platform.repository.PostRepository;
 import com.posts.post_platform.repository.UserRepositories;
 import com.posts.post_platform.requests.CommentRequest;
+import com.posts.post_platform.response.CommentPageResponse;
 import com.posts.post_platform.response.CommentResponse;
-import com.posts.post_platform.service.community.CommunityService;
+import com.posts.post_platform.response.CommentVoteResponse;
+import com.posts.post_platform.security.JwtUserDetails;
+import com.posts.post_platform.service.community.CommunityCache;
+import com.posts.post_platform.service.community.CommunityRoleResolver;
+import com.posts.post_platform.service.post.PostRankingService;
+import com.posts.post_platform.service.user.UserService;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * The `CommentServiceImpl` class implements the `CommentService` interface, providing various operations related to comments on posts within communities.
@@ -25,36 +47,71 @@ import java.util.List;
  *
  * It interacts with various repositories to perform CRUD operations on posts, users, comments, and communities.
  * Additionally, it uses the `CommentMapper` to transform data between the domain entities (e.g., `Comment`) and response DTOs (e.g., `CommentResponse`).
- * The class also interacts with the `CommunityService` to check user membership or roles within communities before allowing certain actions, especially in private communities.
+ * The class also uses the `CommunityRoleResolver` to check user membership or roles within communities before allowing certain actions, especially in private communities.
+ *
+ * The acting user is passed in as the principal of the request, which already carries the user ID,
+ * so the user is not looked up again by username; new comments reference their author by ID only.
+ * When the ingestion is enabled, new comments and replies are checked and queued in the `CommentIngestionQueue`
+ * instead of being inserted by the request, and acknowledged with their pre-allocated ID. Only the inserting path opens
+ * a transaction, so a queued comment does not hold a database connection for the length of the request.
  *
  * Dependencies for the service are injected via constructor injection, ensuring that the necessary repositories and services are available for use within the class.
  */
 @Service
 @EnableAsync
 public class CommentServiceImpl implements CommentService{
+    static final int MAX_THREAD_PAGE_SIZE = 50;
+    private static final Set<String> THREAD_SORTS = Set.of("new", "old", "top");
+
     private final PostRepository postRepository;
     private final UserRepositories userRepository;
-    private final CommunityRepository communityRepository;
+    private final CommunityCache communityCache;
     private final CommentMapper commentMapper;
     private final CommentRepository commentRepository;
-    private final CommunityService communityService;
+    private final CommunityRoleResolver communityRoleResolver;
+    private final UserService userService;
+    private final PostRankingService postRankingService;
+    private final CommentVoteCounter commentVoteCounter;
+    private final CommentThreadCache commentThreadCache;
+    private final CommentIngestionQueue commentIngestionQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final int threadMaxDepth;
+    private final int threadMaxBreadth;
 
     /**
      * Constructor to initialize the `CommentServiceImpl` with required dependencies.
      * @param postRepository The repository used to manage posts.
      * @param userRepository The repository used to manage user data.
-     * @param communityRepository The repository used to manage community data.
+     * @param communityCache The cache used to resolve communities by name.
      * @param commentMapper The mapper used to convert entities to DTOs.
      * @param commentRepository The repository used to manage comment data.
-     * @param communityService The service used to handle community-related logic such as membership and roles.
+     * @param communityRoleResolver The resolver used to check the roles of the user in the community.
+     * @param userService The service used to resolve the user ID of the request principal.
+     * @param postRankingService The service used to add the points of new comments to the post rankings.
+     * @param commentVoteCounter The counter that records the votes on comments and buffers their count changes until they are flushed.
+     * @param commentThreadCache The cache of the comment threads of recently read posts.
+     * @param commentIngestionQueue The queue that new comments are written behind from when the ingestion is enabled.
+     * @param transactionManager The transaction manager the inserting path of new comments runs in.
+     * @param threadMaxDepth The number of reply levels returned below each comment of a thread page.
+     * @param threadMaxBreadth The number of replies returned per comment of a thread page.
      */
-    public CommentServiceImpl(PostRepository postRepository, CommunityService communityService, UserRepositories userRepository, CommentMapper commentMapper, CommunityRepository communityRepository, CommentRepository commentRepository) {
+    public CommentServiceImpl(PostRepository postRepository, CommunityRoleResolver communityRoleResolver, UserRepositories userRepository, CommentMapper commentMapper, CommunityCache communityCache, CommentRepository commentRepository, UserService userService, PostRankingService postRankingService, CommentVoteCounter commentVoteCounter, CommentThreadCache commentThreadCache, CommentIngestionQueue commentIngestionQueue, PlatformTransactionManager transactionManager,
+                              @Value("${postapp.comments.thread_max_depth:3}") int threadMaxDepth,
+                              @Value("${postapp.comments.thread_max_breadth:5}") int threadMaxBreadth) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
-        this.communityRepository = communityRepository;
+        this.communityCache = communityCache;
         this.commentMapper = commentMapper;
-        this.communityService = communityService;
+        this.communityRoleResolver = communityRoleResolver;
         this.commentRepository = commentRepository;
+        this.userService = userService;
+        this.postRankingService = postRankingService;
+        this.commentVoteCounter = commentVoteCounter;
+        this.commentThreadCache = commentThreadCache;
+        this.commentIngestionQueue = commentIngestionQueue;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.threadMaxDepth = Math.max(threadMaxDepth, 0);
+        this.threadMaxBreadth = Math.max(threadMaxBreadth, 1);
     }
 
     /**
@@ -63,33 +120,37 @@ public class CommentServiceImpl implements CommentService{
      * @param communityName the name of the community where the post belongs
      * @param postId the ID of the post to which the comment is being added
      * @param commentRequest the request object containing the details of the comment
-     * @param username the username of the user who is adding the comment
+     * @param principal the authenticated user who is adding the comment
      * @return the response object containing details of the newly added comment
      * @throws PostNotFoundException if the post with the specified ID does not exist
      * @throws UserNotFoundException if the user with the specified username does not exist
      * @throws CommunityNotFoundException if the community with the specified name does not exist
      * @throws IllegalArgumentException if the post does not belong to the specified community
      * @throws UnauthorizedActionException if the user is not authorized to add a comment in a private community
+     * @throws CommentIngestionRejectedException if the ingestion is enabled and its queue is full
      */
     @Override
-    @Transactional
-    public CommentResponse addCommentToPost(String communityName, Long postId, CommentRequest commentRequest, String username) {
+    public CommentResponse addCommentToPost(String communityName, Long postId, CommentRequest commentRequest, JwtUserDetails principal) {
+        if (commentIngestionQueue.isEnabled()) return queueComment(communityName, postId, null, commentRequest, principal);
+        return transactionTemplate.execute(status -> insertComment(communityName, postId, commentRequest, principal));
+    }
+
+    private CommentResponse insertComment(String communityName, Long postId, CommentRequest commentRequest, JwtUserDetails principal) {
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
-        User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        Community community =  communityRepository.findByCommunityName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
+        Long userId = userService.getUserId(principal);
+        CommunitySummary community = communityCache.findByName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
         if (!post.getCommunity().getId().equals(community.getId())) throw new IllegalArgumentException("Post does not belong to the specified community.");
-        if (community.getAccess_level().name().equalsIgnoreCase("private")) {
-            boolean isCreator = communityService.isCreator(community.getId(), username);
-            boolean isModerator = communityService.isModerator(community.getId(), username);
-            boolean isMember = communityService.isMember(communityName, user.getId());
-            if (isMember || isModerator || isCreator) {
-                Comment comment = commentRepository.save(commentMapper.addCommentToPost(commentRequest, post, user));
-                return commentMapper.convertCommentToResponse(comment);
+        if (community.isPrivate()) {
+            if (communityRoleResolver.hasAnyRole(community.getId(), userId, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)) {
+                Comment comment = commentRepository.save(commentMapper.addCommentToPost(commentRequest, post, userRepository.getReferenceById(userId)));
+                onCommentAdded(post, null, comment, principal.getUsername());
+                return commentMapper.convertCommentToResponse(comment, principal.getUsername());
             }
             throw new UnauthorizedActionException("User is neither creator nor moderator nor member in private community");
         }
-        Comment comment = commentRepository.save(commentMapper.addCommentToPost(commentRequest, post, user));
-        return commentMapper.convertCommentToResponse(comment);
+        Comment comment = commentRepository.save(commentMapper.addCommentToPost(commentRequest, post, userRepository.getReferenceById(userId)));
+        onCommentAdded(post, null, comment, principal.getUsername());
+        return commentMapper.convertCommentToResponse(comment, principal.getUsername());
     }
 
     /**
@@ -101,75 +162,73 @@ public class CommentServiceImpl implements CommentService{
      * @param communityName the name of the community where the post exists
      * @param postId the ID of the post to which the comment belongs
      * @param commentId the ID of the comment being replied to
-     * @param username the username of the user replying to the comment
+     * @param principal the authenticated user replying to the comment
      * @param commentRequest the reply details provided by the user
      * @return a CommentResponse containing the details of the reply
      * @throws PostNotFoundException if the post does not exist
      * @throws UserNotFoundException if the user does not exist
      * @throws CommunityNotFoundException if the community does not exist
      * @throws CommentNotFoundException if the comment does not exist
-     * @throws IllegalArgumentException if the comment does not belong to the specified post
+     * @throws IllegalArgumentException if the post does not belong to the specified community, or the comment does not belong
+     * to the specified post, a queued reply is checked against the post only
      * @throws UnauthorizedActionException if the user is not authorized to reply in a private community
+     * @throws CommentIngestionRejectedException if the ingestion is enabled and its queue is full
      */
     @Override
-    @Transactional
-    public CommentResponse replyToComment(String communityName, Long postId, Long commentId, String username, CommentRequest commentRequest) {
+    public CommentResponse replyToComment(String communityName, Long postId, Long commentId, JwtUserDetails principal, CommentRequest commentRequest) {
+        if (commentIngestionQueue.isEnabled()) return queueComment(communityName, postId, commentId, commentRequest, principal);
+        return transactionTemplate.execute(status -> insertReply(communityName, postId, commentId, principal, commentRequest));
+    }
+
+    private CommentResponse insertReply(String communityName, Long postId, Long commentId, JwtUserDetails principal, CommentRequest commentRequest) {
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
-        User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        Community community =  communityRepository.findByCommunityName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
+        Long userId = userService.getUserId(principal);
+        CommunitySummary community = communityCache.findByName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found with comment id : " + commentId));
         if (!post.getCommunity().getId().equals(community.getId())) throw new IllegalArgumentException("Post does not belong to the specified community.");
         if (!comment.getPost().getId().equals(post.getId())) throw new IllegalArgumentException("Comment does not belong to the specified post.");
-        if (community.getAccess_level().name().equalsIgnoreCase("private")) {
-            boolean isCreator = communityService.isCreator(community.getId(), username);
-            boolean isModerator = communityService.isModerator(community.getId(), username);
-            boolean isMember = communityService.isMember(communityName, user.getId());
-            if (isMember || isModerator || isCreator) {
-                Comment newComment = commentRepository.save(commentMapper.replyToComment(commentRequest, post, user, comment));
-                return commentMapper.convertCommentToResponse(newComment);
+        if (community.isPrivate()) {
+            if (communityRoleResolver.hasAnyRole(community.getId(), userId, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)) {
+                Comment newComment = commentRepository.save(commentMapper.replyToComment(commentRequest, post, userRepository.getReferenceById(userId), comment));
+                onCommentAdded(post, commentId, newComment, principal.getUsername());
+                return commentMapper.convertCommentToResponse(newComment, principal.getUsername());
             }
             throw new UnauthorizedActionException("User is neither creator nor moderator nor member in private community");
         }
-        Comment newComment = commentRepository.save(commentMapper.replyToComment(commentRequest, post, user, comment));
-        return commentMapper.convertCommentToResponse(newComment);
+        Comment newComment = commentRepository.save(commentMapper.replyToComment(commentRequest, post, userRepository.getReferenceById(userId), comment));
+        onCommentAdded(post, commentId, newComment, principal.getUsername());
+        return commentMapper.convertCommentToResponse(newComment, principal.getUsername());
     }
 
     /**
      * Retrieves a specific comment from a post within a community.
      * It checks the validity of the post, comment, and community.
      * If the community is private, it checks if the user is authorized to access the comment.
-     * If authorized, the comment along with its child comments is returned.
+     * If authorized, the comment along with its child comments is returned, taken from the cached thread of the post or read with one query.
      *
      * @param postId the ID of the post to which the comment belongs
      * @param communityName the name of the community where the post exists
      * @param commentId the ID of the comment to retrieve
-     * @param username the username of the user requesting the comment
+     * @param principal the authenticated user requesting the comment
      * @return a CommentResponse containing the details of the comment and child comments
      * @throws PostNotFoundException if the post does not exist
      * @throws UserNotFoundException if the user does not exist
      * @throws CommunityNotFoundException if the community does not exist
-     * @throws CommentNotFoundException if the comment does not exist
-     * @throws IllegalArgumentException if the comment does not belong to the specified post
+     * @throws CommentNotFoundException if no comment with the specified ID belongs to the specified post
+     * @throws IllegalArgumentException if the post does not belong to the specified community
      * @throws UnauthorizedActionException if the user is not authorized to access the comment in a private community
      */
     @Override
-    public CommentResponse getComment(Long postId, String communityName, Long commentId, String username) {
+    public CommentResponse getComment(Long postId, String communityName, Long commentId, JwtUserDetails principal) {
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
-        User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        Community community =  communityRepository.findByCommunityName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
-        Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found with comment id : " + commentId));
+        Long userId = userService.getUserId(principal);
+        CommunitySummary community = communityCache.findByName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
         if (!post.getCommunity().getId().equals(community.getId())) throw new IllegalArgumentException("Post does not belong to the specified community.");
-        if (!comment.getPost().getId().equals(post.getId())) throw new IllegalArgumentException("Comment does not belong to the specified post.");
-        if (community.getAccess_level().name().equalsIgnoreCase("private")) {
-            boolean isCreator = communityService.isCreator(community.getId(), username);
-            boolean isModerator = communityService.isModerator(community.getId(), username);
-            boolean isMember = communityService.isMember(communityName, user.getId());
-            if (isMember || isModerator || isCreator) {
-                return commentMapper.convertCommentToResponseWithChildComments(comment);
-            }
+        if (community.isPrivate() && !communityRoleResolver.hasAnyRole(community.getId(), userId, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)) {
             throw new UnauthorizedActionException("You can not access comment");
         }
-        return commentMapper.convertCommentToResponseWithChildComments(comment);
+        return commentMapper.convertCommentSubtreeToResponse(sortCommentTree(loadCommentTree(postId), "old"), postId, post.getTitle(), commentId)
+                .orElseThrow(() -> new CommentNotFoundException("Comment not found with comment id " + commentId + " in post " + postId));
     }
 
     /**
@@ -179,31 +238,26 @@ public class CommentServiceImpl implements CommentService{
      *
      * @param postId the ID of the post to which the comments belong
      * @param communityName the name of the community where the post exists
-     * @param username the username of the user requesting the comments
+     * @param principal the authenticated user requesting the comments
      * @return a list of CommentResponse containing the details of all parent comments
      * @throws PostNotFoundException if the post does not exist
      * @throws CommunityNotFoundException if the community does not exist
      * @throws UnauthorizedActionException if the user is not authorized to access comments
      */
     @Override
-    public List<CommentResponse> getAllCommentsFromPost(Long postId, String communityName, String username) {
+    public List<CommentResponse> getAllCommentsFromPost(Long postId, String communityName, JwtUserDetails principal) {
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
-        Community community =  communityRepository.findByCommunityName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
+        CommunitySummary community = communityCache.findByName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
         if (!post.getCommunity().getId().equals(community.getId())) throw new IllegalArgumentException("Post does not belong to the specified community.");
         if (community.isPrivate()) {
-            if (username == null) throw new UnauthorizedActionException("User is not authenticated");
-            User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-            boolean isCreator = communityService.isCreator(community.getId(), username);
-            boolean isModerator = communityService.isModerator(community.getId(), username);
-            boolean isMember = communityService.isMember(communityName, user.getId());
-            if (isMember || isModerator || isCreator) {
-                List<Comment> parentComments = commentRepository.getAllParentCommentsFromPost(communityName, postId);
-                return commentMapper.convertAllCommentsToResponse(parentComments);
+            if (principal == null) throw new UnauthorizedActionException("User is not authenticated");
+            Long userId = userService.getUserId(principal);
+            if (communityRoleResolver.hasAnyRole(community.getId(), userId, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)) {
+                return getCommentTree(post, "old");
             }
             throw new UnauthorizedActionException("You can not access comments");
         }
-        List<Comment> parentComments = commentRepository.getAllParentCommentsFromPost(communityName, postId);
-        return commentMapper.convertAllCommentsToResponse(parentComments);
+        return getCommentTree(post, "old");
     }
 
     /**
@@ -214,8 +268,9 @@ public class CommentServiceImpl implements CommentService{
      *
      * @param postId the ID of the post to retrieve comments for
      * @param communityName the name of the community the post belongs to
-     * @param username the username of the person requesting the comments
-     * @param sort the sorting method, either "old" or "top"
+     * @param principal the authenticated user requesting the comments, or null
+     * @param sort the sorting method, "old" for the newest comments first as it always was, "top" for the best rated comments
+     * first, anything else keeps the order of creation
      * @return a list of CommentResponse objects containing the sorted comments
      * @throws PostNotFoundException if the post with the specified ID is not found
      * @throws CommunityNotFoundException if the community with the specified name is not found
@@ -223,103 +278,355 @@ public class CommentServiceImpl implements CommentService{
      * @throws IllegalArgumentException if the post does not belong to the specified community
      */
     @Override
-    public List<CommentResponse> getAllCommentsBySorted(Long postId, String communityName, String username, String sort) {
+    public List<CommentResponse> getAllCommentsBySorted(Long postId, String communityName, JwtUserDetails principal, String sort) {
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
-        Community community =  communityRepository.findByCommunityName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
+        CommunitySummary community = communityCache.findByName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
         if (!post.getCommunity().getId().equals(community.getId())) throw new IllegalArgumentException("Post does not belong to the specified community.");
-        if (communityService.isCommunityPrivate(communityName)) {
-            if (username == null) throw new UnauthorizedActionException("User is not authenticated for getting comments");
-            User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-            boolean isCreator = communityService.isCreator(community.getId(), username);
-            boolean isModerator = communityService.isModerator(community.getId(), username);
-            boolean isMember = communityService.isMember(communityName, user.getId());
-            if (isMember || isModerator || isCreator) {
-                List<Comment> parentComments = getParentComments(communityName, postId, sort);
-                return commentMapper.convertAllCommentsToResponse(parentComments);
+        if (community.isPrivate()) {
+            if (principal == null) throw new UnauthorizedActionException("User is not authenticated for getting comments");
+            Long userId = userService.getUserId(principal);
+            if (communityRoleResolver.hasAnyRole(community.getId(), userId, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)) {
+                return getCommentTree(post, legacyTreeSort(sort));
             }
             throw new UnauthorizedActionException("You can not access comments");
         }
-        List<Comment> parentComments = getParentComments(communityName, postId, sort);
-        return commentMapper.convertAllCommentsToResponse(parentComments);
+        return getCommentTree(post, legacyTreeSort(sort));
+    }
+
+    /**
+     * Retrieves one page of a comment thread, so neither the queries nor the response grow with the size of the thread.
+     * Without a cursor the page lists the top level comments of the post, a cursor continues the list it was returned with.
+     * Below each listed comment at most {@code threadMaxBreadth} replies are returned per comment and at most
+     * {@code threadMaxDepth} levels deep. A comment whose replies were cut off carries a cursor that lists its replies.
+     * One query reads the page and one query reads each level of replies.
+     *
+     * @param postId the ID of the post to retrieve comments for
+     * @param communityName the name of the community the post belongs to
+     * @param principal the authenticated user requesting the comments, or null
+     * @param sort "new" for the newest comments first, "old" for the oldest comments first or "top" for the best rated comments first
+     * @param cursor the next page cursor or the replies cursor of a comment, or null for the first page of top level comments
+     * @param size the maximum number of comments listed in the page, capped at {@value #MAX_THREAD_PAGE_SIZE}
+     * @return the page of comments with their first replies and the cursor of the next page, which is null on the last page
+     * @throws PostNotFoundException if the post with the specified ID is not found
+     * @throws CommunityNotFoundException if the community with the specified name is not found
+     * @throws UnauthorizedActionException if the user is not authorized to view the comments
+     * @throws IllegalArgumentException if the post does not belong to the community, or the sort option or the cursor is invalid
+     */
+    @Override
+    public CommentPageResponse getCommentThread(Long postId, String communityName, JwtUserDetails principal, String sort, String cursor, int size) {
+        return buildThreadPage(checkThreadRequest(postId, communityName, principal, sort, cursor, size));
+    }
+
+    /**
+     * Retrieves one page of a comment thread like {@link #getCommentThread}, rendered as JSON.
+     * The rendered page is cached per post, sort option, cursor and page size under the version stamp of the thread,
+     * so until the thread changes a read only checks the access and takes the page from Redis, without reading the
+     * comments from MySQL or serializing them again.
+     *
+     * @return the page of comments as JSON
+     * @throws PostNotFoundException if the post with the specified ID is not found
+     * @throws CommunityNotFoundException if the community with the specified name is not found
+     * @throws UnauthorizedActionException if the user is not authorized to view the comments
+     * @throws IllegalArgumentException if the post does not belong to the community, or the sort option or the cursor is invalid
+     */
+    @Override
+    public String getRenderedCommentThread(Long postId, String communityName, JwtUserDetails principal, String sort, String cursor, int size) {
+        ThreadRequest request = checkThreadRequest(postId, communityName, principal, sort, cursor, size);
+        String page = sort + "|" + (cursor == null ? "-" : cursor) + "|" + request.pageSize();
+        return commentThreadCache.renderPage(postId, page, () -> buildThreadPage(request));
+    }
+
+    private ThreadRequest checkThreadRequest(Long postId, String communityName, JwtUserDetails principal, String sort, String cursor, int size) {
+        if (!THREAD_SORTS.contains(sort)) throw new IllegalArgumentException("Invalid sort option : " + sort);
+        ThreadPosition position = cursor == null ? new ThreadPosition(null, null, null) : decodeThreadCursor(cursor, sort);
+        PostCommentTarget post = postRepository.findCommentTarget(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
+        CommunitySummary community = communityCache.findByName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
+        if (!post.getCommunityId().equals(community.getId())) throw new IllegalArgumentException("Post does not belong to the specified community.");
+        if (community.isPrivate()) {
+            if (principal == null) throw new UnauthorizedActionException("User is not authenticated for getting comments");
+            Long userId = userService.getUserId(principal);
+            if (!communityRoleResolver.hasAnyRole(community.getId(), userId, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)) {
+                throw new UnauthorizedActionException("You can not access comments");
+            }
+        }
+        return new ThreadRequest(post, sort, position, Math.min(Math.max(size, 1), MAX_THREAD_PAGE_SIZE));
+    }
+
+    private CommentPageResponse buildThreadPage(ThreadRequest request) {
+        PostCommentTarget post = request.post();
+        List<CommentTreeEntry> entries = findThreadPage(post.getId(), request.sort(), request.position(), request.pageSize());
+        List<CommentResponse> comments = entries.stream()
+                .map(entry -> commentMapper.convertTreeEntryToResponse(withPendingVotes(entry), post.getId(), post.getTitle()))
+                .toList();
+        addFirstReplies(comments, request.sort(), post);
+        String nextCursor = entries.size() < request.pageSize() ? null
+                : encodeThreadCursor(request.sort(), request.position().parentId(), entries.get(entries.size() - 1));
+        return CommentPageResponse.builder()
+                .comments(comments)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     /**
-     * Allows a user to like a specific comment on a post.
-     * It increments the like count of the specified comment and saves the updated comment to the database.
+     * Allows a user to like a specific comment on a post, liking a comment the user already liked has no effect.
+     * The vote is recorded in the ledger of the `CommentVoteCounter`, the counts of the comment are changed by
+     * the difference to the previous vote of the user with the next flush, so the comment row is neither locked nor updated by the request.
      *
      * @param postId the ID of the post to which the comment belongs
      * @param commentId the ID of the comment to like
-     * @param username the username of the user liking the comment
-     * @return a message indicating the new like count of the comment
-     * @throws UserNotFoundException if the user with the specified username is not found
-     * @throws PostNotFoundException if the post with the specified ID is not found
-     * @throws CommentNotFoundException if the comment with the specified ID is not found
-     * @throws IllegalArgumentException if the comment does not belong to the specified post
+     * @param principal the authenticated user liking the comment
+     * @return a message indicating the live like count of the comment, including likes that are not flushed yet
+     * @throws CommentNotFoundException if no comment with the specified ID belongs to the specified post
      */
     @Override
     @Transactional
-    public String likeComment(Long postId, Long commentId, String username) {
-        userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
-        Comment comment = commentRepository.findCommentByIdWithLock(commentId, postId)
-                .orElseThrow(() -> new CommentNotFoundException("Comment not found with comment id " + commentId));
-        if (!comment.getPost().getId().equals(postId)) {
-            throw new IllegalArgumentException("Comment does not belong to the specified post.");
-        }
-        int likeCount = (comment.getLike() == null ? 0 : comment.getLike());
-        comment.setLike(likeCount + 1);
-        commentRepository.save(comment);
-        return "Comment new like count is " + comment.getLike();
+    public String likeComment(Long postId, Long commentId, JwtUserDetails principal) {
+        return "Comment new like count is " + changeVote(postId, commentId, principal, Vote.UP).getLikeCount();
     }
 
     /**
-     * Allows a user to unlike a specific comment on a post.
-     * It decrements the like count of the specified comment and saves the updated comment to the database.
+     * Allows a user to unlike a specific comment on a post, unliking a comment the user already unliked has no effect.
+     * The vote is recorded in the ledger of the `CommentVoteCounter`, the counts of the comment are changed by
+     * the difference to the previous vote of the user with the next flush, so the comment row is neither locked nor updated by the request.
      *
      * @param postId the ID of the post to which the comment belongs
      * @param commentId the ID of the comment to unlike
-     * @param username the username of the user unliking the comment
-     * @return a message indicating the new unlike count of the comment
-     * @throws UserNotFoundException if the user with the specified username is not found
-     * @throws PostNotFoundException if the post with the specified ID is not found
-     * @throws CommentNotFoundException if the comment with the specified ID is not found
-     * @throws IllegalArgumentException if the comment does not belong to the specified post
+     * @param principal the authenticated user unliking the comment
+     * @return a message indicating the live unlike count of the comment, including unlikes that are not flushed yet
+     * @throws CommentNotFoundException if no comment with the specified ID belongs to the specified post
      */
     @Override
     @Transactional
-    public String unlikeComment(Long postId, Long commentId, String username) {
-        userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
-        Comment comment = commentRepository.findCommentByIdWithLock(commentId, postId)
-                .orElseThrow(() -> new CommentNotFoundException("Comment not found with comment id " + commentId));
-        if (!comment.getPost().getId().equals(postId)) {
-            throw new IllegalArgumentException("Comment does not belong to the specified post.");
-        }
-        int unlikeCount = (comment.getUnlike() == null ? 0 : comment.getUnlike());
-        comment.setUnlike(unlikeCount + 1);
-        commentRepository.save(comment);
-        return "Comment new unlike count is " + comment.getUnlike();
+    public String unlikeComment(Long postId, Long commentId, JwtUserDetails principal) {
+        return "Comment new unlike count is " + changeVote(postId, commentId, principal, Vote.DOWN).getUnlikeCount();
     }
 
     /**
-     * Retrieves the parent comments for a given post based on the community name and the sort parameter.
-     * The comments are fetched in the order specified by the sort parameter.
+     * Sets the vote of the authenticated user on a specific comment to up, down or none.
      *
-     * @param communityName the name of the community the post belongs to
-     * @param postId the ID of the post to retrieve comments for
-     * @param sort the sorting method, either "old" or "top"
-     * @return a list of parent comments for the specified post
+     * @param postId the ID of the post to which the comment belongs
+     * @param commentId the ID of the comment
+     * @param vote the new vote of the user
+     * @param principal the authenticated user voting on the comment
+     * @return the vote of the user and the live counts of the comment, including changes that are not flushed yet
+     * @throws CommentNotFoundException if no comment with the specified ID belongs to the specified post
+     */
+    @Override
+    @Transactional
+    public CommentVoteResponse voteComment(Long postId, Long commentId, Vote vote, JwtUserDetails principal) {
+        return changeVote(postId, commentId, principal, vote);
+    }
+
+    private CommentVoteResponse changeVote(Long postId, Long commentId, JwtUserDetails principal, Vote vote) {
+        CommentVoteCounts counts = findVoteCounts(postId, commentId);
+        Vote previous = commentVoteCounter.vote(commentId, userService.getUserId(principal), vote);
+        if (previous != vote) commentThreadCache.onVoted(postId, commentId, vote.ups() - previous.ups(), vote.downs() - previous.downs());
+        // the change of this vote is buffered once the transaction commits
+        long likeCount = (counts.getLike() == null ? 0 : counts.getLike()) + commentVoteCounter.getPendingUps(commentId) + vote.ups() - previous.ups();
+        long unlikeCount = (counts.getUnlike() == null ? 0 : counts.getUnlike()) + commentVoteCounter.getPendingDowns(commentId) + vote.downs() - previous.downs();
+        return CommentVoteResponse.builder()
+                .commentId(commentId)
+                .vote(vote.name().toLowerCase())
+                .likeCount(likeCount)
+                .unlikeCount(unlikeCount)
+                .build();
+    }
+
+    /**
+     * Reads only the stored counts of the comment, the query also checks that it belongs to the post.
      */
-    private List<Comment> getParentComments(String communityName, Long postId, String sort) {
-        List<Comment> parentComments;
-        if (sort.equalsIgnoreCase("old")) {
-            parentComments  = commentRepository.getAllParentCommentsFromPostSortedByOld(postId);
-        } else if(sort.equalsIgnoreCase("top")) {
-            parentComments = commentRepository.getAllParentCommentsFromPostSortedByTop(postId);
+    private CommentVoteCounts findVoteCounts(Long postId, Long commentId) {
+        return commentRepository.findVoteCounts(commentId, postId)
+                .orElseThrow(() -> new CommentNotFoundException("Comment not found with comment id " + commentId + " in post " + postId));
+    }
+
+    /**
+     * Links every comment of the post into trees in memory, so the number of queries does not grow with the size or depth of the thread.
+     * The sort parameter orders the comments among their siblings, "new" and "top" are supported, "old" and anything else keep the order of creation.
+     */
+    private List<CommentResponse> getCommentTree(Post post, String sort) {
+        return commentMapper.convertCommentTreeToResponse(sortCommentTree(loadCommentTree(post.getId()), sort), post.getId(), post.getTitle());
+    }
+
+    /**
+     * Takes every comment of the post from its cached thread, or reads them with one query and caches them.
+     * The version stamp is read before the query, so the thread is not cached if it changed meanwhile.
+     * The counts read from MySQL miss the votes that are not flushed yet, the ones buffered on this node are added.
+     */
+    private List<CommentTreeEntry> loadCommentTree(Long postId) {
+        Optional<List<CommentTreeEntry>> cached = commentThreadCache.read(postId);
+        if (cached.isPresent()) return cached.get();
+        String version = commentThreadCache.readVersion(postId);
+        List<CommentTreeEntry> entries = commentRepository.findCommentTree(postId);
+        entries.forEach(this::withPendingVotes);
+        commentThreadCache.write(postId, version, entries);
+        return entries;
+    }
+
+    private CommentTreeEntry withPendingVotes(CommentTreeEntry entry) {
+        entry.setLike((int) (entry.getLike() + commentVoteCounter.getPendingUps(entry.getId())));
+        entry.setUnlike((int) (entry.getUnlike() + commentVoteCounter.getPendingDowns(entry.getId())));
+        return entry;
+    }
+
+    /**
+     * The sorted full tree keeps the sort options of its endpoints: "old" has always listed the newest comments first,
+     * which the paged thread calls "new", and anything else but "top" keeps the order of creation.
+     */
+    private static String legacyTreeSort(String sort) {
+        if (sort.equalsIgnoreCase("old")) return "new";
+        if (sort.equalsIgnoreCase("top")) return "top";
+        return "old";
+    }
+
+    /**
+     * Ids grow with the creation time, so the order of creation is the id order, "new" reverses it like the paged thread does.
+     */
+    private List<CommentTreeEntry> sortCommentTree(List<CommentTreeEntry> entries, String sort) {
+        Comparator<CommentTreeEntry> byId = Comparator.comparing(CommentTreeEntry::getId);
+        Comparator<CommentTreeEntry> order;
+        if (sort.equalsIgnoreCase("new")) {
+            order = byId.reversed();
+        } else if (sort.equalsIgnoreCase("top")) {
+            order = Comparator.comparingDouble(this::score).reversed().thenComparing(byId);
         } else {
-            parentComments = commentRepository.getAllParentCommentsFromPost(communityName, postId);
+            order = byId;
+        }
+        return entries.stream().sorted(order).toList();
+    }
+
+    /**
+     * The score of a cached entry follows its current counts, the stored score only changes when the counts are flushed.
+     */
+    private double score(CommentTreeEntry entry) {
+        return CommentScore.wilson(entry.getLike() == null ? 0 : entry.getLike(), entry.getUnlike() == null ? 0 : entry.getUnlike());
+    }
+
+    /**
+     * Counts the new comment on its post in the same transaction, then adds its points to the post rankings and the
+     * comment to the cached thread once the transaction commits.
+     */
+    private void onCommentAdded(Post post, Long parentId, Comment comment, String username) {
+        postRepository.addComments(post.getId(), 1, comment.getCreatedAt());
+        postRankingService.onPostCommented(post.getCommunity().getId(), post.getId(), post.getCreatedAt());
+        commentThreadCache.onCommentAdded(post.getId(), new CommentTreeEntry(comment.getId(), parentId, comment.getContent(), comment.getCommentStatus(), username, 0, 0));
+    }
+
+    /**
+     * Checks a new comment or reply like the inserting path does, but only reads the columns of the post it needs and
+     * finds a queued parent without MySQL, then queues the comment and acknowledges it with its pre-allocated ID.
+     */
+    private CommentResponse queueComment(String communityName, Long postId, Long parentId, CommentRequest commentRequest, JwtUserDetails principal) {
+        PostCommentTarget post = postRepository.findCommentTarget(postId).orElseThrow(() -> new PostNotFoundException("Post not found with post id : " + postId));
+        Long userId = userService.getUserId(principal);
+        CommunitySummary community = communityCache.findByName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
+        if (!post.getCommunityId().equals(community.getId())) throw new IllegalArgumentException("Post does not belong to the specified community.");
+        if (parentId != null && !commentIngestionQueue.isQueued(parentId, postId) && !commentRepository.existsInPost(parentId, postId)) {
+            throw new IllegalArgumentException("Comment does not belong to the specified post.");
+        }
+        if (community.isPrivate() && !communityRoleResolver.hasAnyRole(community.getId(), userId, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)) {
+            throw new UnauthorizedActionException("User is neither creator nor moderator nor member in private community");
+        }
+        CommentIngestionQueue.QueuedComment comment = commentIngestionQueue.submit(post, parentId, userId, principal.getUsername(), commentRequest.getContent());
+        return commentMapper.convertTreeEntryToResponse(comment.toTreeEntry(), postId, post.getTitle());
+    }
+
+    private List<CommentTreeEntry> findThreadPage(Long postId, String sort, ThreadPosition position, int pageSize) {
+        Long parentId = position.parentId();
+        Limit limit = Limit.of(pageSize);
+        return switch (sort) {
+            case "new" -> {
+                long before = position.id() == null ? Long.MAX_VALUE : position.id();
+                yield parentId == null
+                        ? commentRepository.findTopLevelCommentsNewestFirst(postId, before, limit)
+                        : commentRepository.findRepliesNewestFirst(postId, parentId, before, limit);
+            }
+            case "old" -> {
+                long after = position.id() == null ? 0L : position.id();
+                yield parentId == null
+                        ? commentRepository.findTopLevelCommentsOldestFirst(postId, after, limit)
+                        : commentRepository.findRepliesOldestFirst(postId, parentId, after, limit);
+            }
+            default -> {
+                double score = position.score() == null ? Double.MAX_VALUE : position.score();
+                long before = position.id() == null ? Long.MAX_VALUE : position.id();
+                yield parentId == null
+                        ? commentRepository.findTopLevelCommentsByTop(postId, score, before, limit)
+                        : commentRepository.findRepliesByTop(postId, parentId, score, before, limit);
+            }
+        };
+    }
+
+    /**
+     * Adds the first replies below the listed comments level by level. One more reply than returned is read per comment
+     * to tell whether replies were cut off, and the level below the deepest returned one is only probed for one reply.
+     */
+    private void addFirstReplies(List<CommentResponse> comments, String sort, PostCommentTarget post) {
+        List<CommentResponse> level = comments;
+        for (int depth = 0; depth <= threadMaxDepth && !level.isEmpty(); depth++) {
+            boolean cutOff = depth == threadMaxDepth;
+            List<Long> parentIds = level.stream().map(CommentResponse::getCommentId).toList();
+            Map<Long, List<CommentTreeEntry>> repliesByParent = new HashMap<>();
+            for (Object[] row : commentRepository.findFirstReplies(parentIds, sort, cutOff ? 1 : threadMaxBreadth + 1)) {
+                CommentTreeEntry reply = toTreeEntry(row);
+                repliesByParent.computeIfAbsent(reply.getParentId(), id -> new ArrayList<>()).add(reply);
+            }
+            List<CommentResponse> nextLevel = new ArrayList<>();
+            for (CommentResponse comment : level) {
+                List<CommentTreeEntry> replies = repliesByParent.get(comment.getCommentId());
+                if (replies == null) continue;
+                if (cutOff) {
+                    comment.setMoreRepliesCursor(encodeThreadCursor(sort, comment.getCommentId(), null));
+                    continue;
+                }
+                List<CommentTreeEntry> shown = replies.size() > threadMaxBreadth ? replies.subList(0, threadMaxBreadth) : replies;
+                if (shown.size() < replies.size()) {
+                    comment.setMoreRepliesCursor(encodeThreadCursor(sort, comment.getCommentId(), shown.get(shown.size() - 1)));
+                }
+                List<CommentResponse> children = shown.stream()
+                        .map(reply -> commentMapper.convertTreeEntryToResponse(withPendingVotes(reply), post.getId(), post.getTitle()))
+                        .toList();
+                comment.setChildComments(children);
+                nextLevel.addAll(children);
+            }
+            level = nextLevel;
         }
-        return parentComments;
+    }
+
+    private CommentTreeEntry toTreeEntry(Object[] row) {
+        return new CommentTreeEntry(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), (String) row[2],
+                CommentStatus.valueOf((String) row[3]), (String) row[4], ((Number) row[5]).intValue(), ((Number) row[6]).intValue(),
+                ((Number) row[7]).doubleValue());
+    }
+
+    /**
+     * A thread cursor holds the sort option, the comment whose replies are listed, or "-" for the top level comments,
+     * and the position of the last listed comment, which is missing for the first page of replies.
+     */
+    private String encodeThreadCursor(String sort, Long parentId, CommentTreeEntry last) {
+        String position = sort + "|" + (parentId == null ? "-" : parentId);
+        if (last != null) position += "|" + (last.getScore() == null ? 0 : last.getScore()) + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ThreadPosition decodeThreadCursor(String cursor, String sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts[0].equals(sort) && (parts.length == 2 || parts.length == 4)) {
+                Long parentId = parts[1].equals("-") ? null : Long.parseLong(parts[1]);
+                if (parts.length == 2) return new ThreadPosition(parentId, null, null);
+                return new ThreadPosition(parentId, Double.parseDouble(parts[2]), Long.parseLong(parts[3]));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // reported below as an invalid cursor
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private record ThreadPosition(Long parentId, Double score, Long id) {
+    }
+
+    private record ThreadRequest(PostCommentTarget post, String sort, ThreadPosition position, int pageSize) {
     }
 
 }
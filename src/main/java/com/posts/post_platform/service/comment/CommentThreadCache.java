@@ -0,0 +1,255 @@
+package com.posts.post_platform.service.comment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.posts.post_platform.dto.CommentTreeEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the comment threads of recently read posts in Redis, in two forms.
+ * The snapshot of a post holds every comment of the thread, so a read of the full thread does not query MySQL. It is a
+ * hash with one serialized field per comment and one field per like and unlike count, new comments and votes patch it
+ * in place instead of dropping it. A read still deserializes every comment and the tree is sorted and built from them.
+ * The rendered pages of a post hold the JSON of the thread pages that were read, one field per sort option, cursor and
+ * page size, and are served as they are. They can not be patched, so they only count for the version they were
+ * rendered at and are replaced once the thread changed.
+ * Every change of a thread increments the version stamp of the post, also while nothing is cached. A snapshot or page
+ * is only written if the stamp is still the one read before it was loaded from MySQL, so a snapshot or page that
+ * misses a change committed meanwhile is never stored. Everything is written, patched and read by scripts or single
+ * commands, so a reader never sees a snapshot that is only partly written or patched.
+ */
+@Service
+public class CommentThreadCache {
+    private static final Logger log = LoggerFactory.getLogger(CommentThreadCache.class);
+    static final String THREAD_KEY_PREFIX = "comment_thread:";
+    static final String VERSION_KEY_PREFIX = "comment_thread_version:";
+    static final String PAGES_KEY_PREFIX = "comment_thread_pages:";
+    private static final String COMMENT_FIELD_PREFIX = "c:";
+    private static final String LIKE_FIELD_PREFIX = "l:";
+    private static final String UNLIKE_FIELD_PREFIX = "u:";
+    private static final String WRITE_SCRIPT =
+            "local version = redis.call('GET', KEYS[2]) or '0' " +
+            "if version ~= ARGV[1] then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], 'version', version) " +
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) return 1";
+    private static final String READ_PAGE_SCRIPT =
+            "local version = redis.call('GET', KEYS[2]) or '0' " +
+            "if redis.call('HGET', KEYS[1], 'version') ~= version then return false end " +
+            "return redis.call('HGET', KEYS[1], ARGV[1])";
+    private static final String WRITE_PAGE_SCRIPT =
+            "local version = redis.call('GET', KEYS[2]) or '0' " +
+            "if version ~= ARGV[1] then return 0 end " +
+            // the pages of older versions are dropped with the first page of the current one
+            "if redis.call('HGET', KEYS[1], 'version') ~= version then " +
+            "redis.call('DEL', KEYS[1]) redis.call('HSET', KEYS[1], 'version', version) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[5]) end " +
+            "if redis.call('HLEN', KEYS[1]) > tonumber(ARGV[4]) then return 0 end " +
+            "redis.call('HSET', KEYS[1], ARGV[2], ARGV[3]) return 1";
+    private static final String ADD_SCRIPT =
+            "local version = redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'version', version, ARGV[2], ARGV[3], ARGV[4], 0, ARGV[5], 0) return 1";
+    private static final String COUNT_SCRIPT =
+            "local version = redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            // a snapshot without the voted comment is incomplete, it is built again on the next read
+            "if redis.call('HEXISTS', KEYS[1], ARGV[2]) == 0 then redis.call('DEL', KEYS[1]) return 0 end " +
+            "redis.call('HINCRBY', KEYS[1], ARGV[3], ARGV[4]) " +
+            "redis.call('HINCRBY', KEYS[1], ARGV[5], ARGV[6]) " +
+            "redis.call('HSET', KEYS[1], 'version', version) return 1";
+
+    private final JedisPooled jedis;
+    private final ObjectMapper objectMapper;
+    private final long ttlSeconds;
+    private final int maxComments;
+    private final long pageTtlSeconds;
+    private final int maxPages;
+
+    public CommentThreadCache(JedisPooled jedis,
+                              ObjectMapper objectMapper,
+                              @Value("${postapp.comment_threads.ttl_seconds:600}") long ttlSeconds,
+                              @Value("${postapp.comment_threads.max_comments:5000}") int maxComments,
+                              @Value("${postapp.comment_threads.page_ttl_seconds:60}") long pageTtlSeconds,
+                              @Value("${postapp.comment_threads.max_pages:200}") int maxPages) {
+        this.jedis = jedis;
+        this.objectMapper = objectMapper;
+        this.ttlSeconds = ttlSeconds;
+        this.maxComments = maxComments;
+        this.pageTtlSeconds = pageTtlSeconds;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Reads the snapshot of the thread of a post.
+     * @return Every comment of the thread with its counts in no particular order, or empty if there is no snapshot.
+     */
+    public Optional<List<CommentTreeEntry>> read(Long postId) {
+        try {
+            Map<String, String> fields = jedis.hgetAll(THREAD_KEY_PREFIX + postId);
+            if (fields.isEmpty()) return Optional.empty();
+            List<CommentTreeEntry> entries = new ArrayList<>();
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                if (!field.getKey().startsWith(COMMENT_FIELD_PREFIX)) continue;
+                CommentTreeEntry entry = objectMapper.readValue(field.getValue(), CommentTreeEntry.class);
+                entry.setLike(count(fields, LIKE_FIELD_PREFIX + entry.getId()));
+                entry.setUnlike(count(fields, UNLIKE_FIELD_PREFIX + entry.getId()));
+                entries.add(entry);
+            }
+            return Optional.of(entries);
+        } catch (Exception e) {
+            log.warn("Comment thread of post {} could not be read from Redis: {}", postId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the version stamp of the thread of a post, it has to be read before the thread is loaded from MySQL.
+     * @return The version stamp, or null if Redis is unavailable.
+     */
+    public String readVersion(Long postId) {
+        try {
+            String version = jedis.get(VERSION_KEY_PREFIX + postId);
+            return version == null ? "0" : version;
+        } catch (Exception e) {
+            log.warn("Comment thread version of post {} could not be read from Redis: {}", postId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the snapshot of the thread of a post unless the thread changed since the version stamp was read.
+     * Threads with more than the configured number of comments are not stored.
+     * @param version The version stamp read by {@link #readVersion(Long)} before the thread was loaded.
+     * @param entries Every comment of the thread with its counts.
+     */
+    public void write(Long postId, String version, List<CommentTreeEntry> entries) {
+        if (version == null || entries.size() > maxComments) return;
+        try {
+            List<String> args = new ArrayList<>(entries.size() * 6 + 2);
+            args.add(version);
+            args.add(Long.toString(ttlSeconds));
+            for (CommentTreeEntry entry : entries) {
+                args.add(COMMENT_FIELD_PREFIX + entry.getId());
+                args.add(serialize(entry));
+                args.add(LIKE_FIELD_PREFIX + entry.getId());
+                args.add(Integer.toString(entry.getLike() == null ? 0 : entry.getLike()));
+                args.add(UNLIKE_FIELD_PREFIX + entry.getId());
+                args.add(Integer.toString(entry.getUnlike() == null ? 0 : entry.getUnlike()));
+            }
+            jedis.eval(WRITE_SCRIPT, keys(postId), args);
+        } catch (Exception e) {
+            log.warn("Comment thread of post {} could not be cached in Redis: {}", postId, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the rendered page of the thread of a post if it was rendered at the current version of the thread,
+     * otherwise renders it and stores it unless the thread changed meanwhile. At most the configured number of pages
+     * is stored per post and version.
+     * @param page The sort option, cursor and size of the page.
+     * @param builder Builds the page from MySQL, it is only called if the page is not cached.
+     * @return The page as JSON.
+     */
+    public String renderPage(Long postId, String page, Supplier<?> builder) {
+        try {
+            Object cached = jedis.eval(READ_PAGE_SCRIPT, pageKeys(postId), List.of(page));
+            if (cached != null) return cached.toString();
+        } catch (Exception e) {
+            log.warn("Comment thread page of post {} could not be read from Redis: {}", postId, e.getMessage());
+        }
+        String version = readVersion(postId);
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(builder.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Comment thread page of post " + postId + " could not be serialized", e);
+        }
+        if (version == null) return json;
+        try {
+            jedis.eval(WRITE_PAGE_SCRIPT, pageKeys(postId), List.of(version, page, json, Integer.toString(maxPages), Long.toString(pageTtlSeconds)));
+        } catch (Exception e) {
+            log.warn("Comment thread page of post {} could not be cached in Redis: {}", postId, e.getMessage());
+        }
+        return json;
+    }
+
+    /**
+     * Adds a new comment to the snapshot of the thread once the current transaction commits.
+     */
+    public void onCommentAdded(Long postId, CommentTreeEntry entry) {
+        afterCommit(() -> {
+            try {
+                jedis.eval(ADD_SCRIPT, keys(postId), List.of(Long.toString(ttlSeconds),
+                        COMMENT_FIELD_PREFIX + entry.getId(), serialize(entry),
+                        LIKE_FIELD_PREFIX + entry.getId(), UNLIKE_FIELD_PREFIX + entry.getId()));
+            } catch (Exception e) {
+                log.warn("Comment {} could not be added to the cached thread of post {}: {}", entry.getId(), postId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Changes the counts of a comment in the snapshot of the thread once the current transaction commits.
+     */
+    public void onVoted(Long postId, Long commentId, long likeDelta, long unlikeDelta) {
+        afterCommit(() -> {
+            try {
+                jedis.eval(COUNT_SCRIPT, keys(postId), List.of(Long.toString(ttlSeconds), COMMENT_FIELD_PREFIX + commentId,
+                        LIKE_FIELD_PREFIX + commentId, Long.toString(likeDelta),
+                        UNLIKE_FIELD_PREFIX + commentId, Long.toString(unlikeDelta)));
+            } catch (Exception e) {
+                log.warn("Counts of comment {} could not be changed in the cached thread of post {}: {}", commentId, postId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * The counts are kept in fields of their own, so a vote increments them without rewriting the comment.
+     */
+    private String serialize(CommentTreeEntry entry) throws Exception {
+        return objectMapper.writeValueAsString(new CommentTreeEntry(entry.getId(), entry.getParentId(),
+                entry.getContent(), entry.getCommentStatus(), entry.getAuthorUsername()));
+    }
+
+    private int count(Map<String, String> fields, String field) {
+        String value = fields.get(field);
+        return value == null ? 0 : Integer.parseInt(value);
+    }
+
+    private List<String> keys(Long postId) {
+        return List.of(THREAD_KEY_PREFIX + postId, VERSION_KEY_PREFIX + postId);
+    }
+
+    private List<String> pageKeys(Long postId) {
+        return List.of(PAGES_KEY_PREFIX + postId, VERSION_KEY_PREFIX + postId);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
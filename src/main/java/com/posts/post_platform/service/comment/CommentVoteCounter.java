@@ -0,0 +1,63 @@
+package com.posts.post_platform.service.comment;
+
+import com.posts.post_platform.repository.CommentRepository;
+import com.posts.post_platform.service.vote.VoteCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The votes on comments, recorded in comment_votes and counted in the like and unlike columns of comments.
+ * Every flush of the counts also recomputes the ranking score of the flushed comments.
+ * Counts that were buffered when the node stopped without a flush are missing from the columns, the ledger still
+ * holds every vote.
+ */
+@Service
+public class CommentVoteCounter extends VoteCounter {
+    private final CommentRepository commentRepository;
+
+    public CommentVoteCounter(CommentRepository commentRepository,
+                              @Value("${postapp.votes.cache_ttl_seconds:60}") long cacheTtlSeconds,
+                              @Value("${postapp.votes.cache_size:10000}") int cacheSize) {
+        super(cacheTtlSeconds, cacheSize);
+        this.commentRepository = commentRepository;
+    }
+
+    @Override
+    public List<Object[]> findVotes(Long commentId) {
+        return commentRepository.findVotes(commentId);
+    }
+
+    @Override
+    public Optional<Integer> findVoteForUpdate(Long commentId, Long userId) {
+        return commentRepository.findVoteForUpdate(commentId, userId);
+    }
+
+    @Override
+    public int insertVote(Long commentId, Long userId, int vote) {
+        return commentRepository.insertVote(commentId, userId, vote);
+    }
+
+    @Override
+    public int updateVote(Long commentId, Long userId, int expected, int vote) {
+        return commentRepository.updateVote(commentId, userId, expected, vote);
+    }
+
+    @Override
+    public int deleteVote(Long commentId, Long userId, int expected) {
+        return commentRepository.deleteVote(commentId, userId, expected);
+    }
+
+    @Override
+    protected void addUpCounts(long delta, Collection<Long> commentIds) {
+        commentRepository.addLikeCounts(delta, commentIds);
+    }
+
+    @Override
+    protected void addDownCounts(long delta, Collection<Long> commentIds) {
+        commentRepository.addUnlikeCounts(delta, commentIds);
+    }
+}
@@ -0,0 +1,225 @@
+package com.posts.post_platform.service.community;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.repository.CommunityRepository;
+import com.posts.post_platform.service.RedisChannelListener;
+import com.posts.post_platform.service.RedisMessageBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves communities by id or name to their {@link CommunitySummary} through two cache levels,
+ * a short-lived in-process L1 in front of a Redis L2 shared by all nodes, before falling back to MySQL.
+ * Names are cached as name to id entries and summaries as id to summary entries, so a community is stored once.
+ * When a community is renamed or its access level changes, {@link #evict(Long, String)} drops it from Redis
+ * and from the L1 of every node once the transaction commits.
+ * Every eviction also increments a version in Redis. A node that loaded a community from MySQL only writes it to
+ * Redis if the version is still the one it read before loading, so a summary read before an eviction is never written
+ * back after it. Evictions are rare, so a load that races any of them just skips the write.
+ * The member count of a cached summary is the one at the time it was cached, exact counts come from
+ * {@link CommunityMemberCounter}.
+ */
+@Service
+public class CommunityCache implements RedisChannelListener {
+    private static final Logger log = LoggerFactory.getLogger(CommunityCache.class);
+    static final String METADATA_CHANNEL = "community_metadata";
+    static final String SUMMARY_KEY_PREFIX = "community:summary:";
+    static final String NAME_KEY_PREFIX = "community:name:";
+    static final String VERSION_KEY = "community:version";
+    private static final String FILL_IF_UNCHANGED =
+            "if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[1] then return nil end " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[4]) return redis.call('SET', KEYS[2], ARGV[3], 'EX', ARGV[4])";
+    private static final String EVICT =
+            "redis.call('INCR', KEYS[3]) return redis.call('DEL', KEYS[1], KEYS[2])";
+
+    private final CommunityRepository communityRepository;
+    private final JedisPooled jedis;
+    private final RedisMessageBus messageBus;
+    private final ObjectMapper objectMapper;
+    private final long localTtlMillis;
+    private final long redisTtlSeconds;
+    private final int maxLocalEntries;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, Cached<CommunitySummary>> summaries = new ConcurrentHashMap<>();
+    private final Map<String, Cached<Long>> ids = new ConcurrentHashMap<>();
+
+    public CommunityCache(CommunityRepository communityRepository,
+                          JedisPooled jedis,
+                          RedisMessageBus messageBus,
+                          ObjectMapper objectMapper,
+                          @Value("${postapp.community_cache.local_ttl_seconds:30}") long localTtlSeconds,
+                          @Value("${postapp.community_cache.redis_ttl_seconds:600}") long redisTtlSeconds,
+                          @Value("${postapp.community_cache.local_size:10000}") int maxLocalEntries) {
+        this.communityRepository = communityRepository;
+        this.jedis = jedis;
+        this.messageBus = messageBus;
+        this.objectMapper = objectMapper;
+        this.localTtlMillis = localTtlSeconds * 1000;
+        this.redisTtlSeconds = redisTtlSeconds;
+        this.maxLocalEntries = maxLocalEntries;
+        messageBus.subscribe(METADATA_CHANNEL, this);
+    }
+
+    /**
+     * Finds the summary of a community by its ID.
+     * @param communityId The ID of the community.
+     * @return The summary of the community, or an empty Optional if it does not exist.
+     */
+    public Optional<CommunitySummary> findById(Long communityId) {
+        long now = System.currentTimeMillis();
+        Cached<CommunitySummary> local = summaries.get(communityId);
+        if (local != null && local.expiresAt() > now) return Optional.of(local.value());
+        CommunitySummary summary = readRedis(SUMMARY_KEY_PREFIX + communityId, json -> objectMapper.readValue(json, CommunitySummary.class));
+        if (summary == null) {
+            String version = readVersion();
+            Optional<CommunitySummary> loaded = communityRepository.findSummaryById(communityId);
+            if (loaded.isEmpty()) return Optional.empty();
+            summary = loaded.get();
+            writeRedis(summary, version);
+        }
+        putLocal(summary, now);
+        return Optional.of(summary);
+    }
+
+    /**
+     * Finds the summary of a community by its name.
+     * @param communityName The name of the community.
+     * @return The summary of the community, or an empty Optional if it does not exist.
+     */
+    public Optional<CommunitySummary> findByName(String communityName) {
+        long now = System.currentTimeMillis();
+        Cached<Long> local = ids.get(communityName);
+        if (local != null && local.expiresAt() > now) return findById(local.value());
+        Long communityId = readRedis(NAME_KEY_PREFIX + communityName, Long::valueOf);
+        if (communityId != null) {
+            Optional<CommunitySummary> summary = findById(communityId);
+            if (summary.isPresent() && summary.get().getCommunityName().equals(communityName)) return summary;
+        }
+        String version = readVersion();
+        Optional<CommunitySummary> loaded = communityRepository.findSummaryByCommunityName(communityName);
+        loaded.ifPresent(summary -> {
+            writeRedis(summary, version);
+            putLocal(summary, now);
+        });
+        return loaded;
+    }
+
+    /**
+     * Drops the community from Redis and from the L1 of every node once the current transaction commits.
+     * @param communityId The ID of the community.
+     * @param communityName The name the community had before the change.
+     */
+    public void evict(Long communityId, String communityName) {
+        afterCommit(() -> {
+            evictLocal(communityId);
+            try {
+                jedis.eval(EVICT, keys(communityId, communityName), List.of());
+                messageBus.publish(METADATA_CHANNEL, nodeId + ":" + communityId);
+            } catch (Exception e) {
+                log.warn("Cached community {} could not be evicted from Redis: {}", communityId, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(String message) {
+        int separator = message.lastIndexOf(':');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) return;
+        evictLocal(Long.parseLong(message.substring(separator + 1)));
+    }
+
+    /**
+     * Evictions published while this node was not subscribed are unknown, so the L1 is dropped.
+     */
+    @Override
+    public void onSubscribed() {
+        summaries.clear();
+        ids.clear();
+    }
+
+    private void evictLocal(Long communityId) {
+        summaries.remove(communityId);
+        ids.values().removeIf(cached -> cached.value().equals(communityId));
+    }
+
+    private void putLocal(CommunitySummary summary, long now) {
+        if (summaries.size() >= maxLocalEntries) summaries.values().removeIf(expired -> expired.expiresAt() <= now);
+        if (ids.size() >= maxLocalEntries) ids.values().removeIf(expired -> expired.expiresAt() <= now);
+        summaries.put(summary.getId(), new Cached<>(summary, now + localTtlMillis));
+        ids.put(summary.getCommunityName(), new Cached<>(summary.getId(), now + localTtlMillis));
+    }
+
+    /**
+     * @return The eviction version, "0" before the first eviction, or null if Redis could not be read.
+     */
+    private String readVersion() {
+        try {
+            String version = jedis.get(VERSION_KEY);
+            return version == null ? "0" : version;
+        } catch (Exception e) {
+            log.warn("Community cache version could not be read from Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> T readRedis(String key, RedisValueParser<T> parser) {
+        try {
+            String value = jedis.get(key);
+            return value == null ? null : parser.parse(value);
+        } catch (Exception e) {
+            log.warn("Cached community {} could not be read from Redis: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the summary and its name entry unless a community was evicted since the version was read.
+     * @param version The version read before the summary was loaded, null if it could not be read.
+     */
+    private void writeRedis(CommunitySummary summary, String version) {
+        if (version == null) return;
+        try {
+            jedis.eval(FILL_IF_UNCHANGED, keys(summary.getId(), summary.getCommunityName()), List.of(version,
+                    objectMapper.writeValueAsString(summary), summary.getId().toString(), Long.toString(redisTtlSeconds)));
+        } catch (Exception e) {
+            log.warn("Community {} could not be cached in Redis: {}", summary.getId(), e.getMessage());
+        }
+    }
+
+    private List<String> keys(Long communityId, String communityName) {
+        return List.of(SUMMARY_KEY_PREFIX + communityId, NAME_KEY_PREFIX + communityName, VERSION_KEY);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RedisValueParser<T> {
+        T parse(String value) throws Exception;
+    }
+
+    private record Cached<T>(T value, long expiresAt) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.posts.post_platform.service.community;
+
+import com.posts.post_platform.repository.CommunityRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.List;
+
+/**
+ * Maintains the member count of each community in the member_count column of the communities table,
+ * so that the count is read without touching community_users.
+ * The column is changed in the same transaction as the membership row, and the change is mirrored into Redis
+ * once the transaction commits. Redis only holds counts that were read recently, an increment is applied only
+ * to a count that is already cached, so increments of concurrent transactions can be mirrored in any order.
+ * Every change also increments the version stamp of the count, also while no count is cached. A count read from MySQL
+ * is only cached if the stamp did not change since before the read and no count was cached meanwhile, so a change
+ * that committed during the read is never overwritten by the older count.
+ * Counters that drifted anyway are corrected by {@link #reconcileBatch(Long, int)}.
+ */
+@Service
+public class CommunityMemberCounter {
+    private static final Logger log = LoggerFactory.getLogger(CommunityMemberCounter.class);
+    static final String KEY_PREFIX = "community:member_count:";
+    static final String VERSION_KEY_PREFIX = "community:member_count_version:";
+    private static final String INCREMENT_IF_CACHED =
+            "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[2]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return redis.call('INCRBY', KEYS[1], ARGV[1]) end return nil";
+    private static final String FILL_IF_UNCHANGED =
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return nil end " +
+            "return redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3], 'NX')";
+    private static final String EVICT =
+            "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[1]) return redis.call('DEL', KEYS[1])";
+
+    private final CommunityRepository communityRepository;
+    private final JedisPooled jedis;
+    private final long cacheTtlSeconds;
+
+    public CommunityMemberCounter(CommunityRepository communityRepository,
+                                  JedisPooled jedis,
+                                  @Value("${postapp.member_count.cache_ttl_seconds:3600}") long cacheTtlSeconds) {
+        this.communityRepository = communityRepository;
+        this.jedis = jedis;
+        this.cacheTtlSeconds = cacheTtlSeconds;
+    }
+
+    /**
+     * Returns the member count of the community, from Redis if it is cached there.
+     * @param communityId The ID of the community.
+     * @return The number of members of the community.
+     * @throws IllegalArgumentException If the community does not exist.
+     */
+    public long getMemberCount(Long communityId) {
+        String version = null;
+        try {
+            String cached = jedis.get(KEY_PREFIX + communityId);
+            if (cached != null) return Long.parseLong(cached);
+            version = jedis.get(VERSION_KEY_PREFIX + communityId);
+            if (version == null) version = "0";
+        } catch (Exception e) {
+            log.warn("Member count of community {} could not be read from Redis: {}", communityId, e.getMessage());
+        }
+        long count = communityRepository.findMemberCountById(communityId)
+                .orElseThrow(() -> new IllegalArgumentException("Community not found with id : " + communityId));
+        if (version == null) return count;
+        try {
+            jedis.eval(FILL_IF_UNCHANGED, keys(communityId), List.of(version, Long.toString(count), Long.toString(cacheTtlSeconds)));
+        } catch (Exception e) {
+            log.warn("Member count of community {} could not be cached in Redis: {}", communityId, e.getMessage());
+        }
+        return count;
+    }
+
+    /**
+     * Changes the member count of the community in the current transaction, it has to be called in the
+     * transaction that inserted or deleted the membership row.
+     * @param communityId The ID of the community.
+     * @param delta The change of the member count.
+     */
+    public void adjust(Long communityId, long delta) {
+        communityRepository.adjustMemberCount(communityId, delta);
+        afterCommit(() -> {
+            try {
+                jedis.eval(INCREMENT_IF_CACHED, keys(communityId), List.of(Long.toString(delta), Long.toString(cacheTtlSeconds)));
+            } catch (Exception e) {
+                log.warn("Member count of community {} could not be updated in Redis: {}", communityId, e.getMessage());
+                evict(communityId);
+            }
+        });
+    }
+
+    /**
+     * Compares the member counts of the next batch of communities with their community_users rows and recounts
+     * the ones that drifted. The cached count of a recounted community is dropped from Redis.
+     * @param afterId The ID after which the batch starts, 0 for the first batch.
+     * @param batchSize The number of communities in the batch.
+     * @return The last community ID of the batch, or null when there are no more communities.
+     */
+    @Transactional
+    public Long reconcileBatch(Long afterId, int batchSize) {
+        List<Object[]> rows = communityRepository.findMemberCountsAfter(afterId, batchSize);
+        if (rows.isEmpty()) return null;
+        for (Object[] row : rows) {
+            Long communityId = ((Number) row[0]).longValue();
+            if (((Number) row[1]).longValue() != ((Number) row[2]).longValue()) {
+                communityRepository.recountMembers(communityId);
+                log.info("Member count of community {} drifted from {} to {}, recounted", communityId, row[1], row[2]);
+                afterCommit(() -> evict(communityId));
+            }
+        }
+        return ((Number) rows.get(rows.size() - 1)[0]).longValue();
+    }
+
+    private void evict(Long communityId) {
+        try {
+            jedis.eval(EVICT, keys(communityId), List.of(Long.toString(cacheTtlSeconds)));
+        } catch (Exception e) {
+            log.warn("Member count of community {} could not be evicted from Redis: {}", communityId, e.getMessage());
+        }
+    }
+
+    private List<String> keys(Long communityId) {
+        return List.of(KEY_PREFIX + communityId, VERSION_KEY_PREFIX + communityId);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
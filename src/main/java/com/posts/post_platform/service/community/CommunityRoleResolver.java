@@ -0,0 +1,209 @@
+package com.posts.post_platform.service.community;
+
+import com.posts.post_platform.model.CommunityRole;
+import com.posts.post_platform.repository.CommunityRepository;
+import com.posts.post_platform.service.RedisChannelListener;
+import com.posts.post_platform.service.RedisMessageBus;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the roles of a user in a community as a bitmask of {@link CommunityRole} bits.
+ * This is the single path for community permission checks.
+ * The creator, moderator and member ids of a community are loaded together with one query and kept
+ * for a short time, with members and moderators in compressed bitmaps, so a check is answered in memory;
+ * expired communities are dropped once the cache is full, or the community loaded first when none has expired.
+ * Joins, approvals and new moderators are applied once their transaction has committed,
+ * and the other nodes drop their copy of the community through the Redis message bus.
+ * The roles of a community are never modified in place, an update replaces them with an updated copy.
+ */
+@Service
+public class CommunityRoleResolver implements RedisChannelListener {
+    private static final Logger log = LoggerFactory.getLogger(CommunityRoleResolver.class);
+    static final String MEMBERSHIP_CHANNEL = "community_membership";
+
+    private final CommunityRepository communityRepository;
+    private final RedisMessageBus messageBus;
+    private final long ttlMillis;
+    private final int maxCommunities;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, CommunityRoles> communities = new ConcurrentHashMap<>();
+
+    public CommunityRoleResolver(CommunityRepository communityRepository,
+                                 RedisMessageBus messageBus,
+                                 @Value("${postapp.community_roles.ttl_seconds:60}") long ttlSeconds,
+                                 @Value("${postapp.community_roles.cache_size:10000}") int maxCommunities) {
+        this.communityRepository = communityRepository;
+        this.messageBus = messageBus;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxCommunities = Math.max(maxCommunities, 1);
+        messageBus.subscribe(MEMBERSHIP_CHANNEL, this);
+    }
+
+    /**
+     * Returns the roles of the user in the community.
+     * @param communityId The ID of the community.
+     * @param userId The ID of the user, may be null for anonymous users.
+     * @return The bitmask of the user's roles, 0 if the user has no role in the community.
+     */
+    public int resolve(Long communityId, Long userId) {
+        if (userId == null) return 0;
+        return get(communityId).roles(userId);
+    }
+
+    /**
+     * Checks whether the user has at least one of the given roles in the community.
+     * @param communityId The ID of the community.
+     * @param userId The ID of the user, may be null for anonymous users.
+     * @param communityRoles The accepted roles.
+     * @return True if the user has one of the roles.
+     */
+    public boolean hasAnyRole(Long communityId, Long userId, CommunityRole... communityRoles) {
+        return (resolve(communityId, userId) & CommunityRole.mask(communityRoles)) != 0;
+    }
+
+    public boolean isMember(Long communityId, Long userId) {
+        return CommunityRole.MEMBER.isIn(resolve(communityId, userId));
+    }
+
+    public boolean isModerator(Long communityId, Long userId) {
+        return CommunityRole.MODERATOR.isIn(resolve(communityId, userId));
+    }
+
+    /**
+     * Adds the user to the members of the community once the current transaction commits.
+     * @param communityId The ID of the community.
+     * @param userId The ID of the new member.
+     */
+    public void addMember(Long communityId, Long userId) {
+        afterCommit(communityId, () -> communities.computeIfPresent(communityId, (id, roles) -> roles.withMember(userId)));
+    }
+
+    /**
+     * Adds the user to the moderators of the community once the current transaction commits.
+     * @param communityId The ID of the community.
+     * @param userId The ID of the new moderator.
+     */
+    public void addModerator(Long communityId, Long userId) {
+        afterCommit(communityId, () -> communities.computeIfPresent(communityId, (id, roles) -> roles.withModerator(userId)));
+    }
+
+    /**
+     * Drops the community on this node and the others, it is loaded again on its next check.
+     * @param communityId The ID of the community.
+     */
+    public void invalidate(Long communityId) {
+        afterCommit(communityId, () -> communities.remove(communityId));
+    }
+
+    @Override
+    public void onMessage(String message) {
+        int separator = message.lastIndexOf(':');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) return;
+        communities.remove(Long.parseLong(message.substring(separator + 1)));
+    }
+
+    /**
+     * Changes published while this node was not subscribed are unknown, so everything is loaded again.
+     */
+    @Override
+    public void onSubscribed() {
+        communities.clear();
+    }
+
+    private CommunityRoles get(Long communityId) {
+        long now = System.currentTimeMillis();
+        CommunityRoles roles = communities.get(communityId);
+        if (roles != null && roles.expiresAt() > now) return roles;
+        if (communities.size() >= maxCommunities) evict(now);
+        return communities.compute(communityId, (id, current) ->
+                current != null && current.expiresAt() > now ? current : load(id, now));
+    }
+
+    private void evict(long now) {
+        communities.values().removeIf(expired -> expired.expiresAt() <= now);
+        if (communities.size() < maxCommunities) return;
+        communities.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().expiresAt()))
+                .ifPresent(oldest -> communities.remove(oldest.getKey(), oldest.getValue()));
+    }
+
+    private CommunityRoles load(Long communityId, long now) {
+        Long creatorId = null;
+        Roaring64NavigableMap members = new Roaring64NavigableMap();
+        Roaring64NavigableMap moderators = new Roaring64NavigableMap();
+        List<Object[]> rows = communityRepository.findCommunityRoles(communityId);
+        for (Object[] row : rows) {
+            if (row[0] == null) continue;
+            long userId = ((Number) row[0]).longValue();
+            int role = ((Number) row[1]).intValue();
+            if (CommunityRole.CREATOR.isIn(role)) creatorId = userId;
+            else if (CommunityRole.MODERATOR.isIn(role)) moderators.addLong(userId);
+            else members.addLong(userId);
+        }
+        members.runOptimize();
+        moderators.runOptimize();
+        return new CommunityRoles(creatorId, members, moderators, now + ttlMillis);
+    }
+
+    private void afterCommit(Long communityId, Runnable update) {
+        Runnable apply = () -> {
+            update.run();
+            publish(communityId);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void publish(Long communityId) {
+        try {
+            messageBus.publish(MEMBERSHIP_CHANNEL, nodeId + ":" + communityId);
+        } catch (Exception e) {
+            log.warn("Membership change of community {} could not be published: {}", communityId, e.getMessage());
+        }
+    }
+
+    private record CommunityRoles(Long creatorId, Roaring64NavigableMap members, Roaring64NavigableMap moderators, long expiresAt) {
+        int roles(long userId) {
+            int roles = 0;
+            if (creatorId != null && creatorId == userId) roles |= CommunityRole.CREATOR.getBit();
+            if (moderators.contains(userId)) roles |= CommunityRole.MODERATOR.getBit();
+            if (members.contains(userId)) roles |= CommunityRole.MEMBER.getBit();
+            return roles;
+        }
+
+        CommunityRoles withMember(Long userId) {
+            return new CommunityRoles(creatorId, copyWith(members, userId), moderators, expiresAt);
+        }
+
+        CommunityRoles withModerator(Long userId) {
+            return new CommunityRoles(creatorId, members, copyWith(moderators, userId), expiresAt);
+        }
+
+        private static Roaring64NavigableMap copyWith(Roaring64NavigableMap ids, Long userId) {
+            Roaring64NavigableMap copy = new Roaring64NavigableMap();
+            copy.or(ids);
+            copy.addLong(userId);
+            return copy;
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package com.posts.post_platform.service.community;
 
-import com.posts.post_platform.dto.UserDto;
+import com.posts.post_platform.dto.CommunitySummary;
 import com.posts.post_platform.model.Community;
 import com.posts.post_platform.requests.CommunityRequest;
 import com.posts.post_platform.requests.UpdateCommunityRequest;
+import com.posts.post_platform.response.CommunityPageResponse;
 import com.posts.post_platform.response.CommunityResponse;
 import com.posts.post_platform.response.CommunityResponseWithApprovedUsers;
+import com.posts.post_platform.response.MemberPageResponse;
 import jakarta.validation.Valid;
 
-import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CommunityService {
     CommunityResponse createCommunity(@Valid CommunityRequest communityRequest, String username);
@@ -18,22 +20,21 @@ public interface CommunityService {
 
     CommunityResponse getCommunityByName(String communityName);
 
-    List<CommunityResponse> getAllCommunities();
+    CommunityPageResponse getCommunityDirectory(String cursor, int size, String sort);
+
+    void streamAllCommunities(Consumer<CommunityResponse> consumer);
 
     CommunityResponse updateCommunity(String communityName, @Valid UpdateCommunityRequest updateCommunityRequest, String username);
 
-    List<UserDto> getAllMembers(Long communityId);
+    MemberPageResponse getMembers(Long communityId, String cursor, int size, String usernamePrefix);
 
-    int getMembersCount(Long communityId);
+    long getMembersCount(Long communityId);
 
     Optional<Community> findCommunityById(Long communityId);
 
-    CommunityResponseWithApprovedUsers addUserToCommunity(Community community, String username);
-
-    boolean isCreator(Long communityId, String username);
-    boolean isMember(String communityName, Long userId);
+    Optional<CommunitySummary> findCommunitySummaryById(Long communityId);
 
-    boolean isModerator(Long communityId, String username);
+    CommunityResponseWithApprovedUsers addUserToCommunity(CommunitySummary community, String username);
 
     boolean isCommunityPrivate(String communityName);
 }
@@ -1,5 +1,7 @@
 package com.posts.post_platform.service.community;
 
+import com.posts.post_platform.dto.CommunityDirectoryEntry;
+import com.posts.post_platform.dto.CommunitySummary;
 import com.posts.post_platform.dto.UserDto;
 import com.posts.post_platform.exceptions.CommunityAlreadyExistsException;
 import com.posts.post_platform.exceptions.CommunityNotFoundException;
@@ -8,34 +10,56 @@ import com.posts.post_platform.exceptions.UserNotFoundException;
 import com.posts.post_platform.mapper.CommunityMapper;
 import com.posts.post_platform.model.AccessLevel;
 import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommunityRole;
 import com.posts.post_platform.model.User;
 import com.posts.post_platform.repository.CommunityRepository;
 import com.posts.post_platform.repository.UserRepositories;
 import com.posts.post_platform.requests.CommunityRequest;
 import com.posts.post_platform.requests.UpdateCommunityRequest;
+import com.posts.post_platform.response.CommunityPageResponse;
 import com.posts.post_platform.response.CommunityResponse;
 import com.posts.post_platform.response.CommunityResponseWithApprovedUsers;
+import com.posts.post_platform.response.MemberPageResponse;
+import com.posts.post_platform.service.timeline.HomeTimelineService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class CommunityServiceImpl implements CommunityService{
+    static final int MAX_DIRECTORY_PAGE_SIZE = 200;
+    static final int MAX_MEMBER_PAGE_SIZE = 200;
+
     private final CommunityRepository communityRepository;
     private final CommunityMapper communityMapper;
     private final UserRepositories userRepositories;
+    private final CommunityRoleResolver communityRoleResolver;
+    private final CommunityMemberCounter communityMemberCounter;
+    private final CommunityCache communityCache;
+    private final HomeTimelineService homeTimelineService;
 
     @Autowired
-    public CommunityServiceImpl(CommunityRepository communityRepository, CommunityMapper communityMapper, UserRepositories userRepositories) {
+    public CommunityServiceImpl(CommunityRepository communityRepository, CommunityMapper communityMapper, UserRepositories userRepositories,
+                                CommunityRoleResolver communityRoleResolver, CommunityMemberCounter communityMemberCounter, CommunityCache communityCache,
+                                HomeTimelineService homeTimelineService) {
         this.communityRepository = communityRepository;
         this.communityMapper = communityMapper;
         this.userRepositories = userRepositories;
+        this.communityRoleResolver = communityRoleResolver;
+        this.communityMemberCounter = communityMemberCounter;
+        this.communityCache = communityCache;
+        this.homeTimelineService = homeTimelineService;
     }
 
     /**
@@ -93,18 +117,47 @@ public class CommunityServiceImpl implements CommunityService{
     }
 
     /**
-     * Retrieves all communities in the system.
+     * Retrieves one page of the community directory with keyset pagination.
+     * Rows are read as projections, so neither community entities nor their members are loaded.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of communities in the page, capped at {@value #MAX_DIRECTORY_PAGE_SIZE}
+     * @param sort "id" to list communities in id order, or "new" to list the newest communities first
+     * @return the page of communities with the cursor of the next page, which is null on the last page
+     * @throws IllegalArgumentException if the sort option or the cursor is invalid
+     * @throws EntityNotFoundException if there is no community at all
+     */
+    @Override
+    public CommunityPageResponse getCommunityDirectory(String cursor, int size, String sort) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_DIRECTORY_PAGE_SIZE);
+        DirectoryPosition position = cursor == null ? null : decodeCursor(cursor, sort);
+        List<CommunityDirectoryEntry> entries = switch (sort) {
+            case "id" -> communityRepository.findDirectoryPageById(position == null ? 0L : position.id(), Limit.of(pageSize));
+            case "new" -> position == null
+                    ? communityRepository.findNewestDirectoryPage(Limit.of(pageSize))
+                    : communityRepository.findNewestDirectoryPageBefore(position.createdAt(), position.id(), Limit.of(pageSize));
+            default -> throw new IllegalArgumentException("Invalid sort option : " + sort);
+        };
+        if (entries.isEmpty() && cursor == null) throw new EntityNotFoundException("There is no community");
+        String nextCursor = entries.size() < pageSize ? null : encodeCursor(entries.get(entries.size() - 1), sort);
+        return CommunityPageResponse.builder()
+                .communities(entries.stream().map(communityMapper::convertDirectoryEntryToResponse).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Passes every community of the directory to the consumer in id order.
+     * The rows are streamed from the database one by one, so memory use does not grow with the number of communities.
      *
-     * @return a list of response objects containing the details of all communities
-     * @throws EntityNotFoundException if no communities are found
+     * @param consumer the consumer that receives each community, for example to write it to the response
      */
     @Override
-    public List<CommunityResponse> getAllCommunities() {
-        List<Community> communities = communityRepository.findAll();
-        if (!communities.isEmpty()) {
-            return communities.stream().map(communityMapper::convertCommunityToResponse).toList();
+    @Transactional
+    public void streamAllCommunities(Consumer<CommunityResponse> consumer) {
+        try (Stream<CommunityDirectoryEntry> entries = communityRepository.streamDirectory()) {
+            entries.map(communityMapper::convertDirectoryEntryToResponse).forEach(consumer);
         }
-        throw new EntityNotFoundException("There is no community");
     }
 
     /**
@@ -123,10 +176,9 @@ public class CommunityServiceImpl implements CommunityService{
     public CommunityResponse updateCommunity(String communityName, UpdateCommunityRequest updateCommunityRequest, String username) {
         Community community = communityRepository.findByCommunityName(communityName).orElseThrow(() -> new CommunityNotFoundException("Community not found with community name : " + communityName));
         User user = userRepositories.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        boolean isModerator = community.getModerators().stream().anyMatch(moderator -> moderator.getUsername().equals(username));
-        boolean isCreator = community.getCreator().equals(user);
         // user can access to update community
-        if (isModerator || isCreator) {
+        if (communityRoleResolver.hasAnyRole(community.getId(), user.getId(), CommunityRole.CREATOR, CommunityRole.MODERATOR)) {
+            AccessLevel previousAccessLevel = community.getAccess_level();
             if (updateCommunityRequest.getCommunity_name() != null && communityRepository.findByCommunityName(updateCommunityRequest.getCommunity_name()).isEmpty()) {
                 community.setCommunityName(updateCommunityRequest.getCommunity_name());
             }
@@ -140,45 +192,53 @@ public class CommunityServiceImpl implements CommunityService{
                 community.setAccess_level(AccessLevel.fromString(updateCommunityRequest.getAccess_level()));
             }
             community.setUpdatedAt(LocalDateTime.now());
+            // cached lookups by the old name or with the old access level must not survive the change
+            if (!community.getCommunityName().equals(communityName) || community.getAccess_level() != previousAccessLevel) {
+                communityCache.evict(community.getId(), communityName);
+            }
             return communityMapper.convertCommunityToResponse(communityRepository.save(community));
         }
         throw new UnauthorizedActionException("Unauthorized action");
     }
 
     /**
-     * Retrieves all members of a community.
+     * Retrieves one page of the members of a community with keyset pagination.
+     * Members are projected straight into UserDto, so user entities and their collections are not loaded.
      *
      * @param communityId the ID of the community whose members are to be retrieved
-     * @return a list of UserDto objects representing the members of the community
-     * @throws IllegalArgumentException if the community with the specified ID is not found
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of members in the page, capped at {@value #MAX_MEMBER_PAGE_SIZE}
+     * @param usernamePrefix the prefix the usernames of the members must start with, or null for all members
+     * @return the page of members with the cursor of the next page, which is null on the last page
+     * @throws IllegalArgumentException if the community with the specified ID is not found or the cursor is invalid
      */
     @Override
-    public List<UserDto> getAllMembers(Long communityId) {
-        Optional<Community> optionalCommunity = communityRepository.findById(communityId);
-        if(optionalCommunity.isPresent()) {
-            List<User> userList = communityRepository.getAllMembersByUsingCommunityId(communityId);
-            return userList.stream().map(user -> UserDto.builder().email(user.getEmail()).username(user.getUsername())
-                    .createdAt(user.getCreatedAt())
-                    .role(user.getRole())
-                    .build()).toList();
-        }
-        throw new IllegalArgumentException("Community not found with id : " + communityId);
+    public MemberPageResponse getMembers(Long communityId, String cursor, int size, String usernamePrefix) {
+        if (communityCache.findById(communityId).isEmpty()) throw new IllegalArgumentException("Community not found with id : " + communityId);
+        int pageSize = Math.min(Math.max(size, 1), MAX_MEMBER_PAGE_SIZE);
+        long afterId = cursor == null ? 0L : decodeMemberCursor(cursor);
+        String usernamePattern = usernamePrefix == null || usernamePrefix.isBlank() ? null
+                : usernamePrefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        List<UserDto> members = communityRepository.findMemberPage(communityId, afterId, usernamePattern, Limit.of(pageSize));
+        String nextCursor = members.size() < pageSize ? null
+                : Base64.getUrlEncoder().withoutPadding().encodeToString(members.get(members.size() - 1).getId().toString().getBytes(StandardCharsets.UTF_8));
+        return MemberPageResponse.builder()
+                .members(members)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     /**
      * Retrieves the count of approved members in a community.
+     * The count is the maintained member counter of the community, community_users is not read.
      *
      * @param communityId the ID of the community whose members count is to be retrieved
      * @return the number of approved members in the community
      * @throws IllegalArgumentException if the community with the specified ID is not found
      */
     @Override
-    public int getMembersCount(Long communityId) {
-        Optional<Community> optionalCommunity = communityRepository.findById(communityId);
-        if(optionalCommunity.isPresent()) {
-            return communityRepository.countApprovedUsersByCommunityId(communityId);
-        }
-        throw new IllegalArgumentException("Community not found with id : " + communityId);
+    public long getMembersCount(Long communityId) {
+        return communityMemberCounter.getMemberCount(communityId);
     }
 
     /**
@@ -192,75 +252,77 @@ public class CommunityServiceImpl implements CommunityService{
         return communityRepository.findById(communityId);
     }
 
+    /**
+     * Finds the summary of a community by its ID, without loading its members and moderators.
+     *
+     * @param communityId the ID of the community to retrieve
+     * @return an Optional containing the community summary if found, or an empty Optional if not found
+     */
+    @Override
+    public Optional<CommunitySummary> findCommunitySummaryById(Long communityId) {
+        return communityCache.findById(communityId);
+    }
+
     /**
      * Adds a user to a community, provided they are not already a member.
+     * Only the membership row of the user is written, the existing members are neither loaded nor returned.
      *
-     * @param community the community to which the user is to be added
+     * @param communitySummary the community to which the user is to be added
      * @param username the username of the user to add
-     * @return the response object containing the updated community details with the approved users
+     * @return the response object containing the community details with the newly added member as approved user
      * @throws UserNotFoundException if the user with the specified username is not found
+     * @throws CommunityNotFoundException if the community no longer exists
      * @throws IllegalArgumentException if the user is already a member of the community
      */
     @Override
     @Transactional
-    public CommunityResponseWithApprovedUsers addUserToCommunity(Community community, String username) {
+    public CommunityResponseWithApprovedUsers addUserToCommunity(CommunitySummary communitySummary, String username) {
         User user = userRepositories.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        if (communityRepository.countUserInCommunity(community.getId(), user.getId()) == 0) {
-            if (community.getApprovedUsers() == null) {
-                community.setApprovedUsers(new ArrayList<>());
-            }
-            community.getApprovedUsers().add(user);
-            communityRepository.save(community);
-            return communityMapper.convertCommunityToResponseWithApprovedUsers(community);
+        Community community = communityRepository.findById(communitySummary.getId()).orElseThrow(() -> new CommunityNotFoundException("Community not found with id : " + communitySummary.getId()));
+        if (communityRepository.insertMember(community.getId(), user.getId()) == 1) {
+            communityMemberCounter.adjust(community.getId(), 1);
+            communityRoleResolver.addMember(community.getId(), user.getId());
+            homeTimelineService.onMembershipChanged(user.getId());
+            return communityMapper.convertCommunityToResponseWithNewMember(community, user);
         }
        throw new IllegalArgumentException("User already is member of that community");
     }
 
     /**
-     * Checks if a user is the creator of a specific community.
+     * Checks if a community is private.
      *
-     * @param communityId the ID of the community to check
-     * @param username the username of the user to check
-     * @return true if the user is the creator, false otherwise
+     * @param communityName the name of the community to check
+     * @return true if the community is private, false otherwise
      */
     @Override
-    public boolean isCreator(Long communityId, String username) {
-        return communityRepository.isUserCreator(communityId, username);
+    public boolean isCommunityPrivate(String communityName) {
+        return communityCache.findByName(communityName).map(CommunitySummary::isPrivate).orElse(false);
     }
 
-    /**
-     * Checks if a user is a member of a specific community.
-     *
-     * @param communityName the name of the community to check
-     * @param userId the ID of the user to check
-     * @return true if the user is a member, false otherwise
-     */
-    @Override
-    public boolean isMember(String communityName, Long userId) {
-        Long result = communityRepository.isUserMember(communityName, userId);
-        return result == 1;
+    private String encodeCursor(CommunityDirectoryEntry last, String sort) {
+        String position = sort.equals("id") ? sort + "|" + last.getId() : sort + "|" + last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
     }
 
-    /**
-     * Checks if a user is a moderator of a specific community.
-     *
-     * @param communityId the ID of the community to check
-     * @param username the username of the user to check
-     * @return true if the user is a moderator, false otherwise
-     */
-    @Override
-    public boolean isModerator(Long communityId, String username) {
-        return communityRepository.isUserModerator(communityId, username);
+    private long decodeMemberCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
 
-    /**
-     * Checks if a community is private.
-     *
-     * @param communityName the name of the community to check
-     * @return true if the community is private, false otherwise
-     */
-    @Override
-    public boolean isCommunityPrivate(String communityName) {
-        return communityRepository.isCommunityPrivate(communityName) == 1;
+    private DirectoryPosition decodeCursor(String cursor, String sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts[0].equals("id") && sort.equals("id") && parts.length == 2) return new DirectoryPosition(null, Long.parseLong(parts[1]));
+            if (parts[0].equals("new") && sort.equals("new") && parts.length == 3) return new DirectoryPosition(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException ignored) {
+            // reported below as an invalid cursor
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private record DirectoryPosition(LocalDateTime createdAt, Long id) {
     }
 }
@@ -0,0 +1,47 @@
+package com.posts.post_platform.service.community;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically walks all communities in batches and corrects member counts that drifted from community_users.
+ * Each batch runs in its own short transaction, so the job never holds locks on many communities at once.
+ * The first walk runs once the application is ready, it fills the counts of the communities that existed before
+ * the member_count column and drops the counts cached for them meanwhile.
+ */
+@Component
+public class MemberCountReconciliationJob {
+    private static final Logger log = LoggerFactory.getLogger(MemberCountReconciliationJob.class);
+
+    private final CommunityMemberCounter communityMemberCounter;
+    private final int batchSize;
+
+    public MemberCountReconciliationJob(CommunityMemberCounter communityMemberCounter,
+                                        @Value("${postapp.member_count.reconcile_batch_size:500}") int batchSize) {
+        this.communityMemberCounter = communityMemberCounter;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${postapp.member_count.reconcile_interval_ms:3600000}",
+            initialDelayString = "${postapp.member_count.reconcile_interval_ms:3600000}")
+    public synchronized void reconcile() {
+        try {
+            Long lastId = 0L;
+            while (lastId != null) {
+                lastId = communityMemberCounter.reconcileBatch(lastId, batchSize);
+            }
+        } catch (Exception e) {
+            log.warn("Member count reconciliation stopped: {}", e.getMessage());
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.posts.post_platform.mapper.CommunityMapper;
 import com.posts.post_platform.mapper.ModerationMapper;
 import com.posts.post_platform.mapper.PostMapper;
 import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommunityRole;
 import com.posts.post_platform.model.Post;
 import com.posts.post_platform.model.Role;
 import com.posts.post_platform.model.User;
@@ -23,7 +24,12 @@ import com.posts.post_platform.response.CommunityWithAdditionalDataResponse;
 import com.posts.post_platform.response.PendingPost;
 import com.posts.post_platform.response.PostResponse;
 import com.posts.post_platform.service.RedisService;
+import com.posts.post_platform.service.community.CommunityCache;
+import com.posts.post_platform.service.community.CommunityMemberCounter;
+import com.posts.post_platform.service.community.CommunityRoleResolver;
 import com.posts.post_platform.service.community.CommunityService;
+import com.posts.post_platform.service.post.PostRankingService;
+import com.posts.post_platform.service.timeline.HomeTimelineService;
 import jakarta.persistence.EntityExistsException;
 import jakarta.transaction.Transactional;
 import org.json.JSONObject;
@@ -61,38 +67,52 @@ public class ModerationServiceImpl implements ModerationService{
     @Autowired
     private RedisService redisService;
 
+    @Autowired
+    private CommunityRoleResolver communityRoleResolver;
+
+    @Autowired
+    private CommunityMemberCounter communityMemberCounter;
+
+    @Autowired
+    private CommunityCache communityCache;
+
+    @Autowired
+    private PostRankingService postRankingService;
+
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+
     /**
      * This method allows the creator of a community to add multiple users as moderators.
      * It verifies the user's authorization, checks the community's approved users,
      * and adds users to the moderator list if they are eligible. It also ensures that
      * duplicate users or users who are not in the approved list are not added as moderators.
-     * If no users are added, an exception is thrown. Finally, the community is saved and
-     * a response with the updated community data is returned.
+     * Each moderator is added by inserting a single community_moderators row.
+     * If no users are added, an exception is thrown. Finally, a response with the updated community data is returned.
      */
     @Override
     @Transactional
     public CommunityWithAdditionalDataResponse addModerators(Long communityId, AddModeratorsToCommunityRequest addToModerators, String username) {
         Community community = communityRepository.findById(communityId).orElseThrow(() -> new CommunityNotFoundException(("Community not found with id : " + communityId )));
         User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
-        if (!community.getCreator().equals(user)) throw new UnauthorizedActionException("User is not the creator of this community");
-        List<Long> approvedUserIds = community.getApprovedUsers().stream().map(User::getId).toList();
-        List<Long> filteredUserIds = addToModerators.getUser_ids().stream().filter(approvedUserIds::contains).toList();
+        if (!communityRoleResolver.hasAnyRole(communityId, user.getId(), CommunityRole.CREATOR)) throw new UnauthorizedActionException("User is not the creator of this community");
+        List<Long> filteredUserIds = addToModerators.getUser_ids().stream().filter(userId -> communityRoleResolver.isMember(communityId, userId)).toList();
         int countAddedMod = 0;
         for (Long userId : filteredUserIds) {
             Optional<User> userToAddOpt = userRepository.findById(userId);
             if (userToAddOpt.isPresent()) {
                 User userToAdd = userToAddOpt.get();
-                if (!community.getModerators().contains(userToAdd)) {
+                if (!communityRoleResolver.isModerator(communityId, userId)) {
                     if (!userToAdd.getRole().contains(Role.MODERATOR)) userToAdd.getRole().add(Role.MODERATOR);
-                    community.getModerators().add(userToAdd);
-                    userToAdd.getModeratedCommunities().add(community);
                     userRepository.save(userToAdd);
-                    countAddedMod++;
+                    if (communityRepository.insertModerator(communityId, userId) == 1) {
+                        communityRoleResolver.addModerator(communityId, userId);
+                        countAddedMod++;
+                    }
                 }
             }
         }
         if (countAddedMod == 0) throw new IllegalArgumentException("Any user not added to community");
-        communityRepository.save(community);
         return communityMapper.convertCommunityToCommunityResponseWithAdditionalData(community);
     }
 
@@ -102,7 +122,7 @@ public class ModerationServiceImpl implements ModerationService{
      * 2. The user trying to add a moderator is fetched by their username. If not found, a UserNotFoundException is thrown.
      * 3. The method ensures that the user attempting the action is the creator of the community. If not, an UnauthorizedActionException is thrown.
      * 4. The user to be added as a moderator is fetched by their ID. If the user is already a member of the community and is not a moderator yet,
-     *    they are added as a moderator. If successful, the community and user objects are saved, and a response with additional community data is returned.
+     *    they are added as a moderator with a single community_moderators row. If successful, a response with additional community data is returned.
      * 5. If the user to be added is not part of the community, an IllegalArgumentException is thrown.
      */
     @Override
@@ -111,14 +131,13 @@ public class ModerationServiceImpl implements ModerationService{
         Community community = communityRepository.findById(communityId).orElseThrow(() -> new CommunityNotFoundException("Community not found with id : " + communityId));
         User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found with username : " + username));
         // we need to check the community creator whether it is equal to user object which is called user
-        if (!community.getCreator().equals(user)) throw new UnauthorizedActionException("User is not the creator of this community");
+        if (!communityRoleResolver.hasAnyRole(communityId, user.getId(), CommunityRole.CREATOR)) throw new UnauthorizedActionException("User is not the creator of this community");
         User userToAdd = userRepository.findById(addModeratorRequest.getUserToModeratorId()).orElseThrow(() -> new UserNotFoundException("User who wants to be added to community as moderator not found with id : " + addModeratorRequest.getUserToModeratorId()));
-        if (community.getApprovedUsers().contains(userToAdd) && !community.getModerators().contains(userToAdd)) {
+        if (communityRoleResolver.isMember(communityId, userToAdd.getId()) && !communityRoleResolver.isModerator(communityId, userToAdd.getId())) {
             if (!userToAdd.getRole().contains(Role.MODERATOR)) userToAdd.getRole().add(Role.MODERATOR);
-            community.getModerators().add(userToAdd);
-            userToAdd.getModeratedCommunities().add(community);
             userRepository.save(userToAdd);
-            communityRepository.save(community);
+            communityRepository.insertModerator(communityId, userToAdd.getId());
+            communityRoleResolver.addModerator(communityId, userToAdd.getId());
             return communityMapper.convertCommunityToCommunityResponseWithAdditionalData(community);
         }
         throw new IllegalArgumentException("User not belongs to the community");
@@ -153,11 +172,9 @@ public class ModerationServiceImpl implements ModerationService{
      */
     @Override
     public List<Map<String, Object>> getPendingJoinRequests(Long communityId, String username) {
-        userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("USER NOT FOUND WITH USERNAME : " + username));
-        communityRepository.findById(communityId).orElseThrow(() -> new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId));
-        boolean isCreator = communityService.isCreator(communityId, username);
-        boolean isModerator = communityService.isModerator(communityId, username);
-        if (isCreator || isModerator) {
+        User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("USER NOT FOUND WITH USERNAME : " + username));
+        if (communityCache.findById(communityId).isEmpty()) throw new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId);
+        if (communityRoleResolver.hasAnyRole(communityId, user.getId(), CommunityRole.CREATOR, CommunityRole.MODERATOR)) {
             List<Map<String, Object>> users = redisService.getPendingJoinRequests(communityId);
             if (!users.isEmpty()) {
                 users.forEach(obj -> {
@@ -187,9 +204,9 @@ public class ModerationServiceImpl implements ModerationService{
      */
     @Override
     public List<Map<String, Object>> getPendingPostRequests(Long communityId, String username) {
-        communityRepository.findById(communityId).orElseThrow(() -> new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId));
-        userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException(("USER NOT FOUND WITH USERNAME : " + username)));
-        if (!communityService.isCreator(communityId, username) && !communityService.isModerator(communityId, username)) {
+        if (communityCache.findById(communityId).isEmpty()) throw new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId);
+        User user = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException(("USER NOT FOUND WITH USERNAME : " + username)));
+        if (!communityRoleResolver.hasAnyRole(communityId, user.getId(), CommunityRole.CREATOR, CommunityRole.MODERATOR)) {
             throw new UnauthorizedActionException("You are not allowed to moderate to community with ID: " + communityId);
         }
         List<Map<String, Object>> posts = redisService.getAllPendingPostsFromRedis(communityId);
@@ -222,15 +239,16 @@ public class ModerationServiceImpl implements ModerationService{
     public ApproveJoinRequestDto approveJoinRequest(Long communityId, Long userId, String username) {
         User approver = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("USER WHO WANTS TO APPROVE NOT FOUND WITH USERNAME : " + username));
         User userToAttend = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException("USER WHO WANTS TO ATTEND TO COMMUNITY NOT FOUND WITH ID : " + userId));
-        Community community = communityRepository.findById(communityId).orElseThrow(() -> new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId));
-        boolean isCreator = communityService.isCreator(communityId, username);
-        boolean isModerator = communityService.isModerator(communityId, username);
-        if (!isCreator && !isModerator) throw new UnauthorizedActionException("You are not allowed to moderate to community with ID: " + communityId);
-        if (community.getApprovedUsers().contains(userToAttend)) throw new EntityExistsException("User is already a member of the community.");
+        if (communityCache.findById(communityId).isEmpty()) throw new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId);
+        if (!communityRoleResolver.hasAnyRole(communityId, approver.getId(), CommunityRole.CREATOR, CommunityRole.MODERATOR)) throw new UnauthorizedActionException("You are not allowed to moderate to community with ID: " + communityId);
+        if (communityRoleResolver.isMember(communityId, userId)) throw new EntityExistsException("User is already a member of the community.");
         int index = redisService.findIndex(communityId, userId);
         if (index != -1) {
-            community.getApprovedUsers().add(userToAttend);
-            communityRepository.save(community);
+            if (communityRepository.insertMember(communityId, userToAttend.getId()) == 1) {
+                communityMemberCounter.adjust(communityId, 1);
+                homeTimelineService.onMembershipChanged(userId);
+            }
+            communityRoleResolver.addMember(communityId, userId);
             redisService.deleteValueFromRedis("community_id:", communityId, index);
             return moderationMapper.createApproveJoinRequestDto(userId, approver.getId(), communityId);
         }
@@ -262,6 +280,8 @@ public class ModerationServiceImpl implements ModerationService{
 
         Post ppost = postMapper.createPostModel(post, user, community);
         postRepository.save(ppost);
+        postRankingService.onPostCreated(communityId, ppost.getId(), ppost.getCreatedAt());
+        homeTimelineService.onPostCreated(communityId, ppost.getId(), ppost.getCreatedAt());
         redisService.deleteValueFromRedis("post:community_id:", communityId, index);
 
         return postMapper.convertPostToPostResponse(ppost);
@@ -278,8 +298,7 @@ public class ModerationServiceImpl implements ModerationService{
      */
     @Override
     public String rejectPostRequest(Long communityId, String postId, String username) {
-        Community community = communityRepository.findById(communityId).orElseThrow(() ->
-                new CommunityNotFoundException("Community not found with id : " + communityId));
+        if (communityCache.findById(communityId).isEmpty()) throw new CommunityNotFoundException("Community not found with id : " + communityId);
 
         validateUserAndPermissions(communityId, username);
 
@@ -304,11 +323,9 @@ public class ModerationServiceImpl implements ModerationService{
     public RejectJoinRequestDto rejectJoinRequest(Long communityId, Long userToAttendId, String username) {
         User rUser = userRepository.findUserByUsername(username).orElseThrow(() -> new UserNotFoundException("USER WHO WANTS TO REJECT NOT FOUND WITH USERNAME : " + username));
         User userToAttend = userRepository.findById(userToAttendId).orElseThrow(() -> new UserNotFoundException("USER WHO WANTS TO ATTEND TO COMMUNITY NOT FOUND WITH ID : " + userToAttendId));
-        Community community = communityRepository.findById(communityId).orElseThrow(() -> new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId));
-        boolean isCreator = communityService.isCreator(communityId, username);
-        boolean isModerator = communityService.isModerator(communityId, username);
-        if (!isCreator && !isModerator) throw new UnauthorizedActionException("You are not allowed to moderate to community with ID: " + communityId);
-        if (community.getApprovedUsers().contains(userToAttend)) throw new EntityExistsException("User is already a member of the community.");
+        if (communityCache.findById(communityId).isEmpty()) throw new CommunityNotFoundException("COMMUNITY NOT FOUND WITH ID : " + communityId);
+        if (!communityRoleResolver.hasAnyRole(communityId, rUser.getId(), CommunityRole.CREATOR, CommunityRole.MODERATOR)) throw new UnauthorizedActionException("You are not allowed to moderate to community with ID: " + communityId);
+        if (communityRoleResolver.isMember(communityId, userToAttendId)) throw new EntityExistsException("User is already a member of the community.");
         int index = redisService.findIndex(communityId, userToAttendId);
         if (index != -1) {
             redisService.deleteValueFromRedis("community_id:", communityId, index);
@@ -360,11 +377,10 @@ public class ModerationServiceImpl implements ModerationService{
     }
 
     private void validateUserAndPermissions(Long communityId, String username) {
-        userRepository.findUserByUsername(username).orElseThrow(() ->
+        User user = userRepository.findUserByUsername(username).orElseThrow(() ->
                 new UserNotFoundException("USER WHO WANTS TO APPROVE NOT FOUND WITH USERNAME : " + username));
 
-        boolean hasPermission = communityService.isCreator(communityId, username) ||
-                communityService.isModerator(communityId, username);
+        boolean hasPermission = communityRoleResolver.hasAnyRole(communityId, user.getId(), CommunityRole.CREATOR, CommunityRole.MODERATOR);
 
         if (!hasPermission) throw new UnauthorizedActionException("You are not allowed to moderate community with ID: " + communityId);
     }
@@ -0,0 +1,39 @@
+package com.posts.post_platform.service.post;
+
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.service.IdRangeBackfillJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Fills the comment count and last activity time of the posts that were created before both were kept on posts.
+ * A null last activity time marks these posts. Comments added to a post before the job reaches it do not set its last
+ * activity time, so the post is still recounted.
+ */
+@Component
+public class PostActivityBackfillJob extends IdRangeBackfillJob {
+    private final PostRepository postRepository;
+
+    public PostActivityBackfillJob(PostRepository postRepository,
+                                   @Value("${postapp.posts.activity_backfill_batch_size:1000}") int batchSize) {
+        super("posts", batchSize);
+        this.postRepository = postRepository;
+    }
+
+    @Override
+    protected Optional<Long> findFirstUnfilledId() {
+        return postRepository.findFirstIdWithoutActivity();
+    }
+
+    @Override
+    protected Optional<Long> findMaxId() {
+        return postRepository.findMaxId();
+    }
+
+    @Override
+    protected int fill(long afterId, long lastId) {
+        return postRepository.backfillActivity(afterId, lastId);
+    }
+}
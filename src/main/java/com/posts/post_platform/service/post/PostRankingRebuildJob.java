@@ -0,0 +1,63 @@
+package com.posts.post_platform.service.post;
+
+import com.posts.post_platform.repository.CommunityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.SetParams;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Periodically reseeds the post rankings of every community from MySQL, walking the communities in batches of ids.
+ * Incremental updates lost while Redis was unavailable are corrected this way.
+ * A Redis lock lets only one node rebuild at a time.
+ */
+@Component
+public class PostRankingRebuildJob {
+    private static final Logger log = LoggerFactory.getLogger(PostRankingRebuildJob.class);
+    static final String LOCK_KEY = "post_ranking:rebuild_lock";
+
+    private final PostRankingService postRankingService;
+    private final CommunityRepository communityRepository;
+    private final JedisPooled jedis;
+    private final int batchSize;
+    private final long lockSeconds;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public PostRankingRebuildJob(PostRankingService postRankingService,
+                                 CommunityRepository communityRepository,
+                                 JedisPooled jedis,
+                                 @Value("${postapp.post_ranking.rebuild_batch_size:200}") int batchSize,
+                                 @Value("${postapp.post_ranking.rebuild_interval_ms:21600000}") long rebuildIntervalMs) {
+        this.postRankingService = postRankingService;
+        this.communityRepository = communityRepository;
+        this.jedis = jedis;
+        this.batchSize = batchSize;
+        this.lockSeconds = Math.max(rebuildIntervalMs / 2000, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${postapp.post_ranking.rebuild_interval_ms:21600000}",
+            initialDelayString = "${postapp.post_ranking.rebuild_interval_ms:21600000}")
+    public void rebuild() {
+        try {
+            if (!"OK".equals(jedis.set(LOCK_KEY, nodeId, SetParams.setParams().nx().ex(lockSeconds)))) return;
+            Long lastId = 0L;
+            List<Long> communityIds;
+            do {
+                communityIds = communityRepository.findIdsAfter(lastId, Limit.of(batchSize));
+                for (Long communityId : communityIds) {
+                    postRankingService.rebuild(communityId);
+                }
+                if (!communityIds.isEmpty()) lastId = communityIds.get(communityIds.size() - 1);
+            } while (communityIds.size() == batchSize);
+        } catch (Exception e) {
+            log.warn("Post ranking rebuild stopped: {}", e.getMessage());
+        }
+    }
+}
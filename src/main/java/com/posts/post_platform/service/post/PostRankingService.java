@@ -0,0 +1,275 @@
+package com.posts.post_platform.service.post;
+
+import com.posts.post_platform.dto.PostRankingSeed;
+import com.posts.post_platform.model.PostFeedSort;
+import com.posts.post_platform.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.JedisPooled;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the "hot" and "top" rankings of the posts of each community in Redis sorted sets.
+ * The points of a post are its likes minus its dislikes plus its comments. Every vote or comment changes the points of the post in Redis
+ * by the delta and re-scores only that post with one script, so rankings are never recomputed by scanning MySQL.
+ * The hot score is log10(points) plus the creation time divided by {@value #HOT_DECAY_SECONDS} seconds, so ten times
+ * the points keep a post as high as a post created 12.5 hours later. The top rankings of the day and the week only
+ * hold posts created within the window, older posts are dropped when the ranking is read or written.
+ * Every ranking holds at most the configured number of posts, the rest of the posts of a community is only reachable
+ * through the newest first feed. {@link #rebuild(Long)} reseeds the rankings of a community from MySQL, it runs for
+ * communities that were never seeded and periodically from {@link PostRankingRebuildJob}.
+ */
+@Service
+public class PostRankingService {
+    private static final Logger log = LoggerFactory.getLogger(PostRankingService.class);
+    static final String KEY_PREFIX = "post_ranking:";
+    static final long HOT_EPOCH_SECONDS = 1704067200L;
+    static final long HOT_DECAY_SECONDS = 45000L;
+    static final long DAY_SECONDS = 86400L;
+    static final long WEEK_SECONDS = 7 * DAY_SECONDS;
+
+    /**
+     * KEYS: hot, top:all, top:week, top:week:created, top:day, top:day:created
+     * ARGV: post id, delta, creation time, now, max posts, 1 for a new post, hot epoch, hot decay
+     * A post that is in neither the all time nor the week ranking has dropped out of the rankings, it is only
+     * added again by a rebuild, since its points are no longer known to Redis.
+     */
+    private static final String UPDATE_SCRIPT = """
+            local post = ARGV[1]
+            local created = tonumber(ARGV[3])
+            local now = tonumber(ARGV[4])
+            local cap = tonumber(ARGV[5])
+            local points = redis.call('ZSCORE', KEYS[2], post) or redis.call('ZSCORE', KEYS[3], post)
+            if not points then
+              if ARGV[6] ~= '1' then return nil end
+              points = 0
+            end
+            points = tonumber(points) + tonumber(ARGV[2])
+            local order = math.log10(math.max(math.abs(points), 1))
+            if points < 0 then order = -order end
+            redis.call('ZADD', KEYS[1], order + (created - tonumber(ARGV[7])) / tonumber(ARGV[8]), post)
+            redis.call('ZADD', KEYS[2], points, post)
+            local windows = {{3, 4, %d}, {5, 6, %d}}
+            for _, w in ipairs(windows) do
+              if created > now - w[3] then
+                redis.call('ZADD', KEYS[w[1]], points, post)
+                redis.call('ZADD', KEYS[w[2]], created, post)
+              end
+              local dropped = redis.call('ZRANGE', KEYS[w[1]], 0, -cap - 1)
+              for _, member in ipairs(dropped) do
+                redis.call('ZREM', KEYS[w[1]], member)
+                redis.call('ZREM', KEYS[w[2]], member)
+              end
+            end
+            redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -cap - 1)
+            redis.call('ZREMRANGEBYRANK', KEYS[2], 0, -cap - 1)
+            return tostring(points)
+            """.formatted(WEEK_SECONDS, DAY_SECONDS);
+
+    /**
+     * KEYS: ranking, creation times of its posts
+     * ARGV: the creation time before which posts are dropped
+     */
+    private static final String TRIM_SCRIPT = """
+            local stale = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', '(' .. ARGV[1])
+            for _, member in ipairs(stale) do
+              redis.call('ZREM', KEYS[1], member)
+              redis.call('ZREM', KEYS[2], member)
+            end
+            return #stale
+            """;
+
+    private final PostRepository postRepository;
+    private final JedisPooled jedis;
+    private final int maxRankedPosts;
+
+    public PostRankingService(PostRepository postRepository,
+                              JedisPooled jedis,
+                              @Value("${postapp.post_ranking.max_posts:1000}") int maxRankedPosts) {
+        this.postRepository = postRepository;
+        this.jedis = jedis;
+        this.maxRankedPosts = maxRankedPosts;
+    }
+
+    /**
+     * Adds a new post to the rankings of its community once the current transaction commits.
+     */
+    public void onPostCreated(Long communityId, Long postId, LocalDateTime createdAt) {
+        afterCommit(() -> update(communityId, postId, createdAt, 0, true));
+    }
+
+    /**
+     * Changes the points of a post by the change of the score of a vote once the current transaction commits.
+     */
+    public void onPostLiked(Long communityId, Long postId, LocalDateTime createdAt, long delta) {
+        afterCommit(() -> update(communityId, postId, createdAt, delta, false));
+    }
+
+    /**
+     * Adds the point of a new comment to its post once the current transaction commits.
+     */
+    public void onPostCommented(Long communityId, Long postId, LocalDateTime createdAt) {
+        onPostCommented(communityId, postId, createdAt, 1);
+    }
+
+    /**
+     * Adds the points of a batch of new comments to their post with one update once the current transaction commits.
+     */
+    public void onPostCommented(Long communityId, Long postId, LocalDateTime createdAt, long count) {
+        afterCommit(() -> update(communityId, postId, createdAt, count, false));
+    }
+
+    /**
+     * Drops a deleted or replaced post from the rankings of its community once the current transaction commits.
+     */
+    public void onPostRemoved(Long communityId, Long postId) {
+        afterCommit(() -> {
+            try {
+                String member = postId.toString();
+                for (String key : keys(communityId)) {
+                    jedis.zrem(key, member);
+                }
+            } catch (Exception e) {
+                log.warn("Post {} could not be removed from the rankings of community {}: {}", postId, communityId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Returns the IDs of the posts at the given positions of a ranking, best first.
+     * The rankings of a community that was never seeded are rebuilt from MySQL first.
+     * @param communityId The ID of the community.
+     * @param sort The ranking, it must not be {@link PostFeedSort#NEW}.
+     * @param offset The position of the first post.
+     * @param count The maximum number of posts.
+     * @return The IDs of the posts, fewer than count at the end of the ranking.
+     */
+    public List<Long> getRankedPostIds(Long communityId, PostFeedSort sort, int offset, int count) {
+        if (!jedis.exists(seededKey(communityId))) rebuild(communityId);
+        String key = key(communityId, sort.getRankingKey());
+        long now = epochSeconds(LocalDateTime.now());
+        if (sort == PostFeedSort.TOP_DAY) trim(key, now - DAY_SECONDS);
+        if (sort == PostFeedSort.TOP_WEEK) trim(key, now - WEEK_SECONDS);
+        return jedis.zrevrange(key, offset, offset + count - 1L).stream().map(Long::valueOf).toList();
+    }
+
+    /**
+     * Replaces the rankings of a community with rankings seeded from the posts in MySQL.
+     * The posts with the most points and the posts of the last week are read with one query each,
+     * each ranking is written to a temporary key and renamed over the live one.
+     * Points changed between reading MySQL and renaming are lost until the next rebuild.
+     * @param communityId The ID of the community.
+     */
+    public void rebuild(Long communityId) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, PostRankingSeed> seeds = new LinkedHashMap<>();
+        for (PostRankingSeed seed : postRepository.findTopRankingSeeds(communityId, PostServiceImpl.FEED_STATUSES, Limit.of(maxRankedPosts))) {
+            seeds.put(seed.getId(), seed);
+        }
+        for (PostRankingSeed seed : postRepository.findRankingSeedsCreatedSince(communityId, PostServiceImpl.FEED_STATUSES, now.minusWeeks(1), Limit.of(maxRankedPosts))) {
+            seeds.put(seed.getId(), seed);
+        }
+        long nowSeconds = epochSeconds(now);
+        Map<String, Map<String, Double>> rankings = new HashMap<>();
+        for (String key : keys(communityId)) {
+            rankings.put(key, new HashMap<>());
+        }
+        for (PostRankingSeed seed : seeds.values()) {
+            String member = seed.getId().toString();
+            long created = epochSeconds(seed.getCreatedAt());
+            double points = seed.getPoints();
+            rankings.get(key(communityId, "hot")).put(member, hotScore(points, created));
+            rankings.get(key(communityId, "top:all")).put(member, points);
+            if (created > nowSeconds - WEEK_SECONDS) {
+                rankings.get(key(communityId, "top:week")).put(member, points);
+                rankings.get(key(communityId, "top:week:created")).put(member, (double) created);
+            }
+            if (created > nowSeconds - DAY_SECONDS) {
+                rankings.get(key(communityId, "top:day")).put(member, points);
+                rankings.get(key(communityId, "top:day:created")).put(member, (double) created);
+            }
+        }
+        for (Map.Entry<String, Map<String, Double>> ranking : rankings.entrySet()) {
+            replace(ranking.getKey(), ranking.getValue());
+        }
+        jedis.zremrangeByRank(key(communityId, "hot"), 0, -maxRankedPosts - 1L);
+        jedis.set(seededKey(communityId), Long.toString(nowSeconds));
+    }
+
+    static double hotScore(double points, long createdEpochSeconds) {
+        double order = Math.log10(Math.max(Math.abs(points), 1));
+        return Math.signum(points) * order + (double) (createdEpochSeconds - HOT_EPOCH_SECONDS) / HOT_DECAY_SECONDS;
+    }
+
+    private void update(Long communityId, Long postId, LocalDateTime createdAt, long delta, boolean isNew) {
+        try {
+            List<String> keys = keys(communityId);
+            List<String> args = List.of(postId.toString(), Long.toString(delta), Long.toString(epochSeconds(createdAt)),
+                    Long.toString(epochSeconds(LocalDateTime.now())), Integer.toString(maxRankedPosts), isNew ? "1" : "0",
+                    Long.toString(HOT_EPOCH_SECONDS), Long.toString(HOT_DECAY_SECONDS));
+            jedis.eval(UPDATE_SCRIPT, keys, args);
+        } catch (Exception e) {
+            log.warn("Rankings of post {} in community {} could not be updated: {}", postId, communityId, e.getMessage());
+        }
+    }
+
+    private void trim(String key, long cutoff) {
+        jedis.eval(TRIM_SCRIPT, List.of(key, key + ":created"), List.of(Long.toString(cutoff)));
+    }
+
+    private void replace(String key, Map<String, Double> scores) {
+        if (scores.isEmpty()) {
+            jedis.del(key);
+            return;
+        }
+        String temporaryKey = key + ":rebuild";
+        jedis.del(temporaryKey);
+        jedis.zadd(temporaryKey, scores);
+        jedis.rename(temporaryKey, key);
+    }
+
+    private List<String> keys(Long communityId) {
+        List<String> keys = new ArrayList<>();
+        for (String suffix : List.of("hot", "top:all", "top:week", "top:week:created", "top:day", "top:day:created")) {
+            keys.add(key(communityId, suffix));
+        }
+        return keys;
+    }
+
+    private String key(Long communityId, String suffix) {
+        return KEY_PREFIX + communityId + ":" + suffix;
+    }
+
+    private String seededKey(Long communityId) {
+        return KEY_PREFIX + communityId + ":seeded";
+    }
+
+    private long epochSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
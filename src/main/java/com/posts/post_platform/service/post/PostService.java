@@ -2,9 +2,13 @@ package com.posts.post_platform.service.post;
 
 import com.posts.post_platform.dto.PostDto;
 import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.PostFeedSort;
 import com.posts.post_platform.model.User;
+import com.posts.post_platform.model.Vote;
 import com.posts.post_platform.requests.UpdatePostRequest;
+import com.posts.post_platform.response.PostPageResponse;
 import com.posts.post_platform.response.PostResponse;
+import com.posts.post_platform.security.JwtUserDetails;
 
 import java.util.List;
 
@@ -13,13 +17,19 @@ public interface PostService {
 
     PostResponse getPostById(Long postId);
 
-    List<PostResponse> getPostsByCommunity(String communityName, String username);
+    PostPageResponse getPostsByCommunity(String communityName, JwtUserDetails principal, PostFeedSort sort, String cursor, int size);
 
-    List<PostResponse> getPostsByCommunityId(Long communityId, String username);
+    PostPageResponse getPostsByCommunityId(Long communityId, JwtUserDetails principal, PostFeedSort sort, String cursor, int size);
 
-    List<PostResponse> getPostsByUsername(String username, String u_name);
+    PostPageResponse getPostsByUsername(String username, JwtUserDetails viewer, String cursor, int size);
 
     PostResponse updatePost(Long postId, UpdatePostRequest updatePostRequest, String username);
 
     PostResponse deletePost(Long postId, String username);
+
+    PostResponse likePost(Long postId, JwtUserDetails principal);
+
+    PostResponse unlikePost(Long postId, JwtUserDetails principal);
+
+    PostResponse votePost(Long postId, Vote vote, JwtUserDetails principal);
 }
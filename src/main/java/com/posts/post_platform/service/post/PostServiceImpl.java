@@ -1,140 +1,182 @@
 package com.posts.post_platform.service.post;
 
+import com.posts.post_platform.dto.CommunitySummary;
 import com.posts.post_platform.dto.PostDto;
+import com.posts.post_platform.dto.PostFeedEntry;
 import com.posts.post_platform.mapper.PostMapper;
 import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommunityRole;
 import com.posts.post_platform.model.Post;
+import com.posts.post_platform.model.PostFeedSort;
 import com.posts.post_platform.model.Status;
 import com.posts.post_platform.model.User;
-import com.posts.post_platform.repository.CommunityRepository;
+import com.posts.post_platform.model.Vote;
 import com.posts.post_platform.repository.PostRepository;
 import com.posts.post_platform.repository.UserRepositories;
 import com.posts.post_platform.requests.UpdatePostRequest;
+import com.posts.post_platform.response.PostPageResponse;
 import com.posts.post_platform.response.PostResponse;
+import com.posts.post_platform.security.JwtUserDetails;
+import com.posts.post_platform.service.community.CommunityCache;
+import com.posts.post_platform.service.community.CommunityRoleResolver;
+import com.posts.post_platform.service.timeline.HomeTimelineService;
+import com.posts.post_platform.service.user.UserService;
 import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import redis.clients.jedis.exceptions.JedisException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
 @Service
 public class PostServiceImpl implements PostService{
+    static final int MAX_FEED_PAGE_SIZE = 100;
+    private static final Logger log = LoggerFactory.getLogger(PostServiceImpl.class);
+    static final List<Status> FEED_STATUSES = List.of(Status.ACTIVE, Status.PENDING);
 
-    private final CommunityRepository communityRepository;
+    private final CommunityCache communityCache;
     private final UserRepositories userRepositories;
     private final PostRepository postRepository;
     private final PostMapper postMapper;
+    private final CommunityRoleResolver communityRoleResolver;
+    private final UserService userService;
+    private final PostRankingService postRankingService;
+    private final HomeTimelineService homeTimelineService;
+    private final PostVoteCounter postVoteCounter;
 
-    public PostServiceImpl(CommunityRepository communityRepository,
+    public PostServiceImpl(CommunityCache communityCache,
                             UserRepositories userRepositories,
                             PostRepository postRepository,
-                            PostMapper postMapper) {
-        this.communityRepository = communityRepository;
+                            PostMapper postMapper,
+                            CommunityRoleResolver communityRoleResolver,
+                            UserService userService,
+                            PostRankingService postRankingService,
+                            HomeTimelineService homeTimelineService,
+                            PostVoteCounter postVoteCounter) {
+        this.communityCache = communityCache;
         this.userRepositories = userRepositories;
         this.postRepository = postRepository;
         this.postMapper = postMapper;
+        this.communityRoleResolver = communityRoleResolver;
+        this.userService = userService;
+        this.postRankingService = postRankingService;
+        this.homeTimelineService = homeTimelineService;
+        this.postVoteCounter = postVoteCounter;
     }
 
     /**
      * This service manages all post-related operations including creating, retrieving, updating, and deleting posts.
      * - `createPost`: Creates a new post in the specified community by the user.
      * - `getPostById`: Retrieves a post by its ID.
-     * - `getPostsByCommunity`: Retrieves all posts from a specific community based on its name, checking access levels.
-     * - `getPostsByCommunityId`: Retrieves all posts from a community by its ID, checking user access.
-     * - `getPostsByUsername`: Retrieves all posts created by a specific user, filtered by access level (public/private).
+     * - `getPostsByCommunity`: Retrieves a page of the feed of a specific community based on its name, checking access levels.
+     *   Access to private communities is answered by the community role resolver.
+     *   The feed is either the newest or most recently commented posts from MySQL or a "hot" or "top" ranking kept in Redis by the PostRankingService.
+     * - `getPostsByCommunityId`: Retrieves a page of the feed of a community by its ID, checking user access.
+     * - `getPostsByUsername`: Retrieves a page of the posts created by a specific user, filtered by access level (public/private) in the query.
      * - `updatePost`: Updates the post if the current user is the creator of the post, ensuring proper handling of public and private posts.
      * - `deletePost`: Soft-deletes the post by setting its content and title to null and changing the status to DELETED.
+     * - `likePost` / `unlikePost` / `votePost`: Sets the up, down or no vote of the user in the post_votes ledger, the
+     *   like and dislike counts are changed by the difference, buffered by the PostVoteCounter and flushed in batches.
      */
 
     @Override
     @Transactional
     public PostResponse createPost(Community community, PostDto postDto, User user) {
        Post post = postRepository.save(postMapper.convertPostDtoToPostModel(postDto, Status.ACTIVE.name(), user, community));
+       postRankingService.onPostCreated(community.getId(), post.getId(), post.getCreatedAt());
+       homeTimelineService.onPostCreated(community.getId(), post.getId(), post.getCreatedAt());
        return postMapper.convertPostToPostResponse(post);
     }
 
     @Override
     public PostResponse getPostById(Long postId) {
         Optional<Post> optionalPost = postRepository.findById(postId);
-        if (optionalPost.isPresent()) return postMapper.convertPostToPostResponse(optionalPost.get());
+        if (optionalPost.isPresent()) return withPendingVotes(postMapper.convertPostToPostResponse(optionalPost.get()));
         throw new IllegalArgumentException("Post not found with id : " + postId);
     }
 
+    /**
+     * Retrieves one page of the feed of a community, identified by its name, in the requested order.
+     *
+     * @param communityName the name of the community
+     * @param principal the authenticated user, who has to be a member or moderator of a private community
+     * @param sort newest first, or one of the hot and top rankings
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of posts in the page, capped at {@value #MAX_FEED_PAGE_SIZE}
+     * @return the page of posts with the cursor of the next page, which is null on the last page
+     * @throws IllegalArgumentException if the community does not exist, the user may not read it or the cursor is invalid
+     */
     @Override
-    public List<PostResponse> getPostsByCommunity(String communityName, String username) {
-        Optional<Community> optionalCommunity = communityRepository.findByCommunityName(communityName);
-        Optional<User> optionalUser = userRepositories.findUserByUsername(username);
-        if (optionalCommunity.isPresent()) {
-            Community community = optionalCommunity.get();
-            if(optionalUser.isPresent()) {
-                // first we need to check community whether it is private or not
-                if (community.getAccess_level().name().equalsIgnoreCase("private")) {
-                    boolean isMember = community.getApprovedUsers().stream().anyMatch(member -> member.getUsername().equals(username));
-                    boolean isModerator = community.getModerators().stream().anyMatch(moderator -> moderator.getUsername().equals(username));
-                    if (isMember || isModerator) {
-                        List<Post> posts = community.getPosts();
-                        return posts.stream().map(postMapper::convertPostToPostResponse).toList();
-                    } else {
-                        throw new IllegalArgumentException("You are not a member or moderator");
-                    }
-                } else {
-                    List<Post> posts = community.getPosts();
-                    return posts.stream().map(postMapper::convertPostToPostResponse).toList();
-                }
-            } else {
-                throw new IllegalArgumentException("User not found with username : " + username);
-            }
-        } else {
-            throw new IllegalArgumentException("Community not found with community name " + communityName);
+    public PostPageResponse getPostsByCommunity(String communityName, JwtUserDetails principal, PostFeedSort sort, String cursor, int size) {
+        CommunitySummary community = communityCache.findByName(communityName)
+                .orElseThrow(() -> new IllegalArgumentException("Community not found with community name " + communityName));
+        if (principal == null) throw new IllegalArgumentException("User is not authenticated");
+        // first we need to check community whether it is private or not
+        if (community.isPrivate() && !communityRoleResolver.hasAnyRole(community.getId(), userService.getUserId(principal), CommunityRole.MEMBER, CommunityRole.MODERATOR)) {
+            throw new IllegalArgumentException("You are not a member or moderator");
         }
+        return getCommunityFeed(community, sort, cursor, size);
     }
 
+    /**
+     * Retrieves one page of the feed of a community, identified by its ID, in the requested order.
+     *
+     * @param communityId the ID of the community
+     * @param principal the authenticated user, who has to be a member or moderator of a private community
+     * @param sort newest first, or one of the hot and top rankings
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of posts in the page, capped at {@value #MAX_FEED_PAGE_SIZE}
+     * @return the page of posts with the cursor of the next page, which is null on the last page
+     * @throws IllegalArgumentException if the community does not exist, the user may not read it or the cursor is invalid
+     */
     @Override
-    public List<PostResponse> getPostsByCommunityId(Long communityId, String username) {
-        Optional<Community> optionalCommunity = communityRepository.findById(communityId);
-        Optional<User> optionalUser = userRepositories.findUserByUsername(username);
-        if (optionalCommunity.isPresent()) {
-            Community community = optionalCommunity.get();
-            if (optionalUser.isPresent()) {
-                if (community.getAccess_level().name().equalsIgnoreCase("private")) {
-                    boolean isMember = community.getApprovedUsers().stream().anyMatch(member -> member.getUsername().equals(username));
-                    boolean isModerator = community.getModerators().stream().anyMatch(mod -> mod.getUsername().equals(username));
-                    if (isMember || isModerator) {
-                        List<Post> posts = postRepository.findAllPostsByCommunityId(communityId);
-                        return posts.stream().map(postMapper::convertPostToPostResponse).toList();
-                    } else {
-                        throw new IllegalArgumentException("You can not access posts, you are not a member or moderator");
-                    }
-                } else {
-                    List<Post> posts = postRepository.findAllPostsByCommunityId(communityId);
-                    return posts.stream().map(postMapper::convertPostToPostResponse).toList();
-                }
-            }
-            throw new IllegalArgumentException("User not found with username : " + username);
+    public PostPageResponse getPostsByCommunityId(Long communityId, JwtUserDetails principal, PostFeedSort sort, String cursor, int size) {
+        CommunitySummary community = communityCache.findById(communityId)
+                .orElseThrow(() -> new IllegalArgumentException("Community not found with community id : " + communityId));
+        if (principal == null) throw new IllegalArgumentException("User is not authenticated");
+        if (community.isPrivate() && !communityRoleResolver.hasAnyRole(communityId, userService.getUserId(principal), CommunityRole.MEMBER, CommunityRole.MODERATOR)) {
+            throw new IllegalArgumentException("You can not access posts, you are not a member or moderator");
         }
-        throw new IllegalArgumentException("Community not found with community id : " + communityId);
+        return getCommunityFeed(community, sort, cursor, size);
     }
 
+    /**
+     * Retrieves one page of the posts written by a user, newest first, as far as the viewer may see them.
+     * Posts of public communities are visible to everyone, active posts of private communities only to their members.
+     *
+     * @param username the username of the author
+     * @param viewer the authenticated user, or null for an anonymous viewer
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of posts in the page, capped at {@value #MAX_FEED_PAGE_SIZE}
+     * @return the page of posts with the cursor of the next page, which is null on the last page
+     * @throws IllegalArgumentException if the user does not exist or the cursor is invalid
+     */
     @Override
-    public List<PostResponse> getPostsByUsername(String username, String u_name) {
-        // u_name is going to be person that logged in.
-        Optional<User> optionalUser = userRepositories.findUserByUsername(username);
-        if (optionalUser.isPresent()) {
-            List<Post> posts = optionalUser.get().getPosts();
-            List<Post> filteredPublicPosts = posts.stream()
-                    .filter(post -> post.getCommunity().getAccess_level().name().equalsIgnoreCase("public")).toList();
-            if (u_name != null) {
-                List<Post> filteredPrivatePosts = posts.stream()
-                        .filter(post -> post.getCommunity().getAccess_level().name().equalsIgnoreCase("private")
-                                && post.getCommunity().isAccess(u_name) && post.getStatus().name().equalsIgnoreCase("active")).toList();
-                List<Post> combinedPosts = Stream.concat(filteredPrivatePosts.stream(), filteredPublicPosts.stream())
-                        .toList();
-                return combinedPosts.stream().map(postMapper::convertPostToPostResponse).toList();
-            }
-            return filteredPublicPosts.stream().map(postMapper::convertPostToPostResponse).toList();
+    public PostPageResponse getPostsByUsername(String username, JwtUserDetails viewer, String cursor, int size) {
+        // viewer is going to be person that logged in.
+        Long userId = userRepositories.findIdByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with username : " + username));
+        Long viewerId = viewer != null ? userService.getUserId(viewer) : null;
+        int pageSize = Math.min(Math.max(size, 1), MAX_FEED_PAGE_SIZE);
+        List<PostFeedEntry> entries;
+        if (cursor == null) {
+            entries = postRepository.findUserPosts(userId, viewerId, Limit.of(pageSize));
+        } else {
+            FeedPosition position = decodeFeedCursor(cursor);
+            entries = postRepository.findUserPostsBefore(userId, viewerId, position.time(), position.id(), Limit.of(pageSize));
         }
-        throw new IllegalArgumentException("User not found with username : " + username);
+        return toPage(entries, pageSize, entry -> withPendingVotes(postMapper.convertFeedEntryToPostResponse(entry)));
     }
 
     @Override
@@ -151,6 +193,8 @@ public class PostServiceImpl implements PostService{
                     updatedPost = postRepository.save(postMapper.copyPostForUpdated(updatePostRequest, post));
                     post.setStatus(Status.INACTIVE);
                     postRepository.save(post);
+                    postRankingService.onPostRemoved(post.getCommunity().getId(), post.getId());
+                    postRankingService.onPostCreated(updatedPost.getCommunity().getId(), updatedPost.getId(), updatedPost.getCreatedAt());
                 }
                 return postMapper.convertPostToPostResponse(updatedPost);
             }
@@ -169,10 +213,212 @@ public class PostServiceImpl implements PostService{
                 post.setTitle(null);
                 post.setStatus(Status.DELETED);
                 postRepository.save(post);
+                postRankingService.onPostRemoved(post.getCommunity().getId(), post.getId());
                 return postMapper.convertPostToPostResponse(post);
             }
         }
         throw new IllegalArgumentException("Post not found with id : " + postId);
     }
 
+    /**
+     * Up votes a post for the authenticated user, liking a post twice has no further effect.
+     *
+     * @param postId the ID of the post
+     * @param principal the authenticated user, who has to be a member or moderator of a private community
+     * @return the post with its vote counts including the changes that are not flushed yet
+     * @throws IllegalArgumentException if the post does not exist or the user may not read it
+     */
+    @Override
+    @Transactional
+    public PostResponse likePost(Long postId, JwtUserDetails principal) {
+        return changeVote(postId, principal, Vote.UP);
+    }
+
+    /**
+     * Removes the vote of the authenticated user from a post, unliking a post without a vote has no effect.
+     *
+     * @param postId the ID of the post
+     * @param principal the authenticated user, who has to be a member or moderator of a private community
+     * @return the post with its vote counts including the changes that are not flushed yet
+     * @throws IllegalArgumentException if the post does not exist or the user may not read it
+     */
+    @Override
+    @Transactional
+    public PostResponse unlikePost(Long postId, JwtUserDetails principal) {
+        return changeVote(postId, principal, Vote.NONE);
+    }
+
+    /**
+     * Sets the vote of the authenticated user on a post to up, down or none.
+     *
+     * @param postId the ID of the post
+     * @param vote the new vote of the user
+     * @param principal the authenticated user, who has to be a member or moderator of a private community
+     * @return the post with its vote counts including the changes that are not flushed yet
+     * @throws IllegalArgumentException if the post does not exist or the user may not read it
+     */
+    @Override
+    @Transactional
+    public PostResponse votePost(Long postId, Vote vote, JwtUserDetails principal) {
+        return changeVote(postId, principal, vote);
+    }
+
+    /**
+     * The ledger row of the voter is the only row written in the transaction, the counts of the post are changed by
+     * the PostVoteCounter after the commit, so concurrent votes on the same post do not lock its row.
+     */
+    private PostResponse changeVote(Long postId, JwtUserDetails principal, Vote vote) {
+        if (principal == null) throw new IllegalArgumentException("User is not authenticated");
+        Post post = postRepository.findById(postId)
+                .filter(found -> FEED_STATUSES.contains(found.getStatus()))
+                .orElseThrow(() -> new IllegalArgumentException("Post not found with id : " + postId));
+        Long userId = userService.getUserId(principal);
+        Long communityId = post.getCommunity().getId();
+        if (post.getCommunity().isPrivate() && !communityRoleResolver.hasAnyRole(communityId, userId, CommunityRole.MEMBER, CommunityRole.MODERATOR)) {
+            throw new IllegalArgumentException("You are not a member or moderator");
+        }
+        Vote previous = postVoteCounter.vote(postId, userId, vote);
+        PostResponse response = withPendingVotes(postMapper.convertPostToPostResponse(post));
+        if (previous == vote) return response;
+        postRankingService.onPostLiked(communityId, postId, post.getCreatedAt(), vote.getValue() - previous.getValue());
+        // the change of this vote is buffered once the transaction commits
+        response.setLikeCount(response.getLikeCount() + vote.ups() - previous.ups());
+        response.setDislikeCount(response.getDislikeCount() + vote.downs() - previous.downs());
+        return response;
+    }
+
+    private PostResponse withPendingVotes(PostResponse response) {
+        response.setLikeCount(response.getLikeCount() + postVoteCounter.getPendingUps(response.getPost_id()));
+        response.setDislikeCount(response.getDislikeCount() + postVoteCounter.getPendingDowns(response.getPost_id()));
+        return response;
+    }
+
+    /**
+     * Reads the page with keyset pagination on (created_at, id), deleted and inactive posts are filtered out by the query.
+     * The creator usernames are joined by the same query and the community name is taken from the summary,
+     * so no entities are loaded for the page.
+     */
+    private PostPageResponse getCommunityFeed(CommunitySummary community, PostFeedSort sort, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_FEED_PAGE_SIZE);
+        if (sort.isRanked()) {
+            try {
+                return getRankedFeed(community, sort, cursor, pageSize);
+            } catch (JedisException e) {
+                if (cursor != null) throw new IllegalArgumentException("Rankings are not available");
+                log.warn("Rankings of community {} are not available, serving the newest posts: {}", community.getId(), e.getMessage());
+            }
+        }
+        if (sort == PostFeedSort.ACTIVE) return getActiveFeed(community, cursor, pageSize);
+        List<PostFeedEntry> entries;
+        if (cursor == null) {
+            entries = postRepository.findCommunityFeed(community.getId(), FEED_STATUSES, Limit.of(pageSize));
+        } else {
+            FeedPosition position = decodeFeedCursor(cursor);
+            entries = postRepository.findCommunityFeedBefore(community.getId(), FEED_STATUSES, position.time(), position.id(), Limit.of(pageSize));
+        }
+        return toPage(entries, pageSize, entry -> withPendingVotes(postMapper.convertFeedEntryToPostResponse(entry, community.getCommunityName())));
+    }
+
+    /**
+     * Reads the page with keyset pagination on (last_activity_at, id), the last activity time is kept on the post,
+     * so the comments table is not read.
+     */
+    private PostPageResponse getActiveFeed(CommunitySummary community, String cursor, int pageSize) {
+        List<PostFeedEntry> entries;
+        if (cursor == null) {
+            entries = postRepository.findCommunityFeedByActivity(community.getId(), FEED_STATUSES, Limit.of(pageSize));
+        } else {
+            FeedPosition position = decodeActivityCursor(cursor);
+            entries = postRepository.findCommunityFeedByActivityBefore(community.getId(), FEED_STATUSES, position.time(), position.id(), Limit.of(pageSize));
+        }
+        String nextCursor = entries.size() < pageSize ? null : encodeActivityCursor(entries.get(entries.size() - 1));
+        return PostPageResponse.builder()
+                .posts(entries.stream().map(entry -> withPendingVotes(postMapper.convertFeedEntryToPostResponse(entry, community.getCommunityName()))).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Reads the post IDs of the page from the Redis ranking and hydrates them with one query, keeping the ranking order.
+     * Posts deleted since they were ranked are left out of the page.
+     */
+    private PostPageResponse getRankedFeed(CommunitySummary community, PostFeedSort sort, String cursor, int pageSize) {
+        int offset = cursor == null ? 0 : decodeRankingCursor(cursor, sort);
+        List<Long> postIds = postRankingService.getRankedPostIds(community.getId(), sort, offset, pageSize);
+        Map<Long, PostFeedEntry> entries = new HashMap<>();
+        if (!postIds.isEmpty()) {
+            for (PostFeedEntry entry : postRepository.findFeedEntriesByIds(postIds, FEED_STATUSES)) {
+                entries.put(entry.getId(), entry);
+            }
+        }
+        List<PostResponse> posts = postIds.stream()
+                .map(entries::get)
+                .filter(Objects::nonNull)
+                .map(entry -> withPendingVotes(postMapper.convertFeedEntryToPostResponse(entry, community.getCommunityName())))
+                .toList();
+        String nextCursor = postIds.size() < pageSize ? null : encodeRankingCursor(sort, offset + pageSize);
+        return PostPageResponse.builder()
+                .posts(posts)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private PostPageResponse toPage(List<PostFeedEntry> entries, int pageSize, Function<PostFeedEntry, PostResponse> converter) {
+        String nextCursor = entries.size() < pageSize ? null : encodeFeedCursor(entries.get(entries.size() - 1));
+        return PostPageResponse.builder()
+                .posts(entries.stream().map(converter).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private String encodeFeedCursor(PostFeedEntry last) {
+        String position = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String encodeActivityCursor(PostFeedEntry last) {
+        String position = "active|" + last.getLastActivityAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String encodeRankingCursor(PostFeedSort sort, int offset) {
+        String position = sort.getRankingKey() + "|" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int decodeRankingCursor(String cursor, PostFeedSort sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length == 2 && parts[0].equals(sort.getRankingKey())) {
+                int offset = Integer.parseInt(parts[1]);
+                if (offset >= 0) return offset;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // reported below as an invalid cursor
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private FeedPosition decodeFeedCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length == 2) return new FeedPosition(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException ignored) {
+            // reported below as an invalid cursor
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private FeedPosition decodeActivityCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length == 3 && parts[0].equals("active")) return new FeedPosition(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException ignored) {
+            // reported below as an invalid cursor
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private record FeedPosition(LocalDateTime time, Long id) {
+    }
 }
@@ -0,0 +1,62 @@
+package com.posts.post_platform.service.post;
+
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.service.vote.VoteCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The votes on posts, recorded in post_votes and counted in the like_count and dislike_count columns of posts.
+ * Counts that were buffered when the node stopped without a flush are missing from the columns, the ledger still
+ * holds every vote.
+ */
+@Service
+public class PostVoteCounter extends VoteCounter {
+    private final PostRepository postRepository;
+
+    public PostVoteCounter(PostRepository postRepository,
+                           @Value("${postapp.votes.cache_ttl_seconds:60}") long cacheTtlSeconds,
+                           @Value("${postapp.votes.cache_size:10000}") int cacheSize) {
+        super(cacheTtlSeconds, cacheSize);
+        this.postRepository = postRepository;
+    }
+
+    @Override
+    public List<Object[]> findVotes(Long postId) {
+        return postRepository.findVotes(postId);
+    }
+
+    @Override
+    public Optional<Integer> findVoteForUpdate(Long postId, Long userId) {
+        return postRepository.findVoteForUpdate(postId, userId);
+    }
+
+    @Override
+    public int insertVote(Long postId, Long userId, int vote) {
+        return postRepository.insertVote(postId, userId, vote);
+    }
+
+    @Override
+    public int updateVote(Long postId, Long userId, int expected, int vote) {
+        return postRepository.updateVote(postId, userId, expected, vote);
+    }
+
+    @Override
+    public int deleteVote(Long postId, Long userId, int expected) {
+        return postRepository.deleteVote(postId, userId, expected);
+    }
+
+    @Override
+    protected void addUpCounts(long delta, Collection<Long> postIds) {
+        postRepository.addLikeCounts(delta, postIds);
+    }
+
+    @Override
+    protected void addDownCounts(long delta, Collection<Long> postIds) {
+        postRepository.addDislikeCounts(delta, postIds);
+    }
+}
@@ -0,0 +1,369 @@
+package com.posts.post_platform.service.timeline;
+
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.dto.PostFeedEntry;
+import com.posts.post_platform.mapper.PostMapper;
+import com.posts.post_platform.model.Status;
+import com.posts.post_platform.repository.CommunityRepository;
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.response.PostPageResponse;
+import com.posts.post_platform.response.PostResponse;
+import com.posts.post_platform.service.community.CommunityCache;
+import com.posts.post_platform.service.post.PostVoteCounter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.PipelineBase;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.resps.Tuple;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the home timeline of a user from the posts of all communities the user joined.
+ * Every community keeps the IDs of its newest posts in a Redis sorted set scored by creation time.
+ * Posts of communities with at most the configured number of members are fanned out on write into a bounded sorted set
+ * per user, posts of larger communities are merged on read from the sorted set of the community, so a post in a huge
+ * community costs one write instead of one per member. A page of the timeline is a k-way merge of the user's timeline
+ * and the streams of the large communities, hydrated with one query.
+ * Timelines are only written while they exist, a timeline is built from the streams of the small communities on
+ * its first read and expires when it is not read, so inactive users cost nothing on write.
+ */
+@Service
+public class HomeTimelineService {
+    private static final Logger log = LoggerFactory.getLogger(HomeTimelineService.class);
+    static final String TIMELINE_KEY_PREFIX = "home_timeline:";
+    static final String STREAM_KEY_PREFIX = "community_posts:";
+    static final int MAX_PAGE_SIZE = 100;
+    private static final int FAN_OUT_BATCH_SIZE = 500;
+    private static final List<Status> TIMELINE_STATUSES = List.of(Status.ACTIVE, Status.PENDING);
+    private static final String FAN_OUT_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1]) " +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -tonumber(ARGV[3]) - 1) end return nil";
+
+    private final CommunityRepository communityRepository;
+    private final PostRepository postRepository;
+    private final CommunityCache communityCache;
+    private final PostMapper postMapper;
+    private final PostVoteCounter postVoteCounter;
+    private final JedisPooled jedis;
+    private final int fanOutThreshold;
+    private final int maxTimelineSize;
+    private final int maxStreamSize;
+    private final long timelineTtlSeconds;
+    private final ThreadPoolExecutor fanOutExecutor;
+
+    public HomeTimelineService(CommunityRepository communityRepository,
+                               PostRepository postRepository,
+                               CommunityCache communityCache,
+                               PostMapper postMapper,
+                               PostVoteCounter postVoteCounter,
+                               JedisPooled jedis,
+                               @Value("${postapp.home_timeline.fan_out_threshold:10000}") int fanOutThreshold,
+                               @Value("${postapp.home_timeline.max_size:800}") int maxTimelineSize,
+                               @Value("${postapp.home_timeline.max_stream_size:500}") int maxStreamSize,
+                               @Value("${postapp.home_timeline.ttl_seconds:259200}") long timelineTtlSeconds,
+                               @Value("${postapp.home_timeline.fan_out_threads:2}") int fanOutThreads) {
+        this.communityRepository = communityRepository;
+        this.postRepository = postRepository;
+        this.communityCache = communityCache;
+        this.postMapper = postMapper;
+        this.postVoteCounter = postVoteCounter;
+        this.jedis = jedis;
+        this.fanOutThreshold = fanOutThreshold;
+        this.maxTimelineSize = maxTimelineSize;
+        this.maxStreamSize = maxStreamSize;
+        this.timelineTtlSeconds = timelineTtlSeconds;
+        this.fanOutExecutor = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Adds a new post to the stream of its community once the current transaction commits, and fans it out
+     * to the timelines of the members when the community is small.
+     * The fan-out never runs on the calling thread, when the fan-out pool and its queue are full the post is left out of
+     * the existing timelines, it is in the timelines built after they expire or after a membership change.
+     */
+    public void onPostCreated(Long communityId, Long postId, LocalDateTime createdAt) {
+        afterCommit(() -> {
+            try {
+                String streamKey = STREAM_KEY_PREFIX + communityId;
+                jedis.zadd(streamKey, score(createdAt), postId.toString());
+                jedis.zremrangeByRank(streamKey, 0, -maxStreamSize - 1L);
+                CommunitySummary community = communityCache.findById(communityId).orElse(null);
+                if (community != null && !isLarge(community)) {
+                    fanOutExecutor.execute(() -> fanOut(communityId, postId, createdAt));
+                }
+            } catch (RejectedExecutionException e) {
+                log.warn("Post {} was not fanned out to the members of community {}, the fan-out pool is saturated", postId, communityId);
+            } catch (Exception e) {
+                log.warn("Post {} could not be added to the timelines of community {}: {}", postId, communityId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drops the timeline of a user whose communities changed, it is built again on the next read.
+     */
+    public void onMembershipChanged(Long userId) {
+        afterCommit(() -> {
+            try {
+                jedis.del(TIMELINE_KEY_PREFIX + userId);
+            } catch (Exception e) {
+                log.warn("Home timeline of user {} could not be dropped: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of the home timeline of a user, newest posts first.
+     * @param userId The ID of the user.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param size The maximum number of posts in the page, capped at {@value #MAX_PAGE_SIZE}.
+     * @return The page of posts with the cursor of the next page, which is null on the last page.
+     * @throws IllegalArgumentException If the cursor is invalid.
+     */
+    public PostPageResponse getHomeTimeline(Long userId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        TimelinePosition before = cursor == null ? null : decodeCursor(cursor);
+        List<Long> smallCommunities = new ArrayList<>();
+        List<Long> largeCommunities = new ArrayList<>();
+        for (CommunitySummary community : communityRepository.findJoinedCommunitySummaries(userId)) {
+            (isLarge(community) ? largeCommunities : smallCommunities).add(community.getId());
+        }
+        if (smallCommunities.isEmpty() && largeCommunities.isEmpty()) return PostPageResponse.builder().posts(List.of()).build();
+        String timelineKey = TIMELINE_KEY_PREFIX + userId;
+        ensureStreams(smallCommunities, largeCommunities);
+        if (!smallCommunities.isEmpty() && !jedis.exists(timelineKey)) buildTimeline(timelineKey, smallCommunities);
+
+        List<String> keys = new ArrayList<>();
+        if (!smallCommunities.isEmpty()) keys.add(timelineKey);
+        largeCommunities.forEach(communityId -> keys.add(STREAM_KEY_PREFIX + communityId));
+        // entries with the score of the cursor are read again and skipped by the merge, a few more cover ties
+        double max = before == null ? Double.POSITIVE_INFINITY : before.score();
+        List<Response<List<Tuple>>> responses = new ArrayList<>();
+        try (PipelineBase pipeline = jedis.pipelined()) {
+            for (String key : keys) {
+                responses.add(pipeline.zrevrangeByScoreWithScores(key, max, Double.NEGATIVE_INFINITY, 0, pageSize + 10));
+            }
+            if (!smallCommunities.isEmpty()) pipeline.expire(timelineKey, timelineTtlSeconds);
+            pipeline.sync();
+        }
+        // Redis orders equal scores by member text, so each stream is put into timeline order first
+        List<List<TimelinePosition>> streams = new ArrayList<>();
+        for (Response<List<Tuple>> response : responses) {
+            streams.add(response.get().stream()
+                    .map(tuple -> new TimelinePosition(tuple.getScore(), Long.parseLong(tuple.getElement())))
+                    .sorted()
+                    .toList());
+        }
+        List<TimelinePosition> page = mergeNewestFirst(streams, before, pageSize);
+        return hydrate(page, pageSize);
+    }
+
+    /**
+     * Merges streams in timeline order into one page, newest first, with a priority queue holding the head of
+     * every stream, so a page costs O(page size * log(number of streams)) after the heads are queued.
+     * Posts before the cursor position and posts found in more than one stream are skipped.
+     */
+    static List<TimelinePosition> mergeNewestFirst(List<List<TimelinePosition>> streams, TimelinePosition before, int limit) {
+        PriorityQueue<StreamHead> heads = new PriorityQueue<>();
+        for (List<TimelinePosition> stream : streams) {
+            StreamHead head = StreamHead.first(stream, before);
+            if (head != null) heads.add(head);
+        }
+        List<TimelinePosition> page = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        while (page.size() < limit && !heads.isEmpty()) {
+            StreamHead head = heads.poll();
+            if (seen.add(head.position().postId())) page.add(head.position());
+            StreamHead next = head.next(before);
+            if (next != null) heads.add(next);
+        }
+        return page;
+    }
+
+    private PostResponse withPendingVotes(PostResponse response) {
+        response.setLikeCount(response.getLikeCount() + postVoteCounter.getPendingUps(response.getPost_id()));
+        response.setDislikeCount(response.getDislikeCount() + postVoteCounter.getPendingDowns(response.getPost_id()));
+        return response;
+    }
+
+    private PostPageResponse hydrate(List<TimelinePosition> page, int pageSize) {
+        Map<Long, PostFeedEntry> entries = new HashMap<>();
+        if (!page.isEmpty()) {
+            List<Long> postIds = page.stream().map(TimelinePosition::postId).toList();
+            for (PostFeedEntry entry : postRepository.findFeedEntriesByIds(postIds, TIMELINE_STATUSES)) {
+                entries.put(entry.getId(), entry);
+            }
+        }
+        List<PostResponse> posts = page.stream()
+                .map(position -> entries.get(position.postId()))
+                .filter(Objects::nonNull)
+                .map(postMapper::convertFeedEntryToPostResponse)
+                .map(this::withPendingVotes)
+                .toList();
+        String nextCursor = page.size() < pageSize ? null : encodeCursor(page.get(page.size() - 1));
+        return PostPageResponse.builder()
+                .posts(posts)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private void fanOut(Long communityId, Long postId, LocalDateTime createdAt) {
+        try {
+            List<String> args = List.of(postId.toString(), Double.toString(score(createdAt)), Integer.toString(maxTimelineSize));
+            Long lastId = 0L;
+            List<Long> memberIds;
+            do {
+                memberIds = communityRepository.findMemberIdsAfter(communityId, lastId, Limit.of(FAN_OUT_BATCH_SIZE));
+                if (memberIds.isEmpty()) break;
+                try (PipelineBase pipeline = jedis.pipelined()) {
+                    for (Long memberId : memberIds) {
+                        pipeline.eval(FAN_OUT_SCRIPT, List.of(TIMELINE_KEY_PREFIX + memberId), args);
+                    }
+                    pipeline.sync();
+                }
+                lastId = memberIds.get(memberIds.size() - 1);
+            } while (memberIds.size() == FAN_OUT_BATCH_SIZE);
+        } catch (Exception e) {
+            log.warn("Post {} could not be fanned out to the members of community {}: {}", postId, communityId, e.getMessage());
+        }
+    }
+
+    /**
+     * Seeds the streams of communities that were never written from their newest posts in MySQL.
+     */
+    private void ensureStreams(List<Long> smallCommunities, List<Long> largeCommunities) {
+        List<Long> communityIds = new ArrayList<>(smallCommunities);
+        communityIds.addAll(largeCommunities);
+        List<Response<Boolean>> seeded = new ArrayList<>();
+        try (PipelineBase pipeline = jedis.pipelined()) {
+            for (Long communityId : communityIds) {
+                seeded.add(pipeline.exists(STREAM_KEY_PREFIX + communityId + ":seeded"));
+            }
+            pipeline.sync();
+        }
+        for (int i = 0; i < communityIds.size(); i++) {
+            if (Boolean.TRUE.equals(seeded.get(i).get())) continue;
+            Long communityId = communityIds.get(i);
+            Map<String, Double> posts = new HashMap<>();
+            for (PostFeedEntry entry : postRepository.findCommunityFeed(communityId, TIMELINE_STATUSES, Limit.of(maxStreamSize))) {
+                posts.put(entry.getId().toString(), score(entry.getCreatedAt()));
+            }
+            if (!posts.isEmpty()) jedis.zadd(STREAM_KEY_PREFIX + communityId, posts);
+            jedis.set(STREAM_KEY_PREFIX + communityId + ":seeded", "1");
+        }
+    }
+
+    private void buildTimeline(String timelineKey, List<Long> smallCommunities) {
+        String[] streamKeys = smallCommunities.stream().map(communityId -> STREAM_KEY_PREFIX + communityId).toArray(String[]::new);
+        if (jedis.zunionstore(timelineKey, streamKeys) > 0) {
+            jedis.zremrangeByRank(timelineKey, 0, -maxTimelineSize - 1L);
+            jedis.expire(timelineKey, timelineTtlSeconds);
+        }
+    }
+
+    private boolean isLarge(CommunitySummary community) {
+        return community.getMemberCount() != null && community.getMemberCount() > fanOutThreshold;
+    }
+
+    private double score(LocalDateTime createdAt) {
+        return createdAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private String encodeCursor(TimelinePosition last) {
+        String position = (long) last.score() + "|" + last.postId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private TimelinePosition decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length == 2) return new TimelinePosition(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException ignored) {
+            // reported below as an invalid cursor
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+
+    /**
+     * A post in a timeline, ordered newest first by creation time and then by descending ID.
+     */
+    record TimelinePosition(double score, long postId) implements Comparable<TimelinePosition> {
+        @Override
+        public int compareTo(TimelinePosition other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(other.postId, postId);
+        }
+
+        boolean isAfter(TimelinePosition before) {
+            return before == null || compareTo(before) > 0;
+        }
+    }
+
+    /**
+     * The next unread entry of one stream, ordered by its position so the newest head is polled first.
+     */
+    private record StreamHead(List<TimelinePosition> stream, int index, TimelinePosition position) implements Comparable<StreamHead> {
+        static StreamHead first(List<TimelinePosition> stream, TimelinePosition before) {
+            return at(stream, 0, before);
+        }
+
+        StreamHead next(TimelinePosition before) {
+            return at(stream, index + 1, before);
+        }
+
+        private static StreamHead at(List<TimelinePosition> stream, int index, TimelinePosition before) {
+            for (int i = index; i < stream.size(); i++) {
+                if (stream.get(i).isAfter(before)) return new StreamHead(stream, i, stream.get(i));
+            }
+            return null;
+        }
+
+        @Override
+        public int compareTo(StreamHead other) {
+            return position.compareTo(other.position);
+        }
+    }
+}
@@ -13,4 +13,6 @@ public interface UserService {
     String getUsernameFromAuthentication(UserDetails userDetails);
 
     Long getUserId(String username);
+
+    Long getUserId(UserDetails userDetails);
 }
@@ -4,6 +4,7 @@ import com.posts.post_platform.exceptions.UserNotFoundException;
 import com.posts.post_platform.model.User;
 import com.posts.post_platform.repository.CommunityRepository;
 import com.posts.post_platform.repository.UserRepositories;
+import com.posts.post_platform.security.JwtUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -52,4 +53,19 @@ public class UserServiceImpl implements UserService{
         return user.getId();
     }
 
+    /**
+     * Retrieves the user ID of the authenticated principal.
+     * The principal of a request normally carries the user ID taken from the token, so no query is needed.
+     * Otherwise the user is looked up once by username and the ID is kept on the principal,
+     * which lives as long as the request, so later calls in the same request do not query again.
+     */
+    @Override
+    public Long getUserId(UserDetails userDetails) {
+        if (userDetails instanceof JwtUserDetails principal) {
+            if (principal.getId() == null) principal.setId(getUserId(principal.getUsername()));
+            return principal.getId();
+        }
+        return getUserId(userDetails.getUsername());
+    }
+
 }
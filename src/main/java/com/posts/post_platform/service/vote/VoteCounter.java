@@ -0,0 +1,145 @@
+package com.posts.post_platform.service.vote;
+
+import com.posts.post_platform.model.Vote;
+import com.posts.post_platform.service.StripedDeltaBuffer;
+import jakarta.transaction.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the votes on one kind of target in its {@link VoteLedger} and keeps its up and down vote counts.
+ * A vote only writes the ledger row of the voter, the counts are changed by the difference between the previous and
+ * the new vote, buffered in {@link StripedDeltaBuffer}s once the transaction commits and written behind the requests
+ * by {@link VoteFlushJob}, targets with the same change share one UPDATE.
+ * Counts read from MySQL plus {@link #getPendingUps(Long)} or {@link #getPendingDowns(Long)} are live up to the
+ * changes that are being written at that moment.
+ */
+public abstract class VoteCounter implements VoteLedger.Store {
+    static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final VoteLedger ledger;
+    private final StripedDeltaBuffer<Long> ups = new StripedDeltaBuffer<>();
+    private final StripedDeltaBuffer<Long> downs = new StripedDeltaBuffer<>();
+
+    protected VoteCounter(long cacheTtlSeconds, int cacheSize) {
+        this.ledger = new VoteLedger(this, cacheTtlSeconds * 1000, cacheSize);
+    }
+
+    /**
+     * Returns the vote of the user on the target.
+     * @param targetId The ID of the post or comment.
+     * @param userId The ID of the user, may be null for anonymous users.
+     */
+    public Vote getVote(Long targetId, Long userId) {
+        return ledger.getVote(targetId, userId);
+    }
+
+    /**
+     * Changes the vote of the user on the target in the current transaction,
+     * the counts are changed by the difference once the transaction commits.
+     * @param targetId The ID of the post or comment.
+     * @param userId The ID of the user.
+     * @param vote The new vote, {@link Vote#NONE} removes the vote.
+     * @return The vote of the user before the change, equal to the new vote if nothing changed.
+     */
+    public Vote vote(Long targetId, Long userId, Vote vote) {
+        Vote previous = ledger.change(targetId, userId, vote);
+        if (previous != vote) {
+            afterCommit(() -> {
+                ledger.apply(targetId, userId, vote);
+                add(targetId, vote.ups() - previous.ups(), vote.downs() - previous.downs());
+            });
+        }
+        return previous;
+    }
+
+    public long getPendingUps(Long targetId) {
+        return ups.getPendingDelta(targetId);
+    }
+
+    public long getPendingDowns(Long targetId) {
+        return downs.getPendingDelta(targetId);
+    }
+
+    /**
+     * Takes all buffered count changes, the changes made from now on are buffered for the next drain.
+     */
+    public Drained drain() {
+        return new Drained(ups.drain(), downs.drain());
+    }
+
+    /**
+     * Puts drained count changes back into the buffers, so a failed flush is retried with the next one.
+     */
+    public void restore(Drained drained) {
+        drained.ups().forEach(ups::add);
+        drained.downs().forEach(downs::add);
+    }
+
+    /**
+     * Writes drained count changes in one transaction.
+     * @param drained The changes taken by {@link #drain()}.
+     * @return The number of UPDATE statements.
+     */
+    @Transactional
+    public int flush(Drained drained) {
+        int statements = 0;
+        for (Map.Entry<Long, List<Long>> entry : StripedDeltaBuffer.groupByDelta(drained.ups()).entrySet()) {
+            statements += write(entry.getKey(), entry.getValue(), true);
+        }
+        for (Map.Entry<Long, List<Long>> entry : StripedDeltaBuffer.groupByDelta(drained.downs()).entrySet()) {
+            statements += write(entry.getKey(), entry.getValue(), false);
+        }
+        return statements;
+    }
+
+    protected abstract void addUpCounts(long delta, Collection<Long> targetIds);
+
+    protected abstract void addDownCounts(long delta, Collection<Long> targetIds);
+
+    void add(Long targetId, long upDelta, long downDelta) {
+        if (upDelta != 0) ups.add(targetId, upDelta);
+        if (downDelta != 0) downs.add(targetId, downDelta);
+    }
+
+    private int write(long delta, List<Long> targetIds, boolean up) {
+        int statements = 0;
+        for (int from = 0; from < targetIds.size(); from += FLUSH_BATCH_SIZE) {
+            Collection<Long> batch = targetIds.subList(from, Math.min(from + FLUSH_BATCH_SIZE, targetIds.size()));
+            if (up) {
+                addUpCounts(delta, batch);
+            } else {
+                addDownCounts(delta, batch);
+            }
+            statements++;
+        }
+        return statements;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public record Drained(Map<Long, Long> ups, Map<Long, Long> downs) {
+        public boolean isEmpty() {
+            return ups.isEmpty() && downs.isEmpty();
+        }
+
+        public int size() {
+            return ups.size() + downs.size();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.posts.post_platform.service.vote;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically writes the vote counts buffered by every {@link VoteCounter} to MySQL.
+ * The last flush runs when the application shuts down, before the data source the counters depend on is closed,
+ * and changes of a failed flush are buffered again and written with the next one.
+ */
+@Component
+public class VoteFlushJob {
+    private static final Logger log = LoggerFactory.getLogger(VoteFlushJob.class);
+
+    private final List<VoteCounter> voteCounters;
+
+    public VoteFlushJob(List<VoteCounter> voteCounters) {
+        this.voteCounters = voteCounters;
+    }
+
+    @Scheduled(fixedDelayString = "${postapp.votes.flush_interval_ms:1000}")
+    public synchronized void flush() {
+        for (VoteCounter voteCounter : voteCounters) {
+            VoteCounter.Drained drained = voteCounter.drain();
+            if (drained.isEmpty()) continue;
+            try {
+                voteCounter.flush(drained);
+            } catch (Exception e) {
+                log.warn("Vote counts of {} targets could not be flushed, retrying with the next flush: {}", drained.size(), e.getMessage());
+                voteCounter.restore(drained);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,132 @@
+package com.posts.post_platform.service.vote;
+
+import com.posts.post_platform.model.Vote;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers which way a user voted on a post or comment in O(1) and records vote changes in the ledger table.
+ * The voters of a target are loaded with one query and kept for a short time as two compressed bitmaps of user ids,
+ * one for up and one for down votes; expired targets are dropped once the cache is full.
+ * A change is written with a statement that only succeeds if the ledger still holds the cached vote, so the caller
+ * gets the true previous vote even when the cache of this node is stale. When it fails, the row of the voter is read
+ * with a lock and the change is written against it, only the row of the voter is ever locked. The cached vote of that
+ * voter is corrected with the locked row, the cached voters of the target are kept.
+ * The bitmaps of a target are never modified after loading, committed changes are kept in a small map in front of
+ * them until the target expires and is loaded again, so a change costs O(1) even for targets with millions of voters.
+ */
+public class VoteLedger {
+    private final Store store;
+    private final long ttlMillis;
+    private final int maxTargets;
+    private final Map<Long, Voters> targets = new ConcurrentHashMap<>();
+
+    public VoteLedger(Store store, long ttlMillis, int maxTargets) {
+        this.store = store;
+        this.ttlMillis = ttlMillis;
+        this.maxTargets = maxTargets;
+    }
+
+    /**
+     * Returns the vote of the user on the target as cached on this node.
+     * @param targetId The ID of the post or comment.
+     * @param userId The ID of the user, may be null for anonymous users.
+     * @return The vote of the user, {@link Vote#NONE} if the user did not vote.
+     */
+    public Vote getVote(Long targetId, Long userId) {
+        if (userId == null) return Vote.NONE;
+        return get(targetId).vote(userId);
+    }
+
+    /**
+     * Changes the vote of the user in the ledger in the current transaction.
+     * The cached bitmaps are not changed, {@link #apply(Long, Long, Vote)} has to be called once the transaction commits.
+     * @param targetId The ID of the post or comment.
+     * @param userId The ID of the user.
+     * @param vote The new vote, {@link Vote#NONE} removes the vote.
+     * @return The vote of the user before the change, equal to the new vote if nothing changed.
+     */
+    public Vote change(Long targetId, Long userId, Vote vote) {
+        Vote cached = getVote(targetId, userId);
+        if (cached != vote && write(targetId, userId, cached, vote)) return cached;
+        // the cached vote is stale or looks unchanged, the locked row of the voter decides and replaces only their cached vote
+        Vote previous = store.findVoteForUpdate(targetId, userId).map(Vote::of).orElse(Vote.NONE);
+        apply(targetId, userId, previous);
+        if (previous != vote && !write(targetId, userId, previous, vote)) {
+            throw new IllegalStateException("Vote could not be recorded, please try again");
+        }
+        return previous;
+    }
+
+    /**
+     * Applies a committed change to the cached bitmaps of the target, if they are cached.
+     */
+    public void apply(Long targetId, Long userId, Vote vote) {
+        targets.computeIfPresent(targetId, (id, voters) -> voters.with(userId, vote));
+    }
+
+    private boolean write(Long targetId, Long userId, Vote previous, Vote vote) {
+        if (previous == Vote.NONE) return store.insertVote(targetId, userId, vote.getValue()) == 1;
+        if (vote == Vote.NONE) return store.deleteVote(targetId, userId, previous.getValue()) == 1;
+        return store.updateVote(targetId, userId, previous.getValue(), vote.getValue()) == 1;
+    }
+
+    private Voters get(Long targetId) {
+        long now = System.currentTimeMillis();
+        Voters voters = targets.get(targetId);
+        if (voters != null && voters.expiresAt() > now) return voters;
+        if (targets.size() >= maxTargets) targets.values().removeIf(expired -> expired.expiresAt() <= now);
+        return targets.compute(targetId, (id, current) ->
+                current != null && current.expiresAt() > now ? current : load(id, now));
+    }
+
+    private Voters load(Long targetId, long now) {
+        Roaring64NavigableMap up = new Roaring64NavigableMap();
+        Roaring64NavigableMap down = new Roaring64NavigableMap();
+        for (Object[] row : store.findVotes(targetId)) {
+            long userId = ((Number) row[0]).longValue();
+            if (((Number) row[1]).intValue() > 0) up.addLong(userId);
+            else down.addLong(userId);
+        }
+        up.runOptimize();
+        down.runOptimize();
+        return new Voters(up, down, new ConcurrentHashMap<>(), now + ttlMillis);
+    }
+
+    /**
+     * The ledger table of one kind of target.
+     */
+    public interface Store {
+        /**
+         * @return The user id and vote value of every vote on the target.
+         */
+        List<Object[]> findVotes(Long targetId);
+
+        Optional<Integer> findVoteForUpdate(Long targetId, Long userId);
+
+        int insertVote(Long targetId, Long userId, int vote);
+
+        int updateVote(Long targetId, Long userId, int expected, int vote);
+
+        int deleteVote(Long targetId, Long userId, int expected);
+    }
+
+    private record Voters(Roaring64NavigableMap up, Roaring64NavigableMap down, Map<Long, Vote> changes, long expiresAt) {
+        Vote vote(long userId) {
+            Vote changed = changes.get(userId);
+            if (changed != null) return changed;
+            if (up.contains(userId)) return Vote.UP;
+            if (down.contains(userId)) return Vote.DOWN;
+            return Vote.NONE;
+        }
+
+        Voters with(Long userId, Vote vote) {
+            changes.put(userId, vote);
+            return this;
+        }
+    }
+}
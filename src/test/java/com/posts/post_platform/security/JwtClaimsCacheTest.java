@@ -0,0 +1,87 @@
+package com.posts.post_platform.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtClaimsCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtClaimsCache claimsCache;
+    private AtomicInteger parseCount;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        claimsCache = new JwtClaimsCache(2, meterRegistry);
+        parseCount = new AtomicInteger();
+    }
+
+    private Function<String, Claims> parserExpiringIn(long millis) {
+        return token -> {
+            parseCount.incrementAndGet();
+            Claims claims = new DefaultClaims();
+            claims.setSubject("user-" + token);
+            claims.setExpiration(new Date(System.currentTimeMillis() + millis));
+            return claims;
+        };
+    }
+
+    @Test
+    void getOrParse_shouldParseTokenOnlyOnce() {
+        Function<String, Claims> parser = parserExpiringIn(60_000);
+
+        Claims first = claimsCache.getOrParse("token", parser);
+        Claims second = claimsCache.getOrParse("token", parser);
+
+        assertSame(first, second);
+        assertEquals(1, parseCount.get());
+        assertEquals(1.0, meterRegistry.counter("jwt.claims.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("jwt.claims.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void getOrParse_shouldNotCacheExpiredTokens() {
+        Function<String, Claims> parser = parserExpiringIn(-1_000);
+
+        claimsCache.getOrParse("token", parser);
+        claimsCache.getOrParse("token", parser);
+
+        assertEquals(2, parseCount.get());
+        assertEquals(0, claimsCache.size());
+    }
+
+    @Test
+    void getOrParse_shouldStayWithinMaximumSize() {
+        Function<String, Claims> parser = parserExpiringIn(60_000);
+
+        claimsCache.getOrParse("a", parser);
+        claimsCache.getOrParse("b", parser);
+        claimsCache.getOrParse("c", parser);
+
+        assertEquals(2, claimsCache.size());
+        // "a" was the least recently used entry, so it has to be parsed again
+        claimsCache.getOrParse("a", parser);
+        assertEquals(4, parseCount.get());
+    }
+
+    @Test
+    void getOrParse_shouldNotCacheInvalidTokens() {
+        Function<String, Claims> parser = token -> {
+            parseCount.incrementAndGet();
+            throw new IllegalArgumentException("invalid token");
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> claimsCache.getOrParse("token", parser));
+        assertThrows(IllegalArgumentException.class, () -> claimsCache.getOrParse("token", parser));
+        assertEquals(2, parseCount.get());
+    }
+}
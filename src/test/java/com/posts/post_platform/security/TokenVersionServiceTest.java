@@ -0,0 +1,77 @@
+package com.posts.post_platform.security;
+
+import com.posts.post_platform.service.RedisMessageBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVersionServiceTest {
+
+    @Mock
+    private JedisPooled jedis;
+
+    @Mock
+    private RedisMessageBus messageBus;
+
+    private TokenVersionService tokenVersionService;
+
+    @BeforeEach
+    void setUp() {
+        tokenVersionService = new TokenVersionService(jedis, messageBus, 2);
+    }
+
+    @Test
+    void isRevoked_shouldReadVersionOnceFromRedis_whenUserIsNotCached() {
+        when(jedis.hget(TokenVersionService.TOKEN_VERSIONS_KEY, "alice")).thenReturn("3");
+
+        assertTrue(tokenVersionService.isRevoked("alice", 2));
+        assertFalse(tokenVersionService.isRevoked("alice", 3));
+        verify(jedis, times(1)).hget(TokenVersionService.TOKEN_VERSIONS_KEY, "alice");
+    }
+
+    @Test
+    void isRevoked_shouldRejectToken_whenRedisCanNotBeRead() {
+        when(jedis.hget(TokenVersionService.TOKEN_VERSIONS_KEY, "alice")).thenThrow(new JedisConnectionException("down"));
+
+        assertTrue(tokenVersionService.isRevoked("alice", 0));
+    }
+
+    @Test
+    void getCurrentVersion_shouldAlwaysReadRedis_andFailWhenItCanNotBeRead() {
+        tokenVersionService.onMessage("1:alice");
+        when(jedis.hget(TokenVersionService.TOKEN_VERSIONS_KEY, "alice")).thenReturn("2").thenThrow(new JedisConnectionException("down"));
+
+        assertEquals(2, tokenVersionService.getCurrentVersion("alice"));
+        assertThrows(JedisConnectionException.class, () -> tokenVersionService.getCurrentVersion("alice"));
+    }
+
+    @Test
+    void onSubscribed_shouldForgetCachedVersions() {
+        tokenVersionService.onMessage("1:alice");
+        when(jedis.hget(TokenVersionService.TOKEN_VERSIONS_KEY, "alice")).thenReturn("2");
+
+        tokenVersionService.onSubscribed();
+
+        assertTrue(tokenVersionService.isRevoked("alice", 1));
+    }
+
+    @Test
+    void onMessage_shouldKeepOnlyMostRecentlyUsedUsers() {
+        tokenVersionService.onMessage("1:alice");
+        tokenVersionService.onMessage("1:bob");
+        tokenVersionService.onMessage("1:carol");
+        when(jedis.hget(TokenVersionService.TOKEN_VERSIONS_KEY, "alice")).thenReturn("1");
+
+        assertTrue(tokenVersionService.isRevoked("alice", 0));
+        assertTrue(tokenVersionService.isRevoked("carol", 0));
+        verify(jedis, never()).hget(TokenVersionService.TOKEN_VERSIONS_KEY, "carol");
+    }
+}
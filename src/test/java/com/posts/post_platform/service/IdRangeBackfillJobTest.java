@@ -0,0 +1,61 @@
+package com.posts.post_platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdRangeBackfillJobTest {
+
+    @Test
+    void backfill_shouldWalkFromFirstUnfilledIdToMaxId() {
+        RecordingJob job = new RecordingJob(Optional.of(1201L), Optional.of(3500L));
+
+        job.backfill();
+
+        assertEquals(List.of(List.of(1200L, 2200L), List.of(2200L, 3200L), List.of(3200L, 3500L)), job.ranges);
+    }
+
+    @Test
+    void backfill_shouldWalkNothingWhenAllRowsAreFilled() {
+        RecordingJob job = new RecordingJob(Optional.empty(), Optional.of(3500L));
+
+        job.backfill();
+
+        assertTrue(job.ranges.isEmpty());
+        assertFalse(job.maxIdRead);
+    }
+
+    private static class RecordingJob extends IdRangeBackfillJob {
+        private final Optional<Long> firstId;
+        private final Optional<Long> maxId;
+        private final List<List<Long>> ranges = new ArrayList<>();
+        private boolean maxIdRead;
+
+        RecordingJob(Optional<Long> firstId, Optional<Long> maxId) {
+            super("rows", 1000);
+            this.firstId = firstId;
+            this.maxId = maxId;
+        }
+
+        @Override
+        protected Optional<Long> findFirstUnfilledId() {
+            return firstId;
+        }
+
+        @Override
+        protected Optional<Long> findMaxId() {
+            maxIdRead = true;
+            return maxId;
+        }
+
+        @Override
+        protected int fill(long afterId, long lastId) {
+            ranges.add(List.of(afterId, lastId));
+            return 1;
+        }
+    }
+}
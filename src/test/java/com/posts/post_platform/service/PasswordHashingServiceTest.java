@@ -0,0 +1,70 @@
+package com.posts.post_platform.service;
+
+import com.posts.post_platform.exceptions.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService passwordHashingService;
+
+    @AfterEach
+    void tearDown() {
+        if (passwordHashingService != null) passwordHashingService.shutdown();
+    }
+
+    @Test
+    void encodeAndMatches_shouldRunOnHashingPool() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(4), meterRegistry, 1, 4);
+
+        String encoded = passwordHashingService.encode("secret").get(5, TimeUnit.SECONDS);
+
+        assertTrue(passwordHashingService.matches("secret", encoded).get(5, TimeUnit.SECONDS));
+        assertFalse(passwordHashingService.matches("wrong", encoded).get(5, TimeUnit.SECONDS));
+        assertEquals(3, meterRegistry.timer("password.hashing.duration").count());
+    }
+
+    @Test
+    void encode_shouldFailFastWhenPoolIsSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        passwordHashingService = new PasswordHashingService(blockingEncoder, meterRegistry, 1, 1);
+
+        CompletableFuture<String> running = passwordHashingService.encode("first");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = passwordHashingService.encode("second");
+        assertEquals(1, passwordHashingService.getQueueDepth());
+
+        long start = System.nanoTime();
+        assertThrows(PasswordHashingRejectedException.class, () -> passwordHashingService.encode("third"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1.0, meterRegistry.counter("password.hashing.rejected").count());
+
+        release.countDown();
+        assertNotNull(running.get(5, TimeUnit.SECONDS));
+        assertNotNull(queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,62 @@
+package com.posts.post_platform.service.comment;
+
+import com.posts.post_platform.exceptions.CommentIngestionRejectedException;
+import com.posts.post_platform.repository.IdBlockRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentIdAllocatorTest {
+
+    @Mock
+    private IdBlockRepository idBlockRepository;
+
+    @Test
+    void next_shouldRejectComment_untilSpareBlockIsReserved() {
+        CommentIdAllocator allocator = new CommentIdAllocator(idBlockRepository, true, 2, 60_000, 1);
+
+        assertThrows(CommentIngestionRejectedException.class, allocator::next);
+        verifyNoInteractions(idBlockRepository);
+    }
+
+    @Test
+    void next_shouldTakeSpareBlocksWithoutReservingOnTheCallingThread() {
+        when(idBlockRepository.reserveCommentIds(2)).thenReturn(12L, 22L);
+        CommentIdAllocator allocator = new CommentIdAllocator(idBlockRepository, true, 2, 60_000, 2);
+        allocator.refill();
+
+        assertEquals(10L, allocator.next());
+        assertEquals(11L, allocator.next());
+        assertEquals(20L, allocator.next());
+        assertEquals(21L, allocator.next());
+        assertThrows(CommentIngestionRejectedException.class, allocator::next);
+        verify(idBlockRepository, times(2)).reserveCommentIds(2);
+    }
+
+    @Test
+    void refill_shouldOnlyTopUpMissingSpareBlocks() {
+        when(idBlockRepository.reserveCommentIds(2)).thenReturn(12L, 22L, 32L);
+        CommentIdAllocator allocator = new CommentIdAllocator(idBlockRepository, true, 2, 60_000, 2);
+        allocator.refill();
+        allocator.next();
+
+        allocator.refill();
+
+        verify(idBlockRepository, times(3)).reserveCommentIds(2);
+    }
+
+    @Test
+    void refill_shouldNotReserveBlocks_whenIngestionIsDisabled() {
+        CommentIdAllocator allocator = new CommentIdAllocator(idBlockRepository, false, 2, 60_000, 2);
+
+        allocator.refill();
+
+        verify(idBlockRepository, never()).reserveCommentIds(anyInt());
+    }
+}
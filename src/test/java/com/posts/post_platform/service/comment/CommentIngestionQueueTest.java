@@ -0,0 +1,147 @@
+package com.posts.post_platform.service.comment;
+
+import com.posts.post_platform.dto.CommentTreeEntry;
+import com.posts.post_platform.dto.PostCommentTarget;
+import com.posts.post_platform.exceptions.CommentIngestionRejectedException;
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.service.post.PostRankingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentIngestionQueueTest {
+
+    @Mock
+    private CommentIdAllocator commentIdAllocator;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostRankingService postRankingService;
+
+    @Mock
+    private CommentThreadCache commentThreadCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PostCommentTarget post;
+    private PostCommentTarget otherPost;
+    private long nextId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        post = new PostCommentTarget(10L, "Post", 1L, LocalDateTime.now().minusDays(1));
+        otherPost = new PostCommentTarget(11L, "Other post", 1L, LocalDateTime.now().minusDays(2));
+        nextId = 100L;
+        when(commentIdAllocator.next()).thenAnswer(invocation -> nextId++);
+    }
+
+    private CommentIngestionQueue queue(int capacity) {
+        return new CommentIngestionQueue(commentIdAllocator, jdbcTemplate, postRepository, postRankingService, commentThreadCache, meterRegistry, true, capacity);
+    }
+
+    @Test
+    void submit_shouldAssignIdsAndRejectComments_whenQueueIsFull() {
+        CommentIngestionQueue queue = queue(2);
+
+        CommentIngestionQueue.QueuedComment first = queue.submit(post, null, 5L, "testUser", "First");
+        queue.submit(post, first.id(), 5L, "testUser", "Reply");
+
+        assertEquals(100L, first.id());
+        assertThrows(CommentIngestionRejectedException.class, () -> queue.submit(post, null, 5L, "testUser", "Third"));
+        assertTrue(queue.isQueued(100L, 10L));
+        assertFalse(queue.isQueued(100L, 11L));
+        assertFalse(queue.isQueued(102L, 10L));
+        assertEquals(1.0, meterRegistry.counter("comments.ingestion.rejected").count());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void flush_shouldInsertBatchAndCountCommentsOncePerPost() {
+        CommentIngestionQueue queue = queue(10);
+        queue.submit(post, null, 5L, "testUser", "First");
+        queue.submit(otherPost, null, 5L, "testUser", "Second");
+        queue.submit(post, 100L, 6L, "otherUser", "Reply");
+
+        new CommentIngestionFlushJob(queue, 500).flush();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<CommentIngestionQueue.QueuedComment> batch) -> batch.size() == 3), eq(3), any());
+        verify(postRepository).addComments(eq(10L), eq(2L), any(LocalDateTime.class));
+        verify(postRepository).addComments(eq(11L), eq(1L), any(LocalDateTime.class));
+        verify(postRankingService).onPostCommented(1L, 10L, post.getCreatedAt(), 2);
+        verify(commentThreadCache).onCommentAdded(eq(10L), argThat((CommentTreeEntry entry) -> entry.getId() == 102L && entry.getParentId() == 100L));
+        assertEquals(0, queue.size());
+        assertFalse(queue.isQueued(100L, 10L));
+    }
+
+    @Test
+    void flush_shouldWriteInBatchesOfConfiguredSize() {
+        CommentIngestionQueue queue = queue(10);
+        for (int i = 0; i < 5; i++) {
+            queue.submit(post, null, 5L, "testUser", "Comment " + i);
+        }
+
+        new CommentIngestionFlushJob(queue, 2).flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), any(List.class), eq(2), any());
+        verify(jdbcTemplate).batchUpdate(anyString(), any(List.class), eq(1), any());
+    }
+
+    @Test
+    void flush_shouldKeepBatch_whenWriteFails() {
+        CommentIngestionQueue queue = queue(10);
+        queue.submit(post, null, 5L, "testUser", "First");
+        doThrow(new RuntimeException("database is down")).doReturn(new int[0][0])
+                .when(jdbcTemplate).batchUpdate(anyString(), any(List.class), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        CommentIngestionFlushJob job = new CommentIngestionFlushJob(queue, 500);
+
+        job.flush();
+
+        assertTrue(queue.isQueued(100L, 10L));
+        verify(postRepository, never()).addComments(any(), anyLong(), any());
+
+        job.flush();
+
+        assertFalse(queue.isQueued(100L, 10L));
+        verify(postRepository).addComments(eq(10L), eq(1L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void flush_shouldDropOnlyRejectedComments_whenBatchViolatesConstraint() {
+        CommentIngestionQueue queue = queue(10);
+        queue.submit(post, null, 5L, "testUser", "First");
+        queue.submit(otherPost, null, 5L, "testUser", "On deleted post");
+        doThrow(new DataIntegrityViolationException("foreign key"))
+                .when(jdbcTemplate).batchUpdate(anyString(), argThat((List<CommentIngestionQueue.QueuedComment> batch) -> batch.size() == 2 || batch.get(0).postId() == 11L), anyInt(), any());
+
+        new CommentIngestionFlushJob(queue, 500).flush();
+
+        verify(postRepository).addComments(eq(10L), eq(1L), any(LocalDateTime.class));
+        verify(postRepository, never()).addComments(eq(11L), anyLong(), any());
+        assertFalse(queue.isQueued(101L, 11L));
+        assertEquals(0, queue.size());
+    }
+}
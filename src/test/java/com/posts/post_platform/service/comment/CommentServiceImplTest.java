@@ -1,7 +1,461 @@
 package com.posts.post_platform.service.comment;
 
+import com.posts.post_platform.dto.CommentTreeEntry;
+import com.posts.post_platform.dto.CommentVoteCounts;
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.dto.PostCommentTarget;
+import com.posts.post_platform.exceptions.CommentNotFoundException;
+import com.posts.post_platform.exceptions.UnauthorizedActionException;
+import com.posts.post_platform.mapper.CommentMapper;
+import com.posts.post_platform.model.AccessLevel;
+import com.posts.post_platform.model.Comment;
+import com.posts.post_platform.model.CommentStatus;
+import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommunityRole;
+import com.posts.post_platform.model.Post;
+import com.posts.post_platform.model.User;
+import com.posts.post_platform.model.Vote;
+import com.posts.post_platform.repository.CommentRepository;
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.repository.UserRepositories;
+import com.posts.post_platform.requests.CommentRequest;
+import com.posts.post_platform.response.CommentPageResponse;
+import com.posts.post_platform.response.CommentResponse;
+import com.posts.post_platform.response.CommentVoteResponse;
+import com.posts.post_platform.security.JwtUserDetails;
+import com.posts.post_platform.service.community.CommunityCache;
+import com.posts.post_platform.service.community.CommunityRoleResolver;
+import com.posts.post_platform.service.post.PostRankingService;
+import com.posts.post_platform.service.user.UserServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
+@ExtendWith(MockitoExtension.class)
 class CommentServiceImplTest {
 
-}
\ No newline at end of file
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private UserRepositories userRepository;
+
+    @Mock
+    private CommunityCache communityCache;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private CommunityRoleResolver communityRoleResolver;
+
+    @Mock
+    private PostRankingService postRankingService;
+
+    @Mock
+    private CommentVoteCounter commentVoteCounter;
+
+    @Mock
+    private CommentThreadCache commentThreadCache;
+
+    @Mock
+    private CommentIngestionQueue commentIngestionQueue;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private UserServiceImpl userService;
+
+    private CommentServiceImpl commentService;
+    private Community community;
+    private Post post;
+    private User user;
+    private CommentRequest commentRequest;
+
+    @BeforeEach
+    void setUp() {
+        commentService = new CommentServiceImpl(postRepository, communityRoleResolver, userRepository, new CommentMapper(), communityCache, commentRepository, userService, postRankingService, commentVoteCounter, commentThreadCache, commentIngestionQueue, transactionManager, 2, 2);
+
+        community = new Community();
+        community.setId(1L);
+        community.setCommunityName("Tech Group");
+        community.setAccess_level(AccessLevel.PRIVATE);
+
+        post = new Post();
+        post.setId(10L);
+        post.setTitle("Post");
+        post.setCommunity(community);
+
+        user = new User();
+        user.setId(5L);
+        user.setUsername("testUser");
+
+        commentRequest = new CommentRequest();
+        commentRequest.setContent("Nice post");
+    }
+
+    private void mockCommentWrite() {
+        when(postRepository.findById(10L)).thenReturn(Optional.of(post));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PRIVATE, 1L, 0L)));
+        when(communityRoleResolver.hasAnyRole(1L, 5L, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)).thenReturn(true);
+        when(userRepository.getReferenceById(5L)).thenReturn(user);
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void addCommentToPost_shouldNotLookUpUserWhenPrincipalCarriesId() {
+        mockCommentWrite();
+        JwtUserDetails principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+
+        CommentResponse response = commentService.addCommentToPost("Tech Group", 10L, commentRequest, principal);
+
+        assertEquals("testUser", response.getCommentAuthorName());
+        assertEquals("Nice post", response.getContent());
+        verify(userRepository, never()).findUserByUsername(anyString());
+        verify(commentThreadCache).onCommentAdded(eq(10L), any(CommentTreeEntry.class));
+        verify(postRepository).addComments(eq(10L), eq(1L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void addCommentToPost_shouldLookUpUserAtMostOncePerPrincipal() {
+        mockCommentWrite();
+        when(userRepository.findUserByUsername("testUser")).thenReturn(Optional.of(user));
+        JwtUserDetails principal = JwtUserDetails.create(null, "testUser", new String[]{"USER"});
+
+        commentService.addCommentToPost("Tech Group", 10L, commentRequest, principal);
+        commentService.addCommentToPost("Tech Group", 10L, commentRequest, principal);
+
+        assertEquals(5L, principal.getId());
+        verify(userRepository, times(1)).findUserByUsername("testUser");
+    }
+
+    @Test
+    void addCommentToPost_shouldQueueCommentWithItsId_whenIngestionIsEnabled() {
+        JwtUserDetails principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+        PostCommentTarget target = new PostCommentTarget(10L, "Post", 1L, LocalDateTime.now());
+        when(commentIngestionQueue.isEnabled()).thenReturn(true);
+        when(postRepository.findCommentTarget(10L)).thenReturn(Optional.of(target));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PRIVATE, 1L, 0L)));
+        when(communityRoleResolver.hasAnyRole(1L, 5L, CommunityRole.CREATOR, CommunityRole.MODERATOR, CommunityRole.MEMBER)).thenReturn(true);
+        when(commentIngestionQueue.submit(target, null, 5L, "testUser", "Nice post")).thenReturn(
+                new CommentIngestionQueue.QueuedComment(42L, 10L, 1L, target.getCreatedAt(), null, 5L, "testUser", "Nice post", LocalDateTime.now()));
+
+        CommentResponse response = commentService.addCommentToPost("Tech Group", 10L, commentRequest, principal);
+
+        assertEquals(42L, response.getCommentId());
+        assertEquals("Nice post", response.getContent());
+        assertEquals(0L, response.getLikeCount());
+        verify(postRepository, never()).findById(anyLong());
+        verify(commentRepository, never()).save(any());
+        verify(postRepository, never()).addComments(anyLong(), anyLong(), any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void replyToComment_shouldAcceptReplyToQueuedComment() {
+        JwtUserDetails principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+        PostCommentTarget target = new PostCommentTarget(10L, "Post", 1L, LocalDateTime.now());
+        when(commentIngestionQueue.isEnabled()).thenReturn(true);
+        when(postRepository.findCommentTarget(10L)).thenReturn(Optional.of(target));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        when(commentIngestionQueue.isQueued(42L, 10L)).thenReturn(true);
+        when(commentIngestionQueue.submit(target, 42L, 5L, "testUser", "Nice post")).thenReturn(
+                new CommentIngestionQueue.QueuedComment(43L, 10L, 1L, target.getCreatedAt(), 42L, 5L, "testUser", "Nice post", LocalDateTime.now()));
+
+        CommentResponse response = commentService.replyToComment("Tech Group", 10L, 42L, principal, commentRequest);
+
+        assertEquals(43L, response.getCommentId());
+        assertEquals(42L, response.getParentCommentId());
+        verify(commentRepository, never()).existsInPost(anyLong(), anyLong());
+    }
+
+    @Test
+    void replyToComment_shouldThrow_whenQueuedParentIsNotInPost() {
+        when(commentIngestionQueue.isEnabled()).thenReturn(true);
+        when(postRepository.findCommentTarget(10L)).thenReturn(Optional.of(new PostCommentTarget(10L, "Post", 1L, LocalDateTime.now())));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        when(commentIngestionQueue.isQueued(42L, 10L)).thenReturn(false);
+        when(commentRepository.existsInPost(42L, 10L)).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> commentService.replyToComment("Tech Group", 10L, 42L,
+                JwtUserDetails.create(5L, "testUser", new String[]{"USER"}), commentRequest));
+        assertEquals("Comment does not belong to the specified post.", exception.getMessage());
+        verify(commentIngestionQueue, never()).submit(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void likeComment_shouldNotLookUpUser() {
+        when(commentRepository.findVoteCounts(20L, 10L)).thenReturn(Optional.of(new CommentVoteCounts(20L, 0, 0)));
+        JwtUserDetails principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+        when(commentVoteCounter.vote(20L, 5L, Vote.UP)).thenReturn(Vote.NONE);
+
+        String result = commentService.likeComment(10L, 20L, principal);
+
+        assertEquals("Comment new like count is 1", result);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void likeComment_shouldRecordVoteWithoutWritingComment() {
+        JwtUserDetails principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+        when(commentRepository.findVoteCounts(20L, 10L)).thenReturn(Optional.of(new CommentVoteCounts(20L, 7, 2)));
+        when(commentVoteCounter.vote(20L, 5L, Vote.UP)).thenReturn(Vote.NONE);
+        when(commentVoteCounter.getPendingUps(20L)).thenReturn(2L);
+
+        String result = commentService.likeComment(10L, 20L, principal);
+
+        assertEquals("Comment new like count is 10", result);
+        verify(commentRepository, never()).save(any());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void unlikeComment_shouldThrow_whenCommentIsNotInPost() {
+        when(commentRepository.findVoteCounts(20L, 10L)).thenReturn(Optional.empty());
+
+        assertThrows(CommentNotFoundException.class,
+                () -> commentService.unlikeComment(10L, 20L, JwtUserDetails.create(5L, "testUser", new String[]{"USER"})));
+        verifyNoInteractions(commentVoteCounter);
+    }
+
+    @Test
+    void voteComment_shouldMoveBothCounts_whenUnlikeTurnsIntoLike() {
+        JwtUserDetails principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+        when(commentRepository.findVoteCounts(20L, 10L)).thenReturn(Optional.of(new CommentVoteCounts(20L, 7, 2)));
+        when(commentVoteCounter.vote(20L, 5L, Vote.UP)).thenReturn(Vote.DOWN);
+
+        CommentVoteResponse response = commentService.voteComment(10L, 20L, Vote.UP, principal);
+
+        assertEquals("up", response.getVote());
+        assertEquals(8L, response.getLikeCount());
+        assertEquals(1L, response.getUnlikeCount());
+        verify(commentThreadCache).onVoted(10L, 20L, 1, -1);
+    }
+
+    @Test
+    void getAllCommentsBySorted_shouldReadThreadWithOneQuery_whateverItsSizeAndDepth() {
+        when(postRepository.findById(10L)).thenReturn(Optional.of(post));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        for (int size : new int[]{10, 10_000}) {
+            List<CommentTreeEntry> entries = new ArrayList<>();
+            for (long id = 1; id <= size; id++) {
+                // half of the comments form one deep chain of replies, the others reply to the first comment
+                Long parentId = id == 1 ? null : id <= size / 2 ? id - 1 : 1L;
+                entries.add(new CommentTreeEntry(id, parentId, "Comment " + id, CommentStatus.ACTIVE, "user" + id, 0, 0));
+            }
+            // the order of the query does not matter, the comments are sorted in memory
+            Collections.reverse(entries);
+            when(commentRepository.findCommentTree(10L)).thenReturn(entries);
+
+            List<CommentResponse> roots = commentService.getAllCommentsBySorted(10L, "Tech Group", null, "top");
+
+            assertEquals(1, roots.size());
+            assertEquals("user1", roots.get(0).getCommentAuthorName());
+            assertEquals("Post", roots.get(0).getPostName());
+            assertEquals(size - size / 2 + 1, roots.get(0).getChildComments().size());
+            assertEquals(size / 2, depth(roots.get(0)));
+            verify(commentRepository, times(1)).findCommentTree(10L);
+            verifyNoMoreInteractions(commentRepository);
+            clearInvocations(commentRepository);
+        }
+    }
+
+    @Test
+    void getComment_shouldReturnRepliesOfComment_fromThreadOfPost() {
+        when(postRepository.findById(10L)).thenReturn(Optional.of(post));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        when(commentRepository.findCommentTree(10L)).thenReturn(List.of(
+                new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 0, 0),
+                new CommentTreeEntry(2L, 1L, "Reply", CommentStatus.ACTIVE, "testUser", 0, 0),
+                new CommentTreeEntry(3L, 2L, "Reply to reply", CommentStatus.DELETED, "author", 0, 0)));
+        JwtUserDetails principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+
+        CommentResponse response = commentService.getComment(10L, "Tech Group", 2L, principal);
+
+        assertEquals("Reply", response.getContent());
+        assertEquals(1L, response.getParentCommentId());
+        assertEquals(List.of(3L), response.getChildComments().stream().map(CommentResponse::getCommentId).toList());
+        assertNull(response.getChildComments().get(0).getChildComments());
+        assertThrows(CommentNotFoundException.class, () -> commentService.getComment(10L, "Tech Group", 4L, principal));
+    }
+
+    @Test
+    void getAllCommentsBySorted_shouldServeCachedThread_withoutQueryingComments() {
+        when(postRepository.findById(10L)).thenReturn(Optional.of(post));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        when(commentThreadCache.read(10L)).thenReturn(Optional.of(List.of(
+                new CommentTreeEntry(3L, 1L, "Reply", CommentStatus.ACTIVE, "author", 1, 0),
+                new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 0, 0),
+                new CommentTreeEntry(2L, 1L, "Liked reply", CommentStatus.ACTIVE, "author", 5, 1))));
+
+        List<CommentResponse> roots = commentService.getAllCommentsBySorted(10L, "Tech Group", null, "top");
+
+        assertEquals(List.of(2L, 3L), roots.get(0).getChildComments().stream().map(CommentResponse::getCommentId).toList());
+        assertEquals(5L, roots.get(0).getChildComments().get(0).getLikeCount());
+        verifyNoInteractions(commentRepository);
+        verify(commentThreadCache, never()).write(any(), any(), any());
+    }
+
+    @Test
+    void getAllCommentsBySorted_shouldRankTopByScore_notByLikesAlone() {
+        when(postRepository.findById(10L)).thenReturn(Optional.of(post));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        when(commentThreadCache.read(10L)).thenReturn(Optional.of(List.of(
+                new CommentTreeEntry(1L, null, "Disputed", CommentStatus.ACTIVE, "author", 10, 10),
+                new CommentTreeEntry(2L, null, "Liked", CommentStatus.ACTIVE, "author", 3, 0),
+                new CommentTreeEntry(3L, null, "Unvoted", CommentStatus.ACTIVE, "author", 0, 0))));
+
+        List<CommentResponse> roots = commentService.getAllCommentsBySorted(10L, "Tech Group", null, "top");
+
+        assertEquals(List.of(2L, 1L, 3L), roots.stream().map(CommentResponse::getCommentId).toList());
+    }
+
+    @Test
+    void getAllCommentsBySorted_shouldKeepLegacyOrderOfOld_andAllCommentsTheOrderOfCreation() {
+        when(postRepository.findById(10L)).thenReturn(Optional.of(post));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        when(commentThreadCache.read(10L)).thenReturn(Optional.of(List.of(
+                new CommentTreeEntry(2L, null, "Second", CommentStatus.ACTIVE, "author", 0, 0),
+                new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 0, 0),
+                new CommentTreeEntry(3L, null, "Third", CommentStatus.ACTIVE, "author", 0, 0))));
+
+        List<CommentResponse> sortedByOld = commentService.getAllCommentsBySorted(10L, "Tech Group", null, "old");
+        List<CommentResponse> all = commentService.getAllCommentsFromPost(10L, "Tech Group", null);
+
+        assertEquals(List.of(3L, 2L, 1L), sortedByOld.stream().map(CommentResponse::getCommentId).toList());
+        assertEquals(List.of(1L, 2L, 3L), all.stream().map(CommentResponse::getCommentId).toList());
+    }
+
+    @Test
+    void getAllCommentsBySorted_shouldAddPendingVotes_whenCachingThread() {
+        when(postRepository.findById(10L)).thenReturn(Optional.of(post));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+        when(commentThreadCache.readVersion(10L)).thenReturn("4");
+        List<CommentTreeEntry> entries = List.of(new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 2, 1));
+        when(commentRepository.findCommentTree(10L)).thenReturn(entries);
+        when(commentVoteCounter.getPendingUps(1L)).thenReturn(3L);
+
+        commentService.getAllCommentsBySorted(10L, "Tech Group", null, "new");
+
+        assertEquals(5, entries.get(0).getLike());
+        assertEquals(1, entries.get(0).getUnlike());
+        verify(commentThreadCache).write(10L, "4", entries);
+    }
+
+    @Test
+    void getCommentThread_shouldCutRepliesAtDepthAndBreadth_withBoundedQueries() {
+        mockPublicPost();
+        when(commentRepository.findTopLevelCommentsNewestFirst(10L, Long.MAX_VALUE, Limit.of(2))).thenReturn(List.of(
+                new CommentTreeEntry(2L, null, "Second", CommentStatus.ACTIVE, "author", 0, 0),
+                new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 0, 0)));
+        when(commentRepository.findFirstReplies(List.of(2L, 1L), "new", 3)).thenReturn(List.of(
+                reply(13L, 1L), reply(12L, 1L), reply(11L, 1L)));
+        when(commentRepository.findFirstReplies(List.of(13L, 12L), "new", 3)).thenReturn(List.<Object[]>of(reply(21L, 13L)));
+        when(commentRepository.findFirstReplies(List.of(21L), "new", 1)).thenReturn(List.<Object[]>of(reply(31L, 21L)));
+
+        CommentPageResponse page = commentService.getCommentThread(10L, "Tech Group", null, "new", null, 2);
+
+        assertNotNull(page.getNextCursor());
+        CommentResponse second = page.getComments().get(0);
+        CommentResponse first = page.getComments().get(1);
+        assertNull(second.getChildComments());
+        assertNull(second.getMoreRepliesCursor());
+        assertEquals(List.of(13L, 12L), first.getChildComments().stream().map(CommentResponse::getCommentId).toList());
+        assertNotNull(first.getMoreRepliesCursor());
+        CommentResponse deepest = first.getChildComments().get(0).getChildComments().get(0);
+        assertEquals(21L, deepest.getCommentId());
+        assertNull(deepest.getChildComments());
+        assertNotNull(deepest.getMoreRepliesCursor());
+        verify(commentRepository, times(3)).findFirstReplies(any(), anyString(), anyInt());
+    }
+
+    @Test
+    void getCommentThread_shouldContinueRepliesOfComment_withItsCursor() {
+        mockPublicPost();
+        when(commentRepository.findTopLevelCommentsNewestFirst(10L, Long.MAX_VALUE, Limit.of(20))).thenReturn(List.of(
+                new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 0, 0)));
+        when(commentRepository.findFirstReplies(List.of(1L), "new", 3)).thenReturn(List.of(
+                reply(13L, 1L), reply(12L, 1L), reply(11L, 1L)));
+        when(commentRepository.findFirstReplies(List.of(13L, 12L), "new", 3)).thenReturn(List.of());
+        String cursor = commentService.getCommentThread(10L, "Tech Group", null, "new", null, 20).getComments().get(0).getMoreRepliesCursor();
+        when(commentRepository.findRepliesNewestFirst(10L, 1L, 12L, Limit.of(20))).thenReturn(List.of(
+                new CommentTreeEntry(11L, 1L, "Reply 11", CommentStatus.ACTIVE, "author", 0, 0)));
+        when(commentRepository.findFirstReplies(List.of(11L), "new", 3)).thenReturn(List.of());
+
+        CommentPageResponse page = commentService.getCommentThread(10L, "Tech Group", null, "new", cursor, 20);
+
+        assertEquals(List.of(11L), page.getComments().stream().map(CommentResponse::getCommentId).toList());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getRenderedCommentThread_shouldRenderPageThroughCacheUnderItsSortCursorAndSize() {
+        mockPublicPost();
+        when(commentThreadCache.renderPage(eq(10L), eq("new|-|50"), any())).thenAnswer(invocation ->
+                ((Supplier<?>) invocation.getArgument(2)).get().toString());
+        when(commentRepository.findTopLevelCommentsNewestFirst(10L, Long.MAX_VALUE, Limit.of(50))).thenReturn(List.of());
+
+        String page = commentService.getRenderedCommentThread(10L, "Tech Group", null, "new", null, 500);
+
+        assertTrue(page.contains("comments=[]"));
+    }
+
+    @Test
+    void getRenderedCommentThread_shouldCheckAccess_beforeServingCachedPage() {
+        when(postRepository.findCommentTarget(10L)).thenReturn(Optional.of(new PostCommentTarget(10L, "Post", 1L, LocalDateTime.now())));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PRIVATE, 1L, 0L)));
+
+        assertThrows(UnauthorizedActionException.class, () -> commentService.getRenderedCommentThread(10L, "Tech Group", null, "new", null, 20));
+        verify(commentThreadCache, never()).renderPage(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void getCommentThread_shouldRejectCursorOfOtherSortOption() {
+        mockPublicPost();
+        when(commentRepository.findTopLevelCommentsByTop(10L, Double.MAX_VALUE, Long.MAX_VALUE, Limit.of(1))).thenReturn(List.of(
+                new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 4, 0, 0.51)));
+        when(commentRepository.findFirstReplies(List.of(1L), "top", 3)).thenReturn(List.of());
+        String cursor = commentService.getCommentThread(10L, "Tech Group", null, "top", null, 1).getNextCursor();
+
+        assertThrows(IllegalArgumentException.class, () -> commentService.getCommentThread(10L, "Tech Group", null, "old", cursor, 1));
+    }
+
+    private void mockPublicPost() {
+        when(postRepository.findCommentTarget(10L)).thenReturn(Optional.of(new PostCommentTarget(10L, "Post", 1L, LocalDateTime.now())));
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(new CommunitySummary(1L, "Tech Group", AccessLevel.PUBLIC, 1L, 0L)));
+    }
+
+    private Object[] reply(long id, long parentId) {
+        return new Object[]{id, parentId, "Reply " + id, "ACTIVE", "author", 0, 0, 0.0};
+    }
+
+    private int depth(CommentResponse comment) {
+        int depth = 1;
+        while (comment.getChildComments() != null) {
+            comment = comment.getChildComments().get(0);
+            depth++;
+        }
+        return depth;
+    }
+}
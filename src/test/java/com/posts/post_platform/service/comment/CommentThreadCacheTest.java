@@ -0,0 +1,132 @@
+package com.posts.post_platform.service.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.posts.post_platform.dto.CommentTreeEntry;
+import com.posts.post_platform.model.CommentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentThreadCacheTest {
+    private static final List<String> KEYS = List.of("comment_thread:10", "comment_thread_version:10");
+    private static final List<String> PAGE_KEYS = List.of("comment_thread_pages:10", "comment_thread_version:10");
+
+    @Mock
+    private JedisPooled jedis;
+
+    private CommentThreadCache commentThreadCache;
+
+    @BeforeEach
+    void setUp() {
+        commentThreadCache = new CommentThreadCache(jedis, new ObjectMapper(), 600, 2, 60, 200);
+    }
+
+    @Test
+    void read_shouldCombineSerializedCommentsWithTheirCounts() {
+        when(jedis.hgetAll("comment_thread:10")).thenReturn(Map.of(
+                "version", "3",
+                "c:1", "{\"id\":1,\"content\":\"First\",\"commentStatus\":\"ACTIVE\",\"authorUsername\":\"author\"}",
+                "l:1", "4", "u:1", "1",
+                "c:2", "{\"id\":2,\"parentId\":1,\"content\":\"Reply\",\"commentStatus\":\"DELETED\",\"authorUsername\":\"user\"}",
+                "l:2", "0", "u:2", "0"));
+
+        List<CommentTreeEntry> entries = new ArrayList<>(commentThreadCache.read(10L).orElseThrow());
+        entries.sort(Comparator.comparing(CommentTreeEntry::getId));
+
+        assertEquals(List.of(
+                new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 4, 1),
+                new CommentTreeEntry(2L, 1L, "Reply", CommentStatus.DELETED, "user", 0, 0)), entries);
+    }
+
+    @Test
+    void read_shouldReturnEmpty_whenSnapshotIsMissingOrRedisIsDown() {
+        when(jedis.hgetAll("comment_thread:10")).thenReturn(Map.of());
+        when(jedis.hgetAll("comment_thread:11")).thenThrow(new JedisConnectionException("down"));
+
+        assertTrue(commentThreadCache.read(10L).isEmpty());
+        assertTrue(commentThreadCache.read(11L).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void write_shouldPassVersionStampAndCountsToScript() {
+        commentThreadCache.write(10L, "3", List.of(new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 4, 1)));
+
+        ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+        verify(jedis).eval(anyString(), eq(KEYS), args.capture());
+        assertEquals(List.of("3", "600", "c:1"), args.getValue().subList(0, 3));
+        assertFalse(args.getValue().get(3).contains("\"like\":4"));
+        assertEquals(List.of("l:1", "4", "u:1", "1"), args.getValue().subList(4, 8));
+    }
+
+    @Test
+    void write_shouldSkip_whenVersionIsUnknownOrThreadIsTooLarge() {
+        CommentTreeEntry entry = new CommentTreeEntry(1L, null, "First", CommentStatus.ACTIVE, "author", 0, 0);
+
+        commentThreadCache.write(10L, null, List.of(entry));
+        commentThreadCache.write(10L, "3", List.of(entry, entry, entry));
+
+        verify(jedis, never()).eval(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void renderPage_shouldServeCachedPage_withoutBuildingIt() {
+        when(jedis.eval(anyString(), eq(PAGE_KEYS), eq(List.of("new|-|20")))).thenReturn("{\"comments\":[]}");
+
+        String page = commentThreadCache.renderPage(10L, "new|-|20", () -> fail("the cached page must not be built"));
+
+        assertEquals("{\"comments\":[]}", page);
+        verify(jedis, never()).get(anyString());
+    }
+
+    @Test
+    void renderPage_shouldStoreBuiltPageUnderVersionReadBeforeBuilding() {
+        when(jedis.eval(anyString(), eq(PAGE_KEYS), eq(List.of("top|-|20")))).thenReturn(null);
+        when(jedis.get("comment_thread_version:10")).thenReturn("7");
+
+        String page = commentThreadCache.renderPage(10L, "top|-|20", () -> Map.of("nextCursor", "abc"));
+
+        assertEquals("{\"nextCursor\":\"abc\"}", page);
+        verify(jedis).eval(anyString(), eq(PAGE_KEYS), eq(List.of("7", "top|-|20", page, "200", "60")));
+    }
+
+    @Test
+    void renderPage_shouldBuildPage_whenRedisIsDown() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenThrow(new JedisConnectionException("down"));
+        when(jedis.get("comment_thread_version:10")).thenThrow(new JedisConnectionException("down"));
+
+        assertEquals("{\"nextCursor\":\"abc\"}", commentThreadCache.renderPage(10L, "top|-|20", () -> Map.of("nextCursor", "abc")));
+        verify(jedis, times(1)).eval(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void onVoted_shouldIncrementCountsOfComment() {
+        commentThreadCache.onVoted(10L, 20L, 1, -1);
+
+        verify(jedis).eval(anyString(), eq(KEYS), eq(List.of("600", "c:20", "l:20", "1", "u:20", "-1")));
+    }
+
+    @Test
+    void onCommentAdded_shouldNotThrow_whenRedisIsDown() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenThrow(new JedisConnectionException("down"));
+
+        assertDoesNotThrow(() -> commentThreadCache.onCommentAdded(10L, new CommentTreeEntry(20L, 1L, "Reply", CommentStatus.ACTIVE, "user", 0, 0)));
+    }
+}
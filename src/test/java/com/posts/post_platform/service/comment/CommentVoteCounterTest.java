@@ -0,0 +1,78 @@
+package com.posts.post_platform.service.comment;
+
+import com.posts.post_platform.model.Vote;
+import com.posts.post_platform.repository.CommentRepository;
+import com.posts.post_platform.service.vote.VoteFlushJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentVoteCounterTest {
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    private CommentVoteCounter commentVoteCounter;
+    private VoteFlushJob voteFlushJob;
+
+    @BeforeEach
+    void setUp() {
+        commentVoteCounter = new CommentVoteCounter(commentRepository, 60, 100);
+        voteFlushJob = new VoteFlushJob(List.of(commentVoteCounter));
+    }
+
+    @Test
+    void flush_shouldWriteLikesAndUnlikesInBatchedUpdates() {
+        when(commentRepository.findVotes(anyLong())).thenReturn(List.of());
+        when(commentRepository.insertVote(anyLong(), anyLong(), anyInt())).thenReturn(1);
+        commentVoteCounter.vote(1L, 5L, Vote.UP);
+        commentVoteCounter.vote(1L, 6L, Vote.UP);
+        commentVoteCounter.vote(2L, 5L, Vote.UP);
+        commentVoteCounter.vote(3L, 5L, Vote.UP);
+        commentVoteCounter.vote(3L, 6L, Vote.DOWN);
+
+        voteFlushJob.flush();
+
+        verify(commentRepository).addLikeCounts(2L, List.of(1L));
+        verify(commentRepository).addLikeCounts(eq(1L), argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(2L, 3L))));
+        verify(commentRepository).addUnlikeCounts(1L, List.of(3L));
+        assertEquals(0L, commentVoteCounter.getPendingUps(1L));
+    }
+
+    @Test
+    void flush_shouldKeepVotes_whenWriteFails() {
+        when(commentRepository.findVotes(1L)).thenReturn(List.of());
+        when(commentRepository.insertVote(1L, 5L, 1)).thenReturn(1);
+        commentVoteCounter.vote(1L, 5L, Vote.UP);
+        when(commentRepository.addLikeCounts(anyLong(), any())).thenThrow(new RuntimeException("database is down"));
+
+        voteFlushJob.flush();
+
+        assertEquals(1L, commentVoteCounter.getPendingUps(1L));
+        assertEquals(Map.of(1L, 1L), commentVoteCounter.drain().ups());
+    }
+
+    @Test
+    void shutdown_shouldFlushBufferedVotes() {
+        when(commentRepository.findVotes(4L)).thenReturn(List.of());
+        when(commentRepository.insertVote(4L, 5L, -1)).thenReturn(1);
+        commentVoteCounter.vote(4L, 5L, Vote.DOWN);
+
+        voteFlushJob.shutdown();
+
+        verify(commentRepository).addUnlikeCounts(1L, List.of(4L));
+        assertTrue(commentVoteCounter.drain().isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+package com.posts.post_platform.service.community;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.model.AccessLevel;
+import com.posts.post_platform.repository.CommunityRepository;
+import com.posts.post_platform.service.RedisMessageBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommunityCacheTest {
+
+    @Mock
+    private CommunityRepository communityRepository;
+
+    @Mock
+    private JedisPooled jedis;
+
+    @Mock
+    private RedisMessageBus messageBus;
+
+    private static final List<String> KEYS = List.of("community:summary:1", "community:name:Tech Group", "community:version");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CommunityCache communityCache;
+    private CommunitySummary summary;
+
+    @BeforeEach
+    void setUp() {
+        communityCache = new CommunityCache(communityRepository, jedis, messageBus, objectMapper, 60, 600, 100);
+        summary = new CommunitySummary(1L, "Tech Group", AccessLevel.PRIVATE, 4L, 10L);
+    }
+
+    @Test
+    void findByName_shouldLoadOnceAndServeLaterLookupsFromMemory() throws Exception {
+        when(communityRepository.findSummaryByCommunityName("Tech Group")).thenReturn(Optional.of(summary));
+
+        assertEquals(summary, communityCache.findByName("Tech Group").orElseThrow());
+        assertEquals(summary, communityCache.findByName("Tech Group").orElseThrow());
+        assertEquals(summary, communityCache.findById(1L).orElseThrow());
+
+        verify(communityRepository, times(1)).findSummaryByCommunityName("Tech Group");
+        verify(communityRepository, never()).findSummaryById(any());
+        verify(jedis).eval(anyString(), eq(KEYS), eq(List.of("0", json(summary), "1", "600")));
+    }
+
+    @Test
+    void findById_shouldFillRedisUnderVersionReadBeforeLoading() throws Exception {
+        when(jedis.get("community:version")).thenReturn("3");
+        when(communityRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+
+        assertEquals(summary, communityCache.findById(1L).orElseThrow());
+
+        verify(jedis).eval(anyString(), eq(KEYS), eq(List.of("3", json(summary), "1", "600")));
+    }
+
+    @Test
+    void findById_shouldUseRedisBeforeDatabase() throws Exception {
+        when(jedis.get("community:summary:1")).thenReturn(objectMapper.writeValueAsString(summary));
+
+        CommunitySummary cached = communityCache.findById(1L).orElseThrow();
+
+        assertEquals(summary, cached);
+        assertTrue(cached.isPrivate());
+        verifyNoInteractions(communityRepository);
+    }
+
+    @Test
+    void findById_shouldFallBackToDatabase_whenRedisIsDown() {
+        when(jedis.get(anyString())).thenThrow(new JedisConnectionException("down"));
+        when(communityRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+
+        assertEquals(summary, communityCache.findById(1L).orElseThrow());
+        verify(jedis, never()).eval(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void findByName_shouldNotCacheMissingCommunity() {
+        when(communityRepository.findSummaryByCommunityName("Unknown")).thenReturn(Optional.empty());
+
+        assertTrue(communityCache.findByName("Unknown").isEmpty());
+        assertTrue(communityCache.findByName("Unknown").isEmpty());
+
+        verify(communityRepository, times(2)).findSummaryByCommunityName("Unknown");
+    }
+
+    @Test
+    void evict_shouldDropEntriesAndNotifyOtherNodes() {
+        when(communityRepository.findSummaryByCommunityName("Tech Group")).thenReturn(Optional.of(summary));
+        communityCache.findByName("Tech Group");
+
+        communityCache.evict(1L, "Tech Group");
+        communityCache.findByName("Tech Group");
+
+        verify(jedis).eval(anyString(), eq(KEYS), eq(List.of()));
+        verify(messageBus).publish(eq(CommunityCache.METADATA_CHANNEL), anyString());
+        verify(communityRepository, times(2)).findSummaryByCommunityName("Tech Group");
+    }
+
+    @Test
+    void onMessage_shouldDropEntriesEvictedByOtherNodes() {
+        when(communityRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+        communityCache.findById(1L);
+
+        communityCache.onMessage("other-node:1");
+        communityCache.findById(1L);
+
+        ArgumentCaptor<String> channel = ArgumentCaptor.forClass(String.class);
+        verify(messageBus).subscribe(channel.capture(), eq(communityCache));
+        assertEquals(CommunityCache.METADATA_CHANNEL, channel.getValue());
+        verify(communityRepository, times(2)).findSummaryById(1L);
+    }
+
+    private String json(CommunitySummary summary) throws Exception {
+        return objectMapper.writeValueAsString(summary);
+    }
+}
@@ -0,0 +1,117 @@
+package com.posts.post_platform.service.community;
+
+import com.posts.post_platform.repository.CommunityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommunityMemberCounterTest {
+
+    @Mock
+    private CommunityRepository communityRepository;
+
+    @Mock
+    private JedisPooled jedis;
+
+    private static final List<String> KEYS = List.of("community:member_count:1", "community:member_count_version:1");
+
+    private CommunityMemberCounter communityMemberCounter;
+
+    @BeforeEach
+    void setUp() {
+        communityMemberCounter = new CommunityMemberCounter(communityRepository, jedis, 60);
+    }
+
+    @Test
+    void getMemberCount_shouldReadCachedCountWithoutDatabase() {
+        when(jedis.get("community:member_count:1")).thenReturn("12");
+
+        assertEquals(12, communityMemberCounter.getMemberCount(1L));
+        verifyNoInteractions(communityRepository);
+    }
+
+    @Test
+    void getMemberCount_shouldReadColumnAndCacheIt_whenNotCached() {
+        when(communityRepository.findMemberCountById(1L)).thenReturn(Optional.of(7L));
+
+        assertEquals(7, communityMemberCounter.getMemberCount(1L));
+        verify(jedis).eval(anyString(), eq(KEYS), eq(List.of("0", "7", "60")));
+        verify(jedis, never()).setex(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void getMemberCount_shouldCacheOnlyIfUnchangedSinceVersionWasRead() {
+        when(jedis.get("community:member_count:1")).thenReturn(null);
+        when(jedis.get("community:member_count_version:1")).thenReturn("3");
+        when(communityRepository.findMemberCountById(1L)).thenReturn(Optional.of(7L));
+
+        communityMemberCounter.getMemberCount(1L);
+
+        InOrder inOrder = inOrder(jedis, communityRepository);
+        inOrder.verify(jedis).get("community:member_count_version:1");
+        inOrder.verify(communityRepository).findMemberCountById(1L);
+        inOrder.verify(jedis).eval(anyString(), eq(KEYS), eq(List.of("3", "7", "60")));
+    }
+
+    @Test
+    void getMemberCount_shouldFallBackToDatabase_whenRedisIsDown() {
+        when(jedis.get(anyString())).thenThrow(new JedisConnectionException("down"));
+        when(communityRepository.findMemberCountById(1L)).thenReturn(Optional.of(3L));
+
+        assertEquals(3, communityMemberCounter.getMemberCount(1L));
+        verify(jedis, never()).eval(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void getMemberCount_shouldThrow_whenCommunityNotFound() {
+        when(communityRepository.findMemberCountById(1L)).thenReturn(Optional.empty());
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> communityMemberCounter.getMemberCount(1L));
+        assertEquals("Community not found with id : 1", thrown.getMessage());
+    }
+
+    @Test
+    void adjust_shouldUpdateColumnAndIncrementCachedCount() {
+        communityMemberCounter.adjust(1L, 1);
+
+        verify(communityRepository).adjustMemberCount(1L, 1);
+        verify(jedis).eval(anyString(), eq(KEYS), eq(List.of("1", "60")));
+    }
+
+    @Test
+    void reconcileBatch_shouldRecountOnlyDriftedCommunities() {
+        when(communityRepository.findMemberCountsAfter(0L, 2)).thenReturn(List.of(
+                new Object[]{1L, 5L, 5L},
+                new Object[]{2L, 4L, 6L}));
+
+        Long lastId = communityMemberCounter.reconcileBatch(0L, 2);
+
+        assertEquals(2L, lastId);
+        verify(communityRepository).recountMembers(2L);
+        verify(communityRepository, never()).recountMembers(1L);
+        verify(jedis).eval(anyString(), eq(List.of("community:member_count:2", "community:member_count_version:2")), eq(List.of("60")));
+    }
+
+    @Test
+    void reconcileBatch_shouldReturnNull_whenNoCommunitiesLeft() {
+        when(communityRepository.findMemberCountsAfter(2L, 2)).thenReturn(List.of());
+
+        assertNull(communityMemberCounter.reconcileBatch(2L, 2));
+    }
+}
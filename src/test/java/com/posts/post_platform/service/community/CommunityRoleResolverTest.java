@@ -0,0 +1,110 @@
+package com.posts.post_platform.service.community;
+
+import com.posts.post_platform.model.CommunityRole;
+import com.posts.post_platform.repository.CommunityRepository;
+import com.posts.post_platform.service.RedisMessageBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommunityRoleResolverTest {
+
+    @Mock
+    private CommunityRepository communityRepository;
+
+    @Mock
+    private RedisMessageBus messageBus;
+
+    private CommunityRoleResolver communityRoleResolver;
+
+    private CommunityRoleResolver createResolver(long ttlSeconds) {
+        return new CommunityRoleResolver(communityRepository, messageBus, ttlSeconds, 100);
+    }
+
+    @BeforeEach
+    void setUp() {
+        communityRoleResolver = createResolver(60);
+        when(communityRepository.findCommunityRoles(1L)).thenReturn(List.of(
+                new Object[]{4L, 1},
+                new Object[]{6L, 2},
+                new Object[]{5L, 4},
+                new Object[]{6L, 4}));
+    }
+
+    @Test
+    void resolve_shouldCombineRolesFromOneQuery() {
+        assertEquals(CommunityRole.mask(CommunityRole.CREATOR), communityRoleResolver.resolve(1L, 4L));
+        assertEquals(CommunityRole.mask(CommunityRole.MEMBER), communityRoleResolver.resolve(1L, 5L));
+        assertEquals(CommunityRole.mask(CommunityRole.MODERATOR, CommunityRole.MEMBER), communityRoleResolver.resolve(1L, 6L));
+        assertEquals(0, communityRoleResolver.resolve(1L, 7L));
+        assertEquals(0, communityRoleResolver.resolve(1L, null));
+        assertTrue(communityRoleResolver.hasAnyRole(1L, 4L, CommunityRole.CREATOR, CommunityRole.MODERATOR));
+        assertFalse(communityRoleResolver.hasAnyRole(1L, 5L, CommunityRole.CREATOR, CommunityRole.MODERATOR));
+
+        verify(communityRepository, times(1)).findCommunityRoles(1L);
+    }
+
+    @Test
+    void resolve_shouldReloadExpiredCommunity() {
+        communityRoleResolver = createResolver(0);
+
+        communityRoleResolver.resolve(1L, 5L);
+        communityRoleResolver.resolve(1L, 5L);
+
+        verify(communityRepository, times(2)).findCommunityRoles(1L);
+    }
+
+    @Test
+    void resolve_shouldDropOldestCommunity_whenCacheIsFullAndNothingExpired() {
+        communityRoleResolver = new CommunityRoleResolver(communityRepository, messageBus, 60, 1);
+        when(communityRepository.findCommunityRoles(2L)).thenReturn(List.of());
+
+        communityRoleResolver.resolve(1L, 5L);
+        communityRoleResolver.resolve(2L, 5L);
+        communityRoleResolver.resolve(2L, 5L);
+        communityRoleResolver.resolve(1L, 5L);
+
+        verify(communityRepository, times(2)).findCommunityRoles(1L);
+        verify(communityRepository, times(1)).findCommunityRoles(2L);
+    }
+
+    @Test
+    void addMemberAndModerator_shouldUpdateLoadedCommunityWithoutReloading() {
+        assertFalse(communityRoleResolver.isMember(1L, 7L));
+
+        communityRoleResolver.addMember(1L, 7L);
+        communityRoleResolver.addModerator(1L, 7L);
+
+        assertTrue(communityRoleResolver.isMember(1L, 7L));
+        assertTrue(communityRoleResolver.isModerator(1L, 7L));
+        verify(communityRepository, times(1)).findCommunityRoles(1L);
+        verify(messageBus, times(2)).publish(eq(CommunityRoleResolver.MEMBERSHIP_CHANNEL), anyString());
+    }
+
+    @Test
+    void onMessage_shouldReloadCommunityChangedOnAnotherNode() {
+        communityRoleResolver.resolve(1L, 5L);
+        communityRoleResolver.addMember(1L, 7L);
+        ArgumentCaptor<String> ownMessage = ArgumentCaptor.forClass(String.class);
+        verify(messageBus).publish(eq(CommunityRoleResolver.MEMBERSHIP_CHANNEL), ownMessage.capture());
+
+        // the message of this node is ignored, the message of another node drops the community
+        communityRoleResolver.onMessage(ownMessage.getValue());
+        assertTrue(communityRoleResolver.isMember(1L, 7L));
+        communityRoleResolver.onMessage("other-node:1");
+        assertFalse(communityRoleResolver.isMember(1L, 7L));
+
+        verify(communityRepository, times(2)).findCommunityRoles(1L);
+    }
+}
@@ -1,5 +1,7 @@
 package com.posts.post_platform.service.community;
 
+import com.posts.post_platform.dto.CommunityDirectoryEntry;
+import com.posts.post_platform.dto.CommunitySummary;
 import com.posts.post_platform.dto.UserDto;
 import com.posts.post_platform.exceptions.CommunityAlreadyExistsException;
 import com.posts.post_platform.exceptions.CommunityNotFoundException;
@@ -8,14 +10,18 @@ import com.posts.post_platform.exceptions.UserNotFoundException;
 import com.posts.post_platform.mapper.CommunityMapper;
 import com.posts.post_platform.model.AccessLevel;
 import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommunityRole;
 import com.posts.post_platform.model.Role;
 import com.posts.post_platform.model.User;
 import com.posts.post_platform.repository.CommunityRepository;
 import com.posts.post_platform.repository.UserRepositories;
 import com.posts.post_platform.requests.CommunityRequest;
 import com.posts.post_platform.requests.UpdateCommunityRequest;
+import com.posts.post_platform.response.CommunityPageResponse;
 import com.posts.post_platform.response.CommunityResponse;
 import com.posts.post_platform.response.CommunityResponseWithApprovedUsers;
+import com.posts.post_platform.response.MemberPageResponse;
+import com.posts.post_platform.service.timeline.HomeTimelineService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +29,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -42,6 +49,18 @@ class CommunityServiceImplTest {
     @Mock
     private CommunityMapper communityMapper;
 
+    @Mock
+    private CommunityRoleResolver communityRoleResolver;
+
+    @Mock
+    private CommunityMemberCounter communityMemberCounter;
+
+    @Mock
+    private CommunityCache communityCache;
+
+    @Mock
+    private HomeTimelineService homeTimelineService;
+
     @InjectMocks
     private CommunityServiceImpl communityService;
 
@@ -158,37 +177,57 @@ class CommunityServiceImplTest {
     @Test
     void getAllCommunities() {
         // Arrange
-        List<Community> communityList = List.of(mockCommunity);
-        when(communityRepository.findAll()).thenReturn(communityList);
-        when(communityMapper.convertCommunityToResponse(mockCommunity)).thenReturn(communityResponse);
+        CommunityDirectoryEntry entry = directoryEntry(7L);
+        when(communityRepository.findDirectoryPageById(0L, Limit.of(50))).thenReturn(List.of(entry));
+        when(communityMapper.convertDirectoryEntryToResponse(entry)).thenReturn(communityResponse);
 
         // Act
-        List<CommunityResponse> responseList = communityService.getAllCommunities();
+        CommunityPageResponse page = communityService.getCommunityDirectory(null, 50, "id");
 
         // Assert
-        assertNotNull(responseList);
-        assertEquals(1, responseList.size());
-        assertEquals(communityResponse, responseList.get(0));
+        assertNotNull(page);
+        assertEquals(1, page.getCommunities().size());
+        assertEquals(communityResponse, page.getCommunities().get(0));
+        assertNull(page.getNextCursor());
 
         // Verify interactions
-        verify(communityRepository).findAll();
-        verify(communityMapper).convertCommunityToResponse(mockCommunity);
+        verify(communityRepository).findDirectoryPageById(0L, Limit.of(50));
+        verify(communityRepository, never()).findAll();
+    }
+
+    @Test
+    void getAllCommunities_shouldContinueAfterLastRowOfPreviousPage() {
+        // Arrange
+        CommunityDirectoryEntry first = directoryEntry(3L);
+        CommunityDirectoryEntry second = directoryEntry(8L);
+        when(communityRepository.findNewestDirectoryPage(Limit.of(2))).thenReturn(List.of(second, first));
+        when(communityRepository.findNewestDirectoryPageBefore(first.getCreatedAt(), 3L, Limit.of(2))).thenReturn(List.of());
+
+        // Act
+        CommunityPageResponse firstPage = communityService.getCommunityDirectory(null, 2, "new");
+        CommunityPageResponse lastPage = communityService.getCommunityDirectory(firstPage.getNextCursor(), 2, "new");
+
+        // Assert
+        assertNotNull(firstPage.getNextCursor());
+        assertTrue(lastPage.getCommunities().isEmpty());
+        assertNull(lastPage.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> communityService.getCommunityDirectory(firstPage.getNextCursor(), 2, "id"));
     }
 
     @Test
     void testGetAllCommunitiesEmptyList() {
         // Arrange
-        when(communityRepository.findAll()).thenReturn(Collections.emptyList());
+        when(communityRepository.findDirectoryPageById(0L, Limit.of(50))).thenReturn(Collections.emptyList());
 
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () -> {
-            communityService.getAllCommunities();
+            communityService.getCommunityDirectory(null, 50, "id");
         });
 
         assertEquals("There is no community", exception.getMessage());
 
         // Verify interactions
-        verify(communityRepository).findAll();
+        verify(communityRepository).findDirectoryPageById(0L, Limit.of(50));
         verifyNoInteractions(communityMapper);
     }
 
@@ -199,6 +238,7 @@ class CommunityServiceImplTest {
         when(userRepository.findUserByUsername("testUser")).thenReturn(Optional.of(mockUser));
         when(communityRepository.findByCommunityName("Updated Tech Group")).thenReturn(Optional.empty());
         when(communityRepository.save(any(Community.class))).thenReturn(mockCommunity);
+        when(communityRoleResolver.hasAnyRole(1L, null, CommunityRole.CREATOR, CommunityRole.MODERATOR)).thenReturn(true);
 
         UpdateCommunityRequest updateRequest = new UpdateCommunityRequest();
         updateRequest.setCommunity_name("Updated Tech Group");
@@ -223,6 +263,7 @@ class CommunityServiceImplTest {
         verify(userRepository).findUserByUsername("testUser");
         verify(communityRepository).save(mockCommunity);
         verify(communityMapper).convertCommunityToResponse(mockCommunity);
+        verify(communityCache).evict(1L, "Tech Group");
     }
 
     @Test
@@ -287,35 +328,46 @@ class CommunityServiceImplTest {
 
     @Test
     void getAllMembers() {
-        User mockUser1 = new User();
-        mockUser1.setUsername("user1");
-        mockUser1.setEmail("user1@example.com");
+        UserDto member1 = new UserDto(3L, "user1", "user1@example.com", null, List.of(Role.USER));
+        UserDto member2 = new UserDto(9L, "user2", "user2@example.com", null, List.of(Role.USER));
 
-        User mockUser2 = new User();
-        mockUser2.setUsername("user2");
-        mockUser2.setEmail("user2@example.com");
+        when(communityCache.findById(mockCommunity.getId())).thenReturn(Optional.of(summaryOf(mockCommunity)));
+        when(communityRepository.findMemberPage(mockCommunity.getId(), 0L, null, Limit.of(2))).thenReturn(List.of(member1, member2));
 
-        List<User> mockUsers = Arrays.asList(mockUser1, mockUser2);
+        MemberPageResponse result = communityService.getMembers(mockCommunity.getId(), null, 2, null);
 
-        when(communityRepository.findById(mockCommunity.getId())).thenReturn(Optional.of(mockCommunity));
-        when(communityRepository.getAllMembersByUsingCommunityId(mockCommunity.getId())).thenReturn(mockUsers);
+        assertNotNull(result);
+        assertEquals(2, result.getMembers().size());
+        assertEquals("user1", result.getMembers().get(0).getUsername());
+        assertEquals("user2", result.getMembers().get(1).getUsername());
+        assertNotNull(result.getNextCursor());
+        verify(communityRepository, never()).findById(any());
+
+        when(communityRepository.findMemberPage(mockCommunity.getId(), 9L, null, Limit.of(2))).thenReturn(List.of());
+        MemberPageResponse lastPage = communityService.getMembers(mockCommunity.getId(), result.getNextCursor(), 2, null);
+        assertTrue(lastPage.getMembers().isEmpty());
+        assertNull(lastPage.getNextCursor());
+    }
 
-        List<UserDto> result = communityService.getAllMembers(mockCommunity.getId());
+    @Test
+    void getAllMembers_shouldEscapeUsernamePrefix() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summaryOf(mockCommunity)));
+        when(communityRepository.findMemberPage(1L, 0L, "jo!_hn!%%", Limit.of(50))).thenReturn(List.of());
 
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("user1", result.get(0).getUsername());
-        assertEquals("user2", result.get(1).getUsername());
+        MemberPageResponse result = communityService.getMembers(1L, null, 50, "jo_hn%");
+
+        assertTrue(result.getMembers().isEmpty());
+        verify(communityRepository).findMemberPage(1L, 0L, "jo!_hn!%%", Limit.of(50));
     }
 
     @Test
     void getAllMembers_shouldThrowIllegalArgumentException_whenCommunityNotFound() {
-        // Arrange: Mock CommunityRepository to return an empty Optional when searching for the community.
-        when(communityRepository.findById(1L)).thenReturn(Optional.empty());
+        // Arrange: Mock CommunityCache to report that the community does not exist.
+        when(communityCache.findById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert: Verify that an IllegalArgumentException is thrown when trying to get all members
         IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> {
-            communityService.getAllMembers(1L);
+            communityService.getMembers(1L, null, 50, null);
         });
 
         // Assert: Verify the exception message
@@ -324,21 +376,21 @@ class CommunityServiceImplTest {
 
     @Test
     void getMembersCount_shouldReturnCount_whenCommunityFound() {
-        // Arrange: Mock CommunityRepository to return a community
-        when(communityRepository.findById(1L)).thenReturn(Optional.of(mockCommunity));
-        when(communityRepository.countApprovedUsersByCommunityId(1L)).thenReturn(5); // 5 üye
+        // Arrange: Mock the member counter to return the maintained count
+        when(communityMemberCounter.getMemberCount(1L)).thenReturn(5L); // 5 üye
 
         // Act: Call the method
-        int result = communityService.getMembersCount(1L);
+        long result = communityService.getMembersCount(1L);
 
-        // Assert: Verify that the result is 5
+        // Assert: Verify that the result is 5 and that neither the community nor its members were loaded
         assertEquals(5, result);
+        verifyNoInteractions(communityRepository);
     }
 
     @Test
     void getMembersCount_shouldThrowIllegalArgumentException_whenCommunityNotFound() {
-        // Arrange: Mock CommunityRepository to return an empty Optional when searching for the community
-        when(communityRepository.findById(1L)).thenReturn(Optional.empty());
+        // Arrange: Mock the member counter to fail for an unknown community
+        when(communityMemberCounter.getMemberCount(1L)).thenThrow(new IllegalArgumentException("Community not found with id : 1"));
 
         // Act & Assert: Verify that an IllegalArgumentException is thrown
         IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> {
@@ -378,8 +430,8 @@ class CommunityServiceImplTest {
     void addUserToCommunity_shouldAddUser_whenUserNotAlreadyInCommunity() {
         // Arrange: Mock the necessary methods
         when(userRepository.findUserByUsername("testUser")).thenReturn(Optional.of(mockUser));
-        when(communityRepository.countUserInCommunity(mockCommunity.getId(), mockUser.getId())).thenReturn(0);
-        when(communityRepository.save(mockCommunity)).thenReturn(mockCommunity);
+        when(communityRepository.findById(mockCommunity.getId())).thenReturn(Optional.of(mockCommunity));
+        when(communityRepository.insertMember(mockCommunity.getId(), mockUser.getId())).thenReturn(1);
 
         // Set missing fields to avoid null pointer exception
         mockCommunity.setAccess_level(AccessLevel.PUBLIC);  // Access level is set here to avoid NullPointerException
@@ -401,10 +453,10 @@ class CommunityServiceImplTest {
         );
 
         // Mock the mapping behavior of the mapper
-        when(communityMapper.convertCommunityToResponseWithApprovedUsers(mockCommunity)).thenReturn(mockResponse);
+        when(communityMapper.convertCommunityToResponseWithNewMember(mockCommunity, mockUser)).thenReturn(mockResponse);
 
         // Act: Call the method being tested
-        CommunityResponseWithApprovedUsers actualResponse = communityService.addUserToCommunity(mockCommunity, "testUser");
+        CommunityResponseWithApprovedUsers actualResponse = communityService.addUserToCommunity(summaryOf(mockCommunity), "testUser");
 
         // Assert: Verify the result is not null and matches the expected response
         assertNotNull(actualResponse);
@@ -416,23 +468,45 @@ class CommunityServiceImplTest {
         assertEquals(mockResponse.getAccess_level(), actualResponse.getAccess_level());
         assertEquals(mockResponse.getApprovedUsers().size(), actualResponse.getApprovedUsers().size());
         assertEquals(mockResponse.getApprovedUsers().get(0).getUsername(), actualResponse.getApprovedUsers().get(0).getUsername());
+        verify(communityRepository, never()).save(any(Community.class));
+        verify(communityRoleResolver).addMember(mockCommunity.getId(), mockUser.getId());
+        verify(communityMemberCounter).adjust(mockCommunity.getId(), 1);
+        verify(homeTimelineService).onMembershipChanged(mockUser.getId());
     }
 
     @Test
     void addUserToCommunity_shouldThrowIllegalArgumentException_whenUserAlreadyInCommunity() {
         // Arrange: Mock the necessary methods
         when(userRepository.findUserByUsername("testUser")).thenReturn(Optional.of(mockUser));
-        when(communityRepository.countUserInCommunity(mockCommunity.getId(), mockUser.getId())).thenReturn(1);
+        when(communityRepository.findById(mockCommunity.getId())).thenReturn(Optional.of(mockCommunity));
+        when(communityRepository.insertMember(mockCommunity.getId(), mockUser.getId())).thenReturn(0);
 
         // Act & Assert: Verify that an IllegalArgumentException is thrown when trying to add the user
         IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> {
-            communityService.addUserToCommunity(mockCommunity, "testUser");
+            communityService.addUserToCommunity(summaryOf(mockCommunity), "testUser");
         });
 
         // Assert: Verify the exception message
         assertEquals("User already is member of that community", thrown.getMessage());
     }
 
+    private CommunityDirectoryEntry directoryEntry(Long id) {
+        return CommunityDirectoryEntry.builder()
+                .id(id)
+                .communityName("Community " + id)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0).plusMinutes(id))
+                .accessLevel(AccessLevel.PUBLIC)
+                .build();
+    }
+
+    private CommunitySummary summaryOf(Community community) {
+        return CommunitySummary.builder()
+                .id(community.getId())
+                .communityName(community.getCommunityName())
+                .accessLevel(community.getAccess_level())
+                .build();
+    }
+
 
 
 }
\ No newline at end of file
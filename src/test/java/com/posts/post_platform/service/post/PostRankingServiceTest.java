@@ -0,0 +1,113 @@
+package com.posts.post_platform.service.post;
+
+import com.posts.post_platform.dto.PostRankingSeed;
+import com.posts.post_platform.model.PostFeedSort;
+import com.posts.post_platform.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostRankingServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private JedisPooled jedis;
+
+    private PostRankingService postRankingService;
+
+    @BeforeEach
+    void setUp() {
+        postRankingService = new PostRankingService(postRepository, jedis, 100);
+    }
+
+    @Test
+    void hotScore_shouldLetNewerPostsOvertakeOlderPostsWithMorePoints() {
+        long created = 1_720_000_000L;
+
+        assertTrue(PostRankingService.hotScore(10, created) > PostRankingService.hotScore(1, created));
+        assertEquals(PostRankingService.hotScore(100, created), PostRankingService.hotScore(10, created + PostRankingService.HOT_DECAY_SECONDS), 1e-9);
+        assertTrue(PostRankingService.hotScore(1, created + 2 * PostRankingService.HOT_DECAY_SECONDS) > PostRankingService.hotScore(10, created));
+        assertTrue(PostRankingService.hotScore(-10, created) < PostRankingService.hotScore(0, created));
+    }
+
+    @Test
+    void onPostLiked_shouldUpdateAllRankingsOfCommunityWithOneScript() {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+
+        postRankingService.onPostLiked(1L, 10L, createdAt, 1);
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+        verify(jedis).eval(anyString(), keys.capture(), args.capture());
+        assertEquals(List.of("post_ranking:1:hot", "post_ranking:1:top:all", "post_ranking:1:top:week",
+                "post_ranking:1:top:week:created", "post_ranking:1:top:day", "post_ranking:1:top:day:created"), keys.getValue());
+        assertEquals("10", args.getValue().get(0));
+        assertEquals("1", args.getValue().get(1));
+        assertEquals(Long.toString(createdAt.toEpochSecond(ZoneOffset.UTC)), args.getValue().get(2));
+        assertEquals("0", args.getValue().get(5));
+    }
+
+    @Test
+    void onPostCommented_shouldNotThrow_whenRedisIsDown() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenThrow(new JedisConnectionException("down"));
+
+        assertDoesNotThrow(() -> postRankingService.onPostCommented(1L, 10L, LocalDateTime.now()));
+    }
+
+    @Test
+    void getRankedPostIds_shouldReadPageOfSeededRanking() {
+        when(jedis.exists("post_ranking:1:seeded")).thenReturn(true);
+        when(jedis.zrevrange("post_ranking:1:hot", 20, 29)).thenReturn(List.of("7", "3"));
+
+        assertEquals(List.of(7L, 3L), postRankingService.getRankedPostIds(1L, PostFeedSort.HOT, 20, 10));
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void getRankedPostIds_shouldDropPostsOlderThanWindow() {
+        when(jedis.exists("post_ranking:1:seeded")).thenReturn(true);
+
+        postRankingService.getRankedPostIds(1L, PostFeedSort.TOP_DAY, 0, 10);
+
+        verify(jedis).eval(anyString(), eq(List.of("post_ranking:1:top:day", "post_ranking:1:top:day:created")), anyList());
+        verify(jedis).zrevrange("post_ranking:1:top:day", 0, 9);
+    }
+
+    @Test
+    void getRankedPostIds_shouldRebuildCommunityThatWasNeverSeeded() {
+        LocalDateTime now = LocalDateTime.now();
+        when(jedis.exists("post_ranking:1:seeded")).thenReturn(false);
+        when(postRepository.findTopRankingSeeds(eq(1L), any(), any())).thenReturn(List.of(
+                new PostRankingSeed(1L, now.minusDays(30), 50L)));
+        when(postRepository.findRankingSeedsCreatedSince(eq(1L), any(), any(), any())).thenReturn(List.of(
+                new PostRankingSeed(2L, now.minusHours(2), 3L)));
+
+        postRankingService.getRankedPostIds(1L, PostFeedSort.TOP_ALL, 0, 10);
+
+        verify(jedis).zadd("post_ranking:1:top:all:rebuild", Map.of("1", 50.0, "2", 3.0));
+        verify(jedis).zadd("post_ranking:1:top:day:rebuild", Map.of("2", 3.0));
+        verify(jedis).rename("post_ranking:1:top:all:rebuild", "post_ranking:1:top:all");
+        verify(jedis).set(eq("post_ranking:1:seeded"), anyString());
+        verify(jedis).zrevrange("post_ranking:1:top:all", 0, 9);
+    }
+}
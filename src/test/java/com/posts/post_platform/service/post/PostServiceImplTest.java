@@ -0,0 +1,309 @@
+package com.posts.post_platform.service.post;
+
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.dto.PostFeedEntry;
+import com.posts.post_platform.mapper.PostMapper;
+import com.posts.post_platform.model.AccessLevel;
+import com.posts.post_platform.model.Community;
+import com.posts.post_platform.model.CommunityRole;
+import com.posts.post_platform.model.Post;
+import com.posts.post_platform.model.PostFeedSort;
+import com.posts.post_platform.model.Status;
+import com.posts.post_platform.model.User;
+import com.posts.post_platform.model.Vote;
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.repository.UserRepositories;
+import com.posts.post_platform.response.PostPageResponse;
+import com.posts.post_platform.response.PostResponse;
+import com.posts.post_platform.security.JwtUserDetails;
+import com.posts.post_platform.service.community.CommunityCache;
+import com.posts.post_platform.service.community.CommunityRoleResolver;
+import com.posts.post_platform.service.timeline.HomeTimelineService;
+import com.posts.post_platform.service.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostServiceImplTest {
+
+    @Mock
+    private CommunityCache communityCache;
+
+    @Mock
+    private UserRepositories userRepositories;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private CommunityRoleResolver communityRoleResolver;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private PostRankingService postRankingService;
+
+    @Mock
+    private HomeTimelineService homeTimelineService;
+
+    @Mock
+    private PostVoteCounter postVoteCounter;
+
+    private PostServiceImpl postService;
+    private JwtUserDetails principal;
+    private final LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        postService = new PostServiceImpl(communityCache, userRepositories, postRepository, new PostMapper(), communityRoleResolver, userService, postRankingService, homeTimelineService, postVoteCounter);
+        principal = JwtUserDetails.create(5L, "testUser", new String[]{"USER"});
+    }
+
+    @Test
+    void getPostsByCommunity_shouldReturnPageWithCursor_whenPageIsFull() {
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+        when(postRepository.findCommunityFeed(eq(1L), any(), eq(Limit.of(2)))).thenReturn(List.of(
+                entry(12L, now), entry(11L, now.minusMinutes(1))));
+
+        PostPageResponse page = postService.getPostsByCommunity("Tech Group", principal, PostFeedSort.NEW, null, 2);
+
+        assertEquals(2, page.getPosts().size());
+        assertEquals("Tech Group", page.getPosts().get(0).getCommunityName());
+        assertEquals("author", page.getPosts().get(0).getCreatorUsername());
+        assertNotNull(page.getNextCursor());
+        verifyNoInteractions(userService, communityRoleResolver);
+    }
+
+    @Test
+    void getPostsByCommunityId_shouldContinueAfterCursor() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+        when(postRepository.findCommunityFeed(eq(1L), any(), eq(Limit.of(1)))).thenReturn(List.of(entry(12L, now)));
+        when(postRepository.findCommunityFeedBefore(eq(1L), any(), eq(now), eq(12L), eq(Limit.of(1)))).thenReturn(List.of());
+
+        String cursor = postService.getPostsByCommunityId(1L, principal, PostFeedSort.NEW, null, 1).getNextCursor();
+        PostPageResponse lastPage = postService.getPostsByCommunityId(1L, principal, PostFeedSort.NEW, cursor, 1);
+
+        assertTrue(lastPage.getPosts().isEmpty());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void getPostsByCommunityId_shouldPageActiveFeedByLastActivity_withCountsAndVotesOfPosts() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+        when(postRepository.findCommunityFeedByActivity(eq(1L), any(), eq(Limit.of(1)))).thenReturn(List.of(
+                new PostFeedEntry(11L, "Title", "Content", now.minusDays(1), Status.ACTIVE, "author", 3L, now, 4, 1)));
+        when(postVoteCounter.getPendingUps(11L)).thenReturn(2L);
+        when(postRepository.findCommunityFeedByActivityBefore(eq(1L), any(), eq(now), eq(11L), eq(Limit.of(1)))).thenReturn(List.of());
+
+        PostPageResponse page = postService.getPostsByCommunityId(1L, principal, PostFeedSort.ACTIVE, null, 1);
+        PostPageResponse lastPage = postService.getPostsByCommunityId(1L, principal, PostFeedSort.ACTIVE, page.getNextCursor(), 1);
+
+        assertEquals(3L, page.getPosts().get(0).getCommentCount());
+        assertEquals(now, page.getPosts().get(0).getLastActivityAt());
+        assertEquals(6L, page.getPosts().get(0).getLikeCount());
+        assertEquals(1L, page.getPosts().get(0).getDislikeCount());
+        assertTrue(lastPage.getPosts().isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> postService.getPostsByCommunityId(1L, principal, PostFeedSort.NEW, page.getNextCursor(), 1));
+        verify(postRepository, never()).findCommunityFeed(any(), any(), any());
+    }
+
+    @Test
+    void getPostsByCommunityId_shouldQueryOnlyVisibleStatuses() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+
+        postService.getPostsByCommunityId(1L, principal, PostFeedSort.NEW, null, 10);
+
+        verify(postRepository).findCommunityFeed(1L, List.of(Status.ACTIVE, Status.PENDING), Limit.of(10));
+    }
+
+    @Test
+    void getPostsByCommunity_shouldThrow_whenUserIsNotMemberOfPrivateCommunity() {
+        when(communityCache.findByName("Tech Group")).thenReturn(Optional.of(summary(AccessLevel.PRIVATE)));
+        when(userService.getUserId(principal)).thenReturn(5L);
+        when(communityRoleResolver.hasAnyRole(1L, 5L, CommunityRole.MEMBER, CommunityRole.MODERATOR)).thenReturn(false);
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> postService.getPostsByCommunity("Tech Group", principal, PostFeedSort.NEW, null, 10));
+        assertEquals("You are not a member or moderator", thrown.getMessage());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void getPostsByCommunityId_shouldThrow_whenCursorIsInvalid() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> postService.getPostsByCommunityId(1L, principal, PostFeedSort.NEW, "not-a-cursor", 10));
+        assertEquals("Invalid cursor", thrown.getMessage());
+    }
+
+    @Test
+    void getPostsByCommunityId_shouldHydrateRankedPostsInRankingOrder() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+        when(postRankingService.getRankedPostIds(1L, PostFeedSort.HOT, 0, 3)).thenReturn(List.of(30L, 10L, 20L));
+        when(postRepository.findFeedEntriesByIds(List.of(30L, 10L, 20L), List.of(Status.ACTIVE, Status.PENDING)))
+                .thenReturn(List.of(entry(10L, now), entry(30L, now)));
+
+        PostPageResponse page = postService.getPostsByCommunityId(1L, principal, PostFeedSort.HOT, null, 3);
+
+        assertEquals(List.of(30L, 10L), page.getPosts().stream().map(post -> post.getPost_id()).toList());
+        assertNotNull(page.getNextCursor());
+        verify(postRepository, never()).findCommunityFeed(any(), any(), any());
+    }
+
+    @Test
+    void getPostsByCommunityId_shouldContinueRankingAtCursorOffset() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+        when(postRankingService.getRankedPostIds(1L, PostFeedSort.TOP_WEEK, 0, 2)).thenReturn(List.of(1L, 2L));
+        when(postRepository.findFeedEntriesByIds(any(), any())).thenReturn(List.of());
+
+        String cursor = postService.getPostsByCommunityId(1L, principal, PostFeedSort.TOP_WEEK, null, 2).getNextCursor();
+        postService.getPostsByCommunityId(1L, principal, PostFeedSort.TOP_WEEK, cursor, 2);
+
+        verify(postRankingService).getRankedPostIds(1L, PostFeedSort.TOP_WEEK, 2, 2);
+        assertThrows(IllegalArgumentException.class,
+                () -> postService.getPostsByCommunityId(1L, principal, PostFeedSort.HOT, cursor, 2));
+    }
+
+    @Test
+    void getPostsByCommunityId_shouldServeNewestPosts_whenRankingsAreUnavailable() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(summary(AccessLevel.PUBLIC)));
+        when(postRankingService.getRankedPostIds(1L, PostFeedSort.HOT, 0, 10)).thenThrow(new JedisConnectionException("down"));
+        when(postRepository.findCommunityFeed(eq(1L), any(), eq(Limit.of(10)))).thenReturn(List.of(entry(12L, now)));
+
+        PostPageResponse page = postService.getPostsByCommunityId(1L, principal, PostFeedSort.HOT, null, 10);
+
+        assertEquals(1, page.getPosts().size());
+    }
+
+    @Test
+    void getPostsByUsername_shouldPassViewerToQuery() {
+        when(userRepositories.findIdByUsername("author")).thenReturn(Optional.of(7L));
+        when(userService.getUserId(principal)).thenReturn(5L);
+        PostFeedEntry entry = PostFeedEntry.builder().id(12L).title("Title").content("Content").createdAt(now)
+                .status(Status.ACTIVE).creatorUsername("author").communityName("Private Group").build();
+        when(postRepository.findUserPosts(7L, 5L, Limit.of(10))).thenReturn(List.of(entry));
+
+        PostPageResponse page = postService.getPostsByUsername("author", principal, null, 10);
+
+        assertEquals(1, page.getPosts().size());
+        assertEquals("Private Group", page.getPosts().get(0).getCommunityName());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(communityRoleResolver, communityCache);
+    }
+
+    @Test
+    void getPostsByUsername_shouldQueryWithoutViewer_whenAnonymous() {
+        when(userRepositories.findIdByUsername("author")).thenReturn(Optional.of(7L));
+
+        postService.getPostsByUsername("author", null, null, 10);
+
+        verify(postRepository).findUserPosts(7L, null, Limit.of(10));
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void getPostsByUsername_shouldThrow_whenUserNotFound() {
+        when(userRepositories.findIdByUsername("unknown")).thenReturn(Optional.empty());
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> postService.getPostsByUsername("unknown", principal, null, 10));
+        assertEquals("User not found with username : unknown", thrown.getMessage());
+    }
+
+    @Test
+    void likePost_shouldRecordVoteAndCountPendingChanges_whenNotLikedYet() {
+        when(postRepository.findById(12L)).thenReturn(Optional.of(post(AccessLevel.PUBLIC, 4)));
+        when(userService.getUserId(principal)).thenReturn(5L);
+        when(postVoteCounter.vote(12L, 5L, Vote.UP)).thenReturn(Vote.NONE);
+        when(postVoteCounter.getPendingUps(12L)).thenReturn(2L);
+
+        PostResponse response = postService.likePost(12L, principal);
+
+        assertEquals(7L, response.getLikeCount());
+        assertEquals(0L, response.getDislikeCount());
+        verify(postRankingService).onPostLiked(1L, 12L, now, 1);
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void likePost_shouldNotChangeCount_whenAlreadyLiked() {
+        when(postRepository.findById(12L)).thenReturn(Optional.of(post(AccessLevel.PUBLIC, 4)));
+        when(userService.getUserId(principal)).thenReturn(5L);
+        when(postVoteCounter.vote(12L, 5L, Vote.UP)).thenReturn(Vote.UP);
+
+        PostResponse response = postService.likePost(12L, principal);
+
+        assertEquals(4L, response.getLikeCount());
+        verifyNoInteractions(postRankingService);
+    }
+
+    @Test
+    void unlikePost_shouldRemoveVote() {
+        when(postRepository.findById(12L)).thenReturn(Optional.of(post(AccessLevel.PUBLIC, 4)));
+        when(userService.getUserId(principal)).thenReturn(5L);
+        when(postVoteCounter.vote(12L, 5L, Vote.NONE)).thenReturn(Vote.UP);
+
+        PostResponse response = postService.unlikePost(12L, principal);
+
+        assertEquals(3L, response.getLikeCount());
+        verify(postRankingService).onPostLiked(1L, 12L, now, -1);
+    }
+
+    @Test
+    void votePost_shouldMoveBothCounts_whenUpVoteTurnsIntoDownVote() {
+        when(postRepository.findById(12L)).thenReturn(Optional.of(post(AccessLevel.PUBLIC, 4)));
+        when(userService.getUserId(principal)).thenReturn(5L);
+        when(postVoteCounter.vote(12L, 5L, Vote.DOWN)).thenReturn(Vote.UP);
+
+        PostResponse response = postService.votePost(12L, Vote.DOWN, principal);
+
+        assertEquals(3L, response.getLikeCount());
+        assertEquals(1L, response.getDislikeCount());
+        verify(postRankingService).onPostLiked(1L, 12L, now, -2);
+    }
+
+    @Test
+    void likePost_shouldThrow_whenUserIsNotMemberOfPrivateCommunity() {
+        when(postRepository.findById(12L)).thenReturn(Optional.of(post(AccessLevel.PRIVATE, 4)));
+        when(userService.getUserId(principal)).thenReturn(5L);
+        when(communityRoleResolver.hasAnyRole(1L, 5L, CommunityRole.MEMBER, CommunityRole.MODERATOR)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> postService.likePost(12L, principal));
+        verifyNoInteractions(postVoteCounter);
+    }
+
+    private Post post(AccessLevel accessLevel, int likeCount) {
+        User creator = new User();
+        creator.setUsername("author");
+        Community community = Community.builder().id(1L).communityName("Tech Group").access_level(accessLevel).build();
+        return Post.builder().id(12L).title("Title").content("Content").createdAt(now).status(Status.ACTIVE)
+                .likeCount(likeCount).creator(creator).community(community).build();
+    }
+
+    private CommunitySummary summary(AccessLevel accessLevel) {
+        return new CommunitySummary(1L, "Tech Group", accessLevel, 4L, 3L);
+    }
+
+    private PostFeedEntry entry(Long id, LocalDateTime createdAt) {
+        return PostFeedEntry.builder().id(id).title("Title " + id).content("Content").createdAt(createdAt)
+                .status(Status.ACTIVE).creatorUsername("author").build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.posts.post_platform.service.post;
+
+import com.posts.post_platform.model.Vote;
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.service.vote.VoteCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostVoteCounterTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    private PostVoteCounter postVoteCounter;
+
+    @BeforeEach
+    void setUp() {
+        postVoteCounter = new PostVoteCounter(postRepository, 60, 100);
+    }
+
+    @Test
+    void vote_shouldChangeCountsByDifference_whenUpVoteTurnsIntoDownVote() {
+        when(postRepository.findVotes(1L)).thenReturn(List.<Object[]>of(new Object[]{5L, 1}));
+        when(postRepository.updateVote(1L, 5L, 1, -1)).thenReturn(1);
+
+        Vote previous = postVoteCounter.vote(1L, 5L, Vote.DOWN);
+
+        assertEquals(Vote.UP, previous);
+        assertEquals(-1L, postVoteCounter.getPendingUps(1L));
+        assertEquals(1L, postVoteCounter.getPendingDowns(1L));
+        assertEquals(Vote.DOWN, postVoteCounter.getVote(1L, 5L));
+    }
+
+    @Test
+    void vote_shouldNotChangeCounts_whenVoteIsRepeated() {
+        when(postRepository.findVotes(1L)).thenReturn(List.<Object[]>of(new Object[]{5L, 1}));
+        when(postRepository.findVoteForUpdate(1L, 5L)).thenReturn(Optional.of(1));
+
+        Vote previous = postVoteCounter.vote(1L, 5L, Vote.UP);
+
+        assertEquals(Vote.UP, previous);
+        assertEquals(0L, postVoteCounter.getPendingUps(1L));
+        verify(postRepository, never()).updateVote(anyLong(), anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void flush_shouldShareOneUpdatePerDelta() {
+        Map<Long, Long> ups = new HashMap<>();
+        ups.put(1L, 1L);
+        ups.put(2L, 1L);
+        ups.put(3L, -1L);
+
+        int statements = postVoteCounter.flush(new VoteCounter.Drained(ups, Map.of(3L, 1L)));
+
+        assertEquals(3, statements);
+        verify(postRepository).addLikeCounts(eq(1L), argThat(ids -> ids.containsAll(List.of(1L, 2L)) && ids.size() == 2));
+        verify(postRepository).addLikeCounts(-1L, List.of(3L));
+        verify(postRepository).addDislikeCounts(1L, List.of(3L));
+    }
+
+    @Test
+    void drain_shouldNotLoseVotes_whenDrainedWhileVoting() throws Exception {
+        int threads = 8;
+        int votesPerThread = 50_000;
+        AtomicLong userIds = new AtomicLong();
+        when(postRepository.findVotes(1L)).thenReturn(List.of());
+        when(postRepository.insertVote(eq(1L), anyLong(), eq(1))).thenReturn(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean voting = new AtomicBoolean(true);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int vote = 0; vote < votesPerThread; vote++) {
+                    postVoteCounter.vote(1L, userIds.incrementAndGet(), Vote.UP);
+                }
+            });
+        }
+        executor.shutdown();
+        long flushed = 0;
+        start.countDown();
+        while (voting.get()) {
+            if (executor.awaitTermination(1, TimeUnit.MILLISECONDS)) voting.set(false);
+            flushed += postVoteCounter.drain().ups().getOrDefault(1L, 0L);
+        }
+
+        assertEquals((long) threads * votesPerThread, flushed);
+        assertEquals(Vote.UP, postVoteCounter.getVote(1L, 1L));
+    }
+}
@@ -0,0 +1,53 @@
+package com.posts.post_platform.service.timeline;
+
+import com.posts.post_platform.service.timeline.HomeTimelineService.TimelinePosition;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reports how long the k-way merge of one home timeline page takes for a user who joined many large communities.
+ * It prints the timings instead of asserting them and only runs with {@code mvn test -Pbenchmarks}.
+ */
+@Tag("benchmark")
+class HomeTimelineMergeBenchmarkTest {
+    private static final int WARMUP_RUNS = 200;
+    private static final int MEASURED_RUNS = 1000;
+    private static final int PAGE_SIZE = 25;
+
+    @Test
+    void mergeNewestFirst() {
+        for (int communities : new int[]{10, 100, 1000}) {
+            List<List<TimelinePosition>> streams = randomStreams(communities, 35, new Random(7));
+            for (int run = 0; run < WARMUP_RUNS; run++) {
+                HomeTimelineService.mergeNewestFirst(streams, null, PAGE_SIZE);
+            }
+            long start = System.nanoTime();
+            for (int run = 0; run < MEASURED_RUNS; run++) {
+                HomeTimelineService.mergeNewestFirst(streams, null, PAGE_SIZE);
+            }
+            Duration perPage = Duration.ofNanos((System.nanoTime() - start) / MEASURED_RUNS);
+            System.out.printf("mergeNewestFirst: %d communities, %d posts per page, %d us per page%n",
+                    communities, PAGE_SIZE, perPage.toNanos() / 1000);
+        }
+    }
+
+    private List<List<TimelinePosition>> randomStreams(int count, int size, Random random) {
+        List<List<TimelinePosition>> streams = new ArrayList<>();
+        long postId = 1;
+        for (int stream = 0; stream < count; stream++) {
+            List<TimelinePosition> positions = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                positions.add(new TimelinePosition(1_700_000_000_000L + random.nextInt(1_000_000_000), postId++));
+            }
+            positions.sort(Comparator.naturalOrder());
+            streams.add(positions);
+        }
+        return streams;
+    }
+}
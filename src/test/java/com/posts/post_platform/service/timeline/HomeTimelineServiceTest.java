@@ -0,0 +1,226 @@
+package com.posts.post_platform.service.timeline;
+
+import com.posts.post_platform.dto.CommunitySummary;
+import com.posts.post_platform.dto.PostFeedEntry;
+import com.posts.post_platform.mapper.PostMapper;
+import com.posts.post_platform.model.AccessLevel;
+import com.posts.post_platform.model.Status;
+import com.posts.post_platform.repository.CommunityRepository;
+import com.posts.post_platform.repository.PostRepository;
+import com.posts.post_platform.response.PostPageResponse;
+import com.posts.post_platform.service.community.CommunityCache;
+import com.posts.post_platform.service.post.PostVoteCounter;
+import com.posts.post_platform.service.timeline.HomeTimelineService.TimelinePosition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.resps.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HomeTimelineServiceTest {
+    private static final int JOINED_COMMUNITIES = 1000;
+
+    @Mock
+    private CommunityRepository communityRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private CommunityCache communityCache;
+
+    @Mock
+    private PostVoteCounter postVoteCounter;
+
+    @Mock
+    private JedisPooled jedis;
+
+    @Mock
+    private Pipeline pipeline;
+
+    private HomeTimelineService homeTimelineService;
+
+    @BeforeEach
+    void setUp() {
+        homeTimelineService = new HomeTimelineService(communityRepository, postRepository, communityCache, new PostMapper(), postVoteCounter, jedis, 100, 800, 500, 3600, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        homeTimelineService.shutdown();
+    }
+
+    @Test
+    void mergeNewestFirst_shouldInterleaveStreamsAndSkipDuplicates() {
+        List<List<TimelinePosition>> streams = List.of(
+                List.of(position(50, 5), position(30, 3), position(10, 1)),
+                List.of(position(40, 4), position(30, 3), position(20, 2)));
+
+        List<TimelinePosition> page = HomeTimelineService.mergeNewestFirst(streams, null, 4);
+
+        assertEquals(List.of(5L, 4L, 3L, 2L), page.stream().map(TimelinePosition::postId).toList());
+    }
+
+    @Test
+    void mergeNewestFirst_shouldContinueAfterCursorPosition() {
+        List<List<TimelinePosition>> streams = List.of(
+                List.of(position(50, 5), position(30, 7), position(30, 3)),
+                List.of(position(30, 6), position(20, 2)));
+
+        List<TimelinePosition> page = HomeTimelineService.mergeNewestFirst(streams, position(30, 7), 10);
+
+        assertEquals(List.of(6L, 3L, 2L), page.stream().map(TimelinePosition::postId).toList());
+    }
+
+    @Test
+    void mergeNewestFirst_shouldMergeStreamsOfThousandCommunities() {
+        List<List<TimelinePosition>> streams = randomStreams(JOINED_COMMUNITIES, 35, new Random(7));
+        List<TimelinePosition> expected = streams.stream().flatMap(List::stream).sorted().limit(25).toList();
+
+        List<TimelinePosition> page = HomeTimelineService.mergeNewestFirst(streams, null, 25);
+
+        assertEquals(expected, page);
+    }
+
+    @Test
+    void getHomeTimeline_shouldMergeStreamsOfThousandLargeCommunitiesWithOneHydrationQuery() {
+        List<CommunitySummary> joined = new ArrayList<>();
+        for (long communityId = 1; communityId <= JOINED_COMMUNITIES; communityId++) {
+            joined.add(new CommunitySummary(communityId, "Community " + communityId, AccessLevel.PUBLIC, 1L, 1000L));
+        }
+        List<List<TimelinePosition>> streams = randomStreams(JOINED_COMMUNITIES, 35, new Random(11));
+        List<Response<List<Tuple>>> responses = new ArrayList<>();
+        for (List<TimelinePosition> stream : streams) {
+            responses.add(response(stream.stream().map(p -> new Tuple(Long.toString(p.postId()), p.score())).toList()));
+        }
+        Response<Boolean> seeded = response(true);
+        when(communityRepository.findJoinedCommunitySummaries(5L)).thenReturn(joined);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(pipeline.exists(anyString())).thenReturn(seeded);
+        when(pipeline.zrevrangeByScoreWithScores(anyString(), anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenAnswer(invocation -> {
+                    String key = invocation.getArgument(0);
+                    return responses.get(Integer.parseInt(key.substring(HomeTimelineService.STREAM_KEY_PREFIX.length())) - 1);
+                });
+        List<TimelinePosition> expected = streams.stream().flatMap(List::stream).sorted().limit(25).toList();
+        when(postRepository.findFeedEntriesByIds(anyList(), any())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> PostFeedEntry.builder().id(id).title("Title").content("Content").createdAt(LocalDateTime.now())
+                    .status(Status.ACTIVE).creatorUsername("author").communityName("Community").build()).toList();
+        });
+
+        PostPageResponse page = homeTimelineService.getHomeTimeline(5L, null, 25);
+
+        assertEquals(expected.stream().map(TimelinePosition::postId).toList(), page.getPosts().stream().map(post -> post.getPost_id()).toList());
+        assertNotNull(page.getNextCursor());
+        verify(jedis, never()).exists(anyString());
+        verify(postRepository, times(1)).findFeedEntriesByIds(anyList(), any());
+    }
+
+    @Test
+    void onPostCreated_shouldFanOutToMembers_whenCommunityIsSmall() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(new CommunitySummary(1L, "Small", AccessLevel.PUBLIC, 1L, 3L)));
+        when(communityRepository.findMemberIdsAfter(1L, 0L, Limit.of(500))).thenReturn(List.of(7L, 8L, 9L));
+        when(jedis.pipelined()).thenReturn(pipeline);
+
+        homeTimelineService.onPostCreated(1L, 42L, LocalDateTime.now());
+
+        verify(jedis).zadd(eq("community_posts:1"), anyDouble(), eq("42"));
+        verify(pipeline, timeout(1000)).eval(anyString(), eq(List.of("home_timeline:7")), anyList());
+        verify(pipeline, timeout(1000)).eval(anyString(), eq(List.of("home_timeline:9")), anyList());
+    }
+
+    @Test
+    void onPostCreated_shouldDropFanOutInsteadOfRunningItOnCaller_whenPoolIsSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Set<Thread> fanOutThreads = ConcurrentHashMap.newKeySet();
+        when(communityCache.findById(1L)).thenReturn(Optional.of(new CommunitySummary(1L, "Small", AccessLevel.PUBLIC, 1L, 3L)));
+        when(communityRepository.findMemberIdsAfter(1L, 0L, Limit.of(500))).thenAnswer(invocation -> {
+            fanOutThreads.add(Thread.currentThread());
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        for (long postId = 1; postId <= 1002; postId++) {
+            homeTimelineService.onPostCreated(1L, postId, LocalDateTime.now());
+        }
+        release.countDown();
+
+        verify(jedis, times(1002)).zadd(eq("community_posts:1"), anyDouble(), anyString());
+        verify(communityRepository, timeout(5000).times(1001)).findMemberIdsAfter(1L, 0L, Limit.of(500));
+        assertFalse(fanOutThreads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    void onPostCreated_shouldOnlyWriteCommunityStream_whenCommunityIsLarge() {
+        when(communityCache.findById(1L)).thenReturn(Optional.of(new CommunitySummary(1L, "Large", AccessLevel.PUBLIC, 1L, 5000L)));
+
+        homeTimelineService.onPostCreated(1L, 42L, LocalDateTime.now());
+
+        verify(jedis).zadd(eq("community_posts:1"), anyDouble(), eq("42"));
+        verify(communityRepository, after(200).never()).findMemberIdsAfter(any(), any(), any());
+    }
+
+    @Test
+    void getHomeTimeline_shouldReturnEmptyPage_whenUserJoinedNoCommunity() {
+        when(communityRepository.findJoinedCommunitySummaries(5L)).thenReturn(List.of());
+
+        PostPageResponse page = homeTimelineService.getHomeTimeline(5L, null, 25);
+
+        assertTrue(page.getPosts().isEmpty());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(jedis);
+    }
+
+    private List<List<TimelinePosition>> randomStreams(int count, int size, Random random) {
+        List<List<TimelinePosition>> streams = new ArrayList<>();
+        long postId = 1;
+        for (int stream = 0; stream < count; stream++) {
+            List<TimelinePosition> positions = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                positions.add(position(1_700_000_000_000L + random.nextInt(1_000_000_000), postId++));
+            }
+            positions.sort(Comparator.naturalOrder());
+            streams.add(positions);
+        }
+        return streams;
+    }
+
+    private TimelinePosition position(long score, long postId) {
+        return new TimelinePosition(score, postId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Response<T> response(T value) {
+        Response<T> response = mock(Response.class);
+        lenient().when(response.get()).thenReturn(value);
+        return response;
+    }
+}
@@ -0,0 +1,108 @@
+package com.posts.post_platform.service.vote;
+
+import com.posts.post_platform.model.Vote;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VoteLedgerTest {
+
+    @Mock
+    private VoteLedger.Store store;
+
+    private VoteLedger voteLedger;
+
+    @BeforeEach
+    void setUp() {
+        voteLedger = new VoteLedger(store, 60_000, 100);
+    }
+
+    @Test
+    void getVote_shouldLoadVotersOnceAndAnswerFromBitmaps() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long userId = 1; userId <= 1_000_000; userId++) {
+            rows.add(new Object[]{userId, userId % 3 == 0 ? -1 : 1});
+        }
+        when(store.findVotes(1L)).thenReturn(rows);
+
+        assertEquals(Vote.UP, voteLedger.getVote(1L, 1L));
+        assertEquals(Vote.DOWN, voteLedger.getVote(1L, 3L));
+        assertEquals(Vote.NONE, voteLedger.getVote(1L, 1_000_001L));
+        assertEquals(Vote.NONE, voteLedger.getVote(1L, null));
+        verify(store, times(1)).findVotes(1L);
+    }
+
+    @Test
+    void change_shouldWriteAgainstCachedVote_withoutLockingRead() {
+        when(store.findVotes(1L)).thenReturn(List.<Object[]>of(new Object[]{5L, 1}));
+        when(store.deleteVote(1L, 5L, 1)).thenReturn(1);
+
+        Vote previous = voteLedger.change(1L, 5L, Vote.NONE);
+
+        assertEquals(Vote.UP, previous);
+        verify(store, never()).findVoteForUpdate(anyLong(), anyLong());
+    }
+
+    @Test
+    void change_shouldReadLockedRow_whenCachedVoteIsStale() {
+        when(store.findVotes(1L)).thenReturn(List.of());
+        // another node recorded a down vote after this node loaded the voters
+        when(store.insertVote(1L, 5L, 1)).thenReturn(0);
+        when(store.findVoteForUpdate(1L, 5L)).thenReturn(Optional.of(-1));
+        when(store.updateVote(1L, 5L, -1, 1)).thenReturn(1);
+
+        Vote previous = voteLedger.change(1L, 5L, Vote.UP);
+
+        assertEquals(Vote.DOWN, previous);
+    }
+
+    @Test
+    void change_shouldCorrectOnlyVoteOfUser_whenCachedVoteIsStale() {
+        when(store.findVotes(1L)).thenReturn(List.<Object[]>of(new Object[]{6L, 1}));
+        when(store.insertVote(1L, 5L, 1)).thenReturn(0);
+        when(store.findVoteForUpdate(1L, 5L)).thenReturn(Optional.of(1));
+
+        Vote previous = voteLedger.change(1L, 5L, Vote.UP);
+
+        assertEquals(Vote.UP, previous);
+        assertEquals(Vote.UP, voteLedger.getVote(1L, 5L));
+        assertEquals(Vote.UP, voteLedger.getVote(1L, 6L));
+        verify(store, times(1)).findVotes(1L);
+        verify(store, never()).updateVote(anyLong(), anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void change_shouldFail_whenRowChangesBetweenLockedReadAndWrite() {
+        when(store.findVotes(1L)).thenReturn(List.of());
+        when(store.insertVote(1L, 5L, 1)).thenReturn(0);
+        when(store.findVoteForUpdate(1L, 5L)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> voteLedger.change(1L, 5L, Vote.UP));
+    }
+
+    @Test
+    void apply_shouldOverlayCommittedChangeOnCachedBitmaps() {
+        when(store.findVotes(1L)).thenReturn(List.<Object[]>of(new Object[]{5L, 1}));
+        voteLedger.getVote(1L, 5L);
+
+        voteLedger.apply(1L, 5L, Vote.DOWN);
+        voteLedger.apply(1L, 6L, Vote.UP);
+
+        assertEquals(Vote.DOWN, voteLedger.getVote(1L, 5L));
+        assertEquals(Vote.UP, voteLedger.getVote(1L, 6L));
+        verify(store, times(1)).findVotes(1L);
+        verify(store, never()).updateVote(anyLong(), anyLong(), anyInt(), anyInt());
+    }
+}